@@ -3,6 +3,7 @@ package com.ably.tracking.common
 import com.ably.tracking.ConnectionException
 import com.ably.tracking.EnhancedLocationUpdate
 import com.ably.tracking.ErrorInformation
+import com.ably.tracking.Location
 import com.ably.tracking.LocationUpdate
 import com.ably.tracking.common.logging.createLoggingTag
 import com.ably.tracking.common.logging.d
@@ -10,7 +11,7 @@ import com.ably.tracking.common.logging.e
 import com.ably.tracking.common.logging.i
 import com.ably.tracking.common.logging.v
 import com.ably.tracking.common.logging.w
-import com.ably.tracking.common.message.getEnhancedLocationUpdate
+import com.ably.tracking.common.message.getCombinedLocationUpdate
 import com.ably.tracking.common.message.getRawLocationUpdate
 import com.ably.tracking.common.message.toMessage
 import com.ably.tracking.common.message.toMessageJson
@@ -18,6 +19,7 @@ import com.ably.tracking.connection.ConnectionConfiguration
 import com.ably.tracking.logging.LogHandler
 import com.google.gson.Gson
 import io.ably.lib.realtime.AblyRealtime
+import io.ably.lib.realtime.Channel.MessageListener
 import io.ably.lib.realtime.ChannelState
 import io.ably.lib.realtime.CompletionListener
 import io.ably.lib.realtime.ConnectionState
@@ -37,6 +39,7 @@ import kotlinx.coroutines.launch
 import kotlinx.coroutines.supervisorScope
 import kotlinx.coroutines.suspendCancellableCoroutine
 import kotlinx.coroutines.withTimeout
+import java.util.concurrent.ConcurrentHashMap
 import kotlin.coroutines.resume
 import kotlin.coroutines.resumeWithException
 import kotlin.coroutines.suspendCoroutine
@@ -144,6 +147,24 @@ interface Ably {
      */
     suspend fun sendEnhancedLocationSuspending(trackableId: String, locationUpdate: EnhancedLocationUpdate)
 
+    /**
+     * Sends an enhanced location update together with a raw location to the channel in a single message.
+     * The message is sent as an enhanced location update, so subscribers that don't read the raw location still receive it.
+     * Should be called only when there's an existing channel for the [trackableId].
+     * If a channel for the [trackableId] doesn't exist then it just calls [callback] with success.
+     *
+     * @param trackableId The ID of the trackable channel.
+     * @param locationUpdate The location update that is sent to the channel.
+     * @param rawLocation The raw location that is sent with the [locationUpdate].
+     * @param callback The function that will be called when sending completes. If something goes wrong it will be called with [ConnectionException].
+     */
+    fun sendCombinedLocation(
+        trackableId: String,
+        locationUpdate: EnhancedLocationUpdate,
+        rawLocation: Location,
+        callback: (Result<Unit>) -> Unit
+    )
+
     /**
      * Sends a raw location update to the channel.
      * Should be called only when there's an existing channel for the [trackableId].
@@ -172,6 +193,8 @@ interface Ably {
 
     /**
      * Adds a listener for the raw location updates that are received from the channel.
+     * This includes the raw locations which are sent together with the enhanced location updates, which are decoded
+     * by the subscription added with [subscribeForEnhancedEvents], so they are received only if it was added too.
      * The raw locations publishing needs to be enabled in the Publisher builder API in order to receive them here.
      * If a channel for the [trackableId] doesn't exist then nothing happens.
      *
@@ -182,6 +205,14 @@ interface Ably {
      */
     fun subscribeForRawEvents(trackableId: String, presenceData: PresenceData, listener: (LocationUpdate) -> Unit)
 
+    /**
+     * Removes the listener added with [subscribeForRawEvents], so the raw location updates are no longer decoded.
+     * If there is no such listener for the [trackableId] then nothing happens.
+     *
+     * @param trackableId The ID of the trackable channel.
+     */
+    fun unsubscribeFromRawEvents(trackableId: String)
+
     /**
      * Creates a channel for the given [trackableId], attempts to attach it, and adds it to the connected channels.
      * The channel is added to the connected channels unless attach fails with a fatal exception.
@@ -246,14 +277,20 @@ interface Ably {
     suspend fun updatePresenceDataWithRetry(trackableId: String, presenceData: PresenceData): Result<Unit>
 
     /**
-     * Retrieves presence history on [trackableId] channel.
+     * Retrieves presence history on [trackableId] channel, from the newest message back to the [start] time.
+     * The history is streamed into [onPage] page by page, as the pages arrive, so it's never held in memory at once.
      * Should be called only when there's an existing channel for the [trackableId].
-     * If a channel for the [trackableId] doesn't exist then returns result containing empty list.
+     * If a channel for the [trackableId] doesn't exist then no page is passed to [onPage].
      *
      * @param trackableId The ID of the trackable channel.
-     * @param duration The duration in milliseconds how long from now should be fetched.
+     * @param start The time in milliseconds since the epoch from which the history should be fetched, inclusive.
+     * @param onPage Receives the presence messages of each page. Returns whether the next page should be fetched.
      */
-    suspend fun getRecentPresenceHistory(trackableId: String, duration: Long): Result<List<PresenceMessage>>
+    suspend fun getPresenceHistory(
+        trackableId: String,
+        start: Long,
+        onPage: (List<PresenceMessage>) -> Boolean
+    ): Result<Unit>
 
     /**
      * Removes the [trackableId] channel from the connected channels and leaves the presence of that channel.
@@ -303,6 +340,17 @@ constructor(
     private val ably: AblySdkRealtime<ChannelStateListenerType>
     private val TAG = createLoggingTag(this)
 
+    /**
+     * The raw events message listeners added for each trackable by [subscribeForRawEvents].
+     */
+    private val rawEventListeners: MutableMap<String, MessageListener> = ConcurrentHashMap()
+
+    /**
+     * The listeners of the raw locations sent together with the enhanced location updates, added for each trackable by
+     * [subscribeForRawEvents]. They are called by the enhanced events subscription, so each message is parsed only once.
+     */
+    private val combinedRawLocationListeners: MutableMap<String, (LocationUpdate) -> Unit> = ConcurrentHashMap()
+
     init {
         try {
             val clientOptions = connectionConfiguration.authentication.clientOptions.apply {
@@ -547,6 +595,8 @@ constructor(
 
     override suspend fun disconnect(trackableId: String, presenceData: PresenceData) {
         logHandler?.v("$TAG Disconnect started for trackable $trackableId")
+        rawEventListeners.remove(trackableId)
+        combinedRawLocationListeners.remove(trackableId)
         val channelToRemove = getChannelIfExists(trackableId)
         if (channelToRemove != null) {
             disconnectChannel(channelToRemove, presenceData)
@@ -610,10 +660,28 @@ constructor(
         trackableId: String,
         locationUpdate: EnhancedLocationUpdate,
         callback: (Result<Unit>) -> Unit
+    ) {
+        sendEnhancedLocation(trackableId, locationUpdate, null, callback)
+    }
+
+    override fun sendCombinedLocation(
+        trackableId: String,
+        locationUpdate: EnhancedLocationUpdate,
+        rawLocation: Location,
+        callback: (Result<Unit>) -> Unit
+    ) {
+        sendEnhancedLocation(trackableId, locationUpdate, rawLocation, callback)
+    }
+
+    private fun sendEnhancedLocation(
+        trackableId: String,
+        locationUpdate: EnhancedLocationUpdate,
+        rawLocation: Location?,
+        callback: (Result<Unit>) -> Unit
     ) {
         val trackableChannel = getChannelIfExists(trackableId)
         if (trackableChannel != null) {
-            val locationUpdateJson = locationUpdate.toMessageJson(gson)
+            val locationUpdateJson = locationUpdate.toMessageJson(gson, rawLocation)
             logHandler?.d("$TAG sendEnhancedLocationMessage: publishing: $locationUpdateJson")
             sendMessage(
                 trackableChannel,
@@ -694,13 +762,15 @@ constructor(
         getChannelIfExists(trackableId)?.let { channel ->
             try {
                 channel.subscribe(EventNames.ENHANCED) { message ->
-                    processReceivedLocationUpdateMessage(
-                        channel,
-                        presenceData,
-                        message,
-                        listener,
-                        isRawLocation = false
-                    )
+                    val combinedLocationUpdate = message.getCombinedLocationUpdate(gson)
+                    if (combinedLocationUpdate != null) {
+                        listener(combinedLocationUpdate.enhancedLocationUpdate)
+                        combinedLocationUpdate.rawLocationUpdate?.let { rawLocationUpdate ->
+                            combinedRawLocationListeners[trackableId]?.invoke(rawLocationUpdate)
+                        }
+                    } else {
+                        failChannelWithMalformedMessage(channel, presenceData, isRawLocation = false)
+                    }
                 }
             } catch (exception: AblyException) {
                 throw exception.errorInfo.toTrackingException().also {
@@ -715,17 +785,20 @@ constructor(
         presenceData: PresenceData,
         listener: (LocationUpdate) -> Unit
     ) {
+        unsubscribeFromRawEvents(trackableId)
         getChannelIfExists(trackableId)?.let { channel ->
             try {
-                channel.subscribe(EventNames.RAW) { message ->
-                    processReceivedLocationUpdateMessage(
-                        channel,
-                        presenceData,
-                        message,
-                        listener,
-                        isRawLocation = true
-                    )
+                val messageListener = MessageListener { message ->
+                    val locationUpdate = message.getRawLocationUpdate(gson)
+                    if (locationUpdate != null) {
+                        listener(locationUpdate)
+                    } else {
+                        failChannelWithMalformedMessage(channel, presenceData, isRawLocation = true)
+                    }
                 }
+                channel.subscribe(EventNames.RAW, messageListener)
+                rawEventListeners[trackableId] = messageListener
+                combinedRawLocationListeners[trackableId] = listener
             } catch (exception: AblyException) {
                 throw exception.errorInfo.toTrackingException().also {
                     logHandler?.w("$TAG Failed to subscriber for raw events for channel ${channel.name}", it)
@@ -734,22 +807,20 @@ constructor(
         }
     }
 
-    private fun processReceivedLocationUpdateMessage(
+    override fun unsubscribeFromRawEvents(trackableId: String) {
+        combinedRawLocationListeners.remove(trackableId)
+        val messageListener = rawEventListeners.remove(trackableId) ?: return
+        getChannelIfExists(trackableId)?.unsubscribe(EventNames.RAW, messageListener)
+    }
+
+    private fun failChannelWithMalformedMessage(
         channel: AblySdkRealtime.Channel<ChannelStateListenerType>,
         presenceData: PresenceData,
-        message: Message,
-        listener: (LocationUpdate) -> Unit,
         isRawLocation: Boolean
     ) {
-        val locationUpdate =
-            if (isRawLocation) message.getRawLocationUpdate(gson) else message.getEnhancedLocationUpdate(gson)
-        if (locationUpdate != null) {
-            listener(locationUpdate)
-        } else {
-            logHandler?.e(createMalformedLocationUpdateLogMessage(isRawLocation))
-            scope.launch {
-                failChannel(channel, presenceData, createMalformedMessageErrorInfo())
-            }
+        logHandler?.e(createMalformedLocationUpdateLogMessage(isRawLocation))
+        scope.launch {
+            failChannel(channel, presenceData, createMalformedMessageErrorInfo())
         }
     }
 
@@ -904,33 +975,34 @@ constructor(
         }
     }
 
-    override suspend fun getRecentPresenceHistory(
+    override suspend fun getPresenceHistory(
         trackableId: String,
-        duration: Long
-    ): Result<List<PresenceMessage>> =
+        start: Long,
+        onPage: (List<PresenceMessage>) -> Boolean
+    ): Result<Unit> =
         suspendCancellableCoroutine { continuation ->
             scope.launch {
                 val channel = getChannelIfExists(trackableId)
 
                 if (channel == null) {
-                    continuation.resume(Result.success(emptyList()))
+                    continuation.resume(Result.success(Unit))
                     return@launch
                 }
 
-                val now = System.currentTimeMillis()
                 val params = arrayOf(
-                    Param("start", (now - duration).toString()),
-                    Param("end", now.toString()),
+                    Param("start", start.toString()),
+                    Param("end", System.currentTimeMillis().toString()),
                     Param("direction", "backwards")
                 )
 
                 try {
-                    val history = channel.getAllHistoryEntries(params)
-                        .mapNotNull { it.toTracking(gson) }
-                    continuation.resume(Result.success(history))
+                    channel.forEachHistoryPage(params) { historyPage ->
+                        onPage(historyPage.mapNotNull { it.toTracking(gson) })
+                    }
+                    continuation.resume(Result.success(Unit))
                 } catch (exception: AblyException) {
                     logHandler?.w(
-                        "$TAG Failed to get recent history for trackable $trackableId",
+                        "$TAG Failed to get presence history for trackable $trackableId",
                         exception
                     )
                     continuation.resume(Result.failure(exception.errorInfo.toTrackingException()))
@@ -938,15 +1010,17 @@ constructor(
             }
         }
 
-    private fun AblySdkRealtime.Channel<ChannelStateListenerType>.getAllHistoryEntries(params: Array<Param>): MutableList<io.ably.lib.types.PresenceMessage> {
+    /**
+     * Fetches the history pages one by one until there are no more pages or [onPage] returns false.
+     */
+    private fun AblySdkRealtime.Channel<ChannelStateListenerType>.forEachHistoryPage(
+        params: Array<Param>,
+        onPage: (Array<io.ably.lib.types.PresenceMessage>) -> Boolean
+    ) {
         var historyPage = presence.getHistory(params)
-        val historyEntries = mutableListOf<io.ably.lib.types.PresenceMessage>()
-        historyEntries.addAll(historyPage.items())
-        while (historyPage.hasNext()) {
+        while (onPage(historyPage.items()) && historyPage.hasNext()) {
             historyPage = historyPage.next()
-            historyEntries.addAll(historyPage.items())
         }
-        return historyEntries
     }
 
     private fun getChannelIfExists(trackableId: String): AblySdkRealtime.Channel<ChannelStateListenerType>? {
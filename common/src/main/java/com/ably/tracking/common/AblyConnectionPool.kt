@@ -0,0 +1,258 @@
+package com.ably.tracking.common
+
+import com.ably.tracking.connection.ConnectionConfiguration
+import io.ably.lib.realtime.ConnectionState
+import io.ably.lib.realtime.ConnectionStateListener
+import io.ably.lib.types.ChannelOptions
+import io.ably.lib.types.ClientOptions
+import io.ably.lib.types.ErrorInfo
+
+/**
+ * The pool of the Ably connections shared by the publishers and subscribers of this process that enable the shared connection.
+ */
+val sharedAblyConnectionPool = AblyConnectionPool(DefaultAblySdkFactory())
+
+/**
+ * Creates the [AblySdkFactory] used by a publisher or a subscriber.
+ *
+ * @param isConnectionShared Whether the connection should be shared with the other users of the [connectionConfiguration].
+ */
+fun createAblySdkFactory(
+    connectionConfiguration: ConnectionConfiguration,
+    isConnectionShared: Boolean,
+): AblySdkFactory<DefaultAblySdkChannelStateListener> =
+    if (isConnectionShared) sharedAblyConnectionPool.factoryFor(connectionConfiguration)
+    else DefaultAblySdkFactory()
+
+/**
+ * A reference-counted pool of Ably connections, which lets many [DefaultAbly] instances created with an equal
+ * [ConnectionConfiguration] share a single [AblySdkRealtime], and with it the heartbeats and the auth renewals.
+ *
+ * Each [DefaultAbly] gets its own lease of the shared connection, which only sees the channels and the connection listeners
+ * of that instance, so channel lifecycles stay per instance. Closing a lease closes the underlying connection only when
+ * it's the last lease of it. The leases of a connection should use different channels, because removing all the listeners
+ * of a channel removes the listeners of every lease that uses it.
+ *
+ * The connection is created with the client options of its first lease, including the agents and the logging options,
+ * and the client options of the later leases are ignored. So a publisher and a subscriber that share a connection
+ * are both reported with the agents of whichever of them connected first.
+ */
+class AblyConnectionPool<ChannelStateListenerType : AblySdkChannelStateListener>(
+    private val ablySdkFactory: AblySdkFactory<ChannelStateListenerType>
+) {
+    private val connections: MutableMap<ConnectionConfiguration, SharedConnection<ChannelStateListenerType>> = HashMap()
+
+    /**
+     * Returns a factory whose [AblySdkFactory.createRealtime] creates leases of the connection shared by the users
+     * of the [connectionConfiguration]. The client options of the first lease are used to create the connection.
+     */
+    fun factoryFor(connectionConfiguration: ConnectionConfiguration): AblySdkFactory<ChannelStateListenerType> =
+        object : AblySdkFactory<ChannelStateListenerType> {
+            override fun createRealtime(clientOptions: ClientOptions): AblySdkRealtime<ChannelStateListenerType> =
+                LeasedRealtime(connectionConfiguration, clientOptions)
+
+            override fun wrapChannelStateListener(
+                underlyingListener: AblySdkFactory.UnderlyingChannelStateListener<ChannelStateListenerType>
+            ): ChannelStateListenerType =
+                ablySdkFactory.wrapChannelStateListener(underlyingListener)
+        }
+
+    /**
+     * The number of the open leases of the connection shared by the users of the [connectionConfiguration].
+     */
+    fun getLeaseCount(connectionConfiguration: ConnectionConfiguration): Int =
+        synchronized(connections) { connections[connectionConfiguration]?.leaseCount ?: 0 }
+
+    private fun acquire(
+        connectionConfiguration: ConnectionConfiguration,
+        clientOptions: ClientOptions
+    ): SharedConnection<ChannelStateListenerType> =
+        synchronized(connections) {
+            connections.getOrPut(connectionConfiguration) {
+                SharedConnection(ablySdkFactory.createRealtime(clientOptions))
+            }.apply { leaseCount++ }
+        }
+
+    /**
+     * @return Whether the released lease was the last lease of the [connection].
+     */
+    private fun release(
+        connectionConfiguration: ConnectionConfiguration,
+        connection: SharedConnection<ChannelStateListenerType>
+    ): Boolean =
+        synchronized(connections) {
+            connection.leaseCount--
+            val isLastLease = connection.leaseCount == 0
+            if (isLastLease && connections[connectionConfiguration] === connection) {
+                connections.remove(connectionConfiguration)
+            }
+            isLastLease
+        }
+
+    private fun acquireChannel(connection: SharedConnection<ChannelStateListenerType>, channelName: String) {
+        synchronized(connections) {
+            connection.channelLeaseCounts[channelName] = (connection.channelLeaseCounts[channelName] ?: 0) + 1
+        }
+    }
+
+    /**
+     * @return Whether the released lease was the last lease of the channel.
+     */
+    private fun releaseChannel(connection: SharedConnection<ChannelStateListenerType>, channelName: String): Boolean =
+        synchronized(connections) {
+            val channelLeaseCount = (connection.channelLeaseCounts[channelName] ?: 1) - 1
+            if (channelLeaseCount == 0) {
+                connection.channelLeaseCounts.remove(channelName)
+            } else {
+                connection.channelLeaseCounts[channelName] = channelLeaseCount
+            }
+            channelLeaseCount == 0
+        }
+
+    private class SharedConnection<ChannelStateListenerType : AblySdkChannelStateListener>(
+        val realtime: AblySdkRealtime<ChannelStateListenerType>
+    ) {
+        var leaseCount = 0
+        val channelLeaseCounts: MutableMap<String, Int> = HashMap()
+    }
+
+    /**
+     * A lease of a shared connection. Once closed, it can be connected again, which acquires the shared connection again.
+     */
+    private inner class LeasedRealtime(
+        private val connectionConfiguration: ConnectionConfiguration,
+        private val clientOptions: ClientOptions
+    ) : AblySdkRealtime<ChannelStateListenerType> {
+        private var sharedConnection = acquire(connectionConfiguration, clientOptions)
+        private var isLeased = true
+        private val connectionListeners: MutableSet<ConnectionStateListener> = LinkedHashSet()
+        private val channelNames: MutableSet<String> = HashSet()
+
+        private val realtime: AblySdkRealtime<ChannelStateListenerType>
+            get() = synchronized(this) { sharedConnection.realtime }
+
+        override val auth: AblySdkRealtime.Auth
+            get() = realtime.auth
+
+        override val connection: AblySdkRealtime.Connection = object : AblySdkRealtime.Connection {
+            override val state: ConnectionState
+                get() = if (synchronized(this@LeasedRealtime) { isLeased }) realtime.connection.state else ConnectionState.closed
+
+            override val reason: ErrorInfo?
+                get() = realtime.connection.reason
+
+            override fun on(listener: ConnectionStateListener) {
+                synchronized(this@LeasedRealtime) {
+                    connectionListeners.add(listener)
+                    if (isLeased) {
+                        sharedConnection.realtime.connection.on(listener)
+                    }
+                }
+            }
+
+            override fun off(listener: ConnectionStateListener) {
+                synchronized(this@LeasedRealtime) {
+                    connectionListeners.remove(listener)
+                    sharedConnection.realtime.connection.off(listener)
+                }
+            }
+
+            override fun off() {
+                synchronized(this@LeasedRealtime) {
+                    connectionListeners.forEach { sharedConnection.realtime.connection.off(it) }
+                    connectionListeners.clear()
+                }
+            }
+        }
+
+        override val channels: AblySdkRealtime.Channels<ChannelStateListenerType> = object : AblySdkRealtime.Channels<ChannelStateListenerType> {
+            override fun get(
+                channelName: String,
+                channelOptions: ChannelOptions?
+            ): AblySdkRealtime.Channel<ChannelStateListenerType> =
+                realtime.channels.get(channelName, channelOptions).also { leaseChannel(channelName) }
+
+            override fun get(channelName: String): AblySdkRealtime.Channel<ChannelStateListenerType> =
+                realtime.channels.get(channelName).also { leaseChannel(channelName) }
+
+            override fun entrySet(): Iterable<Map.Entry<String, AblySdkRealtime.Channel<ChannelStateListenerType>>> {
+                val leasedChannelNames = synchronized(this@LeasedRealtime) { channelNames.toSet() }
+                return realtime.channels.entrySet().filter { it.key in leasedChannelNames }
+            }
+
+            override fun containsKey(key: Any): Boolean =
+                key is String && synchronized(this@LeasedRealtime) { key in channelNames } && realtime.channels.containsKey(key)
+
+            override fun release(channelName: String) {
+                if (releaseChannelLease(channelName)) {
+                    realtime.channels.release(channelName)
+                }
+            }
+        }
+
+        override fun connect() {
+            val listenersToNotify = synchronized(this) {
+                if (isLeased) {
+                    emptyList()
+                } else {
+                    sharedConnection = acquire(connectionConfiguration, clientOptions)
+                    isLeased = true
+                    connectionListeners.forEach { sharedConnection.realtime.connection.on(it) }
+                    // The shared connection might be already connected, in which case connecting won't emit any state change
+                    if (sharedConnection.realtime.connection.state == ConnectionState.connected) connectionListeners.toList()
+                    else emptyList()
+                }
+            }
+            if (listenersToNotify.isEmpty()) {
+                realtime.connect()
+            } else {
+                notify(listenersToNotify, ConnectionState.closed, ConnectionState.connected)
+            }
+        }
+
+        override fun close() {
+            val releasedRealtime: AblySdkRealtime<ChannelStateListenerType>
+            val isLastLease: Boolean
+            val listenersToNotify: List<ConnectionStateListener>
+            synchronized(this) {
+                if (!isLeased) {
+                    return
+                }
+                isLeased = false
+                releasedRealtime = sharedConnection.realtime
+                channelNames.filter { releaseChannel(sharedConnection, it) }.forEach { releasedRealtime.channels.release(it) }
+                channelNames.clear()
+                isLastLease = release(connectionConfiguration, sharedConnection)
+                listenersToNotify = if (isLastLease) emptyList() else connectionListeners.toList()
+                // The other leases keep the connection open, so this lease stops receiving its state changes
+                listenersToNotify.forEach { releasedRealtime.connection.off(it) }
+            }
+            if (isLastLease) {
+                releasedRealtime.close()
+            } else {
+                notify(listenersToNotify, releasedRealtime.connection.state, ConnectionState.closed)
+            }
+        }
+
+        private fun leaseChannel(channelName: String) {
+            synchronized(this) {
+                if (channelNames.add(channelName)) {
+                    acquireChannel(sharedConnection, channelName)
+                }
+            }
+        }
+
+        /**
+         * @return Whether the released lease was the last lease of the channel.
+         */
+        private fun releaseChannelLease(channelName: String): Boolean =
+            synchronized(this) {
+                channelNames.remove(channelName) && releaseChannel(sharedConnection, channelName)
+            }
+
+        private fun notify(listeners: List<ConnectionStateListener>, previous: ConnectionState, current: ConnectionState) {
+            val stateChange = ConnectionStateListener.ConnectionStateChange(previous, current, 0, null)
+            listeners.forEach { it.onConnectionStateChanged(stateChange) }
+        }
+    }
+}
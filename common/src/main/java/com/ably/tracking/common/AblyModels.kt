@@ -1,5 +1,6 @@
 package com.ably.tracking.common
 
+import com.ably.tracking.LocationUpdatePayload
 import com.ably.tracking.Resolution
 
 /**
@@ -21,6 +22,26 @@ data class PresenceMessage(
 
     val id: String
 ) {
+    /**
+     * The ordering keys of this message, parsed once from its [id] so that comparing messages doesn't allocate.
+     * The [id] is expected to be in the `connectionId:messageSerial:index` format.
+     */
+    private val isSynthesizedLeave: Boolean = !id.startsWith(connectionId)
+    private val hasValidId: Boolean
+    private val messageSerial: Int
+    private val messageIndex: Int
+
+    init {
+        val serialSeparatorIndex = id.indexOf(':')
+        val indexSeparatorIndex = if (serialSeparatorIndex < 0) -1 else id.indexOf(':', serialSeparatorIndex + 1)
+        val parsedMessageSerial =
+            if (indexSeparatorIndex < 0) null else id.substring(serialSeparatorIndex + 1, indexSeparatorIndex).toIntOrNull()
+        val parsedMessageIndex = if (indexSeparatorIndex < 0) null else id.substring(indexSeparatorIndex + 1).toIntOrNull()
+        hasValidId = parsedMessageSerial != null && parsedMessageIndex != null
+        messageSerial = parsedMessageSerial ?: 0
+        messageIndex = parsedMessageIndex ?: 0
+    }
+
     /**
      * Given a message to compare to, deduces whether this message is "newer".
      *
@@ -29,35 +50,23 @@ data class PresenceMessage(
     fun isNewerThan(compare: PresenceMessage): Boolean {
 
         // RTP2b1
-        if (this.isSynthesizedLeave() || compare.isSynthesizedLeave()) {
+        if (this.isSynthesizedLeave || compare.isSynthesizedLeave) {
             return this.timestamp > compare.timestamp
         }
 
         // RTP2b2
-        val thisIdSplit = splitId()
-        val compareIdSplit = compare.splitId()
-
-        // Check valid connection id
-        if (thisIdSplit.size != 3 || compareIdSplit.size != 3) {
-            return false
-        }
-
-        val thisMessageSerial = thisIdSplit[1].toIntOrNull()
-        val thisIndex = thisIdSplit[2].toIntOrNull()
-        val compareMessageSerial = compareIdSplit[1].toIntOrNull()
-        val compareMessageIndex = compareIdSplit[2].toIntOrNull()
-
-        return thisMessageSerial != null && thisIndex != null && compareMessageSerial != null && compareMessageIndex != null &&
-            ((thisMessageSerial > compareMessageSerial) || (thisMessageSerial == compareMessageSerial && thisIndex > compareMessageIndex))
+        return this.hasValidId && compare.hasValidId &&
+            ((this.messageSerial > compare.messageSerial) || (this.messageSerial == compare.messageSerial && this.messageIndex > compare.messageIndex))
     }
-
-    private fun isSynthesizedLeave(): Boolean = !this.id.startsWith(this.connectionId)
-
-    private fun splitId(): List<String> = this.id.split(':', limit = 3)
 }
 
 enum class PresenceAction {
     PRESENT_OR_ENTER, LEAVE_OR_ABSENT, UPDATE;
 }
 
-data class PresenceData(val type: String, val resolution: Resolution? = null, val rawLocations: Boolean? = null)
+data class PresenceData(
+    val type: String,
+    val resolution: Resolution? = null,
+    val rawLocations: Boolean? = null,
+    val locationPayload: LocationUpdatePayload? = null,
+)
@@ -85,6 +85,7 @@ interface AblySdkRealtime<ChannelStateListenerType : AblySdkChannelStateListener
         fun off(listener: ChannelStateListenerType)
         fun off()
         fun subscribe(name: String, listener: MessageListener)
+        fun unsubscribe(name: String, listener: MessageListener)
         fun unsubscribe()
         fun setConnectionFailed(reason: ErrorInfo)
     }
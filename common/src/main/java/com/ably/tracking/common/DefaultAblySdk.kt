@@ -161,6 +161,10 @@ constructor(clientOptions: ClientOptions) : AblySdkRealtime<DefaultAblySdkChanne
             channel.subscribe(name, listener)
         }
 
+        override fun unsubscribe(name: String, listener: MessageListener) {
+            channel.unsubscribe(name, listener)
+        }
+
         override fun unsubscribe() {
             channel.unsubscribe()
         }
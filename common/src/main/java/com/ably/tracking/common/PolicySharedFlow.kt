@@ -0,0 +1,76 @@
+package com.ably.tracking.common
+
+import com.ably.tracking.FlowOverflowStrategy
+import com.ably.tracking.FlowPolicy
+import java.util.ArrayDeque
+import java.util.concurrent.atomic.AtomicLong
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.flow.MutableSharedFlow
+import kotlinx.coroutines.flow.SharedFlow
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.asSharedFlow
+import kotlinx.coroutines.launch
+
+/**
+ * A shared flow that replays the latest value and applies the [policy] when its collectors are slow.
+ *
+ * The values are emitted without suspending. While the collectors keep up, a value is emitted directly, without launching
+ * a coroutine. Otherwise, the values wait in a buffer that a single coroutine launched in the [scope] emits from, and
+ * the values that don't fit into the buffer are handled as the [policy] says and counted in the [overflowCount].
+ */
+class PolicySharedFlow<T : Any>(
+    private val policy: FlowPolicy,
+    private val scope: CoroutineScope,
+) {
+    private val flow = MutableSharedFlow<T>(replay = 1)
+    private val pendingValues = ArrayDeque<T>()
+    private var isEmittingPendingValues = false
+    private val _overflowCount = AtomicLong()
+
+    val sharedFlow: SharedFlow<T> = flow.asSharedFlow()
+
+    val subscriptionCount: StateFlow<Int>
+        get() = flow.subscriptionCount
+
+    /**
+     * The number of values that didn't fit into the buffer, which were either dropped or had to wait for the collectors.
+     */
+    val overflowCount: Long
+        get() = _overflowCount.get()
+
+    fun emit(value: T) {
+        synchronized(pendingValues) {
+            // The values that are already waiting have to be emitted first, to keep the order of the values
+            if (!isEmittingPendingValues && flow.tryEmit(value)) {
+                return
+            }
+            if (pendingValues.size >= policy.bufferCapacity) {
+                _overflowCount.incrementAndGet()
+                when (policy.onBufferOverflow) {
+                    FlowOverflowStrategy.SUSPEND -> Unit
+                    FlowOverflowStrategy.DROP_OLDEST -> pendingValues.removeFirst()
+                    FlowOverflowStrategy.DROP_LATEST -> return
+                }
+            }
+            pendingValues.addLast(value)
+            if (isEmittingPendingValues) {
+                return
+            }
+            isEmittingPendingValues = true
+        }
+        scope.launch { emitPendingValues() }
+    }
+
+    private suspend fun emitPendingValues() {
+        while (true) {
+            val value = synchronized(pendingValues) {
+                if (pendingValues.isEmpty()) {
+                    isEmittingPendingValues = false
+                    return
+                }
+                pendingValues.removeFirst()
+            }
+            flow.emit(value)
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.ably.tracking.Accuracy
 import com.ably.tracking.EnhancedLocationUpdate
 import com.ably.tracking.Location
 import com.ably.tracking.LocationUpdate
+import com.ably.tracking.LocationUpdatePayload
 import com.ably.tracking.LocationUpdateType
 import com.ably.tracking.Resolution
 import com.ably.tracking.common.MILLISECONDS_PER_SECOND
@@ -16,10 +17,20 @@ import io.ably.lib.types.Message
  * Returns parsed data or null if data is in wrong format.
  */
 fun PresenceDataMessage.toTracking(): PresenceData? =
-    type?.let { PresenceData(it, resolution?.toTracking()) }
+    type?.let { PresenceData(it, resolution?.toTracking(), rawLocations, locationPayload?.toTracking()) }
 
 fun PresenceData.toMessage(): PresenceDataMessage =
-    PresenceDataMessage(type, resolution?.toMessage(), rawLocations)
+    PresenceDataMessage(type, resolution?.toMessage(), rawLocations, locationPayload?.toMessage())
+
+fun LocationUpdatePayloadMessage.toTracking(): LocationUpdatePayload = when (this) {
+    LocationUpdatePayloadMessage.FULL -> LocationUpdatePayload.FULL
+    LocationUpdatePayloadMessage.LATEST_ONLY -> LocationUpdatePayload.LATEST_ONLY
+}
+
+fun LocationUpdatePayload.toMessage(): LocationUpdatePayloadMessage = when (this) {
+    LocationUpdatePayload.FULL -> LocationUpdatePayloadMessage.FULL
+    LocationUpdatePayload.LATEST_ONLY -> LocationUpdatePayloadMessage.LATEST_ONLY
+}
 
 fun ResolutionMessage.toTracking(): Resolution =
     Resolution(accuracy.toTracking(), desiredInterval, minimumDisplacement)
@@ -51,13 +62,14 @@ fun LocationUpdate.toMessageJson(gson: Gson): String =
         )
     )
 
-fun EnhancedLocationUpdate.toMessageJson(gson: Gson): String =
+fun EnhancedLocationUpdate.toMessageJson(gson: Gson, rawLocation: Location? = null): String =
     gson.toJson(
         EnhancedLocationUpdateMessage(
             location.toMessage(),
             skippedLocations.map { it.toMessage() },
             intermediateLocations.map { it.toMessage() },
-            type.toMessage()
+            type.toMessage(),
+            rawLocation?.toMessage()
         )
     )
 
@@ -65,14 +77,32 @@ fun EnhancedLocationUpdate.toMessageJson(gson: Gson): String =
  * Maps data from an Ably message to an AAT location update. Returns null if data is unavailable or not valid.
  */
 fun Message.getEnhancedLocationUpdate(gson: Gson): EnhancedLocationUpdate? =
+    getCombinedLocationUpdate(gson)?.enhancedLocationUpdate
+
+/**
+ * An enhanced location update together with the raw location update that was sent in the same message, if any.
+ */
+data class CombinedLocationUpdate(
+    val enhancedLocationUpdate: EnhancedLocationUpdate,
+    val rawLocationUpdate: LocationUpdate?,
+)
+
+/**
+ * Maps data from an Ably message to an AAT enhanced location update and the raw location sent together with it,
+ * parsing the message only once. Returns null if data is unavailable or not valid.
+ */
+fun Message.getCombinedLocationUpdate(gson: Gson): CombinedLocationUpdate? =
     gson.fromJsonOrNull(data as? String, EnhancedLocationUpdateMessage::class.java)
         ?.takeIf { it.isValid() }
         ?.let { message ->
-            EnhancedLocationUpdate(
-                message.location.toTracking(),
-                message.skippedLocations.map { it.toTracking() },
-                message.intermediateLocations.map { it.toTracking() },
-                message.type.toTracking()
+            CombinedLocationUpdate(
+                EnhancedLocationUpdate(
+                    message.location.toTracking(),
+                    message.skippedLocations.map { it.toTracking() },
+                    message.intermediateLocations.map { it.toTracking() },
+                    message.type.toTracking()
+                ),
+                message.rawLocation?.let { LocationUpdate(it.toTracking(), emptyList()) }
             )
         }
 
@@ -20,8 +20,18 @@ data class PresenceDataMessage(
     @SerializedName("type") val type: String?,
     @SerializedName("resolution") val resolution: ResolutionMessage? = null,
     @SerializedName("rawLocations") val rawLocations: Boolean? = null,
+    @SerializedName("locationPayload") val locationPayload: LocationUpdatePayloadMessage? = null,
 )
 
+@Shared
+enum class LocationUpdatePayloadMessage {
+    @SerializedName("full")
+    FULL,
+
+    @SerializedName("latest-only")
+    LATEST_ONLY,
+}
+
 @Shared
 data class ResolutionMessage(
     @SerializedName("accuracy") val accuracy: AccuracyMessage,
@@ -52,7 +62,8 @@ data class EnhancedLocationUpdateMessage(
     @SerializedName("location") val location: LocationMessage,
     @SerializedName("skippedLocations") val skippedLocations: List<LocationMessage>,
     @SerializedName("intermediateLocations") val intermediateLocations: List<LocationMessage>,
-    @SerializedName("type") val type: LocationUpdateTypeMessage
+    @SerializedName("type") val type: LocationUpdateTypeMessage,
+    @SerializedName("rawLocation") val rawLocation: LocationMessage? = null,
 ) {
     /**
      * Required for safe deserialization as the gson library can put null in a non-nullable field.
@@ -62,7 +73,8 @@ data class EnhancedLocationUpdateMessage(
         location != null && location.isValid() &&
             skippedLocations != null && skippedLocations.all { it != null && it.isValid() } &&
             intermediateLocations != null && intermediateLocations.all { it != null && it.isValid() } &&
-            type != null
+            type != null &&
+            (rawLocation == null || rawLocation.isValid())
 }
 
 @Shared
@@ -0,0 +1,208 @@
+package com.ably.tracking.common
+
+import com.ably.tracking.connection.Authentication
+import com.ably.tracking.connection.ConnectionConfiguration
+import com.google.common.truth.Truth.assertThat
+import io.ably.lib.realtime.ConnectionState
+import io.ably.lib.realtime.ConnectionStateListener
+import io.ably.lib.types.ClientOptions
+import io.mockk.every
+import io.mockk.just
+import io.mockk.mockk
+import io.mockk.runs
+import io.mockk.verify
+import org.junit.Test
+
+class AblyConnectionPoolTests {
+    private val connectionConfiguration = ConnectionConfiguration(Authentication.basic("client-id", "api-key"))
+    private val clientOptions = ClientOptions()
+    private val realtime = createRealtimeMock()
+    private val ablySdkFactory = mockk<AblySdkFactory<AblySdkChannelStateListener>> {
+        every { createRealtime(any()) } returns realtime
+    }
+    private val pool = AblyConnectionPool(ablySdkFactory)
+
+    @Test
+    fun `should share the connection between the users of an equal connection configuration`() {
+        // given
+        val factory = pool.factoryFor(connectionConfiguration)
+
+        // when
+        factory.createRealtime(clientOptions)
+        pool.factoryFor(connectionConfiguration.copy()).createRealtime(clientOptions)
+
+        // then
+        verify(exactly = 1) { ablySdkFactory.createRealtime(any()) }
+        assertThat(pool.getLeaseCount(connectionConfiguration)).isEqualTo(2)
+    }
+
+    @Test
+    fun `should share the connection between the users of independently created equal connection configurations`() {
+        // given
+        val firstConnectionConfiguration = ConnectionConfiguration(Authentication.basic("client-id", "api-key"))
+        val secondConnectionConfiguration = ConnectionConfiguration(Authentication.basic("client-id", "api-key"))
+
+        // when
+        pool.factoryFor(firstConnectionConfiguration).createRealtime(clientOptions)
+        pool.factoryFor(secondConnectionConfiguration).createRealtime(clientOptions)
+
+        // then
+        verify(exactly = 1) { ablySdkFactory.createRealtime(any()) }
+        assertThat(pool.getLeaseCount(firstConnectionConfiguration)).isEqualTo(2)
+    }
+
+    @Test
+    fun `should not share the connection between the users of different authentication methods`() {
+        // given
+        val basicConnectionConfiguration = ConnectionConfiguration(Authentication.basic("client-id", "api-key"))
+        val jwtConnectionConfiguration = ConnectionConfiguration(Authentication.jwt("api-key"))
+
+        // when
+        pool.factoryFor(basicConnectionConfiguration).createRealtime(clientOptions)
+        pool.factoryFor(jwtConnectionConfiguration).createRealtime(clientOptions)
+
+        // then
+        verify(exactly = 2) { ablySdkFactory.createRealtime(any()) }
+    }
+
+    @Test
+    fun `should not share the connection between the users of different connection configurations`() {
+        // given
+        val otherConnectionConfiguration = connectionConfiguration.copy(environment = "sandbox")
+
+        // when
+        pool.factoryFor(connectionConfiguration).createRealtime(clientOptions)
+        pool.factoryFor(otherConnectionConfiguration).createRealtime(clientOptions)
+
+        // then
+        verify(exactly = 2) { ablySdkFactory.createRealtime(any()) }
+    }
+
+    @Test
+    fun `should not close the connection when it is still used by another lease`() {
+        // given
+        val factory = pool.factoryFor(connectionConfiguration)
+        val lease = factory.createRealtime(clientOptions)
+        factory.createRealtime(clientOptions)
+
+        // when
+        lease.close()
+
+        // then
+        verify(exactly = 0) { realtime.close() }
+        assertThat(lease.connection.state).isEqualTo(ConnectionState.closed)
+        assertThat(pool.getLeaseCount(connectionConfiguration)).isEqualTo(1)
+    }
+
+    @Test
+    fun `should notify the listeners of a closed lease that it is closed`() {
+        // given
+        val factory = pool.factoryFor(connectionConfiguration)
+        val lease = factory.createRealtime(clientOptions)
+        factory.createRealtime(clientOptions)
+        val listener = mockk<ConnectionStateListener>(relaxed = true)
+        lease.connection.on(listener)
+
+        // when
+        lease.close()
+
+        // then
+        verify { listener.onConnectionStateChanged(match { it.current == ConnectionState.closed }) }
+        verify { realtime.connection.off(listener) }
+    }
+
+    @Test
+    fun `should close the connection when the last lease is closed`() {
+        // given
+        val factory = pool.factoryFor(connectionConfiguration)
+        val firstLease = factory.createRealtime(clientOptions)
+        val secondLease = factory.createRealtime(clientOptions)
+
+        // when
+        firstLease.close()
+        secondLease.close()
+
+        // then
+        verify(exactly = 1) { realtime.close() }
+        assertThat(pool.getLeaseCount(connectionConfiguration)).isEqualTo(0)
+    }
+
+    @Test
+    fun `should only return the channels of the lease`() {
+        // given
+        val factory = pool.factoryFor(connectionConfiguration)
+        val firstLease = factory.createRealtime(clientOptions)
+        val secondLease = factory.createRealtime(clientOptions)
+        val firstChannel = mockChannel("first")
+        val secondChannel = mockChannel("second")
+        every { realtime.channels.entrySet() } returns mapOf("first" to firstChannel, "second" to secondChannel).entries
+
+        // when
+        firstLease.channels.get("first", null)
+        secondLease.channels.get("second", null)
+
+        // then
+        assertThat(firstLease.channels.entrySet().map { it.key }).containsExactly("first")
+        assertThat(secondLease.channels.entrySet().map { it.key }).containsExactly("second")
+    }
+
+    @Test
+    fun `should release a channel only when its last lease releases it`() {
+        // given
+        val factory = pool.factoryFor(connectionConfiguration)
+        val firstLease = factory.createRealtime(clientOptions)
+        val secondLease = factory.createRealtime(clientOptions)
+        mockChannel("channel")
+        firstLease.channels.get("channel", null)
+        secondLease.channels.get("channel", null)
+
+        // when
+        firstLease.channels.release("channel")
+
+        // then
+        verify(exactly = 0) { realtime.channels.release("channel") }
+
+        // when
+        secondLease.channels.release("channel")
+
+        // then
+        verify(exactly = 1) { realtime.channels.release("channel") }
+    }
+
+    @Test
+    fun `should notify that a reconnected lease is connected when the shared connection is already connected`() {
+        // given
+        val factory = pool.factoryFor(connectionConfiguration)
+        val lease = factory.createRealtime(clientOptions)
+        factory.createRealtime(clientOptions)
+        lease.close()
+        every { realtime.connection.state } returns ConnectionState.connected
+        val listener = mockk<ConnectionStateListener>(relaxed = true)
+        lease.connection.on(listener)
+
+        // when
+        lease.connect()
+
+        // then
+        verify { listener.onConnectionStateChanged(match { it.current == ConnectionState.connected }) }
+        verify(exactly = 0) { realtime.connect() }
+    }
+
+    private fun createRealtimeMock(): AblySdkRealtime<AblySdkChannelStateListener> {
+        val connection = mockk<AblySdkRealtime.Connection>(relaxed = true) {
+            every { state } returns ConnectionState.initialized
+        }
+        val channels = mockk<AblySdkRealtime.Channels<AblySdkChannelStateListener>>(relaxed = true)
+        return mockk(relaxed = true) {
+            every { this@mockk.connection } returns connection
+            every { this@mockk.channels } returns channels
+        }
+    }
+
+    private fun mockChannel(channelName: String): AblySdkRealtime.Channel<AblySdkChannelStateListener> {
+        val channel = mockk<AblySdkRealtime.Channel<AblySdkChannelStateListener>>()
+        every { realtime.channels.get(channelName, any()) } returns channel
+        every { realtime.channels.release(channelName) } just runs
+        return channel
+    }
+}
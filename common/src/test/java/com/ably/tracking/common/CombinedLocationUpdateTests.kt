@@ -0,0 +1,80 @@
+package com.ably.tracking.common
+
+import com.ably.tracking.EnhancedLocationUpdate
+import com.ably.tracking.LocationUpdate
+import com.ably.tracking.LocationUpdateType
+import com.ably.tracking.common.message.CombinedLocationUpdate
+import com.ably.tracking.common.message.getCombinedLocationUpdate
+import com.ably.tracking.common.message.getEnhancedLocationUpdate
+import com.ably.tracking.common.message.toMessageJson
+import com.ably.tracking.test.common.createLocation
+import com.google.common.truth.Truth.assertThat
+import com.google.gson.Gson
+import io.ably.lib.types.Message
+import org.junit.Test
+
+class CombinedLocationUpdateTests {
+    private val gson = Gson()
+    private val locationUpdate = EnhancedLocationUpdate(
+        createLocation(1.0, 2.0, 3000),
+        listOf(createLocation(1.0, 1.0, 1000)),
+        listOf(createLocation(1.0, 1.5, 2000)),
+        LocationUpdateType.ACTUAL
+    )
+
+    @Test
+    fun `deserialize the enhanced location update from a combined message`() {
+        // given
+        val message = createMessage(locationUpdate.toMessageJson(gson, createLocation(1.1, 2.1, 3000)))
+
+        // when
+        val parsedLocationUpdate = message.getEnhancedLocationUpdate(gson)
+
+        // then
+        assertThat(parsedLocationUpdate).isEqualTo(locationUpdate)
+    }
+
+    @Test
+    fun `deserialize both the enhanced and the raw location updates from a combined message`() {
+        // given
+        val rawLocation = createLocation(1.1, 2.1, 3000)
+        val message = createMessage(locationUpdate.toMessageJson(gson, rawLocation))
+
+        // when
+        val parsedLocationUpdate = message.getCombinedLocationUpdate(gson)
+
+        // then
+        assertThat(parsedLocationUpdate)
+            .isEqualTo(CombinedLocationUpdate(locationUpdate, LocationUpdate(rawLocation, emptyList())))
+    }
+
+    @Test
+    fun `return no raw location update if the enhanced location update is not combined`() {
+        // given
+        val message = createMessage(locationUpdate.toMessageJson(gson))
+
+        // when
+        val parsedLocationUpdate = message.getCombinedLocationUpdate(gson)
+
+        // then
+        assertThat(parsedLocationUpdate).isEqualTo(CombinedLocationUpdate(locationUpdate, null))
+    }
+
+    @Test
+    fun `return null enhanced location update if the raw location is not valid`() {
+        // given
+        val messageJson = locationUpdate.toMessageJson(gson, createLocation(1.1, 2.1, 3000))
+            .replace(Regex("\"rawLocation\":\\{.*\\}\\}$"), "\"rawLocation\":{}}")
+        val message = createMessage(messageJson)
+
+        // when
+        val parsedEnhancedLocationUpdate = message.getEnhancedLocationUpdate(gson)
+        val parsedCombinedLocationUpdate = message.getCombinedLocationUpdate(gson)
+
+        // then
+        assertThat(parsedEnhancedLocationUpdate).isNull()
+        assertThat(parsedCombinedLocationUpdate).isNull()
+    }
+
+    private fun createMessage(messageData: String): Message = Message("test-name", messageData)
+}
@@ -0,0 +1,101 @@
+package com.ably.tracking.common
+
+import com.ably.tracking.FlowOverflowStrategy
+import com.ably.tracking.FlowPolicy
+import com.google.common.truth.Truth.assertThat
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.cancel
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.test.TestScope
+import kotlinx.coroutines.test.UnconfinedTestDispatcher
+import kotlinx.coroutines.test.runTest
+import org.junit.Test
+
+@OptIn(ExperimentalCoroutinesApi::class)
+class PolicySharedFlowTests {
+
+    @Test
+    fun `should replay the latest value without counting overflows when there are no collectors`() = runTest {
+        // given
+        val flow = PolicySharedFlow<Int>(FlowPolicy.SUSPEND, this)
+
+        // when
+        (1..4).forEach { flow.emit(it) }
+
+        // then
+        assertThat(flow.sharedFlow.replayCache).containsExactly(4)
+        assertThat(flow.overflowCount).isEqualTo(0)
+    }
+
+    @Test
+    fun `should keep every value for a slow collector when the policy is to suspend`() = runTest {
+        // given
+        val collectedValues = collectWithSlowCollector(FlowPolicy.SUSPEND) { flow ->
+            // when
+            (1..4).forEach { flow.emit(it) }
+
+            // then
+            assertThat(flow.overflowCount).isEqualTo(2)
+        }
+
+        // then
+        assertThat(collectedValues).containsExactly(1, 2, 3, 4).inOrder()
+    }
+
+    @Test
+    fun `should drop the new values for a slow collector when the policy is to drop the latest`() = runTest {
+        // given
+        val collectedValues = collectWithSlowCollector(FlowPolicy(0, FlowOverflowStrategy.DROP_LATEST)) { flow ->
+            // when
+            (1..4).forEach { flow.emit(it) }
+
+            // then
+            assertThat(flow.overflowCount).isEqualTo(2)
+        }
+
+        // then
+        assertThat(collectedValues).containsExactly(1, 2).inOrder()
+    }
+
+    @Test
+    fun `should keep only the most recent waiting value for a slow collector when the policy is conflated`() = runTest {
+        // given
+        val collectedValues = collectWithSlowCollector(FlowPolicy.CONFLATED) { flow ->
+            // when
+            (1..5).forEach { flow.emit(it) }
+
+            // then
+            assertThat(flow.overflowCount).isEqualTo(1)
+        }
+
+        // then
+        assertThat(collectedValues).containsExactly(1, 2, 3, 5).inOrder()
+    }
+
+    /**
+     * Runs the [block] while a collector is stuck on the first value, then lets the collector catch up.
+     *
+     * @return The values collected by the collector.
+     */
+    private fun TestScope.collectWithSlowCollector(policy: FlowPolicy, block: (PolicySharedFlow<Int>) -> Unit): List<Int> {
+        val scope = CoroutineScope(UnconfinedTestDispatcher(testScheduler))
+        val flow = PolicySharedFlow<Int>(policy, scope)
+        val collectedValues = mutableListOf<Int>()
+        val firstValueProcessed = CompletableDeferred<Unit>()
+        scope.launch {
+            flow.sharedFlow.collect {
+                collectedValues.add(it)
+                if (it == 1) {
+                    firstValueProcessed.await()
+                }
+            }
+        }
+
+        block(flow)
+        firstValueProcessed.complete(Unit)
+        scope.cancel()
+        return collectedValues
+    }
+}
@@ -1,6 +1,7 @@
 package com.ably.tracking.common
 
 import com.ably.tracking.Accuracy
+import com.ably.tracking.LocationUpdatePayload
 import com.ably.tracking.Resolution
 import com.ably.tracking.common.message.PresenceDataMessage
 import com.google.common.truth.Truth
@@ -86,6 +87,52 @@ class PresenceDataTests {
             .isEqualTo(Resolution(Accuracy.BALANCED, 1, 0.0))
     }
 
+    @Test
+    fun `parse the location payload from presence data`() {
+        // given
+        val presenceData = "{\"type\":\"SUBSCRIBER\",\"locationPayload\":\"latest-only\"}"
+        val presenceMessage = PresenceMessage(PresenceMessage.Action.enter, clientId, presenceData)
+        presenceMessage.connectionId = "TEST2"
+        presenceMessage.id = "TEST3"
+
+        // when
+        val parsedMessage = presenceMessage.toTracking(gson)
+
+        // then
+        Truth.assertThat(parsedMessage?.data?.locationPayload).isEqualTo(LocationUpdatePayload.LATEST_ONLY)
+    }
+
+    @Test
+    fun `parse the raw locations flag from presence data`() {
+        // given
+        val presenceData = "{\"type\":\"SUBSCRIBER\",\"rawLocations\":false}"
+        val presenceMessage = PresenceMessage(PresenceMessage.Action.enter, clientId, presenceData)
+        presenceMessage.connectionId = "TEST2"
+        presenceMessage.id = "TEST3"
+
+        // when
+        val parsedMessage = presenceMessage.toTracking(gson)
+
+        // then
+        Truth.assertThat(parsedMessage?.data?.rawLocations).isFalse()
+    }
+
+    @Test
+    fun `ignore an unknown location payload in presence data`() {
+        // given
+        val presenceData = "{\"type\":\"SUBSCRIBER\",\"locationPayload\":\"unknown\"}"
+        val presenceMessage = PresenceMessage(PresenceMessage.Action.enter, clientId, presenceData)
+        presenceMessage.connectionId = "TEST2"
+        presenceMessage.id = "TEST3"
+
+        // when
+        val parsedMessage = presenceMessage.toTracking(gson)
+
+        // then
+        Truth.assertThat(parsedMessage?.data?.type).isEqualTo(ClientTypes.SUBSCRIBER)
+        Truth.assertThat(parsedMessage?.data?.locationPayload).isNull()
+    }
+
     @Test
     fun `return null if presence data in wrong JSON object format`() {
         // given
@@ -12,6 +12,17 @@ interface LocationUpdateListener {
     fun onLocationUpdate(locationUpdate: LocationUpdate)
 }
 
+/**
+ * Defines an interface, to be implemented in Java code utilising the Ably Asset Tracking SDKs, allowing that code to
+ * handle the [LocationUpdate]s received within a frame interval in a single event.
+ */
+interface LocationUpdatesListener {
+    /**
+     * @param locationUpdates The location updates in the order they were received, never empty.
+     */
+    fun onLocationUpdates(locationUpdates: List<LocationUpdate>)
+}
+
 /**
  * Defines an interface, to be implemented in Java code utilising the Ably Asset Tracking SDKs, allowing that code to
  * handle events indicating the state of a trackable.
@@ -0,0 +1,48 @@
+package com.ably.tracking.java
+
+import com.ably.tracking.UpdateListener
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.CoroutineStart
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.launch
+
+/**
+ * Accumulates the updates for a frame interval and delivers them with a single call to [onUpdates], so that a listener
+ * that is notified on a busy thread, such as the main thread, is notified at most once per frame.
+ *
+ * The frame starts with its first update, which launches the delivery in the [scope]. The delivery is started
+ * undispatched, so it's dispatched to the [scope] only once, when the frame ends.
+ *
+ * @param frameIntervalInMilliseconds The time to accumulate the updates for.
+ * @param scope The scope whose dispatcher calls [onUpdates].
+ * @param onUpdates Called with the updates of a frame, in the order they were received.
+ */
+class UpdateBatcher<T>(
+    private val frameIntervalInMilliseconds: Long,
+    private val scope: CoroutineScope,
+    private val onUpdates: (List<T>) -> Unit,
+) : UpdateListener<T> {
+    private var pendingUpdates: MutableList<T> = ArrayList()
+
+    init {
+        require(frameIntervalInMilliseconds > 0) { "The frame interval must be positive, was $frameIntervalInMilliseconds" }
+    }
+
+    override fun onUpdate(update: T) {
+        val isFirstUpdateOfFrame = synchronized(this) {
+            pendingUpdates.add(update)
+            pendingUpdates.size == 1
+        }
+        if (isFirstUpdateOfFrame) {
+            scope.launch(start = CoroutineStart.UNDISPATCHED) {
+                delay(frameIntervalInMilliseconds)
+                onUpdates(takePendingUpdates())
+            }
+        }
+    }
+
+    private fun takePendingUpdates(): List<T> =
+        synchronized(this) {
+            pendingUpdates.also { pendingUpdates = ArrayList() }
+        }
+}
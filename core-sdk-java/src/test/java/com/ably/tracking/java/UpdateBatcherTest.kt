@@ -0,0 +1,77 @@
+package com.ably.tracking.java
+
+import com.google.common.truth.Truth.assertThat
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.test.StandardTestDispatcher
+import kotlinx.coroutines.test.TestScope
+import kotlinx.coroutines.test.advanceUntilIdle
+import kotlinx.coroutines.test.runTest
+import org.junit.Test
+
+@OptIn(ExperimentalCoroutinesApi::class)
+class UpdateBatcherTest {
+
+    @Test
+    fun `should deliver the updates of a frame in a single batch in the order they were received`() = runTest {
+        // given
+        val batches = mutableListOf<List<Int>>()
+        val batcher = UpdateBatcher<Int>(FRAME_INTERVAL_IN_MILLISECONDS, listenerScope()) { batches.add(it) }
+
+        // when
+        (1..3).forEach { batcher.onUpdate(it) }
+        advanceUntilIdle()
+        batcher.onUpdate(4)
+        advanceUntilIdle()
+
+        // then
+        assertThat(batches).containsExactly(listOf(1, 2, 3), listOf(4)).inOrder()
+    }
+
+    @Test
+    fun `should notify the listener at most once per frame at 100 updates per second`() = runTest {
+        // given
+        val batches = mutableListOf<List<Int>>()
+        val batcher = UpdateBatcher<Int>(FRAME_INTERVAL_IN_MILLISECONDS, listenerScope()) { batches.add(it) }
+
+        // when
+        sendUpdatesForOneSecond(batcher, updatesPerSecond = 100)
+
+        // then
+        assertThat(batches.flatten()).hasSize(100)
+        assertThat(batches.size).isAtMost(MAX_FRAMES_PER_SECOND)
+    }
+
+    @Test
+    fun `should notify the listener at most once per frame at 1000 updates per second`() = runTest {
+        // given
+        val batches = mutableListOf<List<Int>>()
+        val batcher = UpdateBatcher<Int>(FRAME_INTERVAL_IN_MILLISECONDS, listenerScope()) { batches.add(it) }
+
+        // when
+        sendUpdatesForOneSecond(batcher, updatesPerSecond = 1000)
+
+        // then
+        assertThat(batches.flatten()).containsExactlyElementsIn(0 until 1000).inOrder()
+        assertThat(batches.size).isAtMost(MAX_FRAMES_PER_SECOND)
+    }
+
+    /**
+     * The listener scope shares the virtual time of the test, so the frames end while the updates are being sent.
+     */
+    private fun TestScope.listenerScope() = CoroutineScope(StandardTestDispatcher(testScheduler))
+
+    private suspend fun TestScope.sendUpdatesForOneSecond(batcher: UpdateBatcher<Int>, updatesPerSecond: Int) {
+        repeat(updatesPerSecond) {
+            batcher.onUpdate(it)
+            delay(1000L / updatesPerSecond)
+        }
+        advanceUntilIdle()
+    }
+
+    companion object {
+        private const val FRAME_INTERVAL_IN_MILLISECONDS = 16L
+        private const val MAX_FRAMES_PER_SECOND = (1000 / FRAME_INTERVAL_IN_MILLISECONDS + 1).toInt()
+    }
+}
@@ -112,3 +112,78 @@ data class Resolution(
      */
     val minimumDisplacement: Double
 )
+
+/**
+ * The parts of location updates that a subscriber consumes, advertised to publishers so that they can omit the
+ * parts that no subscriber of a trackable needs.
+ */
+enum class LocationUpdatePayload {
+    /**
+     * The whole location update, including [LocationUpdate.skippedLocations] and
+     * [EnhancedLocationUpdate.intermediateLocations], which are needed to draw the trail of the asset.
+     */
+    FULL,
+
+    /**
+     * Only the latest [LocationUpdate.location], e.g. when only the current position of the asset is shown.
+     */
+    LATEST_ONLY,
+}
+
+/**
+ * Governs what happens to the updates of a flow when its collectors are slower than the updates are emitted.
+ * The latest update is always replayed to new collectors, and the updates are emitted without holding up the SDK.
+ */
+data class FlowPolicy(
+    /**
+     * The number of updates that are buffered for the slow collectors, in addition to the replayed latest update.
+     * Must not be negative, and must be positive for [FlowOverflowStrategy.DROP_OLDEST].
+     */
+    val bufferCapacity: Int,
+
+    /**
+     * What happens to an update when the buffer is full.
+     */
+    val onBufferOverflow: FlowOverflowStrategy,
+) {
+    init {
+        require(bufferCapacity >= 0) { "The buffer capacity must not be negative" }
+        require(bufferCapacity > 0 || onBufferOverflow != FlowOverflowStrategy.DROP_OLDEST) {
+            "The buffer capacity must be positive to drop the oldest updates"
+        }
+    }
+
+    companion object {
+        /**
+         * Keeps every update until the collectors catch up with it. This is the default policy.
+         */
+        @JvmField
+        val SUSPEND = FlowPolicy(0, FlowOverflowStrategy.SUSPEND)
+
+        /**
+         * Keeps only the most recent update that the collectors haven't caught up with yet.
+         */
+        @JvmField
+        val CONFLATED = FlowPolicy(1, FlowOverflowStrategy.DROP_OLDEST)
+    }
+}
+
+/**
+ * What happens to an update of a flow when its buffer is full, see [FlowPolicy].
+ */
+enum class FlowOverflowStrategy {
+    /**
+     * The update waits until the collectors catch up, so no update is lost but the waiting updates are unbounded.
+     */
+    SUSPEND,
+
+    /**
+     * The oldest buffered update is dropped to make room for the new one.
+     */
+    DROP_OLDEST,
+
+    /**
+     * The new update is dropped.
+     */
+    DROP_LATEST,
+}
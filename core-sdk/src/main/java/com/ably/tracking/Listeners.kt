@@ -0,0 +1,96 @@
+package com.ably.tracking
+
+import java.util.concurrent.Executor
+
+/**
+ * A listener of updates, which is invoked directly by the SDK without any intermediate flow.
+ */
+fun interface UpdateListener<T> {
+    fun onUpdate(update: T)
+}
+
+/**
+ * The registration of a listener added to an SDK instance.
+ */
+fun interface ListenerRegistration {
+    /**
+     * Removes the listener, so that it's not invoked for the subsequent updates. Removing it again does nothing.
+     */
+    fun remove()
+}
+
+/**
+ * The listeners of the updates of a single kind, used by the SDKs to implement their listener APIs.
+ *
+ * Each listener is invoked either synchronously, on the thread that dispatches the update, or on the executor it was
+ * added with. The listeners are kept in a copy-on-write list, so dispatching an update only takes a short lock to
+ * remember it as the latest update, and doesn't allocate for the synchronous listeners.
+ *
+ * @param onListenerError Handles an exception thrown by a synchronous listener, so that it doesn't break the SDK.
+ * @param onCountChanged Called with the new number of the listeners when a listener is added or removed, while holding
+ * the lock of the listeners, so it should return quickly.
+ */
+class UpdateListeners<T : Any>(
+    private val onListenerError: (Exception) -> Unit = {},
+    private val onCountChanged: (Int) -> Unit = {},
+) {
+    @Volatile
+    private var registrations: List<Registration<T>> = emptyList()
+    private var latestUpdate: T? = null
+
+    val count: Int
+        get() = registrations.size
+
+    /**
+     * @param executor The executor that invokes the [listener], or null to invoke it synchronously.
+     * @param replayLatest Whether the [listener] should receive the latest dispatched update, if there is one, when it's
+     * added. The replayed update is invoked before any subsequent update, so a synchronous listener receives it on
+     * the calling thread.
+     */
+    fun add(listener: UpdateListener<T>, executor: Executor? = null, replayLatest: Boolean = false): ListenerRegistration {
+        val registration = Registration(listener, executor)
+        synchronized(this) {
+            registrations = registrations + registration
+            onCountChanged(registrations.size)
+            // The latest update is replayed while holding the lock, so that it can't be overtaken by a newer update
+            if (replayLatest) {
+                latestUpdate?.let { invoke(registration, it) }
+            }
+        }
+        return ListenerRegistration { remove(registration) }
+    }
+
+    fun dispatch(update: T) {
+        val currentRegistrations = synchronized(this) {
+            latestUpdate = update
+            registrations
+        }
+        for (index in currentRegistrations.indices) {
+            invoke(currentRegistrations[index], update)
+        }
+    }
+
+    private fun invoke(registration: Registration<T>, update: T) {
+        val executor = registration.executor
+        if (executor == null) {
+            try {
+                registration.listener.onUpdate(update)
+            } catch (exception: Exception) {
+                onListenerError(exception)
+            }
+        } else {
+            executor.execute { registration.listener.onUpdate(update) }
+        }
+    }
+
+    private fun remove(registration: Registration<T>) {
+        synchronized(this) {
+            if (registration in registrations) {
+                registrations = registrations - registration
+                onCountChanged(registrations.size)
+            }
+        }
+    }
+
+    private class Registration<T>(val listener: UpdateListener<T>, val executor: Executor?)
+}
@@ -51,6 +51,21 @@ sealed class Authentication(
         }
     }
 
+    /**
+     * Authentications are equal when they use the same method with the same values, so that independently created
+     * connection configurations can be compared. The callbacks are compared by their identity.
+     */
+    override fun equals(other: Any?): Boolean =
+        other is Authentication &&
+            other.javaClass == javaClass &&
+            other.clientId == clientId &&
+            other.basicApiKey == basicApiKey &&
+            other.tokenRequestConfiguration == tokenRequestConfiguration &&
+            other.jwtConfiguration == jwtConfiguration
+
+    override fun hashCode(): Int =
+        listOf(javaClass, clientId, basicApiKey, tokenRequestConfiguration, jwtConfiguration).hashCode()
+
     companion object {
         /**
          * @param apiKey Ably key string as obtained from the dashboard.
@@ -0,0 +1,112 @@
+package com.ably.tracking
+
+import com.google.common.truth.Truth.assertThat
+import java.util.concurrent.Executor
+import org.junit.Test
+
+class UpdateListenersTest {
+
+    @Test
+    fun `should invoke a listener without an executor synchronously`() {
+        // given
+        val listeners = UpdateListeners<Int>()
+        val receivedUpdates = mutableListOf<Int>()
+        listeners.add({ receivedUpdates.add(it) })
+
+        // when
+        listeners.dispatch(1)
+
+        // then
+        assertThat(receivedUpdates).containsExactly(1)
+    }
+
+    @Test
+    fun `should invoke a listener with an executor on that executor`() {
+        // given
+        val listeners = UpdateListeners<Int>()
+        val pendingTasks = mutableListOf<Runnable>()
+        val executor = Executor { pendingTasks.add(it) }
+        val receivedUpdates = mutableListOf<Int>()
+        listeners.add({ receivedUpdates.add(it) }, executor)
+
+        // when
+        listeners.dispatch(1)
+
+        // then
+        assertThat(receivedUpdates).isEmpty()
+
+        // when
+        pendingTasks.forEach { it.run() }
+
+        // then
+        assertThat(receivedUpdates).containsExactly(1)
+    }
+
+    @Test
+    fun `should not invoke a removed listener and should report the number of listeners`() {
+        // given
+        val counts = mutableListOf<Int>()
+        val listeners = UpdateListeners<Int>(onCountChanged = { counts.add(it) })
+        val receivedUpdates = mutableListOf<Int>()
+        val registration = listeners.add({ receivedUpdates.add(it) })
+
+        // when
+        registration.remove()
+        registration.remove()
+        listeners.dispatch(1)
+
+        // then
+        assertThat(receivedUpdates).isEmpty()
+        assertThat(counts).containsExactly(1, 0).inOrder()
+        assertThat(listeners.count).isEqualTo(0)
+    }
+
+    @Test
+    fun `should keep invoking the other listeners when a synchronous listener throws`() {
+        // given
+        val errors = mutableListOf<Exception>()
+        val listeners = UpdateListeners<Int>(onListenerError = { errors.add(it) })
+        val receivedUpdates = mutableListOf<Int>()
+        listeners.add({ throw IllegalStateException() })
+        listeners.add({ receivedUpdates.add(it) })
+
+        // when
+        listeners.dispatch(1)
+
+        // then
+        assertThat(receivedUpdates).containsExactly(1)
+        assertThat(errors).hasSize(1)
+    }
+
+    @Test
+    fun `should replay the latest update to a listener added with the replay enabled`() {
+        // given
+        val listeners = UpdateListeners<Int>()
+        listeners.dispatch(1)
+        listeners.dispatch(2)
+        val replayedUpdates = mutableListOf<Int>()
+        val notReplayedUpdates = mutableListOf<Int>()
+
+        // when
+        listeners.add({ replayedUpdates.add(it) }, replayLatest = true)
+        listeners.add({ notReplayedUpdates.add(it) })
+        listeners.dispatch(3)
+
+        // then
+        assertThat(replayedUpdates).containsExactly(2, 3).inOrder()
+        assertThat(notReplayedUpdates).containsExactly(3)
+    }
+
+    @Test
+    fun `should not replay anything when no update was dispatched`() {
+        // given
+        val listeners = UpdateListeners<Int>()
+        val receivedUpdates = mutableListOf<Int>()
+
+        // when
+        listeners.add({ receivedUpdates.add(it) }, replayLatest = true)
+
+        // then
+        assertThat(receivedUpdates).isEmpty()
+    }
+}
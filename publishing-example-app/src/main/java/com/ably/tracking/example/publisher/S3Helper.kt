@@ -104,7 +104,8 @@ object S3Helper {
             val dateString = SimpleDateFormat("yyyy-MM-dd_HH:mm:ss", Locale.US).format(Date())
             val filename = "${LOCATION_HISTORY_VERSION}_$dateString"
             File(context.getExternalFilesDir(null), filename).let { fileToUpload ->
-                fileToUpload.writeText(gson.toJson(historyData))
+                // The history is serialised directly to the file to not hold its whole JSON in memory
+                fileToUpload.bufferedWriter().use { gson.toJson(historyData, it) }
                 Amplify.Storage.uploadFile(
                     filename,
                     fileToUpload,
@@ -1,21 +1,29 @@
 package com.ably.tracking.publisher.java
 
+import com.ably.tracking.UpdateListener
+import com.ably.tracking.annotations.Experimental
 import com.ably.tracking.java.LocationUpdateListener
+import com.ably.tracking.java.LocationUpdatesListener
 import com.ably.tracking.java.TrackableStateListener
+import com.ably.tracking.java.UpdateBatcher
 import com.ably.tracking.publisher.Publisher
 import com.ably.tracking.publisher.Trackable
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.asCoroutineDispatcher
+import kotlinx.coroutines.asExecutor
 import kotlinx.coroutines.flow.launchIn
 import kotlinx.coroutines.flow.onEach
 import kotlinx.coroutines.future.future
 import java.util.concurrent.CompletableFuture
+import java.util.concurrent.Executor
 
-class DefaultPublisherFacade(
-    private val publisher: Publisher
+class DefaultPublisherFacade @JvmOverloads constructor(
+    private val publisher: Publisher,
+    private val listenerExecutor: Executor = Dispatchers.Main.asExecutor(),
 ) : PublisherFacade, Publisher by publisher {
-    private val scope = CoroutineScope(Dispatchers.Main + SupervisorJob())
+    private val scope = CoroutineScope(listenerExecutor.asCoroutineDispatcher() + SupervisorJob())
 
     override fun trackAsync(trackable: Trackable, listener: TrackableStateListener?): CompletableFuture<Void> {
         return scope.future {
@@ -41,10 +49,14 @@ class DefaultPublisherFacade(
         return scope.future { publisher.remove(trackable) }
     }
 
+    @OptIn(Experimental::class)
     override fun addListener(listener: LocationUpdateListener) {
-        publisher.locations
-            .onEach { listener.onLocationUpdate(it) }
-            .launchIn(scope)
+        publisher.addLocationUpdateListener(UpdateListener { listener.onLocationUpdate(it) }, listenerExecutor, replayLatest = true)
+    }
+
+    @OptIn(Experimental::class)
+    override fun addBatchedListener(listener: LocationUpdatesListener, frameIntervalInMilliseconds: Long) {
+        publisher.addLocationUpdateListener(UpdateBatcher(frameIntervalInMilliseconds, scope, listener::onLocationUpdates))
     }
 
     override fun addTrackablesListener(listener: TrackablesListener) {
@@ -59,6 +71,12 @@ class DefaultPublisherFacade(
             .launchIn(scope)
     }
 
+    override fun addGeofenceEventListener(listener: GeofenceEventListener) {
+        publisher.geofenceEvents
+            .onEach { listener.onGeofenceEvent(it) }
+            .launchIn(scope)
+    }
+
     override fun addTrackableStateListener(trackableId: String, listener: TrackableStateListener) {
         publisher.getTrackableState(trackableId)
             ?.onEach { listener.onStateChanged(it) }
@@ -1,5 +1,6 @@
 package com.ably.tracking.publisher.java
 
+import com.ably.tracking.publisher.GeofenceEvent
 import com.ably.tracking.publisher.LocationHistoryData
 import com.ably.tracking.publisher.Trackable
 
@@ -18,3 +19,11 @@ interface LocationHistoryListener {
 interface TrackablesListener {
     fun onTrackables(trackables: Set<Trackable>)
 }
+
+/**
+ * Defines an interface, to be implemented in Java code utilising the Ably Asset Tracking SDKs, allowing that code to
+ * handle geofence events.
+ */
+interface GeofenceEventListener {
+    fun onGeofenceEvent(event: GeofenceEvent)
+}
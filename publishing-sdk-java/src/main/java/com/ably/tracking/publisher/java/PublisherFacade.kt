@@ -1,10 +1,12 @@
 package com.ably.tracking.publisher.java
 
 import com.ably.tracking.java.LocationUpdateListener
+import com.ably.tracking.java.LocationUpdatesListener
 import com.ably.tracking.java.TrackableStateListener
 import com.ably.tracking.publisher.Publisher
 import com.ably.tracking.publisher.Trackable
 import java.util.concurrent.CompletableFuture
+import java.util.concurrent.Executor
 
 /**
  * Methods provided for those using the [Publisher] from Java code (Java 1.8 or higher).
@@ -55,9 +57,20 @@ interface PublisherFacade : Publisher {
 
     /**
      * Add a listener to receive location values when they become available.
+     * The listener also receives the latest location value, if there is one, when it's added.
      */
     fun addListener(listener: LocationUpdateListener)
 
+    /**
+     * Add a listener to receive the location values that became available within each frame interval, in a single
+     * notification per frame. Use it instead of [addListener] when many location values are received, so that they
+     * don't flood the thread the listeners are notified on.
+     *
+     * @param listener The listener to notify.
+     * @param frameIntervalInMilliseconds The time to accumulate the location values for, before notifying the [listener].
+     */
+    fun addBatchedListener(listener: LocationUpdatesListener, frameIntervalInMilliseconds: Long)
+
     /**
      * Add a listener to receive set of all trackables tracked by the publisher when it changes.
      */
@@ -68,6 +81,11 @@ interface PublisherFacade : Publisher {
      */
     fun addLocationHistoryListener(listener: LocationHistoryListener)
 
+    /**
+     * Add a listener to receive events when the publisher enters or exits a geofence.
+     */
+    fun addGeofenceEventListener(listener: GeofenceEventListener)
+
     /**
      * Add a listener to receive an already added trackable's current state when it changes.
      * Does nothing if the trackable isn't currently tracked by the Publisher.
@@ -95,5 +113,14 @@ interface PublisherFacade : Publisher {
         fun wrap(publisher: Publisher): PublisherFacade {
             return DefaultPublisherFacade(publisher)
         }
+
+        /**
+         * Returns a facade for the given publisher instance, which notifies its listeners on the given executor
+         * instead of the main thread.
+         */
+        @JvmStatic
+        fun wrap(publisher: Publisher, listenerExecutor: Executor): PublisherFacade {
+            return DefaultPublisherFacade(publisher, listenerExecutor)
+        }
     }
 }
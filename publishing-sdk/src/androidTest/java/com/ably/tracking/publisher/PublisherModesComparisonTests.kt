@@ -0,0 +1,195 @@
+package com.ably.tracking.publisher
+
+import android.annotation.SuppressLint
+import android.app.Notification
+import android.content.Context
+import android.os.SystemClock
+import androidx.core.app.NotificationCompat
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import com.ably.tracking.Location
+import com.ably.tracking.common.message.GEOMETRY_ALT_INDEX
+import com.ably.tracking.common.message.GEOMETRY_LAT_INDEX
+import com.ably.tracking.common.message.GEOMETRY_LONG_INDEX
+import com.ably.tracking.connection.Authentication
+import com.ably.tracking.connection.ConnectionConfiguration
+import com.ably.tracking.test.android.common.Logging.testLogD
+import com.ably.tracking.test.android.common.NOTIFICATION_CHANNEL_ID
+import com.ably.tracking.test.android.common.UnitExpectation
+import com.ably.tracking.test.android.common.createNotificationChannel
+import com.google.gson.Gson
+import java.util.concurrent.atomic.AtomicBoolean
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.flow.flow
+import org.junit.Test
+import org.junit.runner.RunWith
+
+private const val MAPBOX_ACCESS_TOKEN = BuildConfig.MAPBOX_ACCESS_TOKEN
+private const val CLIENT_ID = "IntegrationTestsClient"
+private const val ABLY_API_KEY = BuildConfig.ABLY_API_KEY
+
+/**
+ * Compares the time from creating the [Mapbox] to receiving the first location and the heap used by it
+ * in the default mode ([DefaultMapbox]) and in the lightweight mode ([LightweightMapbox]).
+ *
+ * Both modes replay the same recorded trip: the default mode through the Mapbox replayer, as it does for a
+ * [LocationSourceRaw], and the lightweight mode through a [LocationSourceFlow] that emits the recorded locations at their
+ * recorded intervals, like a device location engine would. Each mode is run once before measuring so that neither
+ * benefits from the classes loaded by the other one, and the modes are then measured alternately.
+ *
+ * The measurements are only logged, as they depend on the device and the garbage collector and the modes replay
+ * the trip differently, so they are not precise enough to be asserted on.
+ */
+@RunWith(AndroidJUnit4::class)
+class PublisherModesComparisonTests {
+    private val gson = Gson()
+
+    @Test
+    fun measureTimeToFirstLocationAndHeapInBothModes() {
+        testLogD("##########  PublisherModesComparisonTests.measureTimeToFirstLocationAndHeapInBothModes  ##########")
+        val context = InstrumentationRegistry.getInstrumentation().targetContext
+        createNotificationChannel(context)
+        val locationData = getLocationData(context)
+        val createLightweightMapbox = {
+            LightweightMapbox.create(
+                context,
+                createConnectionConfiguration(),
+                createReplayedLocationSource(locationData),
+                null,
+                createNotificationProvider(context),
+                12345,
+                null,
+                null,
+            )
+        }
+        val createDefaultMapbox = {
+            DefaultMapbox(
+                context,
+                MapConfiguration(MAPBOX_ACCESS_TOKEN),
+                createConnectionConfiguration(),
+                LocationSourceRaw.create(locationData, null),
+                null,
+                createNotificationProvider(context),
+                12345,
+                null,
+                null,
+                VehicleProfile.CAR,
+            )
+        }
+
+        // given
+        measure("lightweight warm-up", createLightweightMapbox)
+        measure("default warm-up", createDefaultMapbox)
+
+        // when
+        val lightweightModeMeasurements = mutableListOf<Measurement>()
+        val defaultModeMeasurements = mutableListOf<Measurement>()
+        repeat(MEASUREMENT_ROUNDS) { round ->
+            if (round % 2 == 0) {
+                lightweightModeMeasurements.add(measure("lightweight", createLightweightMapbox))
+                defaultModeMeasurements.add(measure("default", createDefaultMapbox))
+            } else {
+                defaultModeMeasurements.add(measure("default", createDefaultMapbox))
+                lightweightModeMeasurements.add(measure("lightweight", createLightweightMapbox))
+            }
+        }
+
+        // then
+        testLogD("Lightweight mode: ${lightweightModeMeasurements.median()} from $lightweightModeMeasurements")
+        testLogD("Default mode: ${defaultModeMeasurements.median()} from $defaultModeMeasurements")
+    }
+
+    @SuppressLint("MissingPermission")
+    private fun measure(modeName: String, createMapbox: () -> Mapbox): Measurement {
+        testLogD("Measuring the $modeName mode")
+        val firstLocationExpectation = UnitExpectation("first location in the $modeName mode")
+        val wasLocationReceived = AtomicBoolean(false)
+        val heapBefore = getUsedHeapInBytes()
+        val startTime = SystemClock.elapsedRealtime()
+
+        val mapbox = createMapbox()
+        mapbox.registerLocationObserver(object : LocationUpdatesObserver {
+            override fun onRawLocationChanged(rawLocation: Location) = Unit
+
+            override fun onEnhancedLocationChanged(enhancedLocation: Location, intermediateLocations: List<Location>) {
+                if (wasLocationReceived.compareAndSet(false, true)) {
+                    firstLocationExpectation.fulfill()
+                }
+            }
+
+            override fun onPrecedingBatchLocationsChanged(rawLocations: List<Location>) = Unit
+        })
+        mapbox.startTrip()
+        firstLocationExpectation.await()
+        val timeToFirstLocation = SystemClock.elapsedRealtime() - startTime
+        val heapAfter = getUsedHeapInBytes()
+
+        mapbox.stopTrip()
+        mapbox.unregisterLocationObserver()
+        mapbox.close()
+
+        firstLocationExpectation.assertFulfilled()
+        return Measurement(timeToFirstLocation, heapAfter - heapBefore)
+    }
+
+    private fun getUsedHeapInBytes(): Long {
+        val runtime = Runtime.getRuntime()
+        runtime.gc()
+        return runtime.totalMemory() - runtime.freeMemory()
+    }
+
+    private fun createConnectionConfiguration() =
+        ConnectionConfiguration(Authentication.basic(CLIENT_ID, ABLY_API_KEY))
+
+    private fun getLocationData(context: Context): LocationHistoryData {
+        val historyString = context.assets.open("location_history_small.txt").use { String(it.readBytes()) }
+        return gson.fromJson(historyString, LocationHistoryData::class.java)
+    }
+
+    /**
+     * Emits the recorded locations with the current time, waiting between them as long as they were apart in the recording.
+     */
+    private fun createReplayedLocationSource(locationData: LocationHistoryData) =
+        LocationSourceFlow(
+            flow {
+                var previousEventTime: Double? = null
+                locationData.events.forEach { event ->
+                    previousEventTime?.let { delay(((event.properties.time - it) * 1000).toLong().coerceAtLeast(0)) }
+                    previousEventTime = event.properties.time
+                    emit(
+                        Location(
+                            latitude = event.geometry.coordinates[GEOMETRY_LAT_INDEX],
+                            longitude = event.geometry.coordinates[GEOMETRY_LONG_INDEX],
+                            altitude = event.geometry.coordinates[GEOMETRY_ALT_INDEX],
+                            accuracy = event.properties.accuracyHorizontal,
+                            bearing = event.properties.bearing,
+                            speed = event.properties.speed,
+                            time = System.currentTimeMillis()
+                        )
+                    )
+                }
+            }
+        )
+
+    private fun createNotificationProvider(context: Context) =
+        object : PublisherNotificationProvider {
+            override fun getNotification(): Notification =
+                NotificationCompat.Builder(context, NOTIFICATION_CHANNEL_ID)
+                    .setContentTitle("TEST")
+                    .setContentText("Test")
+                    .setSmallIcon(R.drawable.aat_logo)
+                    .build()
+        }
+
+    private fun List<Measurement>.median() =
+        Measurement(
+            map { it.timeToFirstLocationInMilliseconds }.sorted()[size / 2],
+            map { it.usedHeapInBytes }.sorted()[size / 2],
+        )
+
+    private data class Measurement(val timeToFirstLocationInMilliseconds: Long, val usedHeapInBytes: Long)
+
+    companion object {
+        private const val MEASUREMENT_ROUNDS = 3
+    }
+}
@@ -3,6 +3,7 @@ package com.ably.tracking.publisher
 import android.app.Notification
 import com.ably.tracking.Location
 import com.ably.tracking.Resolution
+import java.io.File
 import kotlinx.coroutines.flow.Flow
 
 data class MapConfiguration(val apiKey: String)
@@ -141,6 +142,21 @@ interface ResolutionPolicy {
             fun onSubscriberRemoved(subscriber: Subscriber)
         }
 
+        /**
+         * A handler of changes of the spatial proximity to the destinations of all [Trackable] objects of a
+         * [Publisher] instance, not only of the [actively][Publisher.active] tracked object.
+         */
+        interface DestinationProximityListener {
+            /**
+             * The location of the [Publisher] moved within, or out of, the spatial proximity threshold specified in
+             * the [DefaultResolutionConstraints] of the [trackable], measured from the trackable's destination.
+             *
+             * @param trackable The object whose destination proximity has changed.
+             * @param isNear Whether the location is now within the spatial proximity threshold.
+             */
+            fun onDestinationProximityChanged(trackable: Trackable, isNear: Boolean)
+        }
+
         /**
          * Register a handler for the addition, removal and activation of [Trackable] objects for the [Publisher]
          * instance whose [creation][Publisher.Builder.start] caused
@@ -164,6 +180,20 @@ interface ResolutionPolicy {
          * @param listener The handler, which may be called multiple times during the lifespan of the publisher.
          */
         fun subscribers(listener: SubscriberSetListener)
+
+        /**
+         * Register a handler for the changes of the spatial proximity to the destinations of [Trackable] objects of
+         * the [Publisher] instance whose [creation][Publisher.Builder.start] caused
+         * [createResolutionPolicy][Factory.createResolutionPolicy] to be called.
+         *
+         * This method should only be called once within the scope of creation of a single publisher's resolution
+         * policy. Subsequent calls to this method will replace the previous handler.
+         *
+         * The default implementation ignores the [listener], for the implementations that don't report the destination proximity.
+         *
+         * @param listener The handler, which may be called multiple times during the lifespan of the publisher.
+         */
+        fun destinationProximity(listener: DestinationProximityListener) = Unit
     }
 
     /**
@@ -451,6 +481,48 @@ class LocationSourceRaw private constructor(
     )
 }
 
+/**
+ * Replays the location history from a [file] written by the [LocationHistoryWriter].
+ * The history is read lazily while it's replayed, so even very long histories don't have to be held in memory.
+ * The replayed locations have the current device time as their timestamps. The speed and the position of the replay
+ * can be changed with the [replayControl] at any time.
+ */
+class LocationSourceFile private constructor(
+    val file: File,
+    val isGzipEnabled: Boolean,
+    speedMultiplier: Double,
+    val onDataEnded: (() -> Unit)?,
+) : LocationSource() {
+    /**
+     * Controls the speed and the position of the replay.
+     */
+    val replayControl = LocationReplayControl(speedMultiplier)
+
+    companion object {
+        /**
+         * @throws IllegalArgumentException If the [speedMultiplier] is not between [MINIMUM_REPLAY_SPEED_MULTIPLIER] and [MAXIMUM_REPLAY_SPEED_MULTIPLIER].
+         */
+        @JvmSynthetic
+        fun create(
+            file: File,
+            isGzipEnabled: Boolean = false,
+            speedMultiplier: Double = MINIMUM_REPLAY_SPEED_MULTIPLIER,
+            onDataEnded: (() -> Unit)? = null
+        ) = LocationSourceFile(file, isGzipEnabled, speedMultiplier, onDataEnded)
+
+        /**
+         * @throws IllegalArgumentException If the [speedMultiplier] is not between [MINIMUM_REPLAY_SPEED_MULTIPLIER] and [MAXIMUM_REPLAY_SPEED_MULTIPLIER].
+         */
+        @JvmStatic
+        fun createFile(
+            file: File,
+            isGzipEnabled: Boolean,
+            speedMultiplier: Double,
+            callback: (DataEndedCallback)? = null
+        ) = LocationSourceFile(file, isGzipEnabled, speedMultiplier, callback?.let { { it.onDataEnded() } })
+    }
+}
+
 interface DataEndedCallback {
     fun onDataEnded()
 }
@@ -469,3 +541,96 @@ enum class VehicleProfile {
      */
     BICYCLE,
 }
+
+/**
+ * Configures the batched delivery of locations. When it's used, the device can collect locations without waking up the
+ * application for each of them and deliver them in batches instead. The locations from a batch are published in a single
+ * location update, with all but the latest one sent as its [skipped locations][com.ably.tracking.LocationUpdate.skippedLocations].
+ *
+ * Batching is only used while the [Resolution.desiredInterval] of the location engine is at least [minimumDesiredInterval],
+ * so it doesn't delay locations when a high temporal resolution is required.
+ */
+data class LocationBatching(
+    /**
+     * The minimum [Resolution.desiredInterval], in milliseconds, of the location engine for which batching is used.
+     */
+    val minimumDesiredInterval: Long,
+
+    /**
+     * The maximum number of locations in a single batch. The locations can be delayed by up to
+     * [Resolution.desiredInterval] multiplied by this value. Values smaller than 2 disable batching.
+     */
+    val maximumBatchSize: Int,
+)
+
+/**
+ * Configures the simplification of the [skipped locations][com.ably.tracking.LocationUpdate.skippedLocations] and
+ * [intermediate locations][com.ably.tracking.EnhancedLocationUpdate.intermediateLocations] before they are published.
+ * Locations that lie on a nearly straight line between their neighbours are removed with the Douglas-Peucker algorithm,
+ * which makes the published messages smaller without visibly changing the trail drawn from them.
+ *
+ * The tolerance, which is the maximum distance between a removed location and the simplified trail,
+ * is the [Resolution.minimumDisplacement] of the trackable multiplied by [toleranceMultiplier].
+ */
+data class TrajectorySimplification(
+    /**
+     * The multiplier of the trackable's [Resolution.minimumDisplacement] that gives the tolerance in meters.
+     * Values that are not greater than 0 disable the simplification.
+     */
+    val toleranceMultiplier: Double = DEFAULT_TOLERANCE_MULTIPLIER,
+) {
+    companion object {
+        const val DEFAULT_TOLERANCE_MULTIPLIER = 0.5
+    }
+}
+
+/**
+ * Configures the trip history recording done by the Mapbox Navigation SDK, which is emitted by [Publisher.locationHistory]
+ * when the publisher is stopped. The history is recorded to disk in consecutive segments and, when limits are set,
+ * the oldest segments are removed once they fall outside of those limits, so the limits are applied with the
+ * granularity of a single segment. The newest segment is never removed.
+ */
+data class TripHistoryRecording(
+    /**
+     * The maximum duration, in milliseconds, of the kept trip history. If null then the duration is not limited.
+     */
+    val maximumDuration: Long? = null,
+
+    /**
+     * The maximum size, in bytes, of the kept trip history files. If null then the size is not limited.
+     */
+    val maximumSize: Long? = null,
+
+    /**
+     * The duration, in milliseconds, of a single history segment. It's only used when any of the limits is set.
+     */
+    val segmentDuration: Long = DEFAULT_TRIP_HISTORY_SEGMENT_DURATION,
+) {
+    internal val isBounded: Boolean
+        get() = maximumDuration != null || maximumSize != null
+}
+
+private const val DEFAULT_TRIP_HISTORY_SEGMENT_DURATION = 10 * 60 * 1000L
+
+/**
+ * Configures the trail of the sent locations that the [Publisher] keeps for a trackable while all of its subscribers
+ * consume only the latest location, so the skipped and intermediate locations are not published. The trail is sent
+ * with the next location update once a subscriber that consumes it joins. When the limits are reached the oldest
+ * locations of the trail are removed.
+ */
+data class LocationTrailRetention(
+    /**
+     * The maximum number of the kept locations. If null then the number of locations is not limited.
+     */
+    val maximumCount: Int? = DEFAULT_LOCATION_TRAIL_MAXIMUM_COUNT,
+
+    /**
+     * The maximum time, in milliseconds, between the oldest and the newest kept location.
+     * If null then the time is not limited.
+     */
+    val maximumAge: Long? = null,
+) {
+    companion object {
+        const val DEFAULT_LOCATION_TRAIL_MAXIMUM_COUNT = 600
+    }
+}
@@ -5,14 +5,20 @@ import androidx.annotation.RequiresPermission
 import com.ably.tracking.ConnectionException
 import com.ably.tracking.EnhancedLocationUpdate
 import com.ably.tracking.ErrorInformation
+import com.ably.tracking.FlowPolicy
+import com.ably.tracking.ListenerRegistration
 import com.ably.tracking.Location
 import com.ably.tracking.LocationUpdate
+import com.ably.tracking.LocationUpdatePayload
 import com.ably.tracking.LocationUpdateType
 import com.ably.tracking.Resolution
 import com.ably.tracking.TrackableState
+import com.ably.tracking.UpdateListener
+import com.ably.tracking.UpdateListeners
 import com.ably.tracking.common.Ably
 import com.ably.tracking.common.ConnectionState
 import com.ably.tracking.common.ConnectionStateChange
+import com.ably.tracking.common.PolicySharedFlow
 import com.ably.tracking.common.PresenceData
 import com.ably.tracking.common.ResultCallbackFunction
 import com.ably.tracking.common.TimeProvider
@@ -32,6 +38,7 @@ import kotlinx.coroutines.launch
 import com.ably.tracking.common.workerqueue.WorkerQueue
 import com.ably.tracking.publisher.workerqueue.WorkerFactory
 import io.ably.lib.realtime.ChannelState
+import java.util.concurrent.Executor
 import kotlinx.coroutines.delay
 
 /**
@@ -45,10 +52,16 @@ internal interface CorePublisher {
     fun stop(callbackFunction: ResultCallbackFunction<Unit>)
     val locations: SharedFlow<LocationUpdate>
     val trackables: SharedFlow<Set<Trackable>>
+    val locationsOverflowCount: Long
+    val trackablesOverflowCount: Long
     val locationHistory: SharedFlow<LocationHistoryData>
+    val geofenceEvents: SharedFlow<GeofenceEvent>
     val active: Trackable?
     val routingProfile: RoutingProfile
     val trackableStateFlows: Map<String, StateFlow<TrackableState>>
+    fun addGeofence(geofence: CustomGeofence)
+    fun removeGeofence(geofenceId: String): Boolean
+    fun addLocationListener(listener: UpdateListener<LocationUpdate>, executor: Executor?, replayLatest: Boolean): ListenerRegistration
 }
 
 /**
@@ -70,7 +83,8 @@ internal interface PublisherInteractor {
     fun processEnhancedLocationUpdate(
         enhancedLocationUpdate: EnhancedLocationUpdate,
         properties: PublisherProperties,
-        trackableId: String
+        trackableId: String,
+        rawLocation: Location?
     )
 
     fun updateLocations(locationUpdate: LocationUpdate)
@@ -80,6 +94,8 @@ internal interface PublisherInteractor {
         estimatedArrivalTimeInMilliseconds: Long?
     )
 
+    fun checkGeofences(currentLocation: Location, properties: PublisherProperties)
+
     fun addSubscriber(memberKey: String, trackable: Trackable, data: PresenceData, properties: PublisherProperties)
     fun removeSubscriber(memberKey: String, trackable: Trackable, properties: PublisherProperties)
     fun updateSubscriber(memberKey: String, trackable: Trackable, data: PresenceData, properties: PublisherProperties)
@@ -92,7 +108,8 @@ internal interface PublisherInteractor {
     fun retrySendingEnhancedLocation(
         properties: PublisherProperties,
         trackableId: String,
-        locationUpdate: EnhancedLocationUpdate
+        locationUpdate: EnhancedLocationUpdate,
+        rawLocation: Location?
     )
 
     fun saveEnhancedLocationForFurtherSending(properties: PublisherProperties, trackableId: String, location: Location)
@@ -113,6 +130,10 @@ internal fun createCorePublisher(
     areRawLocationsEnabled: Boolean?,
     sendResolutionEnabled: Boolean,
     constantLocationEngineResolution: Resolution?,
+    trajectorySimplification: TrajectorySimplification? = null,
+    areLocationUpdatesCombined: Boolean = false,
+    flowPolicy: FlowPolicy = FlowPolicy.SUSPEND,
+    locationTrailRetention: LocationTrailRetention = LocationTrailRetention(),
 ): CorePublisher {
     return DefaultCorePublisher(
         ably,
@@ -123,6 +144,10 @@ internal fun createCorePublisher(
         areRawLocationsEnabled,
         sendResolutionEnabled,
         constantLocationEngineResolution,
+        trajectorySimplification,
+        areLocationUpdatesCombined,
+        flowPolicy,
+        locationTrailRetention,
     )
 }
 
@@ -142,6 +167,10 @@ constructor(
     areRawLocationsEnabled: Boolean?,
     private val sendResolutionEnabled: Boolean,
     constantLocationEngineResolution: Resolution?,
+    private val trajectorySimplification: TrajectorySimplification? = null,
+    areLocationUpdatesCombined: Boolean = false,
+    flowPolicy: FlowPolicy = FlowPolicy.SUSPEND,
+    locationTrailRetention: LocationTrailRetention = LocationTrailRetention(),
 ) : CorePublisher, PublisherInteractor, TimeProvider {
 
     companion object {
@@ -152,19 +181,30 @@ constructor(
     private val scope = CoroutineScope(singleThreadDispatcher + SupervisorJob())
     private val workerQueue: WorkerQueue<PublisherProperties, WorkerSpecification>
     private val workerFactory: WorkerFactory
-    private val _locations = MutableSharedFlow<LocationUpdate>(replay = 1)
-    private val _trackables = MutableSharedFlow<Set<Trackable>>(replay = 1)
+    private val _locations = PolicySharedFlow<LocationUpdate>(flowPolicy, scope)
+    private val _trackables = PolicySharedFlow<Set<Trackable>>(flowPolicy, scope)
+    private val locationListeners = UpdateListeners<LocationUpdate>(
+        onListenerError = { logHandler?.w("$TAG A location listener has thrown an exception", it) }
+    )
     private val _locationHistory = MutableSharedFlow<LocationHistoryData>()
+    private val _geofenceEvents = MutableSharedFlow<GeofenceEvent>()
     private val thresholdChecker = ThresholdChecker()
+    private val geofenceEngine = GeofenceEngine()
     private val policy: ResolutionPolicy
     private val hooks = Hooks()
     private val methods = Methods()
     override val locations: SharedFlow<LocationUpdate>
-        get() = _locations.asSharedFlow()
+        get() = _locations.sharedFlow
     override val trackables: SharedFlow<Set<Trackable>>
-        get() = _trackables.asSharedFlow()
+        get() = _trackables.sharedFlow
+    override val locationsOverflowCount: Long
+        get() = _locations.overflowCount
+    override val trackablesOverflowCount: Long
+        get() = _trackables.overflowCount
     override val locationHistory: SharedFlow<LocationHistoryData>
         get() = _locationHistory.asSharedFlow()
+    override val geofenceEvents: SharedFlow<GeofenceEvent>
+        get() = _geofenceEvents.asSharedFlow()
 
     override var active: Trackable? = null
     override var trackableStateFlows: Map<String, StateFlow<TrackableState>> = emptyMap()
@@ -179,6 +219,8 @@ constructor(
             locationEngineResolution = policy.resolve(emptySet()),
             isLocationEngineResolutionConstant = constantLocationEngineResolution != null,
             areRawLocationsEnabled = areRawLocationsEnabled,
+            areLocationUpdatesCombined = areLocationUpdatesCombined,
+            locationTrailRetention = locationTrailRetention,
             onActiveTrackableUpdated = { active = it },
             onRoutingProfileUpdated = { routingProfile = it }
         )
@@ -212,6 +254,11 @@ constructor(
                     )
                 )
             }
+
+            override fun onPrecedingBatchLocationsChanged(rawLocations: List<Location>) {
+                logHandler?.v("$TAG Preceding batch locations received: ${rawLocations.size}")
+                enqueue(WorkerSpecification.PrecedingBatchLocationsChanged(rawLocations))
+            }
         })
     }
 
@@ -269,34 +316,40 @@ constructor(
     override fun retrySendingEnhancedLocation(
         properties: PublisherProperties,
         trackableId: String,
-        locationUpdate: EnhancedLocationUpdate
+        locationUpdate: EnhancedLocationUpdate,
+        rawLocation: Location?
     ) {
         logHandler?.v("$TAG Trackable $trackableId retry sending enhanced location ${locationUpdate.location}")
         properties.enhancedLocationsPublishingState.incrementRetryCount(trackableId)
         sendEnhancedLocationUpdate(
             locationUpdate,
             properties,
-            trackableId
+            trackableId,
+            rawLocation
         )
     }
 
     override fun processEnhancedLocationUpdate(
         enhancedLocationUpdate: EnhancedLocationUpdate,
         properties: PublisherProperties,
-        trackableId: String
+        trackableId: String,
+        rawLocation: Location?
     ) {
         logHandler?.v("$TAG Processing enhanced location for trackable: $trackableId. ${enhancedLocationUpdate.location}")
         when {
             properties.enhancedLocationsPublishingState.hasPendingMessage(trackableId) -> {
                 logHandler?.v("$TAG Trackable: $trackableId has pending message. Adding enhanced location to waiting ${enhancedLocationUpdate.location}")
-                properties.enhancedLocationsPublishingState.addToWaiting(trackableId, enhancedLocationUpdate)
+                properties.enhancedLocationsPublishingState.addToWaiting(
+                    trackableId,
+                    EnhancedLocationUpdateEvent(enhancedLocationUpdate, rawLocation)
+                )
             }
             shouldSendLocation(
                 enhancedLocationUpdate.location,
                 properties.lastSentEnhancedLocations[trackableId],
                 properties.resolutions[trackableId]
             ) -> {
-                sendEnhancedLocationUpdate(enhancedLocationUpdate, properties, trackableId)
+                sendEnhancedLocationUpdate(enhancedLocationUpdate, properties, trackableId, rawLocation)
             }
             else -> {
                 saveEnhancedLocationForFurtherSending(properties, trackableId, enhancedLocationUpdate.location)
@@ -307,23 +360,51 @@ constructor(
 
     override fun processNextWaitingEnhancedLocationUpdate(properties: PublisherProperties, trackableId: String) {
         properties.enhancedLocationsPublishingState.getNextWaiting(trackableId)?.let {
-            logHandler?.v("$TAG Trackable: $trackableId. Process next waiting enhanced location ${it.location}")
-            processEnhancedLocationUpdate(it, properties, trackableId)
+            logHandler?.v("$TAG Trackable: $trackableId. Process next waiting enhanced location ${it.locationUpdate.location}")
+            processEnhancedLocationUpdate(it.locationUpdate, properties, trackableId, it.rawLocation)
         }
     }
 
     private fun sendEnhancedLocationUpdate(
         enhancedLocationUpdate: EnhancedLocationUpdate,
         properties: PublisherProperties,
-        trackableId: String
+        trackableId: String,
+        rawLocation: Location?
     ) {
         logHandler?.v("$TAG Trackable: $trackableId will send enhanced location ${enhancedLocationUpdate.location}")
-        val locationUpdate = EnhancedLocationUpdate(
-            enhancedLocationUpdate.location,
-            properties.skippedEnhancedLocations.toList(trackableId),
-            enhancedLocationUpdate.intermediateLocations,
-            enhancedLocationUpdate.type
-        )
+        val location = enhancedLocationUpdate.location
+        val lastSentLocation = properties.lastSentEnhancedLocations[trackableId]
+        val intermediateLocations = enhancedLocationUpdate.intermediateLocations
+        val isTrailOmitted = isTrailOmitted(properties, trackableId)
+        val locationUpdate = if (isTrailOmitted) {
+            // Keep the trail so that it can be sent once a subscriber that consumes it joins
+            properties.sentEnhancedLocationsTrail.addAll(
+                trackableId,
+                properties.skippedEnhancedLocations.toList(trackableId) + intermediateLocations + location
+            )
+            EnhancedLocationUpdate(location, emptyList(), emptyList(), enhancedLocationUpdate.type)
+        } else {
+            val skippedLocations = simplifyLocations(
+                mergeLocations(
+                    properties.sentEnhancedLocationsTrail.toList(trackableId),
+                    properties.skippedEnhancedLocations.toList(trackableId)
+                ),
+                lastSentLocation,
+                intermediateLocations.firstOrNull() ?: location,
+                properties.resolutions[trackableId]
+            )
+            EnhancedLocationUpdate(
+                location,
+                skippedLocations,
+                simplifyLocations(
+                    intermediateLocations,
+                    skippedLocations.lastOrNull() ?: lastSentLocation,
+                    location,
+                    properties.resolutions[trackableId]
+                ),
+                enhancedLocationUpdate.type
+            )
+        }
         properties.enhancedLocationsPublishingState.markMessageAsPending(trackableId)
         if (ably.getChannelState(trackableId) == ChannelState.suspended) {
             scope.launch {
@@ -333,18 +414,20 @@ constructor(
                     WorkerSpecification.SendEnhancedLocationFailure(
                         locationUpdate,
                         trackableId,
-                        exception
+                        exception,
+                        rawLocation
                     )
                 )
             }
             return
         }
-        ably.sendEnhancedLocation(trackableId, locationUpdate) {
+        val callback: (Result<Unit>) -> Unit = {
             if (it.isSuccess) {
                 enqueue(
                     WorkerSpecification.SendEnhancedLocationSuccess(
                         locationUpdate.location,
-                        trackableId
+                        trackableId,
+                        isTrailOmitted
                     )
                 )
             } else {
@@ -352,11 +435,19 @@ constructor(
                     WorkerSpecification.SendEnhancedLocationFailure(
                         locationUpdate,
                         trackableId,
-                        it.exceptionOrNull()
+                        it.exceptionOrNull(),
+                        rawLocation
                     )
                 )
             }
         }
+        val combinedRawLocation =
+            rawLocation?.takeIf { properties.areLocationUpdatesCombined && areRawLocationsWanted(properties, trackableId) }
+        if (combinedRawLocation != null) {
+            ably.sendCombinedLocation(trackableId, locationUpdate, combinedRawLocation, callback)
+        } else {
+            ably.sendEnhancedLocation(trackableId, locationUpdate, callback)
+        }
     }
 
     override fun saveEnhancedLocationForFurtherSending(
@@ -384,6 +475,10 @@ constructor(
         trackableId: String
     ) {
         logHandler?.v("$TAG Processing raw location for trackable: $trackableId. ${rawLocationUpdate.location}")
+        if (!areRawLocationsWanted(properties, trackableId)) {
+            logHandler?.v("$TAG Trackable: $trackableId. None of the subscribers wants the raw locations")
+            return
+        }
         when {
             properties.rawLocationsPublishingState.hasPendingMessage(trackableId) -> {
                 logHandler?.v("$TAG Trackable: $trackableId has pending message. Adding raw location to waiting ${rawLocationUpdate.location}")
@@ -416,9 +511,23 @@ constructor(
         trackableId: String
     ) {
         logHandler?.v("$TAG Trackable: $trackableId will send raw location ${rawLocationUpdate.location}")
+        val isTrailOmitted = isTrailOmitted(properties, trackableId)
+        if (isTrailOmitted) {
+            // Keep the trail so that it can be sent once a subscriber that consumes it joins
+            properties.sentRawLocationsTrail.addAll(
+                trackableId,
+                properties.skippedRawLocations.toList(trackableId) + rawLocationUpdate.location
+            )
+        }
         val locationUpdate = LocationUpdate(
             rawLocationUpdate.location,
-            properties.skippedRawLocations.toList(trackableId),
+            if (isTrailOmitted) emptyList()
+            else simplifyLocations(
+                mergeLocations(properties.sentRawLocationsTrail.toList(trackableId), properties.skippedRawLocations.toList(trackableId)),
+                properties.lastSentRawLocations[trackableId],
+                rawLocationUpdate.location,
+                properties.resolutions[trackableId]
+            ),
         )
         properties.rawLocationsPublishingState.markMessageAsPending(trackableId)
 
@@ -439,13 +548,56 @@ constructor(
         }
         ably.sendRawLocation(trackableId, locationUpdate) {
             if (it.isSuccess) {
-                enqueue(WorkerSpecification.SendRawLocationSuccess(locationUpdate.location, trackableId))
+                enqueue(WorkerSpecification.SendRawLocationSuccess(locationUpdate.location, trackableId, isTrailOmitted))
             } else {
                 enqueue(WorkerSpecification.SendRawLocationFailure(locationUpdate, trackableId, it.exceptionOrNull()))
             }
         }
     }
 
+    /**
+     * The skipped and intermediate locations are omitted from the location updates only when all present subscribers
+     * of the trackable have advertised that they consume the latest location only.
+     * Without subscribers the trail is still sent, as it can be read from the channel history.
+     */
+    private fun isTrailOmitted(properties: PublisherProperties, trackableId: String): Boolean {
+        val subscribers = properties.subscribers[trackableId]
+        return !subscribers.isNullOrEmpty() && subscribers.all { it in properties.latestOnlySubscribers }
+    }
+
+    /**
+     * The raw locations are not published only when all present subscribers of the trackable have advertised that they
+     * don't collect them. Subscribers that don't advertise it at all are assumed to want the raw locations.
+     * Without subscribers the raw locations are still published, as they can be read from the channel history.
+     */
+    private fun areRawLocationsWanted(properties: PublisherProperties, trackableId: String): Boolean {
+        val subscribers = properties.subscribers[trackableId]
+        return subscribers.isNullOrEmpty() || subscribers.any { it !in properties.subscribersWithoutRawLocations }
+    }
+
+    /**
+     * Merges the [trail] of the sent locations with the [skippedLocations] that still have to be sent, both sorted by time.
+     */
+    private fun mergeLocations(trail: List<Location>, skippedLocations: List<Location>): List<Location> =
+        if (trail.isEmpty()) skippedLocations
+        else (trail + skippedLocations).sortedBy { it.time }.distinctBy { it.time }
+
+    /**
+     * Simplifies the [locations] if the [trajectorySimplification] is enabled, using a tolerance based on the [resolution].
+     */
+    private fun simplifyLocations(
+        locations: List<Location>,
+        start: Location?,
+        end: Location,
+        resolution: Resolution?
+    ): List<Location> {
+        if (trajectorySimplification == null || resolution == null) {
+            return locations
+        }
+        val toleranceInMeters = resolution.minimumDisplacement * trajectorySimplification.toleranceMultiplier
+        return simplifyTrajectory(locations, start, end, toleranceInMeters)
+    }
+
     override fun saveRawLocationForFurtherSending(
         properties: PublisherProperties,
         trackableId: String,
@@ -469,7 +621,9 @@ constructor(
     override fun startLocationUpdates(properties: PublisherProperties) {
         properties.isTracking = true
         registerLocationObserver()
-        mapbox.startTrip()
+        mapbox.startTrip { result ->
+            result.exceptionOrNull()?.let { enqueue(WorkerSpecification.StartLocationUpdatesFailure(it)) }
+        }
     }
 
     override fun setFinalTrackableState(
@@ -524,10 +678,9 @@ constructor(
         newTrackableState: TrackableState
     ) {
         properties.trackableStates[trackableId] = newTrackableState
-        scope.launch {
-            if (properties.state != PublisherState.STOPPED) {
-                properties.trackableStateFlows[trackableId]?.emit(newTrackableState)
-            }
+        // The state flows are conflated, so setting their value never waits for the collectors
+        if (properties.state != PublisherState.STOPPED) {
+            properties.trackableStateFlows[trackableId]?.value = newTrackableState
         }
     }
 
@@ -541,6 +694,8 @@ constructor(
     override fun removeAllSubscribers(trackable: Trackable, properties: PublisherProperties) {
         properties.subscribers[trackable.id]?.let { subscribers ->
             subscribers.forEach { hooks.subscribers?.onSubscriberRemoved(it) }
+            properties.latestOnlySubscribers.removeAll(subscribers)
+            properties.subscribersWithoutRawLocations.removeAll(subscribers)
             subscribers.clear()
         }
     }
@@ -556,6 +711,7 @@ constructor(
             properties.subscribers[trackable.id] = mutableSetOf()
         }
         properties.subscribers[trackable.id]?.add(subscriber)
+        saveLocationPreferences(data, subscriber, properties)
         saveOrRemoveResolutionRequest(data.resolution, trackable, subscriber, properties)
         hooks.subscribers?.onSubscriberAdded(subscriber)
         resolveResolution(trackable, properties)
@@ -569,6 +725,7 @@ constructor(
     ) {
         properties.subscribers[trackable.id]?.let { subscribers ->
             subscribers.find { it.memberKey == memberKey }?.let { subscriber ->
+                saveLocationPreferences(data, subscriber, properties)
                 data.resolution.let { resolution ->
                     saveOrRemoveResolutionRequest(resolution, trackable, subscriber, properties)
                     resolveResolution(trackable, properties)
@@ -581,6 +738,8 @@ constructor(
         properties.subscribers[trackable.id]?.let { subscribers ->
             subscribers.find { it.memberKey == memberKey }?.let { subscriber ->
                 subscribers.remove(subscriber)
+                properties.latestOnlySubscribers.remove(subscriber)
+                properties.subscribersWithoutRawLocations.remove(subscriber)
                 properties.requests[trackable.id]?.remove(subscriber)
                 hooks.subscribers?.onSubscriberRemoved(subscriber)
                 resolveResolution(trackable, properties)
@@ -588,6 +747,23 @@ constructor(
         }
     }
 
+    private fun saveLocationPreferences(
+        data: PresenceData,
+        subscriber: Subscriber,
+        properties: PublisherProperties
+    ) {
+        if (data.locationPayload == LocationUpdatePayload.LATEST_ONLY) {
+            properties.latestOnlySubscribers.add(subscriber)
+        } else {
+            properties.latestOnlySubscribers.remove(subscriber)
+        }
+        if (data.rawLocations == false) {
+            properties.subscribersWithoutRawLocations.add(subscriber)
+        } else {
+            properties.subscribersWithoutRawLocations.remove(subscriber)
+        }
+    }
+
     private fun saveOrRemoveResolutionRequest(
         resolution: Resolution?,
         trackable: Trackable,
@@ -632,7 +808,7 @@ constructor(
                 properties.currentDestination = destination
                 mapbox.setRoute(currentLocation, destination, properties.routingProfile) {
                     try {
-                        enqueue(WorkerSpecification.DestinationSet(it.getOrThrow()))
+                        enqueue(WorkerSpecification.DestinationSet(destination, it.getOrThrow()))
                     } catch (exception: MapException) {
                         logHandler?.w("Setting trackable destination failed", exception)
                     }
@@ -670,6 +846,29 @@ constructor(
         }
     }
 
+    override fun checkGeofences(currentLocation: Location, properties: PublisherProperties) {
+        val events = geofenceEngine.onLocationChanged(currentLocation)
+        if (events.isEmpty()) {
+            return
+        }
+        events.forEach { event ->
+            val geofence = event.geofence
+            if (geofence is DestinationGeofence) {
+                properties.trackables
+                    .find { it.id == geofence.trackableId && it.getSpatialProximityThreshold() != null }
+                    ?.let { hooks.destinationProximity?.onDestinationProximityChanged(it, event is GeofenceEnteredEvent) }
+            }
+        }
+        scope.launch { events.forEach { _geofenceEvents.emit(it) } }
+    }
+
+    override fun addGeofence(geofence: CustomGeofence) {
+        geofenceEngine.addGeofence(geofence)
+    }
+
+    override fun removeGeofence(geofenceId: String): Boolean =
+        geofenceEngine.removeGeofence(geofenceId)
+
     private fun shouldSendLocation(
         currentLocation: Location,
         lastSentLocation: Location?,
@@ -685,7 +884,9 @@ constructor(
     }
 
     override fun updateTrackables(properties: PublisherProperties) {
-        scope.launch { _trackables.emit(properties.trackables) }
+        _trackables.emit(properties.trackables)
+        // The destinations can only change when the trackables change, so the destination geofences are updated only then
+        geofenceEngine.updateDestinationGeofences(properties.trackables)
     }
 
     override fun updateTrackableStateFlows(properties: PublisherProperties) {
@@ -693,14 +894,23 @@ constructor(
     }
 
     override fun updateLocations(locationUpdate: LocationUpdate) {
-        scope.launch { _locations.emit(locationUpdate) }
+        _locations.emit(locationUpdate)
+        locationListeners.dispatch(locationUpdate)
     }
 
+    override fun addLocationListener(
+        listener: UpdateListener<LocationUpdate>,
+        executor: Executor?,
+        replayLatest: Boolean,
+    ): ListenerRegistration =
+        locationListeners.add(listener, executor, replayLatest)
+
     override fun getCurrentTimeInMilliseconds(): Long = System.currentTimeMillis()
 
     internal inner class Hooks : ResolutionPolicy.Hooks {
         var trackables: ResolutionPolicy.Hooks.TrackableSetListener? = null
         var subscribers: ResolutionPolicy.Hooks.SubscriberSetListener? = null
+        var destinationProximity: ResolutionPolicy.Hooks.DestinationProximityListener? = null
 
         override fun trackables(listener: ResolutionPolicy.Hooks.TrackableSetListener) {
             trackables = listener
@@ -709,6 +919,10 @@ constructor(
         override fun subscribers(listener: ResolutionPolicy.Hooks.SubscriberSetListener) {
             subscribers = listener
         }
+
+        override fun destinationProximity(listener: ResolutionPolicy.Hooks.DestinationProximityListener) {
+            destinationProximity = listener
+        }
     }
 
     private inner class Methods : ResolutionPolicy.Methods {
@@ -4,15 +4,19 @@ import android.Manifest.permission.ACCESS_COARSE_LOCATION
 import android.Manifest.permission.ACCESS_FINE_LOCATION
 import android.annotation.SuppressLint
 import androidx.annotation.RequiresPermission
+import com.ably.tracking.ListenerRegistration
 import com.ably.tracking.LocationUpdate
 import com.ably.tracking.Resolution
 import com.ably.tracking.TrackableState
+import com.ably.tracking.UpdateListener
+import com.ably.tracking.annotations.Experimental
 import com.ably.tracking.common.Ably
 import com.ably.tracking.common.logging.createLoggingTag
 import com.ably.tracking.common.logging.v
 import com.ably.tracking.common.logging.w
 import com.ably.tracking.common.wrapInResultCallback
 import com.ably.tracking.logging.LogHandler
+import java.util.concurrent.Executor
 import kotlin.coroutines.suspendCoroutine
 import kotlinx.coroutines.flow.SharedFlow
 import kotlinx.coroutines.flow.StateFlow
@@ -29,6 +33,10 @@ constructor(
     areRawLocationsEnabled: Boolean?,
     sendResolutionEnabled: Boolean,
     constantLocationEngineResolution: Resolution?,
+    trajectorySimplification: TrajectorySimplification? = null,
+    areLocationUpdatesCombined: Boolean = false,
+    flowPolicy: FlowPolicy = FlowPolicy.SUSPEND,
+    locationTrailRetention: LocationTrailRetention = LocationTrailRetention(),
 ) :
     Publisher {
     private val core: CorePublisher
@@ -41,10 +49,20 @@ constructor(
         set(value) = core.changeRoutingProfile(value)
     override val locations: SharedFlow<LocationUpdate>
         get() = core.locations
+
+    @Experimental
+    override fun addLocationUpdateListener(
+        listener: UpdateListener<LocationUpdate>,
+        executor: Executor?,
+        replayLatest: Boolean,
+    ): ListenerRegistration =
+        core.addLocationListener(listener, executor, replayLatest)
     override val trackables: SharedFlow<Set<Trackable>>
         get() = core.trackables
     override val locationHistory: SharedFlow<LocationHistoryData>
         get() = core.locationHistory
+    override val geofenceEvents: SharedFlow<GeofenceEvent>
+        get() = core.geofenceEvents
 
     init {
         core = createCorePublisher(
@@ -56,6 +74,10 @@ constructor(
             areRawLocationsEnabled,
             sendResolutionEnabled,
             constantLocationEngineResolution,
+            trajectorySimplification,
+            areLocationUpdatesCombined,
+            flowPolicy,
+            locationTrailRetention,
         )
         logHandler?.v("$TAG Created a publisher instance")
     }
@@ -119,6 +141,21 @@ constructor(
         stop()
     }
 
+    @Experimental
+    override fun getLocationsOverflowCount(): Long =
+        core.locationsOverflowCount
+
+    @Experimental
+    override fun getTrackablesOverflowCount(): Long =
+        core.trackablesOverflowCount
+
     override fun getTrackableState(trackableId: String): StateFlow<TrackableState>? =
         core.trackableStateFlows[trackableId]
+
+    override fun addGeofence(geofence: CustomGeofence) {
+        core.addGeofence(geofence)
+    }
+
+    override fun removeGeofence(geofenceId: String): Boolean =
+        core.removeGeofence(geofenceId)
 }
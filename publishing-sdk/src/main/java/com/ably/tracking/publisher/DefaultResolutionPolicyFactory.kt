@@ -28,11 +28,13 @@ internal class DefaultResolutionPolicy(
 ) : ResolutionPolicy {
     private val proximityHandler = ProximityHandler()
     private val subscriberSetListener = SubscriberSetListener()
+    private val destinationProximityListener = DestinationProximityListener()
     private var proximityThresholdReached = false
 
     init {
         hooks.trackables(DefaultTrackableSetListener())
         hooks.subscribers(subscriberSetListener)
+        hooks.destinationProximity(destinationProximityListener)
     }
 
     override fun resolve(resolutions: Set<Resolution>): Resolution =
@@ -62,7 +64,7 @@ internal class DefaultResolutionPolicy(
     ): Resolution {
         val hasSubscribers = subscriberSetListener.hasSubscribers(trackable)
 
-        return if (proximityThresholdReached)
+        return if (proximityThresholdReached || destinationProximityListener.isNear(trackable))
             resolutionConstraints.resolutions.getResolution(isNear = true, hasSubscriber = hasSubscribers)
                 ?: defaultResolution
         else {
@@ -115,6 +117,22 @@ internal class DefaultResolutionPolicy(
         fun hasSubscribers(trackable: Trackable) = subscriberSet.any { it.trackable == trackable }
     }
 
+    private inner class DestinationProximityListener : ResolutionPolicy.Hooks.DestinationProximityListener {
+        private val nearTrackables = mutableSetOf<Trackable>()
+        override fun onDestinationProximityChanged(trackable: Trackable, isNear: Boolean) {
+            val hasChanged = if (isNear) nearTrackables.add(trackable) else nearTrackables.remove(trackable)
+            if (hasChanged) {
+                methods.refresh()
+            }
+        }
+
+        fun onTrackableRemoved(trackable: Trackable) {
+            nearTrackables.remove(trackable)
+        }
+
+        fun isNear(trackable: Trackable) = trackable in nearTrackables
+    }
+
     private inner class DefaultTrackableSetListener :
         ResolutionPolicy.Hooks.TrackableSetListener {
         private val trackableSet = mutableSetOf<Trackable>()
@@ -125,6 +143,7 @@ internal class DefaultResolutionPolicy(
 
         override fun onTrackableRemoved(trackable: Trackable) {
             trackableSet.remove(trackable)
+            destinationProximityListener.onTrackableRemoved(trackable)
         }
 
         override fun onActiveTrackableChanged(trackable: Trackable?) {
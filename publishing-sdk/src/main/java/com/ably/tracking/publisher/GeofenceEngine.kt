@@ -0,0 +1,244 @@
+package com.ably.tracking.publisher
+
+import com.ably.tracking.Location
+import kotlin.math.abs
+import kotlin.math.cos
+import kotlin.math.floor
+import kotlin.math.max
+
+/**
+ * The default size, in degrees, of the grid cells of the [GeofenceEngine] spatial index. It's about 1.1 km of latitude.
+ */
+internal const val DEFAULT_GEOFENCE_GRID_CELL_SIZE_IN_DEGREES = 0.01
+
+/**
+ * The default radius of a [DestinationGeofence] for trackables without a spatial proximity threshold.
+ */
+internal const val DEFAULT_DESTINATION_GEOFENCE_RADIUS_IN_METERS = 100.0
+
+/**
+ * Geofences covering more grid cells than this are not indexed and are checked for each location instead.
+ */
+private const val MAXIMUM_INDEXED_GEOFENCE_CELLS = 1024
+
+/**
+ * The minimum value of the longitude scale, used to avoid dividing by zero near the poles.
+ */
+private const val MINIMUM_LONGITUDE_SCALE = 0.000001
+
+/**
+ * Tracks which geofences contain the publisher's location and reports entering and exiting them.
+ *
+ * Geofences are kept in a grid spatial index so that each location is checked only against the geofences
+ * whose bounding boxes overlap the grid cell of the location, not against all registered geofences.
+ *
+ * This class is thread safe.
+ */
+internal class GeofenceEngine(
+    private val cellSizeInDegrees: Double = DEFAULT_GEOFENCE_GRID_CELL_SIZE_IN_DEGREES,
+    private val defaultDestinationRadiusInMeters: Double = DEFAULT_DESTINATION_GEOFENCE_RADIUS_IN_METERS,
+) {
+    private val customGeofences = mutableMapOf<String, CustomGeofence>()
+    private val destinationGeofences = mutableMapOf<String, DestinationGeofence>()
+    private val cells = mutableMapOf<Long, MutableSet<Geofence>>()
+    private val geofenceCells = mutableMapOf<Geofence, List<Long>>()
+    private val unindexedGeofences = mutableSetOf<Geofence>()
+    private val enteredGeofences = mutableSetOf<Geofence>()
+
+    /**
+     * Adds the [geofence], replacing the custom geofence with the same ID if there is one.
+     */
+    @Synchronized
+    fun addGeofence(geofence: CustomGeofence) {
+        customGeofences.put(geofence.id, geofence)?.let { removeFromIndex(it) }
+        addToIndex(geofence)
+    }
+
+    /**
+     * Removes the custom geofence with the [geofenceId]. No exit event is reported for a removed geofence.
+     *
+     * @return True if the geofence was removed, false if there was no geofence with that ID.
+     */
+    @Synchronized
+    fun removeGeofence(geofenceId: String): Boolean =
+        customGeofences.remove(geofenceId)
+            ?.also { removeFromIndex(it) } != null
+
+    /**
+     * Updates the [DestinationGeofence]s to match the destinations of the [trackables].
+     * Geofences of removed trackables are removed without reporting exit events.
+     */
+    @Synchronized
+    fun updateDestinationGeofences(trackables: Set<Trackable>) {
+        val currentGeofences = trackables.mapNotNull { trackable ->
+            trackable.destination?.let { destination ->
+                DestinationGeofence(
+                    trackable.id,
+                    destination,
+                    trackable.getSpatialProximityThreshold() ?: defaultDestinationRadiusInMeters
+                )
+            }
+        }.associateBy { it.trackableId }
+        destinationGeofences.values
+            .filter { currentGeofences[it.trackableId] != it }
+            .forEach { removeFromIndex(it) }
+        currentGeofences.values
+            .filter { destinationGeofences[it.trackableId] != it }
+            .forEach { addToIndex(it) }
+        destinationGeofences.clear()
+        destinationGeofences.putAll(currentGeofences)
+    }
+
+    /**
+     * Checks the [location] against the nearby geofences.
+     *
+     * @return The events for the geofences that were entered or exited, exit events first.
+     */
+    @Synchronized
+    fun onLocationChanged(location: Location): List<GeofenceEvent> {
+        val candidates = cells[getCellKey(location.latitude, location.longitude)].orEmpty() + unindexedGeofences
+        val containingGeofences = candidates.filterTo(mutableSetOf()) { it.contains(location) }
+        // Geofences that aren't candidates are far away so they are exited as well
+        val exitedGeofences = enteredGeofences.filter { it !in containingGeofences }
+        val newlyEnteredGeofences = containingGeofences.filter { it !in enteredGeofences }
+        enteredGeofences.removeAll(exitedGeofences.toSet())
+        enteredGeofences.addAll(newlyEnteredGeofences)
+        return exitedGeofences.map { GeofenceExitedEvent(it, location) } +
+            newlyEnteredGeofences.map { GeofenceEnteredEvent(it, location) }
+    }
+
+    private fun addToIndex(geofence: Geofence) {
+        val cellKeys = getCellKeys(geofence)
+        if (cellKeys == null) {
+            unindexedGeofences.add(geofence)
+        } else {
+            cellKeys.forEach { cells.getOrPut(it) { mutableSetOf() }.add(geofence) }
+            geofenceCells[geofence] = cellKeys
+        }
+    }
+
+    private fun removeFromIndex(geofence: Geofence) {
+        enteredGeofences.remove(geofence)
+        unindexedGeofences.remove(geofence)
+        geofenceCells.remove(geofence)?.forEach { cellKey ->
+            cells[cellKey]?.let { cellGeofences ->
+                cellGeofences.remove(geofence)
+                if (cellGeofences.isEmpty()) {
+                    cells.remove(cellKey)
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The keys of the cells overlapping the bounding box of the [geofence],
+     * or null if there are too many of them to index the geofence.
+     */
+    private fun getCellKeys(geofence: Geofence): List<Long>? {
+        val boundingBox = geofence.getBoundingBox()
+        val latitudeCells = getCell(boundingBox.minimumLatitude)..getCell(boundingBox.maximumLatitude)
+        val longitudeCells = boundingBox.getLongitudeRanges().map { getCell(it.start)..getCell(it.endInclusive) }
+        val cellsCount = (latitudeCells.last - latitudeCells.first + 1) *
+            longitudeCells.sumOf { it.last - it.first + 1 }
+        if (cellsCount > MAXIMUM_INDEXED_GEOFENCE_CELLS) {
+            return null
+        }
+        val cellKeys = ArrayList<Long>(cellsCount.toInt())
+        for (latitudeCell in latitudeCells) {
+            longitudeCells.forEach { range ->
+                for (longitudeCell in range) {
+                    cellKeys.add(createCellKey(latitudeCell, longitudeCell))
+                }
+            }
+        }
+        return cellKeys
+    }
+
+    private fun getCellKey(latitude: Double, longitude: Double): Long =
+        createCellKey(getCell(latitude), getCell(longitude))
+
+    private fun getCell(degrees: Double): Long = floor(degrees / cellSizeInDegrees).toLong()
+
+    private fun createCellKey(latitudeCell: Long, longitudeCell: Long): Long =
+        (latitudeCell shl 32) or (longitudeCell and 0xFFFFFFFFL)
+}
+
+/**
+ * A bounding box whose longitudes can go beyond ±180° when it crosses the antimeridian.
+ */
+private class BoundingBox(
+    val minimumLatitude: Double,
+    val maximumLatitude: Double,
+    val minimumLongitude: Double,
+    val maximumLongitude: Double,
+)
+
+/**
+ * @return The ranges of the longitudes from -180° to 180° covered by the bounding box,
+ * which are two ranges when the box crosses the antimeridian.
+ */
+private fun BoundingBox.getLongitudeRanges(): List<ClosedFloatingPointRange<Double>> =
+    when {
+        maximumLongitude - minimumLongitude >= 360.0 -> listOf(-180.0..180.0)
+        minimumLongitude < -180.0 -> listOf((minimumLongitude + 360.0)..180.0, -180.0..maximumLongitude)
+        maximumLongitude > 180.0 -> listOf(minimumLongitude..180.0, -180.0..(maximumLongitude - 360.0))
+        else -> listOf(minimumLongitude..maximumLongitude)
+    }
+
+private fun Geofence.getBoundingBox(): BoundingBox =
+    when (this) {
+        is CircularGeofence -> getCircleBoundingBox(center.latitude, center.longitude, radiusInMeters)
+        is DestinationGeofence -> getCircleBoundingBox(destination.latitude, destination.longitude, radiusInMeters)
+        is PolygonalGeofence -> BoundingBox(
+            vertices.minOf { it.latitude },
+            vertices.maxOf { it.latitude },
+            vertices.minOf { it.longitude },
+            vertices.maxOf { it.longitude },
+        )
+    }
+
+private fun getCircleBoundingBox(latitude: Double, longitude: Double, radiusInMeters: Double): BoundingBox {
+    val latitudeDelta = radiusInMeters / METERS_PER_DEGREE
+    // The longitude delta is calculated for the latitude nearest to the pole where the circle is the widest
+    val widestLatitude = minOf(90.0, abs(latitude) + latitudeDelta)
+    val longitudeDelta = radiusInMeters / (METERS_PER_DEGREE * max(cos(Math.toRadians(widestLatitude)), MINIMUM_LONGITUDE_SCALE))
+    return BoundingBox(
+        latitude - latitudeDelta,
+        latitude + latitudeDelta,
+        longitude - longitudeDelta,
+        longitude + longitudeDelta,
+    )
+}
+
+private fun Geofence.contains(location: Location): Boolean =
+    when (this) {
+        is CircularGeofence -> location.distanceInMetersFrom(center.latitude, center.longitude) <= radiusInMeters
+        is DestinationGeofence -> location.distanceInMetersFrom(destination) <= radiusInMeters
+        is PolygonalGeofence -> containsPoint(location.latitude, location.longitude)
+    }
+
+/**
+ * Checks whether the point is inside the polygon using the ray casting algorithm on the longitude and latitude plane.
+ */
+private fun PolygonalGeofence.containsPoint(latitude: Double, longitude: Double): Boolean {
+    var isInside = false
+    var previousVertex = vertices.last()
+    vertices.forEach { vertex ->
+        if ((vertex.latitude > latitude) != (previousVertex.latitude > latitude)) {
+            val intersectionLongitude = vertex.longitude +
+                (latitude - vertex.latitude) / (previousVertex.latitude - vertex.latitude) *
+                (previousVertex.longitude - vertex.longitude)
+            if (longitude < intersectionLongitude) {
+                isInside = !isInside
+            }
+        }
+        previousVertex = vertex
+    }
+    return isInside
+}
+
+/**
+ * @return The spatial proximity threshold from the trackable's [DefaultResolutionConstraints] or null if it doesn't have one.
+ */
+internal fun Trackable.getSpatialProximityThreshold(): Double? =
+    ((constraints as? DefaultResolutionConstraints)?.proximityThreshold as? DefaultProximity)?.spatial
@@ -0,0 +1,123 @@
+package com.ably.tracking.publisher
+
+import com.ably.tracking.Location
+
+/**
+ * A point on the Earth's surface used to define the shape of a [Geofence].
+ */
+data class GeofencePoint(
+    /**
+     * Latitude of the point in degrees.
+     */
+    val latitude: Double,
+    /**
+     * Longitude of the point in degrees.
+     */
+    val longitude: Double,
+)
+
+/**
+ * An area whose entering and exiting is reported by the [Publisher] in [Publisher.geofenceEvents].
+ */
+sealed class Geofence {
+    /**
+     * The identifier of the geofence.
+     */
+    abstract val id: String
+}
+
+/**
+ * A [Geofence] that can be registered with [Publisher.addGeofence].
+ */
+sealed class CustomGeofence : Geofence()
+
+/**
+ * A circular area.
+ */
+data class CircularGeofence(
+    override val id: String,
+    /**
+     * The center of the circle.
+     */
+    val center: GeofencePoint,
+    /**
+     * The radius of the circle, in meters.
+     */
+    val radiusInMeters: Double,
+) : CustomGeofence() {
+    init {
+        require(radiusInMeters > 0) { "The radius has to be greater than 0" }
+    }
+}
+
+/**
+ * A polygonal area. The polygon is closed automatically, so the last vertex shouldn't repeat the first one.
+ * Polygons crossing the 180th meridian are not supported.
+ */
+data class PolygonalGeofence(
+    override val id: String,
+    /**
+     * The vertices of the polygon, at least 3.
+     */
+    val vertices: List<GeofencePoint>,
+) : CustomGeofence() {
+    init {
+        require(vertices.size >= 3) { "A polygon needs at least 3 vertices" }
+    }
+}
+
+/**
+ * A circular area around the destination of a [Trackable], created by the [Publisher] for each added trackable
+ * that has a destination.
+ *
+ * The radius is the spatial proximity threshold from the trackable's [DefaultResolutionConstraints],
+ * or a default radius if the trackable doesn't have one.
+ */
+data class DestinationGeofence internal constructor(
+    /**
+     * The ID of the [Trackable] whose destination is the center of this geofence.
+     */
+    val trackableId: String,
+    /**
+     * The destination of the trackable.
+     */
+    val destination: Destination,
+    /**
+     * The radius of the circle, in meters.
+     */
+    val radiusInMeters: Double,
+) : Geofence() {
+    override val id: String
+        get() = trackableId
+}
+
+/**
+ * An event that happened to a [Geofence] because of a new location of the [Publisher].
+ */
+sealed class GeofenceEvent {
+    /**
+     * The geofence that was entered or exited.
+     */
+    abstract val geofence: Geofence
+
+    /**
+     * The location that caused the event.
+     */
+    abstract val location: Location
+}
+
+/**
+ * The [Publisher] moved into the [geofence].
+ */
+data class GeofenceEnteredEvent(
+    override val geofence: Geofence,
+    override val location: Location,
+) : GeofenceEvent()
+
+/**
+ * The [Publisher] moved out of the [geofence].
+ */
+data class GeofenceExitedEvent(
+    override val geofence: Geofence,
+    override val location: Location,
+) : GeofenceEvent()
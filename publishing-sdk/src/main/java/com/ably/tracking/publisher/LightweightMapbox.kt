@@ -0,0 +1,257 @@
+package com.ably.tracking.publisher
+
+import android.Manifest
+import android.content.Context
+import android.os.Looper
+import androidx.annotation.RequiresPermission
+import com.ably.tracking.Accuracy
+import com.ably.tracking.Location
+import com.ably.tracking.LocationValidationException
+import com.ably.tracking.Resolution
+import com.ably.tracking.common.ResultCallbackFunction
+import com.ably.tracking.common.clientOptions
+import com.ably.tracking.common.logging.createLoggingTag
+import com.ably.tracking.common.logging.e
+import com.ably.tracking.common.logging.v
+import com.ably.tracking.common.logging.w
+import com.ably.tracking.common.toAssetTracking
+import com.ably.tracking.connection.ConnectionConfiguration
+import com.ably.tracking.logging.LogHandler
+import com.ably.tracking.publisher.debug.AblySimulationLocationEngine
+import com.ably.tracking.publisher.debug.FileReplayLocationEngine
+import com.ably.tracking.publisher.debug.FlowLocationEngine
+import com.ably.tracking.publisher.locationengine.FusedAndroidLocationEngine
+import com.ably.tracking.publisher.locationengine.GoogleLocationEngine
+import com.ably.tracking.publisher.locationengine.LocationEngineUtils
+import com.ably.tracking.publisher.locationengine.ResolutionLocationEngine
+import com.ably.tracking.publisher.locationengine.toLocationEngineRequest
+import com.mapbox.android.core.location.LocationEngine
+import com.mapbox.android.core.location.LocationEngineCallback
+import com.mapbox.android.core.location.LocationEngineResult
+import java.util.concurrent.Executor
+
+/**
+ * The resolution used before the [ResolutionPolicy] calculates the first location engine resolution.
+ */
+private val DEFAULT_LIGHTWEIGHT_RESOLUTION = Resolution(Accuracy.BALANCED, 1000L, 0.0)
+
+/**
+ * The implementation of the [Mapbox] wrapper that does not use the Mapbox Navigation SDK at all.
+ * Locations from the [locationEngine] are passed directly to the [LocationUpdatesObserver] and each raw location
+ * is also published as the enhanced location, so there is no map matching, routing nor trip history recording.
+ * Thanks to that the publisher starts faster and uses less memory and CPU.
+ *
+ * All calls are executed by the [executor] one by one, in the order in which they were called, so they don't block the calling thread.
+ * Location updates are received on the [locationLooper].
+ */
+internal class LightweightMapbox(
+    private val locationEngine: LocationEngine,
+    private val foregroundTracking: ForegroundTracking,
+    private val logHandler: LogHandler?,
+    constantLocationEngineResolution: Resolution?,
+    private val locationBatching: LocationBatching? = null,
+    private val executor: Executor = LocationLooperProvider.executor,
+    private val locationLooper: Looper? = LocationLooperProvider.looper,
+) : Mapbox {
+    private val TAG = createLoggingTag(this)
+    private var currentResolution: Resolution = constantLocationEngineResolution ?: DEFAULT_LIGHTWEIGHT_RESOLUTION
+    private var isTripStarted = false
+
+    /**
+     * The location observer, it's used from the location engine thread.
+     */
+    @Volatile
+    private var locationUpdatesObserver: LocationUpdatesObserver? = null
+
+    private val locationEngineCallback = object : LocationEngineCallback<LocationEngineResult> {
+        override fun onSuccess(result: LocationEngineResult?) {
+            result?.lastLocation?.let { onRawLocation(it) }
+        }
+
+        override fun onFailure(exception: Exception) {
+            logHandler?.w("$TAG Location engine failure", exception)
+        }
+    }
+
+    init {
+        when (locationEngine) {
+            is GoogleLocationEngine -> locationEngine.precedingBatchLocationsListener = ::onPrecedingBatchLocations
+            is FusedAndroidLocationEngine -> locationEngine.precedingBatchLocationsListener = ::onPrecedingBatchLocations
+        }
+    }
+
+    private fun enqueueCommand(
+        commandName: String,
+        callbackFunction: ResultCallbackFunction<Unit> = {},
+        action: () -> Unit
+    ) {
+        executor.execute {
+            val result = try {
+                Result.success(action())
+            } catch (exception: Exception) {
+                logHandler?.e("$TAG Command \"$commandName\" failed", exception)
+                Result.failure(exception)
+            }
+            try {
+                callbackFunction(result)
+            } catch (exception: Exception) {
+                // An exception thrown from a callback should not stop the execution of subsequent commands
+            }
+        }
+    }
+
+    @RequiresPermission(anyOf = [Manifest.permission.ACCESS_COARSE_LOCATION, Manifest.permission.ACCESS_FINE_LOCATION])
+    override fun startTrip(callbackFunction: ResultCallbackFunction<Unit>) {
+        enqueueCommand("start trip", callbackFunction) {
+            if (!isTripStarted) {
+                logHandler?.v("$TAG Start trip and location updates")
+                foregroundTracking.start()
+                requestLocationUpdates()
+                isTripStarted = true
+            }
+        }
+    }
+
+    @RequiresPermission(anyOf = [Manifest.permission.ACCESS_COARSE_LOCATION, Manifest.permission.ACCESS_FINE_LOCATION])
+    private fun requestLocationUpdates() {
+        locationEngine.requestLocationUpdates(
+            currentResolution.toLocationEngineRequest(locationBatching),
+            locationEngineCallback,
+            locationLooper
+        )
+    }
+
+    override fun stopTrip() {
+        enqueueCommand("stop trip") {
+            if (isTripStarted) {
+                logHandler?.v("$TAG Stop trip and location updates")
+                locationEngine.removeLocationUpdates(locationEngineCallback)
+                isTripStarted = false
+            }
+        }
+    }
+
+    override fun close() {
+        enqueueCommand("close") {
+            logHandler?.v("$TAG Close location engine")
+            locationEngine.removeLocationUpdates(locationEngineCallback)
+            isTripStarted = false
+            foregroundTracking.stop()
+        }
+    }
+
+    override fun registerLocationObserver(locationUpdatesObserver: LocationUpdatesObserver) {
+        enqueueCommand("register location observer") {
+            logHandler?.v("$TAG Register location observer")
+            this.locationUpdatesObserver = locationUpdatesObserver
+        }
+    }
+
+    override fun unregisterLocationObserver() {
+        enqueueCommand("unregister location observer") {
+            logHandler?.v("$TAG Unregister location observer")
+            locationUpdatesObserver = null
+        }
+    }
+
+    override fun changeResolution(resolution: Resolution) {
+        enqueueCommand("change resolution") {
+            logHandler?.v("$TAG Change location engine resolution")
+            currentResolution = resolution
+            if (locationEngine is ResolutionLocationEngine) {
+                locationEngine.changeResolution(resolution)
+            }
+        }
+    }
+
+    override fun clearRoute() {
+        // There are no routes in the lightweight mode
+        enqueueCommand("clear route") {}
+    }
+
+    override fun checkRouteCorridor(location: Location) = Unit
+
+    override fun setRoute(
+        currentLocation: Location,
+        destination: Destination,
+        routingProfile: RoutingProfile,
+        routeDurationCallback: ResultCallbackFunction<Long>
+    ) {
+        logHandler?.w("$TAG Routing is not available in the lightweight mode, ignoring the destination: $destination")
+        routeDurationCallback(Result.failure(MapException(RoutingUnavailableException())))
+    }
+
+    override fun setLocationHistoryListener(listener: LocationHistoryListener?) {
+        // The trip history is recorded by the Mapbox SDK so it's not available in the lightweight mode
+    }
+
+    private fun onRawLocation(rawLocation: android.location.Location) {
+        val observer = locationUpdatesObserver ?: return
+        logHandler?.v("$TAG Raw location received from the location engine: $rawLocation")
+        try {
+            val location = rawLocation.toAssetTracking().getOrThrow()
+            observer.onRawLocationChanged(location)
+            observer.onEnhancedLocationChanged(location, emptyList())
+        } catch (locationValidationException: LocationValidationException) {
+            logHandler?.v("$TAG Swallowing invalid raw location, validation exception was: $locationValidationException")
+        }
+    }
+
+    private fun onPrecedingBatchLocations(rawLocations: List<android.location.Location>) {
+        val observer = locationUpdatesObserver ?: return
+        logHandler?.v("$TAG Received ${rawLocations.size} preceding locations from a location batch")
+        val validLocations = rawLocations.mapNotNull { it.toAssetTracking().getOrNull() }
+        if (validLocations.isNotEmpty()) {
+            observer.onPrecedingBatchLocationsChanged(validLocations)
+        }
+    }
+
+    companion object {
+        /**
+         * Creates the [LightweightMapbox] with the best available location engine or with the engine for the [locationSource].
+         *
+         * @throws LocationSourceUnsupportedException if the [locationSource] requires the Mapbox SDK.
+         */
+        fun create(
+            context: Context,
+            connectionConfiguration: ConnectionConfiguration,
+            locationSource: LocationSource?,
+            logHandler: LogHandler?,
+            notificationProvider: PublisherNotificationProvider,
+            notificationId: Int,
+            constantLocationEngineResolution: Resolution?,
+            locationBatching: LocationBatching?,
+        ): LightweightMapbox {
+            val locationEngine = when (locationSource) {
+                null -> createBestLocationEngine(context, logHandler, locationBatching)
+                is LocationSourceFlow -> FlowLocationEngine(locationSource.flow, logHandler)
+                is LocationSourceFile -> FileReplayLocationEngine(locationSource, logHandler)
+                is LocationSourceAbly -> AblySimulationLocationEngine(
+                    connectionConfiguration.authentication.clientOptions,
+                    locationSource.simulationChannelName,
+                    logHandler
+                )
+                // The history data is replayed by the Mapbox SDK
+                is LocationSourceRaw -> throw LocationSourceUnsupportedException()
+            }
+            return LightweightMapbox(
+                locationEngine,
+                DefaultForegroundTracking(context, notificationProvider, notificationId),
+                logHandler,
+                constantLocationEngineResolution,
+                locationBatching,
+            )
+        }
+
+        private fun createBestLocationEngine(
+            context: Context,
+            logHandler: LogHandler?,
+            locationBatching: LocationBatching?
+        ): ResolutionLocationEngine =
+            if (LocationEngineUtils.hasGoogleLocationServices(context)) {
+                GoogleLocationEngine(context, LocationLooperProvider.looper, locationBatching)
+            } else {
+                FusedAndroidLocationEngine(context, logHandler, LocationLooperProvider.looper, locationBatching)
+            }
+    }
+}
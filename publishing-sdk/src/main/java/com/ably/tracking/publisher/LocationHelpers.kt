@@ -1,10 +1,35 @@
 package com.ably.tracking.publisher
 
 import com.ably.tracking.Location
-import com.ably.tracking.common.METERS_PER_KILOMETER
-import com.mapbox.geojson.Point
-import com.mapbox.turf.TurfMeasurement
+import kotlin.math.PI
 import kotlin.math.abs
+import kotlin.math.asin
+import kotlin.math.cos
+import kotlin.math.min
+import kotlin.math.sin
+import kotlin.math.sqrt
+
+/**
+ * The mean radius of the Earth, in meters.
+ */
+internal const val EARTH_RADIUS_IN_METERS = 6_371_008.8
+
+/**
+ * The length of one degree of latitude, in meters.
+ */
+internal const val METERS_PER_DEGREE = EARTH_RADIUS_IN_METERS * PI / 180
+
+/**
+ * The maximum difference, in degrees, of latitudes and of longitudes for which the planar distance approximation is used.
+ * Within it the approximation differs from the haversine distance by less than 5 millimeters (relative error below 1e-6).
+ */
+private const val PLANAR_DISTANCE_MAXIMUM_DELTA_IN_DEGREES = 0.1
+
+/**
+ * The maximum absolute latitude, in degrees, at which the planar distance approximation is used.
+ * Closer to the poles the meridians converge too quickly for the approximation to stay accurate.
+ */
+private const val PLANAR_DISTANCE_MAXIMUM_LATITUDE_IN_DEGREES = 85.0
 
 internal fun Location.distanceInMetersFrom(location: Location): Double =
     distanceInMetersFrom(location.latitude, location.longitude)
@@ -13,6 +38,75 @@ internal fun Location.distanceInMetersFrom(destination: Destination): Double =
     distanceInMetersFrom(destination.latitude, destination.longitude)
 
 internal fun Location.distanceInMetersFrom(lat: Double, lng: Double): Double =
-    TurfMeasurement.distance(Point.fromLngLat(longitude, latitude), Point.fromLngLat(lng, lat)) * METERS_PER_KILOMETER
+    distanceInMeters(latitude, longitude, lat, lng)
+
+/**
+ * Calculates the distance between two points without allocating any objects.
+ *
+ * Points that are close to each other, which is the case for the displacement and proximity thresholds,
+ * use the equirectangular (planar) approximation. Other points use the haversine formula.
+ */
+internal fun distanceInMeters(
+    fromLatitude: Double,
+    fromLongitude: Double,
+    toLatitude: Double,
+    toLongitude: Double
+): Double {
+    val latitudeDelta = toLatitude - fromLatitude
+    val longitudeDelta = toLongitude - fromLongitude
+    return if (
+        abs(latitudeDelta) <= PLANAR_DISTANCE_MAXIMUM_DELTA_IN_DEGREES &&
+        abs(longitudeDelta) <= PLANAR_DISTANCE_MAXIMUM_DELTA_IN_DEGREES &&
+        abs(fromLatitude) <= PLANAR_DISTANCE_MAXIMUM_LATITUDE_IN_DEGREES &&
+        abs(toLatitude) <= PLANAR_DISTANCE_MAXIMUM_LATITUDE_IN_DEGREES
+    ) {
+        planarDistanceInMeters(fromLatitude, latitudeDelta, longitudeDelta)
+    } else {
+        haversineDistanceInMeters(fromLatitude, fromLongitude, toLatitude, toLongitude)
+    }
+}
+
+private fun planarDistanceInMeters(fromLatitude: Double, latitudeDelta: Double, longitudeDelta: Double): Double {
+    val x = longitudeDelta * cos(Math.toRadians(fromLatitude + latitudeDelta / 2))
+    return sqrt(x * x + latitudeDelta * latitudeDelta) * METERS_PER_DEGREE
+}
+
+internal fun haversineDistanceInMeters(
+    fromLatitude: Double,
+    fromLongitude: Double,
+    toLatitude: Double,
+    toLongitude: Double
+): Double {
+    val fromLatitudeInRadians = Math.toRadians(fromLatitude)
+    val toLatitudeInRadians = Math.toRadians(toLatitude)
+    val halfLatitudeDeltaSine = sin((toLatitudeInRadians - fromLatitudeInRadians) / 2)
+    val halfLongitudeDeltaSine = sin(Math.toRadians(toLongitude - fromLongitude) / 2)
+    val haversine = halfLatitudeDeltaSine * halfLatitudeDeltaSine +
+        cos(fromLatitudeInRadians) * cos(toLatitudeInRadians) * halfLongitudeDeltaSine * halfLongitudeDeltaSine
+    return 2 * EARTH_RADIUS_IN_METERS * asin(sqrt(min(1.0, haversine)))
+}
 
 internal fun Location.timeFrom(location: Location): Long = abs(time - location.time)
+
+/**
+ * Calculates the squared distance from the point to the closest point of the segment from the start to the end,
+ * with all of them projected on a plane.
+ */
+internal fun squaredDistanceToSegment(
+    pointX: Double,
+    pointY: Double,
+    startX: Double,
+    startY: Double,
+    endX: Double,
+    endY: Double
+): Double {
+    val segmentX = endX - startX
+    val segmentY = endY - startY
+    val squaredSegmentLength = segmentX * segmentX + segmentY * segmentY
+    val projection =
+        if (squaredSegmentLength == 0.0) 0.0
+        else (((pointX - startX) * segmentX + (pointY - startY) * segmentY) / squaredSegmentLength).coerceIn(0.0, 1.0)
+    val distanceX = pointX - (startX + projection * segmentX)
+    val distanceY = pointY - (startY + projection * segmentY)
+    return distanceX * distanceX + distanceY * distanceY
+}
@@ -18,6 +18,12 @@ data class LocationHistoryData(
 }
 
 fun List<ReplayEventBase>.toGeoJsonMessages(): List<GeoJsonMessage> =
+    asSequence().toGeoJsonMessages().toList()
+
+/**
+ * Lazily converts the replay events, so the whole history doesn't have to be held in memory as replay events.
+ */
+internal fun Sequence<ReplayEventBase>.toGeoJsonMessages(): Sequence<GeoJsonMessage> =
     filterIsInstance<ReplayEventUpdateLocation>()
         .map { event ->
             GeoJsonMessage(
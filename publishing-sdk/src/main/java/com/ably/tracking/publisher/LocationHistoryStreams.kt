@@ -0,0 +1,166 @@
+package com.ably.tracking.publisher
+
+import com.google.gson.Gson
+import com.google.gson.annotations.SerializedName
+import java.io.BufferedReader
+import java.io.BufferedWriter
+import java.io.Closeable
+import java.io.InputStream
+import java.io.InputStreamReader
+import java.io.OutputStream
+import java.io.OutputStreamWriter
+import java.util.zip.GZIPInputStream
+import java.util.zip.GZIPOutputStream
+
+/**
+ * The default maximum size, in bytes, of a single chunk written to the output stream by the [LocationHistoryWriter].
+ */
+const val DEFAULT_LOCATION_HISTORY_CHUNK_SIZE = 16 * 1024
+
+/**
+ * Configures the streaming export of the trip location history which is done when the publisher is stopped.
+ * The history is written with the [LocationHistoryWriter], so the memory used by the export doesn't depend on the trip length.
+ * When the export is enabled then the history is not emitted by [Publisher.locationHistory].
+ */
+data class LocationHistoryExport(
+    /**
+     * Creates the stream to which the history is written. It's called from a background thread and the stream is closed after the export.
+     * Writing to the stream can block, which slows down the export to the speed at which the stream consumes the data.
+     */
+    val outputStreamProvider: () -> OutputStream,
+
+    /**
+     * Whether the history is gzip-compressed.
+     */
+    val isGzipEnabled: Boolean = false,
+
+    /**
+     * The maximum size, in bytes, of a single chunk written to the stream.
+     */
+    val chunkSize: Int = DEFAULT_LOCATION_HISTORY_CHUNK_SIZE,
+)
+
+/**
+ * The first line of the newline-delimited location history which identifies its format.
+ */
+private data class LocationHistoryHeader(@SerializedName("version") val version: Int)
+
+/**
+ * Writes the location history as newline-delimited GeoJSON (NDJSON), with one [GeoJsonMessage] per line
+ * preceded by a header line with the [LOCATION_HISTORY_VERSION].
+ * The data is written to the [outputStream] in chunks of at most [chunkSize] bytes.
+ * Closing this writer closes the [outputStream].
+ */
+class LocationHistoryWriter @JvmOverloads constructor(
+    outputStream: OutputStream,
+    isGzipEnabled: Boolean = false,
+    chunkSize: Int = DEFAULT_LOCATION_HISTORY_CHUNK_SIZE,
+) : Closeable {
+    private val gson = Gson()
+    private val writer: BufferedWriter
+
+    init {
+        require(chunkSize > 0) { "The chunk size has to be positive" }
+        val chunkedOutputStream = ChunkedOutputStream(outputStream, chunkSize)
+        val dataOutputStream = if (isGzipEnabled) GZIPOutputStream(chunkedOutputStream, chunkSize) else chunkedOutputStream
+        writer = BufferedWriter(OutputStreamWriter(dataOutputStream, Charsets.UTF_8), chunkSize)
+        writeLine(LocationHistoryHeader(LOCATION_HISTORY_VERSION))
+    }
+
+    /**
+     * Writes a single history event.
+     */
+    fun write(event: GeoJsonMessage) {
+        writeLine(event)
+    }
+
+    /**
+     * Writes all history [events], one at a time, so they don't have to be held in memory at once.
+     */
+    fun writeAll(events: Sequence<GeoJsonMessage>) {
+        events.forEach { write(it) }
+    }
+
+    private fun writeLine(value: Any) {
+        gson.toJson(value, writer)
+        writer.newLine()
+    }
+
+    override fun close() {
+        writer.close()
+    }
+}
+
+/**
+ * Reads the location history written by the [LocationHistoryWriter]. Events are read lazily, one line at a time.
+ * Closing this reader closes the [inputStream].
+ *
+ * @throws UnsupportedLocationHistoryVersionException if the history has a different version than [LOCATION_HISTORY_VERSION].
+ */
+class LocationHistoryReader @JvmOverloads constructor(
+    inputStream: InputStream,
+    isGzipEnabled: Boolean = false,
+) : Closeable {
+    private val gson = Gson()
+    private val reader: BufferedReader =
+        BufferedReader(InputStreamReader(if (isGzipEnabled) GZIPInputStream(inputStream) else inputStream, Charsets.UTF_8))
+
+    init {
+        val header = reader.readLine()?.let { gson.fromJson(it, LocationHistoryHeader::class.java) }
+        if (header?.version != LOCATION_HISTORY_VERSION) {
+            reader.close()
+            throw UnsupportedLocationHistoryVersionException(header?.version)
+        }
+    }
+
+    /**
+     * Returns the history events. The returned sequence can be iterated only once.
+     */
+    fun events(): Sequence<GeoJsonMessage> =
+        generateSequence { readEvent() }.constrainOnce()
+
+    /**
+     * Reads the next history event or returns null if there are no more events.
+     */
+    fun readEvent(): GeoJsonMessage? {
+        var line = reader.readLine()
+        while (line != null && line.isBlank()) {
+            line = reader.readLine()
+        }
+        return line?.let { gson.fromJson(it, GeoJsonMessage::class.java) }
+    }
+
+    override fun close() {
+        reader.close()
+    }
+}
+
+/**
+ * Passes the written data to the [outputStream] in chunks of at most [chunkSize] bytes.
+ */
+private class ChunkedOutputStream(
+    private val outputStream: OutputStream,
+    private val chunkSize: Int,
+) : OutputStream() {
+    override fun write(byte: Int) {
+        outputStream.write(byte)
+    }
+
+    override fun write(bytes: ByteArray, offset: Int, length: Int) {
+        var chunkOffset = offset
+        val end = offset + length
+        while (chunkOffset < end) {
+            val currentChunkSize = minOf(chunkSize, end - chunkOffset)
+            outputStream.write(bytes, chunkOffset, currentChunkSize)
+            chunkOffset += currentChunkSize
+        }
+    }
+
+    override fun flush() {
+        outputStream.flush()
+    }
+
+    override fun close() {
+        outputStream.close()
+    }
+}
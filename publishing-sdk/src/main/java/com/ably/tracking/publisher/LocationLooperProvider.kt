@@ -0,0 +1,37 @@
+package com.ably.tracking.publisher
+
+import android.os.Handler
+import android.os.HandlerThread
+import android.os.Looper
+import android.os.Process
+import com.mapbox.navigation.core.MapboxNavigation
+import java.util.concurrent.Executor
+
+/**
+ * Provides the background [Looper] on which the location engines receive location updates from the OS and on which
+ * Mapbox locations are converted to the Asset Tracking model, so that this work doesn't compete with the UI for the main thread.
+ *
+ * The [MapboxNavigation] instance, and therefore its location engine, is shared by all [Publisher] instances,
+ * so the thread is shared as well. Because of that it is never explicitly stopped by the SDK
+ * but it will be implicitly stopped by the OS when the app is killed.
+ */
+internal object LocationLooperProvider {
+    private const val THREAD_NAME = "AblyAssetTrackingLocation"
+
+    /**
+     * The looper of the background location thread. The thread is started when this is accessed for the first time.
+     */
+    val looper: Looper by lazy {
+        HandlerThread(THREAD_NAME, Process.THREAD_PRIORITY_FOREGROUND)
+            .apply { start() }
+            .looper
+    }
+
+    /**
+     * Executes the passed work on the background location thread.
+     */
+    val executor: Executor by lazy {
+        val handler = Handler(looper)
+        Executor { handler.post(it) }
+    }
+}
@@ -0,0 +1,53 @@
+package com.ably.tracking.publisher
+
+import java.util.concurrent.atomic.AtomicReference
+
+/**
+ * The minimum speed multiplier of the location replay.
+ */
+const val MINIMUM_REPLAY_SPEED_MULTIPLIER = 1.0
+
+/**
+ * The maximum speed multiplier of the location replay.
+ */
+const val MAXIMUM_REPLAY_SPEED_MULTIPLIER = 100.0
+
+/**
+ * Controls the speed and the position of a location replay. It can be used from any thread while the replay is running.
+ */
+class LocationReplayControl internal constructor(speedMultiplier: Double) {
+    private val pendingSeekOffset = AtomicReference<Long?>(null)
+
+    /**
+     * How many times faster than in the recorded history the locations are replayed.
+     * It has to be between [MINIMUM_REPLAY_SPEED_MULTIPLIER] and [MAXIMUM_REPLAY_SPEED_MULTIPLIER].
+     */
+    @Volatile
+    var speedMultiplier: Double = requireValidSpeedMultiplier(speedMultiplier)
+        set(value) {
+            field = requireValidSpeedMultiplier(value)
+        }
+
+    /**
+     * Moves the replay to the first location that was recorded at least [offset] milliseconds after the first location of the history.
+     * The location is replayed immediately and the replay continues from it.
+     *
+     * @param offset The offset from the beginning of the history in milliseconds.
+     */
+    fun seekTo(offset: Long) {
+        require(offset >= 0) { "The seek offset cannot be negative" }
+        pendingSeekOffset.set(offset)
+    }
+
+    internal val hasPendingSeek: Boolean
+        get() = pendingSeekOffset.get() != null
+
+    internal fun takePendingSeekOffset(): Long? = pendingSeekOffset.getAndSet(null)
+
+    private fun requireValidSpeedMultiplier(speedMultiplier: Double): Double {
+        require(speedMultiplier in MINIMUM_REPLAY_SPEED_MULTIPLIER..MAXIMUM_REPLAY_SPEED_MULTIPLIER) {
+            "The speed multiplier has to be between $MINIMUM_REPLAY_SPEED_MULTIPLIER and $MAXIMUM_REPLAY_SPEED_MULTIPLIER"
+        }
+        return speedMultiplier
+    }
+}
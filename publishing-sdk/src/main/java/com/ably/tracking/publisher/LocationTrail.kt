@@ -0,0 +1,76 @@
+package com.ably.tracking.publisher
+
+import com.ably.tracking.Location
+
+/**
+ * Class responsible for storing the trail of the locations that were sent without their skipped and intermediate
+ * locations, for multiple trackables, so that the trail can be sent once a subscriber that consumes it joins.
+ *
+ * Unlike the [SkippedLocations], which keep the locations that still have to be sent, this keeps the locations that
+ * were already sent. Each trail is bounded by the [retention] and keeps only the locations that are newer than its last one.
+ */
+internal class LocationTrail(private val retention: LocationTrailRetention = LocationTrailRetention()) {
+    private val trails: MutableMap<String, ArrayDeque<Location>> = mutableMapOf()
+
+    /**
+     * Adds the [locations], sorted by time, to the trail of the specified trackable.
+     * If by adding them the trail exceeds the [retention] limits, then the oldest locations are removed.
+     *
+     * @param trackableId The ID of the trackable.
+     * @param locations The locations that will be added to the trail.
+     */
+    fun addAll(trackableId: String, locations: List<Location>) {
+        val trail = trails.getOrPut(trackableId) { ArrayDeque() }
+        locations.forEach { location ->
+            if (trail.isEmpty() || location.time > trail.last().time) {
+                trail.addLast(location)
+            }
+        }
+        removeLocationsOutsideOfRetention(trail)
+    }
+
+    fun addAll(other: LocationTrail) {
+        other.trails.forEach { (trackableId, trail) -> trails[trackableId] = ArrayDeque(trail) }
+    }
+
+    /**
+     * Returns the trail sorted by time for the specified trackable.
+     * If no locations are added for a trackable then it returns an empty list.
+     *
+     * @param trackableId The ID of the trackable.
+     * @return The trail sorted by time or empty list if no locations were added.
+     */
+    fun toList(trackableId: String): List<Location> {
+        return trails[trackableId]?.toList() ?: emptyList()
+    }
+
+    /**
+     * Clears the trail for the specified trackable ID.
+     *
+     * @param trackableId The ID of the trackable.
+     */
+    fun clear(trackableId: String) {
+        trails.remove(trackableId)
+    }
+
+    /**
+     * Clears all trails.
+     */
+    fun clearAll() {
+        trails.clear()
+    }
+
+    private fun removeLocationsOutsideOfRetention(trail: ArrayDeque<Location>) {
+        retention.maximumCount?.let { maximumCount ->
+            while (trail.size > maximumCount) {
+                trail.removeFirst()
+            }
+        }
+        retention.maximumAge?.let { maximumAge ->
+            val newestLocationTime = trail.lastOrNull()?.time ?: return
+            while (newestLocationTime - trail.first().time > maximumAge) {
+                trail.removeFirst()
+            }
+        }
+    }
+}
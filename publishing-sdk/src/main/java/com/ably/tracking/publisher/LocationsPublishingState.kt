@@ -1,5 +1,8 @@
 package com.ably.tracking.publisher
 
+import com.ably.tracking.EnhancedLocationUpdate
+import com.ably.tracking.Location
+
 /**
  * Class responsible for managing state connected to location updates that are going to or are being published.
  */
@@ -119,3 +122,13 @@ internal class LocationsPublishingState<LocationUpdateEventType> {
         retryCounter.clear()
     }
 }
+
+/**
+ * An enhanced location update together with the raw location that was the latest one when the enhanced location was
+ * received. The raw location is sent together with the enhanced location update when the location updates are combined,
+ * so it's captured once and the same raw location is sent when the update is waiting or retried.
+ */
+internal data class EnhancedLocationUpdateEvent(
+    val locationUpdate: EnhancedLocationUpdate,
+    val rawLocation: Location?,
+)
@@ -19,6 +19,7 @@ import com.ably.tracking.common.toAssetTracking
 import com.ably.tracking.connection.ConnectionConfiguration
 import com.ably.tracking.logging.LogHandler
 import com.ably.tracking.publisher.debug.AblySimulationLocationEngine
+import com.ably.tracking.publisher.debug.FileReplayLocationEngine
 import com.ably.tracking.publisher.debug.FlowLocationEngine
 import com.ably.tracking.publisher.locationengine.FusedAndroidLocationEngine
 import com.ably.tracking.publisher.locationengine.GoogleLocationEngine
@@ -26,6 +27,8 @@ import com.ably.tracking.publisher.locationengine.LocationEngineUtils
 import com.ably.tracking.publisher.locationengine.ResolutionLocationEngine
 import com.ably.tracking.publisher.locationengine.toLocationEngineRequest
 import com.mapbox.api.directions.v5.models.RouteOptions
+import com.mapbox.core.constants.Constants.PRECISION_6
+import com.mapbox.geojson.LineString
 import com.mapbox.module.Mapbox_TripNotificationModuleConfiguration
 import com.mapbox.navigation.base.options.DeviceProfile
 import com.mapbox.navigation.base.options.NavigationOptions
@@ -38,18 +41,25 @@ import com.mapbox.navigation.base.trip.model.RouteProgress
 import com.mapbox.navigation.base.trip.notification.TripNotification
 import com.mapbox.navigation.core.MapboxNavigation
 import com.mapbox.navigation.core.arrival.ArrivalObserver
-import com.mapbox.navigation.core.history.MapboxHistoryReader
 import com.mapbox.navigation.core.internal.utils.InternalUtils
 import com.mapbox.navigation.core.replay.MapboxReplayer
 import com.mapbox.navigation.core.replay.ReplayLocationEngine
 import com.mapbox.navigation.core.replay.history.ReplayEventBase
 import com.mapbox.navigation.core.replay.history.ReplayEventsObserver
-import com.mapbox.navigation.core.replay.history.ReplayHistoryMapper
+import com.mapbox.navigation.core.reroute.NavigationRerouteController
 import com.mapbox.navigation.core.trip.session.LocationMatcherResult
 import com.mapbox.navigation.core.trip.session.LocationObserver
+import com.mapbox.navigation.core.trip.session.RouteProgressObserver
+import java.util.concurrent.Executor
 import java.util.concurrent.atomic.AtomicInteger
+import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
-import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.cancel
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.isActive
+import kotlinx.coroutines.launch
 
 typealias LocationHistoryListener = (LocationHistoryData) -> Unit
 
@@ -71,17 +81,29 @@ internal interface LocationUpdatesObserver {
      * @param intermediateLocations a list (can be empty) of predicted location points leading up to the current update.
      */
     fun onEnhancedLocationChanged(enhancedLocation: Location, intermediateLocations: List<Location>)
+
+    /**
+     * Called when the location engine delivered a batch of locations.
+     * The latest location of the batch is delivered by [onRawLocationChanged] and [onEnhancedLocationChanged].
+     *
+     * @param rawLocations a list of raw locations from the batch which precede its latest location.
+     */
+    fun onPrecedingBatchLocationsChanged(rawLocations: List<Location>)
 }
 
 /**
  * Wrapper for the [MapboxNavigation] that's used to interact with the Mapbox SDK.
+ * Methods of this interface do not wait for the [MapboxNavigation] to handle them, however they are handled in the order in which they were called.
  */
 internal interface Mapbox {
     /**
      * Starts the navigation trip which results in location updates from the location engine.
+     *
+     * @param callbackFunction The function that's called with the result of starting the trip, from the thread that handles it.
+     * If the [MapboxNavigation] could not be created it's called with a [MapException].
      */
     @RequiresPermission(anyOf = [Manifest.permission.ACCESS_COARSE_LOCATION, Manifest.permission.ACCESS_FINE_LOCATION])
-    fun startTrip()
+    fun startTrip(callbackFunction: ResultCallbackFunction<Unit> = {})
 
     /**
      * Stops the navigation trip.
@@ -118,6 +140,14 @@ internal interface Mapbox {
      */
     fun clearRoute()
 
+    /**
+     * Recalculates the active route from the [location] if it's outside of the corridor around the route.
+     * Does nothing if there is no active route.
+     *
+     * @param location The current raw location of the [Publisher].
+     */
+    fun checkRouteCorridor(location: Location)
+
     /**
      * Sets a route with the provided parameters. The route starts in [currentLocation] and ends in [destination].
      * When the route is successfully set then it calls the [routeDurationCallback] with the estimated route duration.
@@ -125,7 +155,11 @@ internal interface Mapbox {
      * @param currentLocation The current location of the [Publisher].
      * @param destination The destination of the [Trackable].
      * @param routingProfile The routing profile for the route.
+     * Routes are reused for nearby origins with the same destination and routing profile, and the route is recalculated only
+     * when the location leaves the corridor around it.
+     *
      * @param routeDurationCallback The function that's called with the ETA of the route in milliseconds. If something goes wrong it will be called with [MapException].
+     * It's called again with the remaining route duration when it changes, until the route is cleared or replaced. It's called from the main thread.
      */
     fun setRoute(
         currentLocation: Location,
@@ -136,6 +170,7 @@ internal interface Mapbox {
 
     /**
      * Sets a location history listener that will be notified when a trip history is ready.
+     * The listener is called from a background thread.
      *
      * @param listener The function to call when location history data is ready.
      */
@@ -163,8 +198,9 @@ private object MapboxInstanceProvider {
     @Suppress("VisibleForTests")
     fun createOrRetrieve(navigationOptions: NavigationOptions): MapboxNavigation =
         synchronized(this) {
-            counter.incrementAndGet()
-            mapboxNavigation ?: MapboxNavigation(navigationOptions).also { mapboxNavigation = it }
+            // The counter is incremented only when the instance is obtained, so a failed creation doesn't need to be destroyed
+            (mapboxNavigation ?: MapboxNavigation(navigationOptions).also { mapboxNavigation = it })
+                .also { counter.incrementAndGet() }
         }
 
     /**
@@ -187,56 +223,77 @@ private object MapboxInstanceProvider {
  *  A standalone and independently testable utility class used by the DefaultMapbox implementation
  *  to create LocationObserver instances which validate, sanitize and transform mapbox locations
  *  before sending them on to AAT.
+ *
+ *  Mapbox calls location observers on the main thread, so the transformation is performed by the [executor]
+ *  which allows to move this work off the main thread.
  */
 internal class MapboxLocationObserverProvider(
     private val logHandler: LogHandler?,
     private val timeProvider: TimeProvider,
-    private val TAG: String
+    private val TAG: String,
+    private val executor: Executor = Executor { it.run() },
 ) {
     fun createLocationObserver(locationUpdatesObserver: LocationUpdatesObserver) =
         object : LocationObserver {
             override fun onNewRawLocation(rawLocation: android.location.Location) {
-                logHandler?.v("$TAG Raw location received from Mapbox: $rawLocation")
-                val rawLocationResult = rawLocation.toAssetTracking()
-                try {
-                    locationUpdatesObserver.onRawLocationChanged(rawLocationResult.getOrThrow())
-                } catch (locationValidationException: LocationValidationException) {
-                    logHandler?.v("$TAG Swallowing invalid raw location from Mapbox, validation exception was: $locationValidationException")
-                }
+                executor.execute { processRawLocation(rawLocation, locationUpdatesObserver) }
             }
 
             override fun onNewLocationMatcherResult(locationMatcherResult: LocationMatcherResult) {
-                val enhancedLocation = locationMatcherResult.enhancedLocation
-                val keyPoints = locationMatcherResult.keyPoints
-                logHandler?.v("$TAG Enhanced location received from Mapbox: $enhancedLocation")
-                val intermediateLocations =
-                    if (keyPoints.size > 1) keyPoints.subList(0, keyPoints.size - 1)
-                    else emptyList()
+                // Enhanced locations don't have real world timestamps so we use the device time from when they were received
                 val currentTimeInMilliseconds = timeProvider.getCurrentTime()
-                // Enhanced locations don't have real world timestamps so we use the current device time
-                val enhancedLocationResult =
-                    enhancedLocation.toAssetTracking(currentTimeInMilliseconds)
-                try {
-                    locationUpdatesObserver.onEnhancedLocationChanged(
-                        enhancedLocationResult.getOrThrow(),
-                        intermediateLocations.mapNotNull { location ->
-                            val timeDifference = enhancedLocation.time - location.time
-                            // Intermediate locations should have timestamps in relation to the enhanced location time
-                            val intermediateLocationResult =
-                                location.toAssetTracking(currentTimeInMilliseconds - timeDifference)
-                            try {
-                                intermediateLocationResult.getOrThrow()
-                            } catch (locationValidationException: LocationValidationException) {
-                                logHandler?.v("$TAG Swallowing invalid intermediate location from Mapbox, validation exception was: ${intermediateLocationResult.exceptionOrNull()}")
-                                null
-                            }
-                        }
-                    )
-                } catch (locationValidationException: LocationValidationException) {
-                    logHandler?.v("$TAG Swallowing invalid enhanced location from Mapbox, validation exception was: $locationValidationException")
+                executor.execute {
+                    processLocationMatcherResult(locationMatcherResult, currentTimeInMilliseconds, locationUpdatesObserver)
                 }
             }
         }
+
+    private fun processRawLocation(
+        rawLocation: android.location.Location,
+        locationUpdatesObserver: LocationUpdatesObserver
+    ) {
+        logHandler?.v("$TAG Raw location received from Mapbox: $rawLocation")
+        val rawLocationResult = rawLocation.toAssetTracking()
+        try {
+            locationUpdatesObserver.onRawLocationChanged(rawLocationResult.getOrThrow())
+        } catch (locationValidationException: LocationValidationException) {
+            logHandler?.v("$TAG Swallowing invalid raw location from Mapbox, validation exception was: $locationValidationException")
+        }
+    }
+
+    private fun processLocationMatcherResult(
+        locationMatcherResult: LocationMatcherResult,
+        currentTimeInMilliseconds: Long,
+        locationUpdatesObserver: LocationUpdatesObserver
+    ) {
+        val enhancedLocation = locationMatcherResult.enhancedLocation
+        val keyPoints = locationMatcherResult.keyPoints
+        logHandler?.v("$TAG Enhanced location received from Mapbox: $enhancedLocation")
+        val intermediateLocations =
+            if (keyPoints.size > 1) keyPoints.subList(0, keyPoints.size - 1)
+            else emptyList()
+        val enhancedLocationResult =
+            enhancedLocation.toAssetTracking(currentTimeInMilliseconds)
+        try {
+            locationUpdatesObserver.onEnhancedLocationChanged(
+                enhancedLocationResult.getOrThrow(),
+                intermediateLocations.mapNotNull { location ->
+                    val timeDifference = enhancedLocation.time - location.time
+                    // Intermediate locations should have timestamps in relation to the enhanced location time
+                    val intermediateLocationResult =
+                        location.toAssetTracking(currentTimeInMilliseconds - timeDifference)
+                    try {
+                        intermediateLocationResult.getOrThrow()
+                    } catch (locationValidationException: LocationValidationException) {
+                        logHandler?.v("$TAG Swallowing invalid intermediate location from Mapbox, validation exception was: ${intermediateLocationResult.exceptionOrNull()}")
+                        null
+                    }
+                }
+            )
+        } catch (locationValidationException: LocationValidationException) {
+            logHandler?.v("$TAG Swallowing invalid enhanced location from Mapbox, validation exception was: $locationValidationException")
+        }
+    }
 }
 
 /**
@@ -260,10 +317,21 @@ private const val ASSET_TRACKING_PROFILE_ENABLED_CONFIGURATION: String = """
  */
 private const val ASSET_TRACKING_PROFILE_DISABLED_CONFIGURATION: String = ""
 
+/**
+ * The queue used by all [DefaultMapbox] instances to call [MapboxNavigation] methods on the main thread.
+ * It's shared because the [MapboxNavigation] instance is shared, so this keeps the order of calls across [DefaultMapbox] instances,
+ * e.g. closing a stopped publisher always happens before starting a new one.
+ */
+private val mapboxCommandQueue: MapboxCommandQueue by lazy {
+    MapboxCommandQueue(CoroutineScope(Dispatchers.Main + SupervisorJob()))
+}
+
 /**
  * The default implementation of the [Mapbox] wrapper.
- * The [MapboxNavigation] needs to be called from the main thread. To achieve that we use the [runBlocking] method with the [mainDispatcher].
- * This enables us to switch threads and run the required method in the main thread.
+ * The [MapboxNavigation] needs to be called from the main thread. To achieve that we enqueue each call in the [mapboxCommandQueue].
+ * This enables us to run the required method in the main thread without blocking the calling thread.
+ * Location updates from the OS and their conversion to the Asset Tracking model are handled on the [LocationLooperProvider] thread.
+ * The trip history is recorded by the [TripHistoryRecorder] and converted on a background thread when the Mapbox is closed.
  */
 internal class DefaultMapbox(
     private val context: Context,
@@ -276,21 +344,51 @@ internal class DefaultMapbox(
     private val rawHistoryCallback: ((String) -> Unit)?,
     constantLocationEngineResolution: Resolution?,
     vehicleProfile: VehicleProfile,
+    private val locationBatching: LocationBatching? = null,
+    private val tripHistoryRecording: TripHistoryRecording? = TripHistoryRecording(),
+    private val locationHistoryExport: LocationHistoryExport? = null,
 ) : Mapbox {
     private val TAG = createLoggingTag(this)
+    private lateinit var mapboxNavigation: MapboxNavigation
 
     /**
-     * Dispatcher used to run [mapboxNavigation] methods on the main thread.
-     * It has to be the "immediate" version of the main dispatcher to not
-     * block the code execution when it's already called from the main thread.
+     * The reason why the [mapboxNavigation] could not be created, it's used only from the main thread.
+     * When it's set, the commands which use the [mapboxNavigation] fail with a [MapException].
      */
-    private val mainDispatcher = Dispatchers.Main.immediate
-    private var mapboxNavigation: MapboxNavigation
+    private var mapboxNavigationCreationFailure: Exception? = null
     private var mapboxReplayer: MapboxReplayer? = null
+    @Volatile
     private var locationHistoryListener: (LocationHistoryListener)? = null
     private var locationObserver: LocationObserver? = null
+    private var tripHistoryRecorder: TripHistoryRecorder? = null
+    private var tripHistorySegmentsJob: Job? = null
+
+    /**
+     * The scope used to start new trip history segments and to convert the trip history off the main thread.
+     * It's cancelled when Mapbox is closed, after the trip history has been emitted.
+     */
+    private val tripHistoryScope = CoroutineScope(Dispatchers.IO + SupervisorJob())
+
+    /**
+     * The observer of the batched locations, it's used from the location engine thread.
+     */
+    @Volatile
+    private var precedingBatchLocationsObserver: LocationUpdatesObserver? = null
     private lateinit var arrivalObserver: ArrivalObserver
-    private val mapboxLocationObserverProvider = MapboxLocationObserverProvider(logHandler, TimeProvider(), TAG)
+    private lateinit var routeProgressObserver: RouteProgressObserver
+
+    /**
+     * Manages the active route, it's used only from the main thread.
+     */
+    private val routeManager = RouteManager(
+        requestRoute = ::requestRoute,
+        // According to the migration guide, we need to manually call [setRoutes] with routes list.
+        // https://docs.mapbox.com/android/navigation/guides/migrate-to-v2/#request-a-route
+        applyRoute = { routes -> mapboxNavigation.setNavigationRoutes(routes) },
+        logHandler = logHandler,
+    )
+    private val mapboxLocationObserverProvider =
+        MapboxLocationObserverProvider(logHandler, TimeProvider(), TAG, LocationLooperProvider.executor)
 
     init {
         setupTripNotification(notificationProvider, notificationId)
@@ -312,6 +410,10 @@ internal class DefaultMapbox(
                     logHandler?.v("$TAG Use flow replayer location engine")
                     mapboxBuilder.locationEngine(FlowLocationEngine(it.flow, logHandler))
                 }
+                is LocationSourceFile -> {
+                    logHandler?.v("$TAG Use file replayer location engine")
+                    mapboxBuilder.locationEngine(FileReplayLocationEngine(it, logHandler))
+                }
             }
         }
 
@@ -319,16 +421,47 @@ internal class DefaultMapbox(
         InternalUtils.setUnconditionalPollingPatience(Long.MAX_VALUE)
 
         if (constantLocationEngineResolution != null) {
-            mapboxBuilder.locationEngineRequest(constantLocationEngineResolution.toLocationEngineRequest())
+            mapboxBuilder.locationEngineRequest(constantLocationEngineResolution.toLocationEngineRequest(locationBatching))
         }
 
-        runBlocking(mainDispatcher) {
-            mapboxNavigation = MapboxInstanceProvider.createOrRetrieve(mapboxBuilder.build())
+        enqueueCommand("create MapboxNavigation", requiresMapboxNavigation = false) {
+            mapboxNavigation = try {
+                MapboxInstanceProvider.createOrRetrieve(mapboxBuilder.build())
+            } catch (exception: Exception) {
+                mapboxNavigationCreationFailure = exception
+                throw exception
+            }
             logHandler?.v("$TAG obtained MapboxNavigation instance")
+            tripHistoryRecorder = tripHistoryRecording?.let { TripHistoryRecorder(mapboxNavigation.historyRecorder, it) }
             setupRouteClearingWhenDestinationIsReached()
+            setupRouteTracking()
         }
     }
 
+    /**
+     * Enqueues the [action] in the [mapboxCommandQueue] and logs its failure.
+     * If the [action] [requiresMapboxNavigation] and it could not be created then the command fails without executing it.
+     */
+    private fun enqueueCommand(
+        commandName: String,
+        callbackFunction: ResultCallbackFunction<Unit> = {},
+        requiresMapboxNavigation: Boolean = true,
+        action: () -> Unit
+    ) {
+        mapboxCommandQueue.enqueue(
+            callbackFunction = { result ->
+                result.exceptionOrNull()?.let { logHandler?.e("$TAG Mapbox command \"$commandName\" failed", it) }
+                callbackFunction(result)
+            },
+            action = {
+                if (requiresMapboxNavigation) {
+                    mapboxNavigationCreationFailure?.let { throw MapException(it) }
+                }
+                action()
+            }
+        )
+    }
+
     private fun createDeviceProfile(vehicleProfile: VehicleProfile): DeviceProfile =
         DeviceProfile.Builder()
             .customConfig(
@@ -373,20 +506,45 @@ internal class DefaultMapbox(
         mapboxNavigation.registerArrivalObserver(arrivalObserver)
     }
 
+    /**
+     * Keeps the route duration up to date. The route is recalculated only when the location leaves the route corridor,
+     * which is checked with [checkRouteCorridor], so the built-in Mapbox rerouting is disabled.
+     */
+    private fun setupRouteTracking() {
+        mapboxNavigation.setRerouteController(null as NavigationRerouteController?)
+        routeProgressObserver = object : RouteProgressObserver {
+            override fun onRouteProgressChanged(routeProgress: RouteProgress) {
+                routeManager.onRouteProgressChanged((routeProgress.durationRemaining * MILLISECONDS_PER_SECOND).toLong())
+            }
+        }
+        mapboxNavigation.registerRouteProgressObserver(routeProgressObserver)
+    }
+
     @RequiresPermission(anyOf = [Manifest.permission.ACCESS_COARSE_LOCATION, Manifest.permission.ACCESS_FINE_LOCATION])
-    override fun startTrip() {
-        runBlocking(mainDispatcher) {
+    override fun startTrip(callbackFunction: ResultCallbackFunction<Unit>) {
+        enqueueCommand("start trip", callbackFunction) {
             logHandler?.v("$TAG Start trip and location updates")
-            mapboxNavigation.apply {
-                historyRecorder.startRecording()
-                startTripSession()
-            }
+            tripHistoryRecorder?.let { startTripHistoryRecording(it) }
+            mapboxNavigation.startTripSession()
             mapboxReplayer?.play()
         }
     }
 
+    private fun startTripHistoryRecording(recorder: TripHistoryRecorder) {
+        recorder.start()
+        val segmentDuration = recorder.segmentDuration
+        if (segmentDuration != null && tripHistorySegmentsJob == null) {
+            tripHistorySegmentsJob = tripHistoryScope.launch {
+                while (isActive) {
+                    delay(segmentDuration)
+                    enqueueCommand("start next trip history segment") { recorder.startNextSegment() }
+                }
+            }
+        }
+    }
+
     override fun stopTrip() {
-        runBlocking(mainDispatcher) {
+        enqueueCommand("stop trip") {
             logHandler?.v("$TAG Stop trip and location updates")
             mapboxReplayer?.stop()
             mapboxReplayer?.seekTo(0.0)
@@ -396,22 +554,33 @@ internal class DefaultMapbox(
     }
 
     override fun close() {
-        runBlocking(mainDispatcher) {
+        enqueueCommand("close", requiresMapboxNavigation = false) {
+            if (mapboxNavigationCreationFailure != null) {
+                // There is nothing to close or destroy as the MapboxNavigation instance was not obtained
+                tripHistoryScope.cancel()
+                return@enqueueCommand
+            }
             logHandler?.v("$TAG Close Mapbox")
-            mapboxNavigation.apply {
-                unregisterArrivalObserver(arrivalObserver)
-                this@DefaultMapbox.mapboxReplayer?.finish()
-                historyRecorder.stopRecording { historyDataFilepath ->
-                    if (historyDataFilepath != null) {
-                        val historyMapper = ReplayHistoryMapper.Builder().build()
-                        val historyEvents = MapboxHistoryReader(historyDataFilepath)
-                            .asSequence()
-                            .mapNotNull { historyMapper.mapToReplayEvent(it) }
-                            .toList()
-                        locationHistoryListener?.invoke(LocationHistoryData(historyEvents.toGeoJsonMessages()))
-                        rawHistoryCallback?.invoke(historyDataFilepath)
+            mapboxNavigation.unregisterArrivalObserver(arrivalObserver)
+            mapboxNavigation.unregisterRouteProgressObserver(routeProgressObserver)
+            mapboxReplayer?.finish()
+            tripHistorySegmentsJob?.cancel()
+            tripHistorySegmentsJob = null
+            val recorder = tripHistoryRecorder
+            if (recorder != null) {
+                recorder.stop { historyFilepaths ->
+                    tripHistoryScope.launch {
+                        try {
+                            if (historyFilepaths.isNotEmpty()) {
+                                emitLocationHistory(historyFilepaths)
+                            }
+                        } finally {
+                            tripHistoryScope.cancel()
+                        }
                     }
                 }
+            } else {
+                tripHistoryScope.cancel()
             }
 
             if (MapboxInstanceProvider.destroyIfPossible()) {
@@ -421,23 +590,41 @@ internal class DefaultMapbox(
         }
     }
 
+    private fun emitLocationHistory(historyFilepaths: List<String>) {
+        try {
+            if (locationHistoryExport != null) {
+                exportLocationHistory(historyFilepaths, locationHistoryExport)
+                logHandler?.v("$TAG Exported the trip history")
+            } else {
+                locationHistoryListener?.invoke(readLocationHistory(historyFilepaths))
+            }
+        } catch (exception: Exception) {
+            logHandler?.e("$TAG Reading the trip history failed", exception)
+        }
+        historyFilepaths.forEach { rawHistoryCallback?.invoke(it) }
+    }
+
     private fun createLocationObserver(locationUpdatesObserver: LocationUpdatesObserver) =
         mapboxLocationObserverProvider.createLocationObserver(locationUpdatesObserver)
 
     override fun registerLocationObserver(locationUpdatesObserver: LocationUpdatesObserver) {
         unregisterLocationObserver()
-        runBlocking(mainDispatcher) {
+        enqueueCommand("register location observer") {
             logHandler?.v("$TAG Register location observer")
             locationObserver = createLocationObserver(locationUpdatesObserver)
             locationObserver?.let { mapboxNavigation.registerLocationObserver(it) }
+            precedingBatchLocationsObserver = locationUpdatesObserver
         }
     }
 
     override fun unregisterLocationObserver() {
-        locationObserver?.let {
-            runBlocking(mainDispatcher) {
+        // The location observer is only accessed from the queued commands so it's read when the command is executed
+        enqueueCommand("unregister location observer") {
+            locationObserver?.let {
                 logHandler?.v("$TAG Unregister location observer")
                 mapboxNavigation.unregisterLocationObserver(it)
+                locationObserver = null
+                precedingBatchLocationsObserver = null
             }
         }
     }
@@ -448,50 +635,72 @@ internal class DefaultMapbox(
         routingProfile: RoutingProfile,
         routeDurationCallback: ResultCallbackFunction<Long>
     ) {
-        runBlocking(mainDispatcher) {
+        val onCommandFailed: ResultCallbackFunction<Unit> = { result ->
+            result.exceptionOrNull()?.let { routeDurationCallback(Result.failure(it as? MapException ?: MapException(it))) }
+        }
+        enqueueCommand("set route", onCommandFailed) {
             logHandler?.v("$TAG Set route to: $destination")
-            mapboxNavigation.requestRoutes(
-                RouteOptions.builder()
-                    .coordinatesList(getRouteCoordinates(currentLocation, destination))
-                    .profile(routingProfile.toMapboxProfileName())
-                    .build(),
-                object : NavigationRouterCallback {
-                    override fun onRoutesReady(routes: List<NavigationRoute>, routerOrigin: RouterOrigin) {
-                        logHandler?.v("$TAG Set route successful")
-                        routes.firstOrNull()?.let {
-                            // According to the migration guide, we need to manually call [setRoutes] with routes list.
-                            // https://docs.mapbox.com/android/navigation/guides/migrate-to-v2/#request-a-route
-                            mapboxNavigation.setNavigationRoutes(routes)
-                            val routeDuration = (it.directionsRoute.durationTypical() ?: it.directionsRoute.duration())
-                            val routeDurationInMilliseconds =
-                                routeDuration * MILLISECONDS_PER_SECOND
-                            routeDurationCallback(Result.success(routeDurationInMilliseconds.toLong()))
-                        }
+            routeManager.setRoute(currentLocation, destination, routingProfile, routeDurationCallback)
+        }
+    }
+
+    private fun requestRoute(
+        origin: Location,
+        destination: Destination,
+        routingProfile: RoutingProfile,
+        callback: ResultCallbackFunction<CachedRoute<List<NavigationRoute>>>
+    ) {
+        mapboxNavigation.requestRoutes(
+            RouteOptions.builder()
+                .coordinatesList(getRouteCoordinates(origin, destination))
+                .profile(routingProfile.toMapboxProfileName())
+                .build(),
+            object : NavigationRouterCallback {
+                override fun onRoutesReady(routes: List<NavigationRoute>, routerOrigin: RouterOrigin) {
+                    val route = routes.firstOrNull()
+                    if (route == null) {
+                        callback(Result.failure(MapException(UnknownSetRouteException())))
+                        return
                     }
+                    logHandler?.v("$TAG Set route successful")
+                    val routeDuration = (route.directionsRoute.durationTypical() ?: route.directionsRoute.duration())
+                    val routeDurationInMilliseconds = routeDuration * MILLISECONDS_PER_SECOND
+                    val routeGeometry = route.directionsRoute.geometry()
+                        ?.let { LineString.fromPolyline(it, PRECISION_6).coordinates() }
+                        ?: emptyList()
+                    callback(Result.success(CachedRoute(routes, routeGeometry, routeDurationInMilliseconds.toLong())))
+                }
 
-                    override fun onCanceled(routeOptions: RouteOptions, routerOrigin: RouterOrigin) = Unit
+                override fun onCanceled(routeOptions: RouteOptions, routerOrigin: RouterOrigin) = Unit
 
-                    override fun onFailure(reasons: List<RouterFailure>, routeOptions: RouteOptions) {
-                        // Use the exception from the reasons list if it is available
-                        val throwable = reasons.firstOrNull()?.throwable ?: UnknownSetRouteException()
-                        // We won't know the ETA for the active trackable and therefore we won't be able to check the temporal threshold.
-                        routeDurationCallback(Result.failure(MapException(throwable)))
-                        logHandler?.e("$TAG Set route failed", throwable)
-                    }
+                override fun onFailure(reasons: List<RouterFailure>, routeOptions: RouteOptions) {
+                    // Use the exception from the reasons list if it is available
+                    val throwable = reasons.firstOrNull()?.throwable ?: UnknownSetRouteException()
+                    // We won't know the ETA for the active trackable and therefore we won't be able to check the temporal threshold.
+                    callback(Result.failure(MapException(throwable)))
+                    logHandler?.e("$TAG Set route failed", throwable)
                 }
-            )
+            }
+        )
+    }
+
+    override fun checkRouteCorridor(location: Location) {
+        // The location has already been converted and validated so only the corridor check is done on the main thread
+        enqueueCommand("check route corridor") {
+            routeManager.onLocationChanged(location)
         }
     }
 
     override fun clearRoute() {
-        runBlocking(mainDispatcher) {
+        enqueueCommand("clear route") {
             logHandler?.v("$TAG Clear route")
+            routeManager.clearRoute()
             mapboxNavigation.setNavigationRoutes(emptyList())
         }
     }
 
     override fun changeResolution(resolution: Resolution) {
-        runBlocking(mainDispatcher) {
+        enqueueCommand("change resolution") {
             logHandler?.v("$TAG Change location engine resolution")
             mapboxNavigation.navigationOptions.locationEngine.let {
                 if (it is ResolutionLocationEngine) {
@@ -504,12 +713,25 @@ internal class DefaultMapbox(
     private fun getBestLocationEngine(context: Context, logHandler: LogHandler?): ResolutionLocationEngine =
         if (LocationEngineUtils.hasGoogleLocationServices(context)) {
             logHandler?.v("$TAG Use Google location engine")
-            GoogleLocationEngine(context)
+            GoogleLocationEngine(context, LocationLooperProvider.looper, locationBatching).apply {
+                precedingBatchLocationsListener = ::onPrecedingBatchLocations
+            }
         } else {
             logHandler?.v("$TAG Use Android location engine")
-            FusedAndroidLocationEngine(context, logHandler)
+            FusedAndroidLocationEngine(context, logHandler, LocationLooperProvider.looper, locationBatching).apply {
+                precedingBatchLocationsListener = ::onPrecedingBatchLocations
+            }
         }
 
+    private fun onPrecedingBatchLocations(rawLocations: List<android.location.Location>) {
+        val observer = precedingBatchLocationsObserver ?: return
+        logHandler?.v("$TAG Received ${rawLocations.size} preceding locations from a location batch")
+        val validLocations = rawLocations.mapNotNull { it.toAssetTracking().getOrNull() }
+        if (validLocations.isNotEmpty()) {
+            observer.onPrecedingBatchLocationsChanged(validLocations)
+        }
+    }
+
     private fun useAblySimulationLocationEngine(
         mapboxBuilder: NavigationOptions.Builder,
         locationSource: LocationSourceAbly,
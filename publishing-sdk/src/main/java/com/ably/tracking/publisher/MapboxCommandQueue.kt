@@ -0,0 +1,52 @@
+package com.ably.tracking.publisher
+
+import com.ably.tracking.common.ResultCallbackFunction
+import com.mapbox.navigation.core.MapboxNavigation
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.launch
+
+/**
+ * A queue that executes commands in the [scope] one by one, in the order in which they were enqueued.
+ * It's used to call [MapboxNavigation] methods on the main thread without blocking the calling thread.
+ *
+ * @param scope The scope in which commands are executed. For [MapboxNavigation] it has to use the main dispatcher.
+ */
+internal class MapboxCommandQueue(private val scope: CoroutineScope) {
+    private val commands = Channel<Command>(capacity = Channel.UNLIMITED)
+
+    init {
+        scope.launch { executeCommands() }
+    }
+
+    private suspend fun executeCommands() {
+        for (command in commands) {
+            val result = try {
+                Result.success(command.action())
+            } catch (exception: Exception) {
+                Result.failure(exception)
+            }
+            try {
+                command.callbackFunction(result)
+            } catch (exception: Exception) {
+                // An exception thrown from a callback should not stop the execution of subsequent commands
+            }
+        }
+    }
+
+    /**
+     * Enqueues the [action] for execution. This method does not wait for the [action] to be executed.
+     *
+     * @param callbackFunction The function that's called with the result of the [action] after it has been executed.
+     * It's called in the [scope] of this queue.
+     * @param action The command to execute.
+     */
+    fun enqueue(callbackFunction: ResultCallbackFunction<Unit> = {}, action: () -> Unit) {
+        commands.trySend(Command(action, callbackFunction))
+    }
+
+    private class Command(
+        val action: () -> Unit,
+        val callbackFunction: ResultCallbackFunction<Unit>,
+    )
+}
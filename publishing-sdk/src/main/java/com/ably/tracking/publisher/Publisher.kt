@@ -6,11 +6,16 @@ import android.content.Context
 import androidx.annotation.RequiresPermission
 import com.ably.tracking.BuilderConfigurationIncompleteException
 import com.ably.tracking.ConnectionException
+import com.ably.tracking.FlowPolicy
+import com.ably.tracking.ListenerRegistration
 import com.ably.tracking.LocationUpdate
 import com.ably.tracking.Resolution
 import com.ably.tracking.TrackableState
+import com.ably.tracking.UpdateListener
+import com.ably.tracking.annotations.Experimental
 import com.ably.tracking.connection.ConnectionConfiguration
 import com.ably.tracking.logging.LogHandler
+import java.util.concurrent.Executor
 import kotlinx.coroutines.flow.SharedFlow
 import kotlinx.coroutines.flow.StateFlow
 
@@ -88,6 +93,26 @@ interface Publisher {
     val locations: SharedFlow<LocationUpdate>
         @JvmSynthetic get
 
+    /**
+     * EXPERIMENTAL API
+     *
+     * Adds a listener of the location updates, which is invoked directly by the SDK without collecting the [locations]
+     * flow. Unlike a collector of that flow, the listener only receives the latest location update when it's added
+     * if the [replayLatest] is enabled.
+     *
+     * @param listener The listener of the location updates.
+     * @param executor The executor that invokes the [listener]. If it's null, the [listener] is invoked synchronously on
+     * the SDK thread, so it must return quickly and must not block.
+     * @param replayLatest Whether the [listener] should receive the latest location update, if there is one, when it's added.
+     * @return The registration that removes the [listener].
+     */
+    @Experimental
+    fun addLocationUpdateListener(
+        listener: UpdateListener<LocationUpdate>,
+        executor: Executor? = null,
+        replayLatest: Boolean = false,
+    ): ListenerRegistration
+
     /**
      * The shared flow emitting all trackables tracked by the publisher.
      */
@@ -96,10 +121,59 @@ interface Publisher {
 
     /**
      * The shared flow emitting trip location history when the publisher is stopped.
+     * The trip history recording can be limited or disabled with [Builder.tripHistoryRecording].
+     * Nothing is emitted when the history is exported with [Builder.locationHistoryExport].
+     * All the events of the trip are held in memory, so long trips should be exported with [Builder.locationHistoryExport] instead.
      */
     val locationHistory: SharedFlow<LocationHistoryData>
         @JvmSynthetic get
 
+    /**
+     * The shared flow emitting events when the publisher's enhanced location enters or exits a [Geofence].
+     * Events are reported for the [DestinationGeofence]s of all trackables with a destination
+     * and for geofences registered with [addGeofence].
+     */
+    val geofenceEvents: SharedFlow<GeofenceEvent>
+        @JvmSynthetic get
+
+    /**
+     * Registers a geofence whose entering and exiting will be reported in [geofenceEvents].
+     * If a geofence with the same ID is already registered then it is replaced.
+     *
+     * @param geofence The geofence to register.
+     */
+    fun addGeofence(geofence: CustomGeofence)
+
+    /**
+     * Removes a geofence registered with [addGeofence]. No exit event is reported for a removed geofence.
+     *
+     * @param geofenceId The ID of the geofence to remove.
+     * @return True if the geofence was removed, false if no geofence with the [geofenceId] was registered.
+     */
+    fun removeGeofence(geofenceId: String): Boolean
+
+    /**
+     * EXPERIMENTAL API
+     *
+     * Returns how many updates of the [locations] flow didn't fit into the buffer set with [Builder.flowPolicy], so
+     * they were either dropped or had to wait for the slowest collector.
+     *
+     * @return The number of the overflowed location updates since the publisher was started.
+     */
+    @Experimental
+    fun getLocationsOverflowCount(): Long
+
+    /**
+     * EXPERIMENTAL API
+     *
+     * Returns how many updates of the [trackables] flow didn't fit into the buffer set with [Builder.flowPolicy], so
+     * they were either dropped or had to wait for the slowest collector.
+     *
+     * @return The number of the overflowed trackables updates since the publisher was started.
+     */
+    @Experimental
+    fun getTrackablesOverflowCount(): Long
+
     /**
      * Returns a trackable state flow representing the [TrackableState] for an already added [Trackable].
      *
@@ -262,6 +336,110 @@ interface Publisher {
          */
         fun vehicleProfile(profile: VehicleProfile): Builder
 
+        /**
+         * **OPTIONAL** Enables the batched delivery of locations for low temporal resolutions.
+         * If the [batching] is not null then, while the location engine resolution's [Resolution.desiredInterval] is at least
+         * [LocationBatching.minimumDesiredInterval], locations are delivered in batches and each batch is published as a single location update.
+         * This trades the latency of location updates for lower power usage.
+         * By default this is disabled.
+         *
+         * @param batching The configuration of the batched location delivery, or null to disable it.
+         * @return A new instance of the builder with this property changed.
+         */
+        fun locationBatching(batching: LocationBatching?): Builder
+
+        /**
+         * **OPTIONAL** Enables the lightweight mode in which the Mapbox Navigation SDK is not used at all.
+         * Locations are received directly from the location engine and the raw locations are published as the enhanced ones,
+         * so there is no map matching, no routing and no trip history. This makes the publisher start faster and use less memory and CPU.
+         * When this is enabled then [map] is not required, setting a [Trackable.destination] has no effect and the
+         * [LocationSourceRaw] cannot be used.
+         * By default this is disabled.
+         *
+         * @param enabled Whether the lightweight mode is enabled.
+         * @return A new instance of the builder with this property changed.
+         */
+        fun lightweightMode(enabled: Boolean): Builder
+
+        /**
+         * **OPTIONAL** Configures the trip history recording which is emitted by [locationHistory] when the publisher is stopped.
+         * If the [recording] is null then the trip history is not recorded at all, which saves disk space, memory and CPU.
+         * By default the whole trip history is recorded.
+         *
+         * @param recording The configuration of the trip history recording, or null to disable it.
+         * @return A new instance of the builder with this property changed.
+         */
+        fun tripHistoryRecording(recording: TripHistoryRecording?): Builder
+
+        /**
+         * **OPTIONAL** Enables the streaming export of the trip location history when the publisher is stopped.
+         * If the [export] is not null then the history is written as newline-delimited GeoJSON to its output stream
+         * and it's not emitted by [locationHistory]. The exported history can be read with the [LocationHistoryReader].
+         * By default this is disabled.
+         *
+         * @param export The configuration of the location history export, or null to disable it.
+         * @return A new instance of the builder with this property changed.
+         */
+        fun locationHistoryExport(export: LocationHistoryExport?): Builder
+
+        /**
+         * **OPTIONAL** Enables the simplification of the skipped and intermediate locations before they are published.
+         * If the [simplification] is not null then locations that lie on a nearly straight line between their neighbours
+         * are not published, with the tolerance based on the [Resolution.minimumDisplacement] of the trackable.
+         * By default this is disabled.
+         *
+         * @param simplification The configuration of the trajectory simplification, or null to disable it.
+         * @return A new instance of the builder with this property changed.
+         */
+        fun trajectorySimplification(simplification: TrajectorySimplification?): Builder
+
+        /**
+         * EXPERIMENTAL API
+         * **OPTIONAL** Enables sending the raw location together with the enhanced location update in a single message.
+         * This only has an effect when the sending of raw location updates is enabled with [rawLocations].
+         * Instead of publishing separate raw location updates, each enhanced location update carries the latest raw location,
+         * which halves the number of published messages. Subscribers still receive both the enhanced and the raw locations.
+         * By default this is disabled.
+         *
+         * @param enabled Whether the raw locations are sent in the enhanced location updates.
+         * @return A new instance of the builder with this property changed.
+         */
+        fun combinedLocationUpdates(enabled: Boolean): Builder
+
+        /**
+         * EXPERIMENTAL API
+         * **OPTIONAL** Enables sharing the Ably connection with the other publishers and subscribers of this process
+         * that enable it and are created with an equal [ConnectionConfiguration]. The shared connection is closed
+         * when the last of them stops. The instances sharing a connection should not use the same trackables.
+         * By default this is disabled.
+         *
+         * @param enabled Whether the Ably connection is shared.
+         * @return A new instance of the builder with this property changed.
+         */
+        fun sharedConnection(enabled: Boolean): Builder
+
+        /**
+         * EXPERIMENTAL API
+         * **OPTIONAL** Sets what happens to the updates of the [Publisher.locations] and [Publisher.trackables] flows when their collectors are
+         * slower than the updates. The updates never hold up the publisher, and with a dropping policy a slow collector
+         * cannot make the updates pile up either.
+         * By default every update is kept until the collectors catch up with it, see [FlowPolicy.SUSPEND].
+         *
+         * @param policy The policy of the flows.
+         * @return A new instance of the builder with this property changed.
+         */
+        fun flowPolicy(policy: FlowPolicy): Builder
+
+        /**
+         * **OPTIONAL** Limits the trail of the sent locations that is kept for a trackable while all of its subscribers
+         * consume only the latest location, and that is sent once a subscriber that consumes the trail joins.
+         * By default the trail is limited to [LocationTrailRetention.DEFAULT_LOCATION_TRAIL_MAXIMUM_COUNT] locations.
+         *
+         * @param retention The limits of the kept trail.
+         * @return A new instance of the builder with this property changed.
+         */
+        fun locationTrailRetention(retention: LocationTrailRetention): Builder
+
         /**
          * Creates a [Publisher] and starts publishing.
          *
@@ -273,9 +451,10 @@ interface Publisher {
          * @return A new publisher instance.
          * @throws com.ably.tracking.BuilderConfigurationIncompleteException If all required params aren't set.
          * @throws ConnectionException If connection configuration is invalid.
+         * @throws LocationSourceUnsupportedException If the location source is not supported in the lightweight mode.
          */
         @RequiresPermission(anyOf = [ACCESS_COARSE_LOCATION, ACCESS_FINE_LOCATION])
-        @Throws(BuilderConfigurationIncompleteException::class, ConnectionException::class)
+        @Throws(BuilderConfigurationIncompleteException::class, ConnectionException::class, LocationSourceUnsupportedException::class)
         fun start(): Publisher
     }
 }
@@ -5,9 +5,10 @@ import android.Manifest.permission.ACCESS_FINE_LOCATION
 import android.content.Context
 import androidx.annotation.RequiresPermission
 import com.ably.tracking.BuilderConfigurationIncompleteException
+import com.ably.tracking.FlowPolicy
 import com.ably.tracking.Resolution
 import com.ably.tracking.common.DefaultAbly
-import com.ably.tracking.common.DefaultAblySdkFactory
+import com.ably.tracking.common.createAblySdkFactory
 import com.ably.tracking.common.logging.createLoggingTag
 import com.ably.tracking.common.logging.v
 import com.ably.tracking.connection.ConnectionConfiguration
@@ -31,6 +32,15 @@ internal data class PublisherBuilder(
     val rawHistoryCallback: ((String) -> Unit)? = null,
     val constantLocationEngineResolution: Resolution? = null,
     val vehicleProfile: VehicleProfile = VehicleProfile.CAR,
+    val locationBatching: LocationBatching? = null,
+    val isLightweightModeEnabled: Boolean = false,
+    val tripHistoryRecording: TripHistoryRecording? = TripHistoryRecording(),
+    val locationHistoryExport: LocationHistoryExport? = null,
+    val trajectorySimplification: TrajectorySimplification? = null,
+    val areLocationUpdatesCombined: Boolean = false,
+    val isConnectionShared: Boolean = false,
+    val flowPolicy: FlowPolicy = FlowPolicy.SUSPEND,
+    val locationTrailRetention: LocationTrailRetention = LocationTrailRetention(),
 ) : Publisher.Builder {
     private val TAG = createLoggingTag(this)
 
@@ -76,6 +86,33 @@ internal data class PublisherBuilder(
     override fun vehicleProfile(profile: VehicleProfile): Publisher.Builder =
         this.copy(vehicleProfile = profile)
 
+    override fun locationBatching(batching: LocationBatching?): Publisher.Builder =
+        this.copy(locationBatching = batching)
+
+    override fun lightweightMode(enabled: Boolean): Publisher.Builder =
+        this.copy(isLightweightModeEnabled = enabled)
+
+    override fun tripHistoryRecording(recording: TripHistoryRecording?): Publisher.Builder =
+        this.copy(tripHistoryRecording = recording)
+
+    override fun locationHistoryExport(export: LocationHistoryExport?): Publisher.Builder =
+        this.copy(locationHistoryExport = export)
+
+    override fun trajectorySimplification(simplification: TrajectorySimplification?): Publisher.Builder =
+        this.copy(trajectorySimplification = simplification)
+
+    override fun combinedLocationUpdates(enabled: Boolean): Publisher.Builder =
+        this.copy(areLocationUpdatesCombined = enabled)
+
+    override fun sharedConnection(enabled: Boolean): Publisher.Builder =
+        this.copy(isConnectionShared = enabled)
+
+    override fun flowPolicy(policy: FlowPolicy): Publisher.Builder =
+        this.copy(flowPolicy = policy)
+
+    override fun locationTrailRetention(retention: LocationTrailRetention): Publisher.Builder =
+        this.copy(locationTrailRetention = retention)
+
     @RequiresPermission(anyOf = [ACCESS_COARSE_LOCATION, ACCESS_FINE_LOCATION])
     override fun start(): Publisher {
         if (isMissingRequiredFields()) {
@@ -84,34 +121,64 @@ internal data class PublisherBuilder(
         }
         logHandler?.v("$TAG Creating a publisher instance")
 
+        // The Mapbox is created first as it can fail for an unsupported location source
+        val mapbox = createMapbox()
         val coroutineScope = CoroutineScope(Dispatchers.IO + SupervisorJob())
         // All below fields are required and above code checks if they are nulls, so using !! should be safe from NPE
         return DefaultPublisher(
-            DefaultAbly(DefaultAblySdkFactory(), connectionConfiguration!!, logHandler, coroutineScope),
-            DefaultMapbox(
-                androidContext!!,
-                mapConfiguration!!,
+            DefaultAbly(
+                createAblySdkFactory(connectionConfiguration!!, isConnectionShared),
                 connectionConfiguration,
-                locationSource,
                 logHandler,
-                notificationProvider!!,
-                notificationId!!,
-                rawHistoryCallback,
-                constantLocationEngineResolution,
-                vehicleProfile,
+                coroutineScope
             ),
+            mapbox,
             resolutionPolicyFactory!!,
             routingProfile,
             logHandler,
             areRawLocationsEnabled,
             sendResolutionEnabled,
             constantLocationEngineResolution,
+            trajectorySimplification,
+            areLocationUpdatesCombined,
+            flowPolicy,
+            locationTrailRetention,
         )
     }
 
+    private fun createMapbox(): Mapbox =
+        if (isLightweightModeEnabled) {
+            LightweightMapbox.create(
+                androidContext!!,
+                connectionConfiguration!!,
+                locationSource,
+                logHandler,
+                notificationProvider!!,
+                notificationId!!,
+                constantLocationEngineResolution,
+                locationBatching,
+            )
+        } else {
+            DefaultMapbox(
+                androidContext!!,
+                mapConfiguration!!,
+                connectionConfiguration!!,
+                locationSource,
+                logHandler,
+                notificationProvider!!,
+                notificationId!!,
+                rawHistoryCallback,
+                constantLocationEngineResolution,
+                vehicleProfile,
+                locationBatching,
+                tripHistoryRecording,
+                locationHistoryExport,
+            )
+        }
+
     private fun isMissingRequiredFields() =
         connectionConfiguration == null ||
-            mapConfiguration == null ||
+            (mapConfiguration == null && !isLightweightModeEnabled) ||
             androidContext == null ||
             notificationProvider == null ||
             notificationId == null ||
@@ -11,3 +11,10 @@ class RemoveTrackableRequestedException : Exception("This trackable is marked fo
 class WrongResolutionConstraintsException : Exception("In the default resolution policy you need to use the DefaultResolutionConstraints.")
 
 class UnknownSetRouteException() : Exception("Setting route failed with an unknown exception.")
+
+class RoutingUnavailableException : Exception("Routing is not available when the lightweight mode is enabled.")
+
+class LocationSourceUnsupportedException : Exception("This location source is not supported when the lightweight mode is enabled.")
+
+class UnsupportedLocationHistoryVersionException(version: Int?) :
+    Exception("Location history version $version is not supported, the supported version is $LOCATION_HISTORY_VERSION.")
@@ -0,0 +1,83 @@
+package com.ably.tracking.publisher
+
+import android.app.Notification
+import android.app.Service
+import android.content.Context
+import android.content.Intent
+import android.os.Build
+import android.os.IBinder
+import androidx.core.content.ContextCompat
+
+/**
+ * An interface which enables keeping the publisher running in the foreground while the app is in the background.
+ */
+internal interface ForegroundTracking {
+    /**
+     * Starts the foreground service and shows its notification.
+     */
+    fun start()
+
+    /**
+     * Stops the foreground service and removes its notification.
+     */
+    fun stop()
+}
+
+/**
+ * The default implementation of the [ForegroundTracking] that uses the [PublisherForegroundService].
+ * It's used when the Mapbox SDK, which provides its own foreground service, is not used.
+ */
+internal class DefaultForegroundTracking(
+    private val context: Context,
+    private val notificationProvider: PublisherNotificationProvider,
+    private val notificationId: Int,
+) : ForegroundTracking {
+    override fun start() {
+        ContextCompat.startForegroundService(
+            context,
+            PublisherForegroundService.createStartIntent(context, notificationId, notificationProvider.getNotification())
+        )
+    }
+
+    override fun stop() {
+        context.stopService(Intent(context, PublisherForegroundService::class.java))
+    }
+}
+
+/**
+ * The foreground service that keeps receiving location updates when the app is in the background.
+ * The notification is passed in the start [Intent] so the service can always call [startForeground], even if it was already stopped,
+ * as otherwise the system would crash the app on Android O and above.
+ */
+internal class PublisherForegroundService : Service() {
+    companion object {
+        private const val EXTRA_NOTIFICATION_ID = "com.ably.tracking.publisher.NOTIFICATION_ID"
+        private const val EXTRA_NOTIFICATION = "com.ably.tracking.publisher.NOTIFICATION"
+
+        fun createStartIntent(context: Context, notificationId: Int, notification: Notification): Intent =
+            Intent(context, PublisherForegroundService::class.java)
+                .putExtra(EXTRA_NOTIFICATION_ID, notificationId)
+                .putExtra(EXTRA_NOTIFICATION, notification)
+    }
+
+    override fun onStartCommand(intent: Intent?, flags: Int, startId: Int): Int {
+        val notification = intent?.let { getNotification(it) }
+        if (intent != null && notification != null) {
+            startForeground(intent.getIntExtra(EXTRA_NOTIFICATION_ID, 0), notification)
+        } else {
+            // The service is started only with the start intent so this should never happen
+            stopSelf()
+        }
+        return START_NOT_STICKY
+    }
+
+    private fun getNotification(intent: Intent): Notification? =
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+            intent.getParcelableExtra(EXTRA_NOTIFICATION, Notification::class.java)
+        } else {
+            @Suppress("DEPRECATION")
+            intent.getParcelableExtra(EXTRA_NOTIFICATION)
+        }
+
+    override fun onBind(intent: Intent?): IBinder? = null
+}
@@ -1,6 +1,5 @@
 package com.ably.tracking.publisher
 
-import com.ably.tracking.EnhancedLocationUpdate
 import com.ably.tracking.Location
 import com.ably.tracking.LocationUpdate
 import com.ably.tracking.Resolution
@@ -20,7 +19,9 @@ private constructor(
     locationEngineResolution: Resolution,
     isLocationEngineResolutionConstant: Boolean,
     areRawLocationsEnabled: Boolean?,
-    enhancedLocationsPublishingState: LocationsPublishingState<EnhancedLocationUpdate>,
+    areLocationUpdatesCombined: Boolean,
+    private val locationTrailRetention: LocationTrailRetention,
+    enhancedLocationsPublishingState: LocationsPublishingState<EnhancedLocationUpdateEvent>,
     rawLocationsPublishingState: LocationsPublishingState<LocationUpdate>,
     trackableRemovalGuard: TrackableRemovalGuard,
     private val updatingResolutions: MutableMap<String, MutableList<Resolution>>,
@@ -34,12 +35,16 @@ private constructor(
         isLocationEngineResolutionConstant: Boolean,
         areRawLocationsEnabled: Boolean?,
         onActiveTrackableUpdated: (Trackable?) -> Unit,
-        onRoutingProfileUpdated: (RoutingProfile) -> Unit
+        onRoutingProfileUpdated: (RoutingProfile) -> Unit,
+        areLocationUpdatesCombined: Boolean = false,
+        locationTrailRetention: LocationTrailRetention = LocationTrailRetention(),
     ) : this(
         routingProfile,
         locationEngineResolution,
         isLocationEngineResolutionConstant,
         areRawLocationsEnabled,
+        areLocationUpdatesCombined,
+        locationTrailRetention,
         LocationsPublishingState(),
         LocationsPublishingState(),
         DefaultTrackableRemovalGuard(),
@@ -83,6 +88,10 @@ private constructor(
         get() = if (isDisposed) throw PublisherPropertiesDisposedException() else field
     val skippedRawLocations: SkippedLocations = SkippedLocations()
         get() = if (isDisposed) throw PublisherPropertiesDisposedException() else field
+    val sentEnhancedLocationsTrail: LocationTrail = LocationTrail(locationTrailRetention)
+        get() = if (isDisposed) throw PublisherPropertiesDisposedException() else field
+    val sentRawLocationsTrail: LocationTrail = LocationTrail(locationTrailRetention)
+        get() = if (isDisposed) throw PublisherPropertiesDisposedException() else field
     var estimatedArrivalTimeInMilliseconds: Long? = null
         get() = if (isDisposed) throw PublisherPropertiesDisposedException() else field
     var lastPublisherLocation: Location? = null
@@ -93,6 +102,10 @@ private constructor(
         get() = if (isDisposed) throw PublisherPropertiesDisposedException() else field
     val requests: MutableMap<String, MutableMap<Subscriber, Resolution>> = mutableMapOf()
         get() = if (isDisposed) throw PublisherPropertiesDisposedException() else field
+    val latestOnlySubscribers: MutableSet<Subscriber> = mutableSetOf()
+        get() = if (isDisposed) throw PublisherPropertiesDisposedException() else field
+    val subscribersWithoutRawLocations: MutableSet<Subscriber> = mutableSetOf()
+        get() = if (isDisposed) throw PublisherPropertiesDisposedException() else field
     var presenceData: PresenceData =
         PresenceData(ClientTypes.PUBLISHER, rawLocations = areRawLocationsEnabled)
         get() = if (isDisposed) throw PublisherPropertiesDisposedException() else field
@@ -110,7 +123,7 @@ private constructor(
         }
     val rawLocationChangedCommands: MutableList<(PublisherProperties) -> Unit> = mutableListOf()
         get() = if (isDisposed) throw PublisherPropertiesDisposedException() else field
-    val enhancedLocationsPublishingState: LocationsPublishingState<EnhancedLocationUpdate> =
+    val enhancedLocationsPublishingState: LocationsPublishingState<EnhancedLocationUpdateEvent> =
         enhancedLocationsPublishingState
         get() = if (isDisposed) throw PublisherPropertiesDisposedException() else field
     val rawLocationsPublishingState: LocationsPublishingState<LocationUpdate> =
@@ -119,6 +132,11 @@ private constructor(
     val trackableRemovalGuard: TrackableRemovalGuard = trackableRemovalGuard
         get() = if (isDisposed) throw PublisherPropertiesDisposedException() else field
     val areRawLocationsEnabled: Boolean = areRawLocationsEnabled ?: false
+
+    /**
+     * Whether the raw locations are sent in the enhanced location updates instead of separate raw location updates.
+     */
+    val areLocationUpdatesCombined: Boolean = this.areRawLocationsEnabled && areLocationUpdatesCombined
     var state: PublisherState = PublisherState.IDLE
         set(value) {
             // Once we stop publisher it should never change its state
@@ -160,6 +178,8 @@ private constructor(
             locationEngineResolution,
             isLocationEngineResolutionConstant,
             areRawLocationsEnabled,
+            areLocationUpdatesCombined,
+            locationTrailRetention,
             enhancedLocationsPublishingState,
             rawLocationsPublishingState,
             trackableRemovalGuard,
@@ -182,11 +202,15 @@ private constructor(
                 it.lastSentRawLocations.putAll(lastSentRawLocations)
                 it.skippedEnhancedLocations.addAll(skippedEnhancedLocations)
                 it.skippedRawLocations.addAll(skippedEnhancedLocations)
+                it.sentEnhancedLocationsTrail.addAll(sentEnhancedLocationsTrail)
+                it.sentRawLocationsTrail.addAll(sentRawLocationsTrail)
                 it.estimatedArrivalTimeInMilliseconds = estimatedArrivalTimeInMilliseconds
                 it.lastPublisherLocation = lastPublisherLocation
                 it.currentDestination = currentDestination
                 it.subscribers.putAll(subscribers)
                 it.requests.putAll(requests)
+                it.latestOnlySubscribers.addAll(latestOnlySubscribers)
+                it.subscribersWithoutRawLocations.addAll(subscribersWithoutRawLocations)
                 it.presenceData = presenceData
                 it.active = active
                 it.rawLocationChangedCommands.addAll(rawLocationChangedCommands)
@@ -208,11 +232,15 @@ private constructor(
         lastSentRawLocations.clear()
         skippedEnhancedLocations.clearAll()
         skippedRawLocations.clearAll()
+        sentEnhancedLocationsTrail.clearAll()
+        sentRawLocationsTrail.clearAll()
         estimatedArrivalTimeInMilliseconds = null
         active = null
         lastPublisherLocation = null
         currentDestination = null
         subscribers.clear()
+        latestOnlySubscribers.clear()
+        subscribersWithoutRawLocations.clear()
         requests.clear()
         rawLocationChangedCommands.clear()
         enhancedLocationsPublishingState.clearAll()
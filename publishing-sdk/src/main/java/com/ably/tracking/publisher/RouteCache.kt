@@ -0,0 +1,95 @@
+package com.ably.tracking.publisher
+
+import com.ably.tracking.Location
+import com.mapbox.geojson.Point
+import kotlin.math.cos
+import kotlin.math.floor
+import kotlin.math.sqrt
+
+/**
+ * The default size, in degrees, of the grid cells used to match route origins. It's about 110 meters of latitude.
+ */
+internal const val DEFAULT_ROUTE_ORIGIN_CELL_SIZE_IN_DEGREES = 0.001
+
+/**
+ * The default maximum number of routes kept in the [RouteCache].
+ */
+internal const val DEFAULT_ROUTE_CACHE_SIZE = 32
+
+/**
+ * The key of a cached route. Routes whose origins are in the same grid cell are treated as the same route.
+ */
+internal data class RouteCacheKey(
+    val originLatitudeCell: Long,
+    val originLongitudeCell: Long,
+    val destination: Destination,
+    val routingProfile: RoutingProfile,
+)
+
+/**
+ * A route with its geometry and duration.
+ *
+ * @param T The type of the route provided by the routing engine.
+ */
+internal data class CachedRoute<T>(
+    val route: T,
+    val geometry: List<Point>,
+    val durationInMilliseconds: Long,
+)
+
+/**
+ * Keeps the recently used routes so that setting the same destination from nearby locations, e.g. for multiple
+ * trackables sharing the destination, doesn't request a new route each time.
+ * When the cache is full the least recently used route is removed.
+ *
+ * This class is not thread safe.
+ */
+internal class RouteCache<T>(
+    private val maximumSize: Int = DEFAULT_ROUTE_CACHE_SIZE,
+    private val originCellSizeInDegrees: Double = DEFAULT_ROUTE_ORIGIN_CELL_SIZE_IN_DEGREES,
+) {
+    private val routes = object : LinkedHashMap<RouteCacheKey, CachedRoute<T>>(maximumSize, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<RouteCacheKey, CachedRoute<T>>?): Boolean =
+            size > maximumSize
+    }
+
+    fun get(origin: Location, destination: Destination, routingProfile: RoutingProfile): CachedRoute<T>? =
+        routes[createKey(origin, destination, routingProfile)]
+
+    fun put(origin: Location, destination: Destination, routingProfile: RoutingProfile, route: CachedRoute<T>) {
+        routes[createKey(origin, destination, routingProfile)] = route
+    }
+
+    private fun createKey(origin: Location, destination: Destination, routingProfile: RoutingProfile) =
+        RouteCacheKey(
+            floor(origin.latitude / originCellSizeInDegrees).toLong(),
+            floor(origin.longitude / originCellSizeInDegrees).toLong(),
+            destination,
+            routingProfile,
+        )
+}
+
+/**
+ * Calculates the distance from the location to the closest segment of the route geometry.
+ * The geometry is projected on a plane tangent at the location (equirectangular projection), which is accurate
+ * for the distances at which a location is considered to be close to the route.
+ *
+ * @return The distance in meters or [Double.POSITIVE_INFINITY] if the [routeGeometry] is empty.
+ */
+internal fun Location.distanceInMetersFromRoute(routeGeometry: List<Point>): Double {
+    if (routeGeometry.isEmpty()) {
+        return Double.POSITIVE_INFINITY
+    }
+    val longitudeScale = cos(Math.toRadians(latitude))
+    var previousX = (routeGeometry[0].longitude() - longitude) * longitudeScale * METERS_PER_DEGREE
+    var previousY = (routeGeometry[0].latitude() - latitude) * METERS_PER_DEGREE
+    var minimumSquaredDistance = previousX * previousX + previousY * previousY
+    for (index in 1 until routeGeometry.size) {
+        val x = (routeGeometry[index].longitude() - longitude) * longitudeScale * METERS_PER_DEGREE
+        val y = (routeGeometry[index].latitude() - latitude) * METERS_PER_DEGREE
+        minimumSquaredDistance = minOf(minimumSquaredDistance, squaredDistanceToSegment(0.0, 0.0, previousX, previousY, x, y))
+        previousX = x
+        previousY = y
+    }
+    return sqrt(minimumSquaredDistance)
+}
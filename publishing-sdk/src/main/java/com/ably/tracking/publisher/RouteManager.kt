@@ -0,0 +1,139 @@
+package com.ably.tracking.publisher
+
+import com.ably.tracking.Location
+import com.ably.tracking.common.ResultCallbackFunction
+import com.ably.tracking.common.logging.createLoggingTag
+import com.ably.tracking.common.logging.v
+import com.ably.tracking.logging.LogHandler
+
+/**
+ * The default width, in meters, of the corridor on each side of the route outside of which the route is recalculated.
+ */
+internal const val DEFAULT_ROUTE_CORRIDOR_WIDTH_IN_METERS = 50.0
+
+/**
+ * The default minimum time between updates of the route duration.
+ */
+internal const val DEFAULT_ROUTE_DURATION_UPDATE_INTERVAL_IN_MILLISECONDS = 5_000L
+
+/**
+ * Requests a route from the [origin] to the [destination] and calls the [callback] with the result.
+ */
+internal typealias RouteRequest<T> = (
+    origin: Location,
+    destination: Destination,
+    routingProfile: RoutingProfile,
+    callback: ResultCallbackFunction<CachedRoute<T>>
+) -> Unit
+
+/**
+ * Manages the active route: reuses routes from the [routeCache], keeps the route duration up to date with the route progress
+ * and recalculates the route only when the location leaves the corridor around it.
+ *
+ * This class is not thread safe, all methods should be called from the same thread.
+ *
+ * @param requestRoute Requests a new route from the routing engine.
+ * @param applyRoute Sets the route as the active route in the navigation engine.
+ */
+internal class RouteManager<T>(
+    private val requestRoute: RouteRequest<T>,
+    private val applyRoute: (T) -> Unit,
+    private val logHandler: LogHandler?,
+    private val timeProvider: TimeProvider = TimeProvider(),
+    private val routeCache: RouteCache<T> = RouteCache(),
+    private val corridorWidthInMeters: Double = DEFAULT_ROUTE_CORRIDOR_WIDTH_IN_METERS,
+    private val routeDurationUpdateInterval: Long = DEFAULT_ROUTE_DURATION_UPDATE_INTERVAL_IN_MILLISECONDS,
+) {
+    private val TAG = createLoggingTag(this)
+    private var activeRoute: ActiveRoute<T>? = null
+
+    /**
+     * Incremented for each route request so that responses for outdated requests can be ignored.
+     */
+    private var routeRequestId = 0
+
+    /**
+     * Sets the route from the [origin] to the [destination]. The [routeDurationCallback] is called with the route duration
+     * when the route is set and then with the remaining duration whenever the route progress or the route changes.
+     */
+    fun setRoute(
+        origin: Location,
+        destination: Destination,
+        routingProfile: RoutingProfile,
+        routeDurationCallback: ResultCallbackFunction<Long>
+    ) {
+        val requestId = ++routeRequestId
+        val route = ActiveRoute<T>(destination, routingProfile, routeDurationCallback)
+        activeRoute = route
+        val cachedRoute = routeCache.get(origin, destination, routingProfile)
+        if (cachedRoute != null) {
+            logHandler?.v("$TAG Using a cached route to: $destination")
+            onRouteReady(route, cachedRoute)
+            return
+        }
+        requestRoute(origin, destination, routingProfile) { result ->
+            if (requestId == routeRequestId) {
+                result.fold(
+                    onSuccess = { newRoute ->
+                        routeCache.put(origin, destination, routingProfile, newRoute)
+                        onRouteReady(route, newRoute)
+                    },
+                    onFailure = { routeDurationCallback(Result.failure(it)) }
+                )
+            }
+        }
+    }
+
+    private fun onRouteReady(route: ActiveRoute<T>, cachedRoute: CachedRoute<T>) {
+        route.cachedRoute = cachedRoute
+        route.lastDurationUpdateTime = timeProvider.getCurrentTime()
+        applyRoute(cachedRoute.route)
+        route.routeDurationCallback(Result.success(cachedRoute.durationInMilliseconds))
+    }
+
+    /**
+     * Removes the active route. Pending route requests are ignored.
+     */
+    fun clearRoute() {
+        routeRequestId++
+        activeRoute = null
+    }
+
+    /**
+     * Recalculates the route from the [location] if it's outside of the corridor around the active route.
+     */
+    fun onLocationChanged(location: Location) {
+        val route = activeRoute ?: return
+        // When the route is not ready yet it's being calculated so there is nothing to check
+        val geometry = route.cachedRoute?.geometry ?: return
+        if (location.distanceInMetersFromRoute(geometry) > corridorWidthInMeters) {
+            logHandler?.v("$TAG Location is off the route, recalculating the route to: ${route.destination}")
+            setRoute(location, route.destination, route.routingProfile, route.routeDurationCallback)
+        }
+    }
+
+    /**
+     * Updates the route duration with the [remainingDurationInMilliseconds] from the route progress,
+     * at most once in the route duration update interval.
+     */
+    fun onRouteProgressChanged(remainingDurationInMilliseconds: Long) {
+        val route = activeRoute ?: return
+        if (route.cachedRoute == null) {
+            return
+        }
+        val currentTime = timeProvider.getCurrentTime()
+        if (currentTime - route.lastDurationUpdateTime >= routeDurationUpdateInterval) {
+            route.lastDurationUpdateTime = currentTime
+            route.routeDurationCallback(Result.success(remainingDurationInMilliseconds))
+        }
+    }
+
+    private class ActiveRoute<T>(
+        val destination: Destination,
+        val routingProfile: RoutingProfile,
+        val routeDurationCallback: ResultCallbackFunction<Long>,
+    ) {
+        var cachedRoute: CachedRoute<T>? = null
+        var lastDurationUpdateTime: Long = 0L
+    }
+}
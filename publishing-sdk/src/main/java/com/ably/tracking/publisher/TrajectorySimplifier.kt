@@ -0,0 +1,69 @@
+package com.ably.tracking.publisher
+
+import com.ably.tracking.Location
+import kotlin.math.cos
+
+/**
+ * Simplifies the [locations] that lie on the trail from the [start] location to the [end] location
+ * with the Douglas-Peucker algorithm. The [start] and [end] locations are used as the fixed ends of the trail
+ * and are not included in the result.
+ *
+ * The locations are projected on a plane tangent at the [end] location (equirectangular projection),
+ * which is accurate for the distances between published locations.
+ *
+ * @param start The location preceding the [locations] on the trail, or null if there isn't one.
+ * @param end The location following the [locations] on the trail.
+ * @param toleranceInMeters The maximum distance between a removed location and the simplified trail.
+ * @return The locations that are kept, in the same order.
+ */
+internal fun simplifyTrajectory(
+    locations: List<Location>,
+    start: Location?,
+    end: Location,
+    toleranceInMeters: Double
+): List<Location> {
+    if (locations.isEmpty() || toleranceInMeters <= 0) {
+        return locations
+    }
+    val trail = ArrayList<Location>(locations.size + 2)
+    start?.let { trail.add(it) }
+    trail.addAll(locations)
+    trail.add(end)
+    val firstLocationIndex = if (start != null) 1 else 0
+    val isKept = findKeptLocations(trail, end, toleranceInMeters * toleranceInMeters)
+    return locations.filterIndexed { index, _ -> isKept[index + firstLocationIndex] }
+}
+
+/**
+ * Runs the Douglas-Peucker algorithm iteratively, so that long trails can't overflow the stack.
+ */
+private fun findKeptLocations(trail: List<Location>, origin: Location, squaredTolerance: Double): BooleanArray {
+    val longitudeScale = cos(Math.toRadians(origin.latitude)) * METERS_PER_DEGREE
+    val x = DoubleArray(trail.size) { (trail[it].longitude - origin.longitude) * longitudeScale }
+    val y = DoubleArray(trail.size) { (trail[it].latitude - origin.latitude) * METERS_PER_DEGREE }
+    val isKept = BooleanArray(trail.size)
+    isKept[0] = true
+    isKept[trail.lastIndex] = true
+    val ranges = ArrayDeque<Pair<Int, Int>>()
+    ranges.addLast(0 to trail.lastIndex)
+    while (ranges.isNotEmpty()) {
+        val (startIndex, endIndex) = ranges.removeLast()
+        var farthestIndex = -1
+        var farthestSquaredDistance = squaredTolerance
+        for (index in startIndex + 1 until endIndex) {
+            val squaredDistance = squaredDistanceToSegment(
+                x[index], y[index], x[startIndex], y[startIndex], x[endIndex], y[endIndex]
+            )
+            if (squaredDistance > farthestSquaredDistance) {
+                farthestIndex = index
+                farthestSquaredDistance = squaredDistance
+            }
+        }
+        if (farthestIndex != -1) {
+            isKept[farthestIndex] = true
+            ranges.addLast(startIndex to farthestIndex)
+            ranges.addLast(farthestIndex to endIndex)
+        }
+    }
+    return isKept
+}
@@ -0,0 +1,136 @@
+package com.ably.tracking.publisher
+
+import com.mapbox.navigation.core.history.MapboxHistoryReader
+import com.mapbox.navigation.core.history.MapboxHistoryRecorder
+import com.mapbox.navigation.core.replay.history.ReplayHistoryMapper
+import java.io.File
+
+/**
+ * Records the trip history with the [historyRecorder] in consecutive segments and keeps only the segments that are
+ * within the limits of the [recording] configuration. Files of the removed segments are deleted.
+ *
+ * This class is not thread safe, it should be used from the same thread as the [historyRecorder] (the main thread).
+ */
+internal class TripHistoryRecorder(
+    private val historyRecorder: MapboxHistoryRecorder,
+    private val recording: TripHistoryRecording,
+    private val timeProvider: TimeProvider = TimeProvider(),
+    private val getFileSize: (String) -> Long = { File(it).length() },
+    private val deleteFile: (String) -> Unit = { File(it).delete() },
+) {
+    private val segments = mutableListOf<TripHistorySegment>()
+    private var currentSegmentStartTime: Long? = null
+    private var pendingSegmentsCount = 0
+    private var onStoppedCallback: ((List<String>) -> Unit)? = null
+
+    /**
+     * The duration of a single segment or null if the history should be recorded in a single segment.
+     */
+    val segmentDuration: Long?
+        get() = if (recording.isBounded) recording.segmentDuration else null
+
+    /**
+     * Starts recording a new segment if the recording is not already started.
+     */
+    fun start() {
+        if (currentSegmentStartTime == null) {
+            historyRecorder.startRecording()
+            currentSegmentStartTime = timeProvider.getCurrentTime()
+        }
+    }
+
+    /**
+     * Finishes the current segment and starts recording the next one. Does nothing if the recording is not started.
+     */
+    fun startNextSegment() {
+        if (currentSegmentStartTime != null) {
+            stopCurrentSegment()
+            start()
+        }
+    }
+
+    /**
+     * Stops the recording and calls the [onStopped] callback with the file paths of the kept segments, from the oldest to the newest.
+     */
+    fun stop(onStopped: (List<String>) -> Unit) {
+        onStoppedCallback = onStopped
+        stopCurrentSegment()
+        notifyStoppedIfPossible()
+    }
+
+    private fun stopCurrentSegment() {
+        val startTime = currentSegmentStartTime ?: return
+        currentSegmentStartTime = null
+        pendingSegmentsCount++
+        historyRecorder.stopRecording { filepath ->
+            pendingSegmentsCount--
+            if (filepath != null) {
+                segments.add(TripHistorySegment(filepath, startTime, timeProvider.getCurrentTime(), getFileSize(filepath)))
+                segments.sortBy { it.startTime }
+                removeSegmentsOutsideOfLimits()
+            }
+            notifyStoppedIfPossible()
+        }
+    }
+
+    private fun notifyStoppedIfPossible() {
+        val callback = onStoppedCallback
+        if (callback != null && pendingSegmentsCount == 0 && currentSegmentStartTime == null) {
+            onStoppedCallback = null
+            callback(segments.map { it.filepath })
+            segments.clear()
+        }
+    }
+
+    private fun removeSegmentsOutsideOfLimits() {
+        recording.maximumDuration?.let { maximumDuration ->
+            val oldestKeptTime = timeProvider.getCurrentTime() - maximumDuration
+            while (segments.size > 1 && segments.first().endTime < oldestKeptTime) {
+                removeOldestSegment()
+            }
+        }
+        recording.maximumSize?.let { maximumSize ->
+            while (segments.size > 1 && segments.sumOf { it.sizeInBytes } > maximumSize) {
+                removeOldestSegment()
+            }
+        }
+    }
+
+    private fun removeOldestSegment() {
+        deleteFile(segments.removeAt(0).filepath)
+    }
+}
+
+private data class TripHistorySegment(
+    val filepath: String,
+    val startTime: Long,
+    val endTime: Long,
+    val sizeInBytes: Long,
+)
+
+/**
+ * Reads the events from the history files into the [LocationHistoryData].
+ * All the events of the trip are held in memory, so the [exportLocationHistory] should be used for long trips.
+ * This can take a long time for a long trip so it should not be called from the main thread.
+ */
+internal fun readLocationHistory(historyFilepaths: List<String>): LocationHistoryData =
+    LocationHistoryData(readLocationHistoryEvents(historyFilepaths).toList())
+
+/**
+ * Reads the history files one event at a time and writes them with the [LocationHistoryWriter] configured by the [export],
+ * so the memory usage doesn't depend on the trip length.
+ * This can take a long time for a long trip so it should not be called from the main thread.
+ */
+internal fun exportLocationHistory(historyFilepaths: List<String>, export: LocationHistoryExport) {
+    LocationHistoryWriter(export.outputStreamProvider(), export.isGzipEnabled, export.chunkSize).use { writer ->
+        writer.writeAll(readLocationHistoryEvents(historyFilepaths))
+    }
+}
+
+private fun readLocationHistoryEvents(historyFilepaths: List<String>): Sequence<GeoJsonMessage> {
+    val historyMapper = ReplayHistoryMapper.Builder().build()
+    return historyFilepaths.asSequence()
+        .flatMap { MapboxHistoryReader(it).asSequence() }
+        .mapNotNull { historyMapper.mapToReplayEvent(it) }
+        .toGeoJsonMessages()
+}
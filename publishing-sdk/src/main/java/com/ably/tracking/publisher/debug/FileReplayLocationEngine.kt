@@ -0,0 +1,56 @@
+package com.ably.tracking.publisher.debug
+
+import android.os.Looper
+import com.ably.tracking.common.logging.e
+import com.ably.tracking.common.logging.v
+import com.ably.tracking.logging.LogHandler
+import com.ably.tracking.publisher.LocationHistoryReader
+import com.ably.tracking.publisher.LocationSourceFile
+import com.mapbox.android.core.location.LocationEngineCallback
+import com.mapbox.android.core.location.LocationEngineRequest
+import com.mapbox.android.core.location.LocationEngineResult
+import java.util.concurrent.atomic.AtomicBoolean
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.launch
+
+/**
+ * The location engine that replays the location history from the [LocationSourceFile].
+ * The replay starts when location updates are requested for the first time.
+ */
+internal class FileReplayLocationEngine(
+    private val locationSource: LocationSourceFile,
+    logHandler: LogHandler?,
+    private val scope: CoroutineScope = CoroutineScope(Dispatchers.IO + SupervisorJob()),
+) : BaseLocationEngine(logHandler) {
+    private val isReplayStarted = AtomicBoolean(false)
+    private val replayer = LocationHistoryReplayer(
+        openReader = { LocationHistoryReader(locationSource.file.inputStream(), locationSource.isGzipEnabled) },
+        control = locationSource.replayControl,
+    )
+
+    override fun requestLocationUpdates(
+        request: LocationEngineRequest,
+        callback: LocationEngineCallback<LocationEngineResult>,
+        looper: Looper?
+    ) {
+        super.requestLocationUpdates(request, callback, looper)
+        if (isReplayStarted.compareAndSet(false, true)) {
+            startReplay()
+        }
+    }
+
+    private fun startReplay() {
+        scope.launch {
+            try {
+                logHandler?.v("Start replaying locations from ${locationSource.file}")
+                replayer.replay { onLocationEngineResult(LocationEngineResult.create(it.toAndroid())) }
+                logHandler?.v("Finished replaying locations from ${locationSource.file}")
+                locationSource.onDataEnded?.invoke()
+            } catch (exception: Exception) {
+                logHandler?.e("Replaying locations from ${locationSource.file} failed", exception)
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.ably.tracking.publisher.debug
+
+import com.ably.tracking.Location
+import com.ably.tracking.common.MILLISECONDS_PER_SECOND
+import com.ably.tracking.common.message.GEOMETRY_ALT_INDEX
+import com.ably.tracking.common.message.GEOMETRY_LAT_INDEX
+import com.ably.tracking.common.message.GEOMETRY_LONG_INDEX
+import com.ably.tracking.publisher.GeoJsonMessage
+import com.ably.tracking.publisher.LocationHistoryReader
+import com.ably.tracking.publisher.LocationReplayControl
+import com.ably.tracking.publisher.TimeProvider
+import kotlinx.coroutines.delay
+
+/**
+ * The longest time the replayer waits without checking the [LocationReplayControl] for changes.
+ */
+private const val MAXIMUM_WAIT_STEP_IN_MILLISECONDS = 100.0
+
+/**
+ * Replays the location history read from the readers created by [openReader], one event at a time,
+ * keeping the time gaps between the events divided by the [LocationReplayControl.speedMultiplier].
+ * Seeking backwards opens a new reader and skips the events from the beginning of the history.
+ */
+internal class LocationHistoryReplayer(
+    private val openReader: () -> LocationHistoryReader,
+    private val control: LocationReplayControl,
+    private val timeProvider: TimeProvider = TimeProvider(),
+) {
+    /**
+     * Replays the whole history and returns when the last location was replayed.
+     *
+     * @param onLocation Called with each replayed location.
+     */
+    suspend fun replay(onLocation: (Location) -> Unit) {
+        var reader = openReader()
+        try {
+            var event = reader.readEvent()
+            val firstEventTime = event?.timeInMilliseconds ?: return
+            var previousEventTime: Long? = null
+            while (event != null) {
+                val eventTime = event.timeInMilliseconds
+                val seekOffset = control.takePendingSeekOffset()
+                if (seekOffset != null) {
+                    val seekTime = firstEventTime + seekOffset
+                    if (seekTime < eventTime) {
+                        reader.close()
+                        reader = openReader()
+                        event = reader.skipEventsBefore(seekTime, reader.readEvent())
+                    } else {
+                        event = reader.skipEventsBefore(seekTime, event)
+                    }
+                    previousEventTime = null
+                    continue
+                }
+                if (previousEventTime != null && !waitFor(eventTime - previousEventTime)) {
+                    // A seek was requested while waiting so it's handled before replaying the event
+                    continue
+                }
+                onLocation(event.toLocation(timeProvider.getCurrentTime()))
+                previousEventTime = eventTime
+                event = reader.readEvent()
+            }
+        } finally {
+            reader.close()
+        }
+    }
+
+    /**
+     * Waits for the [historyDuration] divided by the current speed multiplier.
+     *
+     * @return False if the waiting was interrupted by a seek request.
+     */
+    private suspend fun waitFor(historyDuration: Long): Boolean {
+        var remainingHistoryDuration = historyDuration.toDouble()
+        while (remainingHistoryDuration > 0) {
+            if (control.hasPendingSeek) {
+                return false
+            }
+            val speedMultiplier = control.speedMultiplier
+            val waitStep = minOf(remainingHistoryDuration / speedMultiplier, MAXIMUM_WAIT_STEP_IN_MILLISECONDS)
+            delay(waitStep.toLong())
+            remainingHistoryDuration -= waitStep * speedMultiplier
+        }
+        return !control.hasPendingSeek
+    }
+
+    private fun LocationHistoryReader.skipEventsBefore(time: Long, firstEvent: GeoJsonMessage?): GeoJsonMessage? {
+        var event = firstEvent
+        while (event != null && event.timeInMilliseconds < time) {
+            event = readEvent()
+        }
+        return event
+    }
+
+    private val GeoJsonMessage.timeInMilliseconds: Long
+        get() = (properties.time * MILLISECONDS_PER_SECOND).toLong()
+
+    private fun GeoJsonMessage.toLocation(time: Long): Location =
+        Location(
+            latitude = geometry.coordinates[GEOMETRY_LAT_INDEX],
+            longitude = geometry.coordinates[GEOMETRY_LONG_INDEX],
+            altitude = geometry.coordinates[GEOMETRY_ALT_INDEX],
+            accuracy = properties.accuracyHorizontal,
+            bearing = properties.bearing,
+            speed = properties.speed,
+            time = time
+        )
+}
@@ -7,31 +7,51 @@ import android.location.Criteria
 import android.location.Location
 import android.location.LocationListener
 import android.location.LocationManager
+import android.location.LocationRequest
+import android.os.Build
 import android.os.Bundle
+import android.os.Handler
 import android.os.Looper
+import androidx.annotation.RequiresApi
 import com.ably.tracking.Resolution
 import com.ably.tracking.common.MILLISECONDS_PER_SECOND
 import com.ably.tracking.common.logging.d
 import com.ably.tracking.common.logging.e
 import com.ably.tracking.logging.LogHandler
+import com.ably.tracking.publisher.LocationBatching
 import com.mapbox.android.core.location.LocationEngineCallback
 import com.mapbox.android.core.location.LocationEngineRequest
 import com.mapbox.android.core.location.LocationEngineResult
 
+/**
+ * Location engine based on the Android [LocationManager].
+ *
+ * @param locationLooper If set, location updates from the [LocationManager] are received on this looper
+ * and only the resulting callback is delivered on the looper passed to [requestLocationUpdates].
+ * @param locationBatching If set, locations are requested in batches when the resolution allows it.
+ * Batching is supported from Android 12 (API level 31), on older versions locations are always requested one by one.
+ */
 open class FusedAndroidLocationEngine(
     context: Context,
-    private val logHandler: LogHandler?
+    private val logHandler: LogHandler?,
+    private val locationLooper: Looper? = null,
+    private val locationBatching: LocationBatching? = null,
 ) : ResolutionLocationEngine {
-    private val listeners: MutableMap<LocationEngineCallback<LocationEngineResult>, LocationListener> = mutableMapOf()
+    private val listeners: MutableMap<LocationEngineCallback<LocationEngineResult>, LocationListenerWrapper> = mutableMapOf()
     private val locationManager = context.getSystemService(Context.LOCATION_SERVICE) as LocationManager
     private val DEFAULT_PROVIDER = LocationManager.PASSIVE_PROVIDER
     private var currentProvider = DEFAULT_PROVIDER
 
+    @Volatile
+    internal var precedingBatchLocationsListener: PrecedingBatchLocationsListener? = null
+
     @SuppressLint("MissingPermission")
     override fun changeResolution(resolution: Resolution) {
-        val request = resolution.toLocationEngineRequest()
+        val request = resolution.toLocationEngineRequest(locationBatching)
         listeners.values.forEach { locationManager.removeUpdates(it) }
-        listeners.keys.forEach { requestLocationUpdates(request, it, Looper.getMainLooper()) }
+        listeners.toMap().forEach { (callback, listener) ->
+            requestLocationUpdates(request, callback, listener.callbackLooper)
+        }
     }
 
     override fun getLastLocation(callback: LocationEngineCallback<LocationEngineResult>) {
@@ -72,22 +92,58 @@ open class FusedAndroidLocationEngine(
         looper: Looper?
     ) {
         currentProvider = getBestProvider(request.priority)
-        val listener = getListenerForCallback(callback)
-        locationManager.requestLocationUpdates(
-            currentProvider, request.interval, request.displacement, listener, looper
-        )
+        val listener = getListenerForCallback(callback, looper)
+        val listenerLooper = locationLooper ?: looper
+        requestLocationUpdatesFromProvider(currentProvider, request, listener, listenerLooper)
 
         if (shouldStartNetworkProvider(request.priority)) {
             try {
-                locationManager.requestLocationUpdates(
-                    LocationManager.NETWORK_PROVIDER, request.interval, request.displacement, listener, looper
-                )
+                requestLocationUpdatesFromProvider(LocationManager.NETWORK_PROVIDER, request, listener, listenerLooper)
             } catch (exception: IllegalArgumentException) {
                 logHandler?.e(exception)
             }
         }
     }
 
+    @SuppressLint("MissingPermission")
+    private fun requestLocationUpdatesFromProvider(
+        provider: String,
+        request: LocationEngineRequest,
+        listener: LocationListener,
+        looper: Looper?
+    ) {
+        if (request.maxWaitTime > 0 && Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+            requestBatchedLocationUpdatesFromProvider(provider, request, listener, looper)
+        } else {
+            locationManager.requestLocationUpdates(provider, request.interval, request.displacement, listener, looper)
+        }
+    }
+
+    @RequiresApi(Build.VERSION_CODES.S)
+    @SuppressLint("MissingPermission")
+    private fun requestBatchedLocationUpdatesFromProvider(
+        provider: String,
+        request: LocationEngineRequest,
+        listener: LocationListener,
+        looper: Looper?
+    ) {
+        val locationRequest = LocationRequest.Builder(request.interval)
+            .setMinUpdateDistanceMeters(request.displacement)
+            .setMaxUpdateDelayMillis(request.maxWaitTime)
+            .setQuality(priorityToQuality(request.priority))
+            .build()
+        val handler = Handler(looper ?: Looper.myLooper() ?: Looper.getMainLooper())
+        locationManager.requestLocationUpdates(provider, locationRequest, { handler.post(it) }, listener)
+    }
+
+    @RequiresApi(Build.VERSION_CODES.S)
+    private fun priorityToQuality(priority: Int): Int =
+        when (priority) {
+            LocationEngineRequest.PRIORITY_HIGH_ACCURACY -> LocationRequest.QUALITY_HIGH_ACCURACY
+            LocationEngineRequest.PRIORITY_BALANCED_POWER_ACCURACY -> LocationRequest.QUALITY_BALANCED_POWER_ACCURACY
+            else -> LocationRequest.QUALITY_LOW_POWER
+        }
+
     @SuppressLint("MissingPermission")
     override fun requestLocationUpdates(request: LocationEngineRequest, pendingIntent: PendingIntent?) {
         pendingIntent?.let {
@@ -150,18 +206,44 @@ open class FusedAndroidLocationEngine(
         pendingIntent?.let { locationManager.removeUpdates(it) }
     }
 
-    private fun getListenerForCallback(callback: LocationEngineCallback<LocationEngineResult>): LocationListener =
-        listeners[callback] ?: LocationListenerWrapper(callback).apply { listeners[callback] = this }
+    private fun getListenerForCallback(
+        callback: LocationEngineCallback<LocationEngineResult>,
+        callbackLooper: Looper?
+    ): LocationListenerWrapper =
+        listeners[callback] ?: LocationListenerWrapper(callback, callbackLooper).apply { listeners[callback] = this }
 
-    private inner class LocationListenerWrapper(private val callback: LocationEngineCallback<LocationEngineResult>?) :
-        LocationListener {
+    private inner class LocationListenerWrapper(
+        private val callback: LocationEngineCallback<LocationEngineResult>,
+        val callbackLooper: Looper?
+    ) : LocationListener {
         private var currentBestLocation: Location? = null
+        private val callbackHandler: Handler? =
+            if (locationLooper != null && callbackLooper != null && callbackLooper != locationLooper) Handler(callbackLooper)
+            else null
 
         override fun onLocationChanged(location: Location) {
             if (isNewLocationBetter(location, currentBestLocation)) {
                 currentBestLocation = location
             }
-            callback?.onSuccess(LocationEngineResult.create(currentBestLocation))
+            val result = LocationEngineResult.create(currentBestLocation)
+            if (callbackHandler != null) {
+                callbackHandler.post {
+                    // The callback could have been removed while this update was waiting for the callback looper
+                    if (listeners[callback] === this) {
+                        callback.onSuccess(result)
+                    }
+                }
+            } else {
+                callback.onSuccess(result)
+            }
+        }
+
+        override fun onLocationChanged(locations: MutableList<Location>) {
+            // Only the latest location of a batch is passed to the callback as the Mapbox SDK ignores the other ones
+            if (locations.size > 1) {
+                precedingBatchLocationsListener?.invoke(locations.subList(0, locations.size - 1).toList())
+            }
+            locations.lastOrNull()?.let { onLocationChanged(it) }
         }
 
         override fun onStatusChanged(provider: String, status: Int, extras: Bundle) {
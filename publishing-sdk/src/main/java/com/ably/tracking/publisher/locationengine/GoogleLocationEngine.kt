@@ -4,8 +4,10 @@ import android.annotation.SuppressLint
 import android.app.PendingIntent
 import android.content.Context
 import android.location.Location
+import android.os.Handler
 import android.os.Looper
 import com.ably.tracking.Resolution
+import com.ably.tracking.publisher.LocationBatching
 import com.google.android.gms.location.LocationCallback
 import com.google.android.gms.location.LocationRequest
 import com.google.android.gms.location.LocationResult
@@ -16,15 +18,31 @@ import com.mapbox.android.core.location.LocationEngineCallback
 import com.mapbox.android.core.location.LocationEngineRequest
 import com.mapbox.android.core.location.LocationEngineResult
 
-class GoogleLocationEngine(context: Context) : ResolutionLocationEngine {
-    private val listeners: MutableMap<LocationEngineCallback<LocationEngineResult>, LocationCallback> = mutableMapOf()
+/**
+ * Location engine based on the Google Play services [LocationServices].
+ *
+ * @param locationLooper If set, location results from the fused location provider are received on this looper
+ * and only the resulting callback is delivered on the looper passed to [requestLocationUpdates].
+ * @param locationBatching If set, locations are requested in batches when the resolution allows it.
+ */
+class GoogleLocationEngine(
+    context: Context,
+    private val locationLooper: Looper? = null,
+    private val locationBatching: LocationBatching? = null,
+) : ResolutionLocationEngine {
+    private val listeners: MutableMap<LocationEngineCallback<LocationEngineResult>, LocationCallbackWrapper> = mutableMapOf()
     private val fusedLocationProviderClient = LocationServices.getFusedLocationProviderClient(context)
 
+    @Volatile
+    internal var precedingBatchLocationsListener: PrecedingBatchLocationsListener? = null
+
     @SuppressLint("MissingPermission")
     override fun changeResolution(resolution: Resolution) {
-        val request = resolution.toLocationEngineRequest()
+        val request = resolution.toLocationEngineRequest(locationBatching)
         listeners.values.forEach { fusedLocationProviderClient.removeLocationUpdates(it) }
-        listeners.keys.forEach { requestLocationUpdates(request, it, Looper.getMainLooper()) }
+        listeners.toMap().forEach { (callback, listener) ->
+            requestLocationUpdates(request, callback, listener.callbackLooper)
+        }
     }
 
     @SuppressLint("MissingPermission")
@@ -41,8 +59,8 @@ class GoogleLocationEngine(context: Context) : ResolutionLocationEngine {
     ) {
         fusedLocationProviderClient.requestLocationUpdates(
             toGMSLocationRequest(request),
-            getListenerForCallback(callback),
-            looper
+            getListenerForCallback(callback, looper),
+            locationLooper ?: looper
         )
     }
 
@@ -64,8 +82,11 @@ class GoogleLocationEngine(context: Context) : ResolutionLocationEngine {
         pendingIntent?.let { fusedLocationProviderClient.removeLocationUpdates(it) }
     }
 
-    private fun getListenerForCallback(callback: LocationEngineCallback<LocationEngineResult>): LocationCallback =
-        listeners[callback] ?: LocationCallbackWrapper(callback).apply { listeners[callback] = this }
+    private fun getListenerForCallback(
+        callback: LocationEngineCallback<LocationEngineResult>,
+        callbackLooper: Looper?
+    ): LocationCallbackWrapper =
+        listeners[callback] ?: LocationCallbackWrapper(callback, callbackLooper).apply { listeners[callback] = this }
 
     @SuppressLint("VisibleForTests")
     private fun toGMSLocationRequest(request: LocationEngineRequest): LocationRequest =
@@ -85,11 +106,22 @@ class GoogleLocationEngine(context: Context) : ResolutionLocationEngine {
             else -> LocationRequest.PRIORITY_NO_POWER
         }
 
-    private class LocationCallbackWrapper(private val callback: LocationEngineCallback<LocationEngineResult>) :
-        LocationCallback() {
+    private inner class LocationCallbackWrapper(
+        private val callback: LocationEngineCallback<LocationEngineResult>,
+        val callbackLooper: Looper?
+    ) : LocationCallback() {
+        private val callbackHandler: Handler? =
+            if (locationLooper != null && callbackLooper != null && callbackLooper != locationLooper) Handler(callbackLooper)
+            else null
+
         override fun onLocationResult(locationResult: LocationResult) {
             super.onLocationResult(locationResult)
-            locationResult.locations.let { locations ->
+            val locations = locationResult.locations
+            // The Mapbox SDK only uses the latest location of a batch so the other ones are delivered separately
+            if (locations.size > 1) {
+                precedingBatchLocationsListener?.invoke(locations.subList(0, locations.size - 1).toList())
+            }
+            deliver {
                 if (locations.isNotEmpty()) {
                     callback.onSuccess(LocationEngineResult.create(locations))
                 } else {
@@ -97,6 +129,19 @@ class GoogleLocationEngine(context: Context) : ResolutionLocationEngine {
                 }
             }
         }
+
+        private fun deliver(action: () -> Unit) {
+            if (callbackHandler != null) {
+                callbackHandler.post {
+                    // The callback could have been removed while this result was waiting for the callback looper
+                    if (listeners[callback] === this) {
+                        action()
+                    }
+                }
+            } else {
+                action()
+            }
+        }
     }
 
     internal class LastLocationListenersWrapper(private val callback: LocationEngineCallback<LocationEngineResult>) :
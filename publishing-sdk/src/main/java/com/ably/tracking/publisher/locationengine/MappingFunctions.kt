@@ -2,12 +2,14 @@ package com.ably.tracking.publisher.locationengine
 
 import com.ably.tracking.Accuracy
 import com.ably.tracking.Resolution
+import com.ably.tracking.publisher.LocationBatching
 import com.mapbox.android.core.location.LocationEngineRequest
 
-internal fun Resolution.toLocationEngineRequest(): LocationEngineRequest =
+internal fun Resolution.toLocationEngineRequest(locationBatching: LocationBatching? = null): LocationEngineRequest =
     LocationEngineRequest.Builder(desiredInterval)
         .setDisplacement(minimumDisplacement.toFloat())
         .setPriority(getPriority())
+        .setMaxWaitTime(getMaxWaitTime(locationBatching))
         .build()
 
 private fun Resolution.getPriority(): Int =
@@ -18,3 +20,13 @@ private fun Resolution.getPriority(): Int =
         Accuracy.HIGH -> LocationEngineRequest.PRIORITY_HIGH_ACCURACY
         Accuracy.MAXIMUM -> LocationEngineRequest.PRIORITY_HIGH_ACCURACY
     }
+
+/**
+ * Returns the maximum time for which locations can be batched, or 0 if locations should not be batched.
+ */
+private fun Resolution.getMaxWaitTime(locationBatching: LocationBatching?): Long =
+    if (locationBatching != null && locationBatching.maximumBatchSize > 1 && desiredInterval >= locationBatching.minimumDesiredInterval) {
+        desiredInterval * locationBatching.maximumBatchSize
+    } else {
+        0L
+    }
@@ -1,8 +1,16 @@
 package com.ably.tracking.publisher.locationengine
 
+import android.location.Location
 import com.ably.tracking.Resolution
 import com.mapbox.android.core.location.LocationEngine
 
 interface ResolutionLocationEngine : LocationEngine {
     fun changeResolution(resolution: Resolution)
 }
+
+/**
+ * Called with the locations from a batch that precede its latest location.
+ * The Mapbox SDK only uses the latest location from each location engine result, so the preceding locations
+ * have to be delivered separately to not lose them.
+ */
+internal typealias PrecedingBatchLocationsListener = (List<Location>) -> Unit
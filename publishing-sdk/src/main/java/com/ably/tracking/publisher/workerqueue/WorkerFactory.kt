@@ -32,6 +32,7 @@ import com.ably.tracking.publisher.workerqueue.workers.DestinationSetWorker
 import com.ably.tracking.publisher.workerqueue.workers.DisconnectSuccessWorker
 import com.ably.tracking.publisher.workerqueue.workers.EnhancedLocationChangedWorker
 import com.ably.tracking.publisher.workerqueue.workers.EnterPresenceSuccessWorker
+import com.ably.tracking.publisher.workerqueue.workers.PrecedingBatchLocationsChangedWorker
 import com.ably.tracking.publisher.workerqueue.workers.PresenceMessageWorker
 import com.ably.tracking.publisher.workerqueue.workers.RawLocationChangedWorker
 import com.ably.tracking.publisher.workerqueue.workers.RefreshResolutionPolicyWorker
@@ -44,6 +45,7 @@ import com.ably.tracking.publisher.workerqueue.workers.SendEnhancedLocationSucce
 import com.ably.tracking.publisher.workerqueue.workers.SendRawLocationFailureWorker
 import com.ably.tracking.publisher.workerqueue.workers.SendRawLocationSuccessWorker
 import com.ably.tracking.publisher.workerqueue.workers.SetActiveTrackableWorker
+import com.ably.tracking.publisher.workerqueue.workers.StartLocationUpdatesFailureWorker
 import com.ably.tracking.publisher.workerqueue.workers.StopWorker
 import com.ably.tracking.publisher.workerqueue.workers.StoppingConnectionFinishedWorker
 import com.ably.tracking.publisher.workerqueue.workers.TrackableRemovalRequestedWorker
@@ -156,6 +158,7 @@ internal class WorkerFactory(
                 logHandler,
             )
             is WorkerSpecification.DestinationSet -> DestinationSetWorker(
+                workerSpecification.destination,
                 workerSpecification.routeDurationInMilliseconds,
                 timeProvider,
             )
@@ -166,6 +169,11 @@ internal class WorkerFactory(
                 publisherInteractor,
                 logHandler,
             )
+            is WorkerSpecification.PrecedingBatchLocationsChanged -> PrecedingBatchLocationsChangedWorker(
+                workerSpecification.rawLocations,
+                publisherInteractor,
+                logHandler,
+            )
             is WorkerSpecification.PresenceMessage -> PresenceMessageWorker(
                 workerSpecification.trackable,
                 workerSpecification.presenceMessage,
@@ -174,6 +182,7 @@ internal class WorkerFactory(
             is WorkerSpecification.RawLocationChanged -> RawLocationChangedWorker(
                 workerSpecification.location,
                 publisherInteractor,
+                mapbox,
                 logHandler,
             )
             WorkerSpecification.RefreshResolutionPolicy -> RefreshResolutionPolicyWorker(
@@ -189,12 +198,14 @@ internal class WorkerFactory(
                 workerSpecification.locationUpdate,
                 workerSpecification.trackableId,
                 workerSpecification.exception,
+                workerSpecification.rawLocation,
                 publisherInteractor,
                 logHandler,
             )
             is WorkerSpecification.SendEnhancedLocationSuccess -> SendEnhancedLocationSuccessWorker(
                 workerSpecification.location,
                 workerSpecification.trackableId,
+                workerSpecification.isTrailOmitted,
                 publisherInteractor,
                 logHandler,
             )
@@ -208,6 +219,7 @@ internal class WorkerFactory(
             is WorkerSpecification.SendRawLocationSuccess -> SendRawLocationSuccessWorker(
                 workerSpecification.location,
                 workerSpecification.trackableId,
+                workerSpecification.isTrailOmitted,
                 publisherInteractor,
                 logHandler,
             )
@@ -217,6 +229,9 @@ internal class WorkerFactory(
                 publisherInteractor,
                 hooks,
             )
+            is WorkerSpecification.StartLocationUpdatesFailure -> StartLocationUpdatesFailureWorker(
+                workerSpecification.exception,
+            )
             is WorkerSpecification.Stop -> StopWorker(
                 workerSpecification.callbackFunction,
                 ably,
@@ -287,6 +302,7 @@ internal sealed class WorkerSpecification {
     ) : WorkerSpecification()
 
     data class DestinationSet(
+        val destination: Destination,
         val routeDurationInMilliseconds: Long,
     ) : WorkerSpecification()
 
@@ -301,6 +317,10 @@ internal sealed class WorkerSpecification {
         val type: LocationUpdateType,
     ) : WorkerSpecification()
 
+    data class PrecedingBatchLocationsChanged(
+        val rawLocations: List<Location>,
+    ) : WorkerSpecification()
+
     data class PresenceMessage(
         val trackable: Trackable,
         val presenceMessage: com.ably.tracking.common.PresenceMessage,
@@ -321,11 +341,13 @@ internal sealed class WorkerSpecification {
         val locationUpdate: EnhancedLocationUpdate,
         val trackableId: String,
         val exception: Throwable?,
+        val rawLocation: Location? = null,
     ) : WorkerSpecification()
 
     data class SendEnhancedLocationSuccess(
         val location: Location,
         val trackableId: String,
+        val isTrailOmitted: Boolean = false,
     ) : WorkerSpecification()
 
     data class SendRawLocationFailure(
@@ -337,6 +359,7 @@ internal sealed class WorkerSpecification {
     data class SendRawLocationSuccess(
         val location: Location,
         val trackableId: String,
+        val isTrailOmitted: Boolean = false,
     ) : WorkerSpecification()
 
     data class SetActiveTrackable(
@@ -344,6 +367,10 @@ internal sealed class WorkerSpecification {
         val callbackFunction: ResultCallbackFunction<Unit>,
     ) : WorkerSpecification()
 
+    data class StartLocationUpdatesFailure(
+        val exception: Throwable,
+    ) : WorkerSpecification()
+
     data class Stop(
         val callbackFunction: ResultCallbackFunction<Unit>,
     ) : WorkerSpecification()
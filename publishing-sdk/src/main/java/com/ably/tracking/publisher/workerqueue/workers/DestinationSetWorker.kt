@@ -2,10 +2,16 @@ package com.ably.tracking.publisher.workerqueue.workers
 
 import com.ably.tracking.common.TimeProvider
 import com.ably.tracking.common.workerqueue.DefaultWorker
+import com.ably.tracking.publisher.Destination
 import com.ably.tracking.publisher.PublisherProperties
 import com.ably.tracking.publisher.workerqueue.WorkerSpecification
 
+/**
+ * Updates the estimated arrival time with the route duration to the [destination].
+ * The route duration is ignored if the [destination] is no longer the current destination, as it's then outdated.
+ */
 internal class DestinationSetWorker(
+    private val destination: Destination,
     private val routeDurationInMilliseconds: Long,
     private val timeProvider: TimeProvider,
 ) : DefaultWorker<PublisherProperties, WorkerSpecification>() {
@@ -15,8 +21,10 @@ internal class DestinationSetWorker(
         doAsyncWork: (suspend () -> Unit) -> Unit,
         postWork: (WorkerSpecification) -> Unit
     ): PublisherProperties {
-        properties.estimatedArrivalTimeInMilliseconds =
-            timeProvider.getCurrentTimeInMilliseconds() + routeDurationInMilliseconds
+        if (properties.currentDestination == destination) {
+            properties.estimatedArrivalTimeInMilliseconds =
+                timeProvider.getCurrentTimeInMilliseconds() + routeDurationInMilliseconds
+        }
         return properties
     }
 }
@@ -82,6 +82,8 @@ internal class DisconnectSuccessWorker(
         properties.lastSentRawLocations.remove(trackable.id)
         properties.skippedEnhancedLocations.clear(trackable.id)
         properties.skippedRawLocations.clear(trackable.id)
+        properties.sentEnhancedLocationsTrail.clear(trackable.id)
+        properties.sentRawLocationsTrail.clear(trackable.id)
         properties.enhancedLocationsPublishingState.clear(trackable.id)
         properties.rawLocationsPublishingState.clear(trackable.id)
     }
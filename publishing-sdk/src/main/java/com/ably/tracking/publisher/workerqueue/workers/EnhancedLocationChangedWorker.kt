@@ -27,11 +27,14 @@ internal class EnhancedLocationChangedWorker(
     ): PublisherProperties {
         logHandler?.v("$TAG Enhanced location changed event received $location")
         val enhancedLocationUpdate = EnhancedLocationUpdate(location, emptyList(), intermediateLocations, type)
+        // The raw location is captured now, so that a waiting or retried update is sent with the raw location of its time
+        val rawLocation = properties.lastPublisherLocation
         properties.trackables.forEach {
-            publisherInteractor.processEnhancedLocationUpdate(enhancedLocationUpdate, properties, it.id)
+            publisherInteractor.processEnhancedLocationUpdate(enhancedLocationUpdate, properties, it.id, rawLocation)
         }
         publisherInteractor.updateLocations(EnhancedLocationUpdate(location, emptyList(), intermediateLocations, type))
         publisherInteractor.checkThreshold(location, properties.active, properties.estimatedArrivalTimeInMilliseconds)
+        publisherInteractor.checkGeofences(location, properties)
         return properties
     }
 }
@@ -0,0 +1,39 @@
+package com.ably.tracking.publisher.workerqueue.workers
+
+import com.ably.tracking.Location
+import com.ably.tracking.common.logging.createLoggingTag
+import com.ably.tracking.common.logging.v
+import com.ably.tracking.common.workerqueue.DefaultWorker
+import com.ably.tracking.logging.LogHandler
+import com.ably.tracking.publisher.PublisherInteractor
+import com.ably.tracking.publisher.PublisherProperties
+import com.ably.tracking.publisher.workerqueue.WorkerSpecification
+
+/**
+ * Handles the locations from a location batch which precede its latest location.
+ * They are saved as skipped locations, so they will be sent together with the latest location of the batch in a single location update.
+ */
+internal class PrecedingBatchLocationsChangedWorker(
+    private val rawLocations: List<Location>,
+    private val publisherInteractor: PublisherInteractor,
+    private val logHandler: LogHandler?,
+) : DefaultWorker<PublisherProperties, WorkerSpecification>() {
+    private val TAG = createLoggingTag(this)
+
+    override fun doWork(
+        properties: PublisherProperties,
+        doAsyncWork: (suspend () -> Unit) -> Unit,
+        postWork: (WorkerSpecification) -> Unit
+    ): PublisherProperties {
+        logHandler?.v("$TAG Preceding batch locations changed event received ${rawLocations.size}")
+        properties.trackables.forEach { trackable ->
+            rawLocations.forEach { location ->
+                publisherInteractor.saveEnhancedLocationForFurtherSending(properties, trackable.id, location)
+                if (properties.areRawLocationsEnabled && !properties.areLocationUpdatesCombined) {
+                    publisherInteractor.saveRawLocationForFurtherSending(properties, trackable.id, location)
+                }
+            }
+        }
+        return properties
+    }
+}
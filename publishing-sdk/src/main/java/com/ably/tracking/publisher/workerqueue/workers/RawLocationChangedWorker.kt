@@ -6,6 +6,7 @@ import com.ably.tracking.common.logging.createLoggingTag
 import com.ably.tracking.common.logging.v
 import com.ably.tracking.common.workerqueue.DefaultWorker
 import com.ably.tracking.logging.LogHandler
+import com.ably.tracking.publisher.Mapbox
 import com.ably.tracking.publisher.PublisherInteractor
 import com.ably.tracking.publisher.PublisherProperties
 import com.ably.tracking.publisher.workerqueue.WorkerSpecification
@@ -13,6 +14,7 @@ import com.ably.tracking.publisher.workerqueue.WorkerSpecification
 internal class RawLocationChangedWorker(
     private val location: Location,
     private val publisherInteractor: PublisherInteractor,
+    private val mapbox: Mapbox,
     private val logHandler: LogHandler?,
 ) : DefaultWorker<PublisherProperties, WorkerSpecification>() {
     private val TAG = createLoggingTag(this)
@@ -24,7 +26,11 @@ internal class RawLocationChangedWorker(
     ): PublisherProperties {
         logHandler?.v("$TAG Raw location changed event received $location")
         properties.lastPublisherLocation = location
-        if (properties.areRawLocationsEnabled) {
+        if (properties.currentDestination != null) {
+            mapbox.checkRouteCorridor(location)
+        }
+        // When the location updates are combined the raw location is sent with the next enhanced location update
+        if (properties.areRawLocationsEnabled && !properties.areLocationUpdatesCombined) {
             val locationUpdate = LocationUpdate(location, emptyList())
             properties.trackables.forEach {
                 publisherInteractor.processRawLocationUpdate(locationUpdate, properties, it.id)
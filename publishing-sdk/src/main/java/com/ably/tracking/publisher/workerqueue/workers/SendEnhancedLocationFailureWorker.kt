@@ -2,6 +2,7 @@ package com.ably.tracking.publisher.workerqueue.workers
 
 import com.ably.tracking.ConnectionException
 import com.ably.tracking.EnhancedLocationUpdate
+import com.ably.tracking.Location
 import com.ably.tracking.common.isFatal
 import com.ably.tracking.common.logging.createLoggingTag
 import com.ably.tracking.common.logging.w
@@ -15,6 +16,7 @@ internal class SendEnhancedLocationFailureWorker(
     private val locationUpdate: EnhancedLocationUpdate,
     private val trackableId: String,
     private val exception: Throwable?,
+    private val rawLocation: Location?,
     private val publisherInteractor: PublisherInteractor,
     private val logHandler: LogHandler?,
 ) : DefaultWorker<PublisherProperties, WorkerSpecification>() {
@@ -33,7 +35,7 @@ internal class SendEnhancedLocationFailureWorker(
         val shouldRetryPublishing =
             properties.enhancedLocationsPublishingState.shouldRetryPublishing(trackableId) && !isFatalConnectionException
         if (shouldRetryPublishing) {
-            publisherInteractor.retrySendingEnhancedLocation(properties, trackableId, locationUpdate)
+            publisherInteractor.retrySendingEnhancedLocation(properties, trackableId, locationUpdate, rawLocation)
         } else {
             properties.enhancedLocationsPublishingState.unmarkMessageAsPending(trackableId)
             publisherInteractor.saveEnhancedLocationForFurtherSending(
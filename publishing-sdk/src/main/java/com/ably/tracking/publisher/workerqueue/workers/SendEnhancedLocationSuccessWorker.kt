@@ -12,6 +12,7 @@ import com.ably.tracking.publisher.workerqueue.WorkerSpecification
 internal class SendEnhancedLocationSuccessWorker(
     private val location: Location,
     private val trackableId: String,
+    private val isTrailOmitted: Boolean,
     private val publisherInteractor: PublisherInteractor,
     private val logHandler: LogHandler?,
 ) : DefaultWorker<PublisherProperties, WorkerSpecification>() {
@@ -26,6 +27,10 @@ internal class SendEnhancedLocationSuccessWorker(
         properties.enhancedLocationsPublishingState.unmarkMessageAsPending(trackableId)
         properties.lastSentEnhancedLocations[trackableId] = location
         properties.skippedEnhancedLocations.clear(trackableId)
+        // The trail is kept until an update that includes it is sent
+        if (!isTrailOmitted) {
+            properties.sentEnhancedLocationsTrail.clear(trackableId)
+        }
         publisherInteractor.updateTrackableState(properties, trackableId)
         publisherInteractor.processNextWaitingEnhancedLocationUpdate(properties, trackableId)
         return properties
@@ -12,6 +12,7 @@ import com.ably.tracking.publisher.workerqueue.WorkerSpecification
 internal class SendRawLocationSuccessWorker(
     private val location: Location,
     private val trackableId: String,
+    private val isTrailOmitted: Boolean,
     private val publisherInteractor: PublisherInteractor,
     private val logHandler: LogHandler?,
 ) : DefaultWorker<PublisherProperties, WorkerSpecification>() {
@@ -26,6 +27,10 @@ internal class SendRawLocationSuccessWorker(
         properties.rawLocationsPublishingState.unmarkMessageAsPending(trackableId)
         properties.lastSentRawLocations[trackableId] = location
         properties.skippedRawLocations.clear(trackableId)
+        // The trail is kept until an update that includes it is sent
+        if (!isTrailOmitted) {
+            properties.sentRawLocationsTrail.clear(trackableId)
+        }
         publisherInteractor.processNextWaitingRawLocationUpdate(properties, trackableId)
         return properties
     }
@@ -0,0 +1,29 @@
+package com.ably.tracking.publisher.workerqueue.workers
+
+import com.ably.tracking.ErrorInformation
+import com.ably.tracking.common.workerqueue.DefaultWorker
+import com.ably.tracking.publisher.PublisherProperties
+import com.ably.tracking.publisher.workerqueue.WorkerSpecification
+
+/**
+ * Fails all trackables when the location updates could not be started, e.g. because the MapboxNavigation could not be created,
+ * as the publisher won't be able to publish any locations for them.
+ * The publisher is marked as not tracking so the location updates will be started again for a newly added trackable.
+ */
+internal class StartLocationUpdatesFailureWorker(
+    private val exception: Throwable,
+) : DefaultWorker<PublisherProperties, WorkerSpecification>() {
+
+    override fun doWork(
+        properties: PublisherProperties,
+        doAsyncWork: (suspend () -> Unit) -> Unit,
+        postWork: (WorkerSpecification) -> Unit
+    ): PublisherProperties {
+        properties.isTracking = false
+        val errorInformation = ErrorInformation("Starting the location updates failed: ${exception.message}")
+        properties.trackables.forEach { trackable ->
+            postWork(WorkerSpecification.FailTrackable(trackable, errorInformation))
+        }
+        return properties
+    }
+}
@@ -2,6 +2,8 @@ package com.ably.tracking.publisher
 
 import android.annotation.SuppressLint
 import com.ably.tracking.Accuracy
+import com.ably.tracking.ConnectionException
+import com.ably.tracking.ErrorInformation
 import com.ably.tracking.Resolution
 import com.ably.tracking.TrackableState
 import com.ably.tracking.common.Ably
@@ -153,6 +155,74 @@ class CorePublisherLocationUpdatesPublishingTest {
         }
     }
 
+    @SuppressLint("MissingPermission")
+    @Test
+    fun `Should send raw locations with enhanced messages if location updates are combined`() {
+        // given
+        val corePublisher = createPublisherWithLocationObserver(sendRawLocations = true, combineLocationUpdates = true)
+        val trackableId = UUID.randomUUID().toString()
+        mockAllTrackablesResolution(Resolution(Accuracy.MAXIMUM, 0, 0.0))
+        addTrackable(Trackable(trackableId), corePublisher)
+        val rawLocation = createLocation(lat = 1.0)
+
+        // when
+        locationUpdatesObserver.onRawLocationChanged(rawLocation)
+        locationUpdatesObserver.onEnhancedLocationChanged(createLocation(), emptyList())
+
+        // then
+        runBlocking {
+            delay(500) // we're assuming that within this time all events will be processed or at least placed in the queue in the final order
+            stopCorePublisher(corePublisher)
+        }
+        verify(exactly = 1) {
+            ably.sendCombinedLocation(trackableId, any(), rawLocation, any())
+        }
+        verify(exactly = 0) {
+            ably.sendRawLocation(trackableId, any(), any())
+            ably.sendEnhancedLocation(trackableId, any(), any())
+        }
+    }
+
+    @SuppressLint("MissingPermission")
+    @Test
+    fun `Should resend the raw location captured with the enhanced location if sending a combined message fails`() {
+        // given
+        val corePublisher = createPublisherWithLocationObserver(sendRawLocations = true, combineLocationUpdates = true)
+        val trackableId = UUID.randomUUID().toString()
+        mockAllTrackablesResolution(Resolution(Accuracy.MAXIMUM, 0, 0.0))
+        addTrackable(Trackable(trackableId), corePublisher)
+        val rawLocation = createLocation(lat = 1.0, timestamp = 1)
+        val newerRawLocation = createLocation(lat = 2.0, timestamp = 2)
+        var hasFailed = false
+        val callbackSlot = slot<(Result<Unit>) -> Unit>()
+        every { ably.sendCombinedLocation(trackableId, any(), any(), capture(callbackSlot)) } answers {
+            if (hasFailed) {
+                callbackSlot.captured(Result.success(Unit))
+            } else {
+                hasFailed = true
+                // A newer raw location is received before the failed message is retried
+                locationUpdatesObserver.onRawLocationChanged(newerRawLocation)
+                callbackSlot.captured(Result.failure(ConnectionException(ErrorInformation("Test"))))
+            }
+        }
+
+        // when
+        locationUpdatesObserver.onRawLocationChanged(rawLocation)
+        locationUpdatesObserver.onEnhancedLocationChanged(createLocation(timestamp = 1), emptyList())
+
+        // then
+        runBlocking {
+            delay(500) // we're assuming that within this time all events will be processed or at least placed in the queue in the final order
+            stopCorePublisher(corePublisher)
+        }
+        verify(exactly = 2) {
+            ably.sendCombinedLocation(trackableId, any(), rawLocation, any())
+        }
+        verify(exactly = 0) {
+            ably.sendCombinedLocation(trackableId, any(), newerRawLocation, any())
+        }
+    }
+
     private fun mockAllTrackablesResolution(resolution: Resolution) {
         every { resolutionPolicy.resolve(any<TrackableResolutionRequest>()) } returns resolution
     }
@@ -200,7 +270,10 @@ class CorePublisherLocationUpdatesPublishingTest {
         }
     }
 
-    private fun createPublisherWithLocationObserver(sendRawLocations: Boolean = false): CorePublisher {
+    private fun createPublisherWithLocationObserver(
+        sendRawLocations: Boolean = false,
+        combineLocationUpdates: Boolean = false
+    ): CorePublisher {
         return createCorePublisher(
             ably,
             mapbox,
@@ -209,7 +282,8 @@ class CorePublisherLocationUpdatesPublishingTest {
             null,
             sendRawLocations,
             false,
-            null
+            null,
+            areLocationUpdatesCombined = combineLocationUpdates,
         )
     }
 }
@@ -2,20 +2,26 @@ package com.ably.tracking.publisher
 
 import android.annotation.SuppressLint
 import com.ably.tracking.ConnectionException
+import com.ably.tracking.FlowOverflowStrategy
+import com.ably.tracking.FlowPolicy
 import com.ably.tracking.TrackableState
+import com.ably.tracking.annotations.Experimental
 import com.ably.tracking.common.Ably
 import com.ably.tracking.test.common.mockConnectFailureThenSuccess
 import com.ably.tracking.test.common.mockConnectSuccess
 import com.ably.tracking.test.common.mockSubscribeToPresenceError
 import com.ably.tracking.test.common.mockSubscribeToPresenceSuccess
+import com.google.common.truth.Truth.assertThat
 import io.mockk.coEvery
 import io.mockk.coVerify
 import io.mockk.mockk
 import io.mockk.verify
+import kotlinx.coroutines.CompletableDeferred
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.TimeoutCancellationException
 import java.util.UUID
+import kotlinx.coroutines.cancel
 import kotlinx.coroutines.coroutineScope
 import kotlinx.coroutines.delay
 import kotlinx.coroutines.flow.StateFlow
@@ -302,4 +308,41 @@ class DefaultPublisherTest {
 
         // This test exists for similar probably-paranoid-and-misguided reasons as the test "close - behaviour when wrapped in a withTimeout block, when the timeout elapses during the presence leave operation" in DefaultAblyTests - to give me confidence that if the publisher.close() call is wrapped in a withTimeout block and the timeout elapses, then the TimeoutCancellationException will find its way to the caller of withTimeout.
     }
+
+    @OptIn(Experimental::class)
+    @Test()
+    fun `should count the trackables updates that overflowed the buffer of a slow collector`() {
+        // given
+        val trackableIds = (1..4).map { UUID.randomUUID().toString() }
+        trackableIds.forEach {
+            ably.mockConnectSuccess(it)
+            ably.mockSubscribeToPresenceSuccess(it)
+        }
+        @SuppressLint("MissingPermission")
+        val droppingPublisher = DefaultPublisher(
+            ably,
+            mapbox,
+            resolutionPolicyFactory,
+            RoutingProfile.DRIVING,
+            null,
+            false,
+            false,
+            null,
+            flowPolicy = FlowPolicy(0, FlowOverflowStrategy.DROP_LATEST),
+        )
+        val collectorScope = CoroutineScope(Dispatchers.Unconfined)
+        val collectorReleased = CompletableDeferred<Unit>()
+        collectorScope.launch { droppingPublisher.trackables.collect { collectorReleased.await() } }
+
+        // when
+        runBlocking {
+            trackableIds.forEach { droppingPublisher.add(Trackable(it)) }
+        }
+
+        // then
+        assertThat(droppingPublisher.getTrackablesOverflowCount()).isEqualTo(2)
+        assertThat(droppingPublisher.getLocationsOverflowCount()).isEqualTo(0)
+        collectorReleased.complete(Unit)
+        collectorScope.cancel()
+    }
 }
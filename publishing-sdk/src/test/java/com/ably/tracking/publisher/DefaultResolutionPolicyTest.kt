@@ -339,6 +339,51 @@ class DefaultResolutionPolicyTest {
         Assert.assertEquals(defaultResolution, resolvedResolution)
     }
 
+    @Test
+    fun `resolving a request with resolution set should return nearWithoutSubscriber when the destination of a not active trackable is near`() {
+        // given
+        val trackableResolutionSet = anyDefaultResolutionSet()
+        val trackable = createTrackable(trackableResolutionSet)
+        val resolutionRequest = TrackableResolutionRequest(trackable, emptySet())
+        hooks.destinationProximityListener?.onDestinationProximityChanged(trackable, true)
+
+        // when
+        val resolvedResolution = policy.resolve(resolutionRequest)
+
+        // then
+        Assert.assertEquals(trackableResolutionSet.nearWithoutSubscriber, resolvedResolution)
+    }
+
+    @Test
+    fun `resolving a request with resolution set should return farWithoutSubscriber when the destination of a trackable is no longer near`() {
+        // given
+        val trackableResolutionSet = anyDefaultResolutionSet()
+        val trackable = createTrackable(trackableResolutionSet)
+        val resolutionRequest = TrackableResolutionRequest(trackable, emptySet())
+        hooks.destinationProximityListener?.onDestinationProximityChanged(trackable, true)
+        hooks.destinationProximityListener?.onDestinationProximityChanged(trackable, false)
+
+        // when
+        val resolvedResolution = policy.resolve(resolutionRequest)
+
+        // then
+        Assert.assertEquals(trackableResolutionSet.farWithoutSubscriber, resolvedResolution)
+    }
+
+    @Test
+    fun `should refresh the resolutions only when the destination proximity of a trackable changes`() {
+        // given
+        val trackable = createTrackable(anyDefaultResolutionSet())
+
+        // when
+        hooks.destinationProximityListener?.onDestinationProximityChanged(trackable, true)
+        hooks.destinationProximityListener?.onDestinationProximityChanged(trackable, true)
+        hooks.destinationProximityListener?.onDestinationProximityChanged(trackable, false)
+
+        // then
+        Assert.assertEquals(2, methods.refreshCount)
+    }
+
     @Test(expected = WrongResolutionConstraintsException::class)
     fun `should throw an error when using any other ResolutionConstraint than DefaultResolutionConstraints when resolving a resolution`() {
         // given
@@ -0,0 +1,238 @@
+package com.ably.tracking.publisher
+
+import com.ably.tracking.Accuracy
+import com.ably.tracking.Resolution
+import com.ably.tracking.test.common.createLocation
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+
+class GeofenceEngineTest {
+    private val engine = GeofenceEngine()
+    private val circularGeofence = CircularGeofence("circle", GeofencePoint(51.0, 0.0), 100.0)
+    private val polygonalGeofence = PolygonalGeofence(
+        "polygon",
+        listOf(GeofencePoint(52.0, 1.0), GeofencePoint(52.0, 1.01), GeofencePoint(52.01, 1.01), GeofencePoint(52.01, 1.0)),
+    )
+
+    @Test
+    fun `should report entering a circular geofence`() {
+        // given
+        engine.addGeofence(circularGeofence)
+        // About 55 meters north of the center
+        val location = createLocation(51.0005, 0.0)
+
+        // when
+        val events = engine.onLocationChanged(location)
+
+        // then
+        assertThat(events).containsExactly(GeofenceEnteredEvent(circularGeofence, location))
+    }
+
+    @Test
+    fun `should not report entering a geofence when the location is outside of it`() {
+        // given
+        engine.addGeofence(circularGeofence)
+
+        // when
+        // About 111 meters north of the center
+        val events = engine.onLocationChanged(createLocation(51.001, 0.0))
+
+        // then
+        assertThat(events).isEmpty()
+    }
+
+    @Test
+    fun `should report entering a geofence only once while the location stays inside of it`() {
+        // given
+        engine.addGeofence(circularGeofence)
+        engine.onLocationChanged(createLocation(51.0005, 0.0))
+
+        // when
+        val events = engine.onLocationChanged(createLocation(51.0, 0.0005))
+
+        // then
+        assertThat(events).isEmpty()
+    }
+
+    @Test
+    fun `should report exiting a geofence`() {
+        // given
+        engine.addGeofence(circularGeofence)
+        engine.onLocationChanged(createLocation(51.0, 0.0))
+        val location = createLocation(51.001, 0.0)
+
+        // when
+        val events = engine.onLocationChanged(location)
+
+        // then
+        assertThat(events).containsExactly(GeofenceExitedEvent(circularGeofence, location))
+    }
+
+    @Test
+    fun `should report exiting a geofence when the location jumps far away from it`() {
+        // given
+        engine.addGeofence(circularGeofence)
+        engine.onLocationChanged(createLocation(51.0, 0.0))
+        val location = createLocation(40.0, 10.0)
+
+        // when
+        val events = engine.onLocationChanged(location)
+
+        // then
+        assertThat(events).containsExactly(GeofenceExitedEvent(circularGeofence, location))
+    }
+
+    @Test
+    fun `should report entering a polygonal geofence`() {
+        // given
+        engine.addGeofence(polygonalGeofence)
+        val location = createLocation(52.005, 1.005)
+
+        // when
+        val events = engine.onLocationChanged(location)
+
+        // then
+        assertThat(events).containsExactly(GeofenceEnteredEvent(polygonalGeofence, location))
+    }
+
+    @Test
+    fun `should not report entering a polygonal geofence when the location is outside of it`() {
+        // given
+        engine.addGeofence(polygonalGeofence)
+
+        // when
+        val events = engine.onLocationChanged(createLocation(52.005, 1.011))
+
+        // then
+        assertThat(events).isEmpty()
+    }
+
+    @Test
+    fun `should report events for geofences that are not indexed because they are too large`() {
+        // given
+        val largeGeofence = CircularGeofence("large", GeofencePoint(51.0, 0.0), 100_000.0)
+        engine.addGeofence(largeGeofence)
+        // About 89 km north of the center
+        val location = createLocation(51.8, 0.0)
+
+        // when
+        val events = engine.onLocationChanged(location)
+
+        // then
+        assertThat(events).containsExactly(GeofenceEnteredEvent(largeGeofence, location))
+    }
+
+    @Test
+    fun `should not report events for a removed geofence`() {
+        // given
+        engine.addGeofence(circularGeofence)
+        engine.onLocationChanged(createLocation(51.0, 0.0))
+
+        // when
+        val wasRemoved = engine.removeGeofence(circularGeofence.id)
+        val events = engine.onLocationChanged(createLocation(51.001, 0.0))
+
+        // then
+        assertThat(wasRemoved).isTrue()
+        assertThat(events).isEmpty()
+    }
+
+    @Test
+    fun `should return false when removing a geofence that was not added`() {
+        // given
+
+        // when
+        val wasRemoved = engine.removeGeofence("unknown")
+
+        // then
+        assertThat(wasRemoved).isFalse()
+    }
+
+    @Test
+    fun `should replace a geofence with the same ID`() {
+        // given
+        engine.addGeofence(circularGeofence)
+        val movedGeofence = circularGeofence.copy(center = GeofencePoint(52.0, 0.0))
+        engine.addGeofence(movedGeofence)
+        val location = createLocation(52.0, 0.0)
+
+        // when
+        val oldLocationEvents = engine.onLocationChanged(createLocation(51.0, 0.0))
+        val newLocationEvents = engine.onLocationChanged(location)
+
+        // then
+        assertThat(oldLocationEvents).isEmpty()
+        assertThat(newLocationEvents).containsExactly(GeofenceEnteredEvent(movedGeofence, location))
+    }
+
+    @Test
+    fun `should report entering a circular geofence across the antimeridian`() {
+        // given
+        val geofence = CircularGeofence("antimeridian", GeofencePoint(0.0, 179.9999), 100.0)
+        engine.addGeofence(geofence)
+        // About 22 meters east of the center, on the other side of the antimeridian
+        val location = createLocation(0.0, -179.9999)
+
+        // when
+        val events = engine.onLocationChanged(location)
+
+        // then
+        assertThat(events).containsExactly(GeofenceEnteredEvent(geofence, location))
+    }
+
+    @Test
+    fun `should report entering the destination geofences of all trackables`() {
+        // given
+        val firstTrackable = Trackable("first", destination = Destination(51.0, 0.0))
+        val secondTrackable = Trackable("second", destination = Destination(51.0, 0.001))
+        engine.updateDestinationGeofences(setOf(firstTrackable, secondTrackable))
+        val location = createLocation(51.0, 0.0005)
+
+        // when
+        val events = engine.onLocationChanged(location)
+
+        // then
+        assertThat(events.map { (it.geofence as DestinationGeofence).trackableId }).containsExactly("first", "second")
+        assertThat(events.all { it is GeofenceEnteredEvent }).isTrue()
+    }
+
+    @Test
+    fun `should use the spatial proximity threshold of the trackable as the destination geofence radius`() {
+        // given
+        val trackable = Trackable(
+            "trackable",
+            destination = Destination(51.0, 0.0),
+            constraints = DefaultResolutionConstraints(
+                DefaultResolutionSet(Resolution(Accuracy.BALANCED, 1000L, 1.0)),
+                DefaultProximity(spatial = 500.0),
+                10f,
+                1f
+            )
+        )
+        engine.updateDestinationGeofences(setOf(trackable))
+        // About 333 meters north of the destination
+        val location = createLocation(51.003, 0.0)
+
+        // when
+        val events = engine.onLocationChanged(location)
+
+        // then
+        assertThat(events).containsExactly(
+            GeofenceEnteredEvent(DestinationGeofence("trackable", Destination(51.0, 0.0), 500.0), location)
+        )
+    }
+
+    @Test
+    fun `should remove the destination geofences of removed trackables`() {
+        // given
+        val trackable = Trackable("trackable", destination = Destination(51.0, 0.0))
+        engine.updateDestinationGeofences(setOf(trackable))
+        engine.updateDestinationGeofences(emptySet())
+
+        // when
+        val events = engine.onLocationChanged(createLocation(51.0, 0.0))
+
+        // then
+        assertThat(events).isEmpty()
+    }
+}
@@ -0,0 +1,213 @@
+package com.ably.tracking.publisher
+
+import android.annotation.SuppressLint
+import com.ably.tracking.Accuracy
+import com.ably.tracking.Location
+import com.ably.tracking.Resolution
+import com.ably.tracking.publisher.locationengine.ResolutionLocationEngine
+import com.google.common.truth.Truth.assertThat
+import com.mapbox.android.core.location.LocationEngineCallback
+import com.mapbox.android.core.location.LocationEngineResult
+import io.mockk.CapturingSlot
+import io.mockk.every
+import io.mockk.just
+import io.mockk.mockk
+import io.mockk.runs
+import io.mockk.slot
+import io.mockk.verify
+import org.junit.Test
+
+@SuppressLint("MissingPermission")
+class LightweightMapboxTest {
+    private val locationEngine = mockk<ResolutionLocationEngine>(relaxed = true)
+    private val foregroundTracking = mockk<ForegroundTracking>(relaxed = true)
+    private val locationUpdatesObserver = mockk<LocationUpdatesObserver> {
+        every { onRawLocationChanged(any()) } just runs
+        every { onEnhancedLocationChanged(any(), any()) } just runs
+    }
+    private val constantResolution = Resolution(Accuracy.HIGH, 2000L, 1.0)
+    private val mapbox = LightweightMapbox(
+        locationEngine,
+        foregroundTracking,
+        null,
+        constantResolution,
+        executor = { it.run() },
+        locationLooper = null,
+    )
+
+    @Test
+    fun `should start the foreground tracking and request location updates with the resolution when the trip is started`() {
+        // given
+
+        // when
+        mapbox.startTrip()
+
+        // then
+        verify(exactly = 1) {
+            foregroundTracking.start()
+            locationEngine.requestLocationUpdates(
+                match { it.interval == constantResolution.desiredInterval },
+                any<LocationEngineCallback<LocationEngineResult>>(),
+                null
+            )
+        }
+    }
+
+    @Test
+    fun `should request location updates only once when the trip is started multiple times`() {
+        // given
+        mapbox.startTrip()
+
+        // when
+        mapbox.startTrip()
+
+        // then
+        verify(exactly = 1) {
+            locationEngine.requestLocationUpdates(any(), any<LocationEngineCallback<LocationEngineResult>>(), any())
+        }
+    }
+
+    @Test
+    fun `should pass the raw location as both the raw and the enhanced location to the observer`() {
+        // given
+        val callbackSlot = captureLocationEngineCallback()
+        mapbox.registerLocationObserver(locationUpdatesObserver)
+        mapbox.startTrip()
+
+        // when
+        callbackSlot.captured.onSuccess(createLocationEngineResult(createAndroidLocation(time = 1000L)))
+
+        // then
+        val expectedLocation = Location(1.0, 2.0, 3.0, 4.0f, 5.0f, 6.0f, 1000L)
+        verify(exactly = 1) {
+            locationUpdatesObserver.onRawLocationChanged(expectedLocation)
+            locationUpdatesObserver.onEnhancedLocationChanged(expectedLocation, emptyList())
+        }
+    }
+
+    @Test
+    fun `should not pass locations to the observer after it is unregistered`() {
+        // given
+        val callbackSlot = captureLocationEngineCallback()
+        mapbox.registerLocationObserver(locationUpdatesObserver)
+        mapbox.startTrip()
+        mapbox.unregisterLocationObserver()
+
+        // when
+        callbackSlot.captured.onSuccess(createLocationEngineResult(createAndroidLocation(time = 1000L)))
+
+        // then
+        verify(exactly = 0) {
+            locationUpdatesObserver.onRawLocationChanged(any())
+            locationUpdatesObserver.onEnhancedLocationChanged(any(), any())
+        }
+    }
+
+    @Test
+    fun `should change the location engine resolution`() {
+        // given
+        val resolution = Resolution(Accuracy.LOW, 10_000L, 100.0)
+
+        // when
+        mapbox.changeResolution(resolution)
+
+        // then
+        verify(exactly = 1) { locationEngine.changeResolution(resolution) }
+    }
+
+    @Test
+    fun `should remove location updates when the trip is stopped`() {
+        // given
+        val callbackSlot = captureLocationEngineCallback()
+        mapbox.startTrip()
+
+        // when
+        mapbox.stopTrip()
+
+        // then
+        verify(exactly = 1) { locationEngine.removeLocationUpdates(callbackSlot.captured) }
+    }
+
+    @Test
+    fun `should remove location updates and stop the foreground tracking when closed`() {
+        // given
+        val callbackSlot = captureLocationEngineCallback()
+        mapbox.startTrip()
+
+        // when
+        mapbox.close()
+
+        // then
+        verify(exactly = 1) {
+            locationEngine.removeLocationUpdates(callbackSlot.captured)
+            foregroundTracking.stop()
+        }
+    }
+
+    @Test
+    fun `should call the route callback with a map exception when a route is set`() {
+        // given
+        var routeResult: Result<Long>? = null
+
+        // when
+        mapbox.setRoute(
+            Location(1.0, 2.0, 3.0, 4.0f, 5.0f, 6.0f, 1000L),
+            Destination(10.0, 20.0),
+            RoutingProfile.DRIVING
+        ) { routeResult = it }
+
+        // then
+        assertThat(routeResult?.exceptionOrNull()).isInstanceOf(MapException::class.java)
+        assertThat(routeResult?.exceptionOrNull()?.cause).isInstanceOf(RoutingUnavailableException::class.java)
+    }
+
+    @Test
+    fun `should call the callback function with a success when the trip is started`() {
+        // given
+        var commandResult: Result<Unit>? = null
+
+        // when
+        mapbox.startTrip { commandResult = it }
+
+        // then
+        assertThat(commandResult?.isSuccess).isTrue()
+    }
+
+    @Test
+    fun `should call the callback function with a failure when starting the trip fails`() {
+        // given
+        val exception = IllegalStateException()
+        every { foregroundTracking.start() } throws exception
+        var commandResult: Result<Unit>? = null
+
+        // when
+        mapbox.startTrip { commandResult = it }
+
+        // then
+        assertThat(commandResult?.exceptionOrNull()).isEqualTo(exception)
+    }
+
+    private fun captureLocationEngineCallback(): CapturingSlot<LocationEngineCallback<LocationEngineResult>> {
+        val callbackSlot = slot<LocationEngineCallback<LocationEngineResult>>()
+        every { locationEngine.requestLocationUpdates(any(), capture(callbackSlot), any()) } just runs
+        return callbackSlot
+    }
+
+    private fun createLocationEngineResult(location: android.location.Location): LocationEngineResult =
+        mockk { every { lastLocation } returns location }
+
+    private fun createAndroidLocation(time: Long): android.location.Location =
+        mockk {
+            every { latitude } returns 1.0
+            every { longitude } returns 2.0
+            every { altitude } returns 3.0
+            every { hasAltitude() } returns true
+            every { accuracy } returns 4.0f
+            every { hasAccuracy() } returns true
+            every { bearing } returns 5.0f
+            every { hasBearing() } returns true
+            every { speed } returns 6.0f
+            every { hasSpeed() } returns true
+            every { this@mockk.time } returns time
+        }
+}
@@ -0,0 +1,109 @@
+package com.ably.tracking.publisher
+
+import com.ably.tracking.Location
+import com.ably.tracking.test.common.createLocation
+import com.google.common.truth.Truth.assertThat
+import com.mapbox.geojson.Point
+import com.mapbox.turf.TurfConstants
+import com.mapbox.turf.TurfMeasurement
+import org.junit.Test
+import kotlin.random.Random
+
+class LocationHelpersTest {
+    private val random = Random(42)
+
+    @Test
+    fun `should return zero distance for the same location`() {
+        // given
+        val location = createLocation(51.5, -0.1)
+
+        // when
+        val distance = location.distanceInMetersFrom(location)
+
+        // then
+        assertThat(distance).isEqualTo(0.0)
+    }
+
+    @Test
+    fun `should calculate short distances within 5 millimeters of the haversine distance`() {
+        repeat(10_000) {
+            // given
+            val latitude = random.nextDouble(-85.0, 85.0)
+            val longitude = random.nextDouble(-180.0, 180.0)
+            val from = createLocation(latitude, longitude)
+            val to = createLocation(latitude + random.nextDouble(-0.1, 0.1), longitude + random.nextDouble(-0.1, 0.1))
+
+            // when
+            val distance = from.distanceInMetersFrom(to)
+
+            // then
+            assertThat(distance).isWithin(0.005).of(turfDistanceInMeters(from, to))
+        }
+    }
+
+    @Test
+    fun `should calculate displacement threshold distances within 1 micrometer of the haversine distance`() {
+        repeat(10_000) {
+            // given
+            val latitude = random.nextDouble(-85.0, 85.0)
+            val longitude = random.nextDouble(-180.0, 180.0)
+            val from = createLocation(latitude, longitude)
+            // Up to about 100 meters away
+            val to = createLocation(latitude + random.nextDouble(-0.0009, 0.0009), longitude + random.nextDouble(-0.0009, 0.0009))
+
+            // when
+            val distance = from.distanceInMetersFrom(to)
+
+            // then
+            assertThat(distance).isWithin(0.000001).of(turfDistanceInMeters(from, to))
+        }
+    }
+
+    @Test
+    fun `should calculate long distances as the haversine distance`() {
+        repeat(10_000) {
+            // given
+            val from = createLocation(random.nextDouble(-90.0, 90.0), random.nextDouble(-180.0, 180.0))
+            val to = createLocation(random.nextDouble(-90.0, 90.0), random.nextDouble(-180.0, 180.0))
+
+            // when
+            val distance = from.distanceInMetersFrom(to)
+
+            // then
+            assertThat(distance).isWithin(0.001).of(turfDistanceInMeters(from, to))
+        }
+    }
+
+    @Test
+    fun `should calculate distances near the poles as the haversine distance`() {
+        // given
+        val from = createLocation(89.99, 0.0)
+        val to = createLocation(89.99, 0.1)
+
+        // when
+        val distance = from.distanceInMetersFrom(to)
+
+        // then
+        assertThat(distance).isWithin(0.000001).of(turfDistanceInMeters(from, to))
+    }
+
+    @Test
+    fun `should calculate distances across the 180th meridian`() {
+        // given
+        val from = createLocation(0.0, 179.9999)
+        val to = createLocation(0.0, -179.9999)
+
+        // when
+        val distance = from.distanceInMetersFrom(to)
+
+        // then
+        assertThat(distance).isWithin(0.001).of(22.239)
+    }
+
+    private fun turfDistanceInMeters(from: Location, to: Location): Double =
+        TurfMeasurement.distance(
+            Point.fromLngLat(from.longitude, from.latitude),
+            Point.fromLngLat(to.longitude, to.latitude),
+            TurfConstants.UNIT_METRES
+        )
+}
@@ -0,0 +1,114 @@
+package com.ably.tracking.publisher
+
+import com.ably.tracking.common.message.GeoJsonTypes
+import com.google.common.truth.Truth.assertThat
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.OutputStream
+import org.junit.Assert
+import org.junit.Test
+
+class LocationHistoryStreamsTest {
+
+    @Test
+    fun `should read the same events that were written`() {
+        // given
+        val events = createEvents(10)
+
+        // when
+        val readEvents = writeAndRead(events, isGzipEnabled = false)
+
+        // then
+        assertThat(readEvents).containsExactlyElementsIn(events).inOrder()
+    }
+
+    @Test
+    fun `should read the same events that were written with gzip compression`() {
+        // given
+        val events = createEvents(10)
+
+        // when
+        val readEvents = writeAndRead(events, isGzipEnabled = true)
+
+        // then
+        assertThat(readEvents).containsExactlyElementsIn(events).inOrder()
+    }
+
+    @Test
+    fun `should write one line per event after the header line`() {
+        // given
+        val outputStream = ByteArrayOutputStream()
+
+        // when
+        LocationHistoryWriter(outputStream).use { it.writeAll(createEvents(3).asSequence()) }
+
+        // then
+        val lines = outputStream.toString(Charsets.UTF_8.name()).lines().filter { it.isNotEmpty() }
+        assertThat(lines).hasSize(4)
+        assertThat(lines.first()).isEqualTo("{\"version\":$LOCATION_HISTORY_VERSION}")
+    }
+
+    @Test
+    fun `should write to the output stream in chunks not larger than the chunk size`() {
+        // given
+        val chunkSizes = mutableListOf<Int>()
+        val outputStream = object : OutputStream() {
+            override fun write(byte: Int) {
+                chunkSizes.add(1)
+            }
+
+            override fun write(bytes: ByteArray, offset: Int, length: Int) {
+                chunkSizes.add(length)
+            }
+        }
+
+        // when
+        LocationHistoryWriter(outputStream, chunkSize = 64).use { it.writeAll(createEvents(100).asSequence()) }
+
+        // then
+        assertThat(chunkSizes).isNotEmpty()
+        assertThat(chunkSizes.maxOrNull()).isAtMost(64)
+    }
+
+    @Test
+    fun `should return no events when only the header was written`() {
+        // given
+
+        // when
+        val readEvents = writeAndRead(emptyList(), isGzipEnabled = false)
+
+        // then
+        assertThat(readEvents).isEmpty()
+    }
+
+    @Test
+    fun `should throw an exception when reading a history with an unsupported version`() {
+        // given
+        val inputStream = ByteArrayInputStream("{\"version\":${LOCATION_HISTORY_VERSION + 1}}\n".toByteArray())
+
+        // when
+        try {
+            LocationHistoryReader(inputStream)
+            Assert.fail("Expected exception was not thrown")
+        } catch (exception: UnsupportedLocationHistoryVersionException) {
+            // then
+        }
+    }
+
+    private fun writeAndRead(events: List<GeoJsonMessage>, isGzipEnabled: Boolean): List<GeoJsonMessage> {
+        val outputStream = ByteArrayOutputStream()
+        LocationHistoryWriter(outputStream, isGzipEnabled).use { writer -> events.forEach { writer.write(it) } }
+        return LocationHistoryReader(ByteArrayInputStream(outputStream.toByteArray()), isGzipEnabled).use { reader ->
+            reader.events().toList()
+        }
+    }
+
+    private fun createEvents(count: Int): List<GeoJsonMessage> =
+        (1..count).map { index ->
+            GeoJsonMessage(
+                GeoJsonTypes.FEATURE,
+                GeoJsonGeometry(GeoJsonTypes.POINT, listOf(index.toDouble(), index * 2.0, 0.0)),
+                GeoJsonProperties(1.5f, 90f, 10f, index * 1000.0)
+            )
+        }
+}
@@ -0,0 +1,61 @@
+package com.ably.tracking.publisher
+
+import com.ably.tracking.test.common.createLocation
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+
+class LocationTrailTest {
+    private val trackableId = "test-trackable-id"
+
+    @Test
+    fun `should keep only the locations newer than the last one in the trail`() {
+        // given
+        val trail = LocationTrail()
+
+        // when
+        trail.addAll(trackableId, listOf(createLocation(timestamp = 1), createLocation(timestamp = 2)))
+        trail.addAll(trackableId, listOf(createLocation(timestamp = 2), createLocation(timestamp = 1), createLocation(timestamp = 3)))
+
+        // then
+        assertThat(trail.toList(trackableId).map { it.time }).containsExactly(1L, 2L, 3L).inOrder()
+    }
+
+    @Test
+    fun `should remove the oldest locations when the maximum count is exceeded`() {
+        // given
+        val trail = LocationTrail(LocationTrailRetention(maximumCount = 3))
+
+        // when
+        trail.addAll(trackableId, (1L..5L).map { createLocation(timestamp = it) })
+
+        // then
+        assertThat(trail.toList(trackableId).map { it.time }).containsExactly(3L, 4L, 5L).inOrder()
+    }
+
+    @Test
+    fun `should remove the locations older than the maximum age`() {
+        // given
+        val trail = LocationTrail(LocationTrailRetention(maximumCount = null, maximumAge = 2_000))
+
+        // when
+        trail.addAll(trackableId, listOf(0L, 1_000L, 2_000L, 3_000L).map { createLocation(timestamp = it) })
+
+        // then
+        assertThat(trail.toList(trackableId).map { it.time }).containsExactly(1_000L, 2_000L, 3_000L).inOrder()
+    }
+
+    @Test
+    fun `should keep the trails of trackables separately`() {
+        // given
+        val trail = LocationTrail()
+        trail.addAll(trackableId, listOf(createLocation(timestamp = 1)))
+        trail.addAll("other-trackable-id", listOf(createLocation(timestamp = 2)))
+
+        // when
+        trail.clear(trackableId)
+
+        // then
+        assertThat(trail.toList(trackableId)).isEmpty()
+        assertThat(trail.toList("other-trackable-id").map { it.time }).containsExactly(2L)
+    }
+}
@@ -0,0 +1,87 @@
+package com.ably.tracking.publisher
+
+import com.google.common.truth.Truth.assertThat
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.test.StandardTestDispatcher
+import kotlinx.coroutines.test.TestScope
+import kotlinx.coroutines.test.runCurrent
+import org.junit.Test
+
+@OptIn(ExperimentalCoroutinesApi::class)
+class MapboxCommandQueueTest {
+    private val testScope = TestScope(StandardTestDispatcher())
+    private val commandQueue = MapboxCommandQueue(CoroutineScope(testScope.coroutineContext + SupervisorJob()))
+
+    @Test
+    fun `should not execute the command when it is enqueued`() {
+        // given
+        var wasExecuted = false
+
+        // when
+        commandQueue.enqueue { wasExecuted = true }
+
+        // then
+        assertThat(wasExecuted).isFalse()
+    }
+
+    @Test
+    fun `should execute commands in the order in which they were enqueued`() {
+        // given
+        val executedCommands = mutableListOf<Int>()
+
+        // when
+        commandQueue.enqueue { executedCommands.add(1) }
+        commandQueue.enqueue { executedCommands.add(2) }
+        commandQueue.enqueue { executedCommands.add(3) }
+        testScope.runCurrent()
+
+        // then
+        assertThat(executedCommands).containsExactly(1, 2, 3).inOrder()
+    }
+
+    @Test
+    fun `should call the callback with success when the command is executed`() {
+        // given
+        var commandResult: Result<Unit>? = null
+
+        // when
+        commandQueue.enqueue(callbackFunction = { commandResult = it }) {}
+        testScope.runCurrent()
+
+        // then
+        assertThat(commandResult?.isSuccess).isTrue()
+    }
+
+    @Test
+    fun `should call the callback with failure and execute next commands when the command throws an exception`() {
+        // given
+        val exception = IllegalStateException("Test")
+        var commandResult: Result<Unit>? = null
+        var wasNextCommandExecuted = false
+
+        // when
+        commandQueue.enqueue(callbackFunction = { commandResult = it }) { throw exception }
+        commandQueue.enqueue { wasNextCommandExecuted = true }
+        testScope.runCurrent()
+
+        // then
+        assertThat(commandResult?.exceptionOrNull()).isEqualTo(exception)
+        assertThat(wasNextCommandExecuted).isTrue()
+    }
+
+    @Test
+    fun `should execute next commands when the callback throws an exception`() {
+        // given
+        var wasNextCommandExecuted = false
+
+        // when
+        commandQueue.enqueue(callbackFunction = { throw IllegalStateException("Test") }) {}
+        commandQueue.enqueue { wasNextCommandExecuted = true }
+        testScope.runCurrent()
+
+        // then
+        assertThat(wasNextCommandExecuted).isTrue()
+    }
+}
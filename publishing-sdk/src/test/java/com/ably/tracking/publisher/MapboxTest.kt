@@ -504,6 +504,75 @@ class MapboxTest {
             )
         )
 
+    @Test
+    fun `Should process location updates on the provided executor`() {
+        // given
+        val pendingWork = mutableListOf<Runnable>()
+        val locationObserver = MapboxLocationObserverProvider(null, timeProvider, "MapboxTest") { pendingWork.add(it) }
+            .createLocationObserver(mockLocationUpdatesObserver)
+        val inputLocation = createAndroidLocation(
+            latitude = 1.0,
+            longitude = 1.0,
+            altitude = 1.0,
+            accuracy = 1.0f,
+            bearing = 1.0f,
+            speed = 1.0f,
+            time = 1
+        )
+
+        // when
+        locationObserver.onNewRawLocation(inputLocation)
+
+        // then
+        verify(exactly = 0) { mockLocationUpdatesObserver.onRawLocationChanged(any()) }
+        Assert.assertEquals(1, pendingWork.size)
+
+        // when
+        pendingWork.forEach { it.run() }
+
+        // then
+        verify(exactly = 1) { mockLocationUpdatesObserver.onRawLocationChanged(any()) }
+    }
+
+    @Test
+    fun `Should use the time from when the enhanced location was received`() {
+        // given
+        val pendingWork = mutableListOf<Runnable>()
+        val locationObserver = MapboxLocationObserverProvider(null, timeProvider, "MapboxTest") { pendingWork.add(it) }
+            .createLocationObserver(mockLocationUpdatesObserver)
+        val inputLocation = createAndroidLocation(
+            latitude = 1.0,
+            longitude = 1.0,
+            altitude = 1.0,
+            accuracy = 1.0f,
+            bearing = 1.0f,
+            speed = 1.0f,
+            time = 1
+        )
+        timeProvider.mockTime(10L)
+
+        // when
+        locationObserver.onNewLocationMatcherResult(createMapboxLocationMatcherResult(inputLocation, listOf(inputLocation)))
+        timeProvider.mockTime(20L)
+        pendingWork.forEach { it.run() }
+
+        // then
+        verify {
+            mockLocationUpdatesObserver.onEnhancedLocationChanged(
+                Location(
+                    latitude = 1.0,
+                    longitude = 1.0,
+                    altitude = 1.0,
+                    accuracy = 1.0f,
+                    bearing = 1.0f,
+                    speed = 1.0f,
+                    time = 10L
+                ),
+                emptyList()
+            )
+        }
+    }
+
     private fun testRawLocationUpdate(
         inputLocation: android.location.Location,
         expectedLocation: Location?
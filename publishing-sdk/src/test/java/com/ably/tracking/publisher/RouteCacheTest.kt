@@ -0,0 +1,113 @@
+package com.ably.tracking.publisher
+
+import com.ably.tracking.test.common.createLocation
+import com.google.common.truth.Truth.assertThat
+import com.mapbox.geojson.Point
+import org.junit.Test
+
+class RouteCacheTest {
+    private val destination = Destination(51.5, -0.1)
+
+    @Test
+    fun `should return the cached route for an origin in the same cell`() {
+        // given
+        val cache = RouteCache<String>()
+        val route = CachedRoute("route", emptyList(), 1000L)
+        cache.put(createLocation(51.00011, 0.00011), destination, RoutingProfile.DRIVING, route)
+
+        // when
+        val cachedRoute = cache.get(createLocation(51.00019, 0.00019), destination, RoutingProfile.DRIVING)
+
+        // then
+        assertThat(cachedRoute).isEqualTo(route)
+    }
+
+    @Test
+    fun `should not return the cached route for an origin in a different cell`() {
+        // given
+        val cache = RouteCache<String>()
+        cache.put(createLocation(51.0001, 0.0001), destination, RoutingProfile.DRIVING, CachedRoute("route", emptyList(), 1000L))
+
+        // when
+        val cachedRoute = cache.get(createLocation(51.0021, 0.0001), destination, RoutingProfile.DRIVING)
+
+        // then
+        assertThat(cachedRoute).isNull()
+    }
+
+    @Test
+    fun `should not return the cached route for a different routing profile`() {
+        // given
+        val cache = RouteCache<String>()
+        val origin = createLocation(51.0, 0.0)
+        cache.put(origin, destination, RoutingProfile.DRIVING, CachedRoute("route", emptyList(), 1000L))
+
+        // when
+        val cachedRoute = cache.get(origin, destination, RoutingProfile.WALKING)
+
+        // then
+        assertThat(cachedRoute).isNull()
+    }
+
+    @Test
+    fun `should remove the least recently used route when the cache is full`() {
+        // given
+        val cache = RouteCache<String>(maximumSize = 2)
+        val firstDestination = Destination(1.0, 1.0)
+        val secondDestination = Destination(2.0, 2.0)
+        val thirdDestination = Destination(3.0, 3.0)
+        val origin = createLocation(51.0, 0.0)
+        cache.put(origin, firstDestination, RoutingProfile.DRIVING, CachedRoute("first", emptyList(), 1000L))
+        cache.put(origin, secondDestination, RoutingProfile.DRIVING, CachedRoute("second", emptyList(), 1000L))
+        cache.get(origin, firstDestination, RoutingProfile.DRIVING)
+
+        // when
+        cache.put(origin, thirdDestination, RoutingProfile.DRIVING, CachedRoute("third", emptyList(), 1000L))
+
+        // then
+        assertThat(cache.get(origin, firstDestination, RoutingProfile.DRIVING)?.route).isEqualTo("first")
+        assertThat(cache.get(origin, secondDestination, RoutingProfile.DRIVING)).isNull()
+        assertThat(cache.get(origin, thirdDestination, RoutingProfile.DRIVING)?.route).isEqualTo("third")
+    }
+
+    @Test
+    fun `should calculate the distance from the closest route segment`() {
+        // given
+        // A route going east along the latitude 51.0 and then north
+        val routeGeometry = listOf(Point.fromLngLat(0.0, 51.0), Point.fromLngLat(0.01, 51.0), Point.fromLngLat(0.01, 51.01))
+        // About 100 meters north of the first segment
+        val location = createLocation(51.0009, 0.005)
+
+        // when
+        val distance = location.distanceInMetersFromRoute(routeGeometry)
+
+        // then
+        assertThat(distance).isWithin(1.0).of(100.07)
+    }
+
+    @Test
+    fun `should calculate the distance from the closest route point when the location is beyond the route end`() {
+        // given
+        val routeGeometry = listOf(Point.fromLngLat(0.0, 51.0), Point.fromLngLat(0.01, 51.0))
+        // About 111 meters south of the route start
+        val location = createLocation(50.999, 0.0)
+
+        // when
+        val distance = location.distanceInMetersFromRoute(routeGeometry)
+
+        // then
+        assertThat(distance).isWithin(1.0).of(111.19)
+    }
+
+    @Test
+    fun `should return infinity for an empty route`() {
+        // given
+        val location = createLocation(51.0, 0.0)
+
+        // when
+        val distance = location.distanceInMetersFromRoute(emptyList())
+
+        // then
+        assertThat(distance).isPositiveInfinity()
+    }
+}
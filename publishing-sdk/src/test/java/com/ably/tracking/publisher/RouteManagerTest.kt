@@ -0,0 +1,161 @@
+package com.ably.tracking.publisher
+
+import com.ably.tracking.common.ResultCallbackFunction
+import com.ably.tracking.test.common.createLocation
+import com.google.common.truth.Truth.assertThat
+import com.mapbox.geojson.Point
+import org.junit.Test
+
+class RouteManagerTest {
+    private val destination = Destination(51.01, 0.0)
+    private val origin = createLocation(51.0, 0.0)
+    private val routeGeometry = listOf(Point.fromLngLat(0.0, 51.0), Point.fromLngLat(0.0, 51.01))
+    private val routeRequests = mutableListOf<ResultCallbackFunction<CachedRoute<String>>>()
+    private val appliedRoutes = mutableListOf<String>()
+    private var currentTime = 0L
+    private val timeProvider = object : TimeProvider() {
+        override fun getCurrentTime(): Long = currentTime
+    }
+    private val routeManager = RouteManager<String>(
+        requestRoute = { _, _, _, callback -> routeRequests.add(callback) },
+        applyRoute = { appliedRoutes.add(it) },
+        logHandler = null,
+        timeProvider = timeProvider,
+        corridorWidthInMeters = 50.0,
+        routeDurationUpdateInterval = 1000L,
+    )
+    private val routeDurations = mutableListOf<Result<Long>>()
+
+    @Test
+    fun `should apply the requested route and return its duration`() {
+        // given
+        routeManager.setRoute(origin, destination, RoutingProfile.DRIVING) { routeDurations.add(it) }
+
+        // when
+        routeRequests.single()(Result.success(CachedRoute("route", routeGeometry, 1000L)))
+
+        // then
+        assertThat(appliedRoutes).containsExactly("route")
+        assertThat(routeDurations.map { it.getOrNull() }).containsExactly(1000L)
+    }
+
+    @Test
+    fun `should return the route request failure`() {
+        // given
+        val exception = MapException(UnknownSetRouteException())
+        routeManager.setRoute(origin, destination, RoutingProfile.DRIVING) { routeDurations.add(it) }
+
+        // when
+        routeRequests.single()(Result.failure(exception))
+
+        // then
+        assertThat(appliedRoutes).isEmpty()
+        assertThat(routeDurations.single().exceptionOrNull()).isEqualTo(exception)
+    }
+
+    @Test
+    fun `should reuse the route when the same destination is set from a nearby origin`() {
+        // given
+        routeManager.setRoute(origin, destination, RoutingProfile.DRIVING) {}
+        routeRequests.single()(Result.success(CachedRoute("route", routeGeometry, 1000L)))
+
+        // when
+        routeManager.setRoute(createLocation(51.0001, 0.0001), destination, RoutingProfile.DRIVING) { routeDurations.add(it) }
+
+        // then
+        assertThat(routeRequests).hasSize(1)
+        assertThat(appliedRoutes).containsExactly("route", "route").inOrder()
+        assertThat(routeDurations.map { it.getOrNull() }).containsExactly(1000L)
+    }
+
+    @Test
+    fun `should ignore the response of an outdated route request`() {
+        // given
+        routeManager.setRoute(origin, destination, RoutingProfile.DRIVING) { routeDurations.add(it) }
+        routeManager.clearRoute()
+
+        // when
+        routeRequests.single()(Result.success(CachedRoute("route", routeGeometry, 1000L)))
+
+        // then
+        assertThat(appliedRoutes).isEmpty()
+        assertThat(routeDurations).isEmpty()
+    }
+
+    @Test
+    fun `should not request a new route when the location is within the route corridor`() {
+        // given
+        routeManager.setRoute(origin, destination, RoutingProfile.DRIVING) {}
+        routeRequests.single()(Result.success(CachedRoute("route", routeGeometry, 1000L)))
+
+        // when
+        // About 35 meters east of the route
+        routeManager.onLocationChanged(createLocation(51.005, 0.0005))
+
+        // then
+        assertThat(routeRequests).hasSize(1)
+    }
+
+    @Test
+    fun `should request a new route from the location when it leaves the route corridor`() {
+        // given
+        routeManager.setRoute(origin, destination, RoutingProfile.DRIVING) { routeDurations.add(it) }
+        routeRequests.single()(Result.success(CachedRoute("route", routeGeometry, 1000L)))
+
+        // when
+        // About 140 meters east of the route
+        routeManager.onLocationChanged(createLocation(51.005, 0.002))
+        routeRequests[1](Result.success(CachedRoute("new route", routeGeometry, 500L)))
+
+        // then
+        assertThat(appliedRoutes).containsExactly("route", "new route").inOrder()
+        assertThat(routeDurations.map { it.getOrNull() }).containsExactly(1000L, 500L).inOrder()
+    }
+
+    @Test
+    fun `should not request another route while the route is being recalculated`() {
+        // given
+        routeManager.setRoute(origin, destination, RoutingProfile.DRIVING) {}
+        routeRequests.single()(Result.success(CachedRoute("route", routeGeometry, 1000L)))
+        routeManager.onLocationChanged(createLocation(51.005, 0.002))
+
+        // when
+        routeManager.onLocationChanged(createLocation(51.005, 0.003))
+
+        // then
+        assertThat(routeRequests).hasSize(2)
+    }
+
+    @Test
+    fun `should update the route duration with the route progress at most once in the update interval`() {
+        // given
+        routeManager.setRoute(origin, destination, RoutingProfile.DRIVING) { routeDurations.add(it) }
+        routeRequests.single()(Result.success(CachedRoute("route", routeGeometry, 1000L)))
+
+        // when
+        currentTime = 500L
+        routeManager.onRouteProgressChanged(900L)
+        currentTime = 1000L
+        routeManager.onRouteProgressChanged(800L)
+        currentTime = 1500L
+        routeManager.onRouteProgressChanged(700L)
+
+        // then
+        assertThat(routeDurations.map { it.getOrNull() }).containsExactly(1000L, 800L).inOrder()
+    }
+
+    @Test
+    fun `should not update the route duration after the route is cleared`() {
+        // given
+        routeManager.setRoute(origin, destination, RoutingProfile.DRIVING) { routeDurations.add(it) }
+        routeRequests.single()(Result.success(CachedRoute("route", routeGeometry, 1000L)))
+        routeManager.clearRoute()
+
+        // when
+        currentTime = 5000L
+        routeManager.onRouteProgressChanged(900L)
+
+        // then
+        assertThat(routeDurations.map { it.getOrNull() }).containsExactly(1000L)
+    }
+}
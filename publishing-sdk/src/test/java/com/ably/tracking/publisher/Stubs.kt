@@ -3,6 +3,7 @@ package com.ably.tracking.publisher
 class HooksStub : ResolutionPolicy.Hooks {
     var trackableSetListener: ResolutionPolicy.Hooks.TrackableSetListener? = null
     var subscriberSetListener: ResolutionPolicy.Hooks.SubscriberSetListener? = null
+    var destinationProximityListener: ResolutionPolicy.Hooks.DestinationProximityListener? = null
     override fun trackables(listener: ResolutionPolicy.Hooks.TrackableSetListener) {
         trackableSetListener = listener
     }
@@ -10,12 +11,19 @@ class HooksStub : ResolutionPolicy.Hooks {
     override fun subscribers(listener: ResolutionPolicy.Hooks.SubscriberSetListener) {
         subscriberSetListener = listener
     }
+
+    override fun destinationProximity(listener: ResolutionPolicy.Hooks.DestinationProximityListener) {
+        destinationProximityListener = listener
+    }
 }
 
 class MethodsStub : ResolutionPolicy.Methods {
     private var threshold: Proximity? = null
     private var proximityHandler: ResolutionPolicy.Methods.ProximityHandler? = null
-    override fun refresh() = Unit
+    var refreshCount = 0
+    override fun refresh() {
+        refreshCount++
+    }
 
     override fun setProximityThreshold(threshold: Proximity, handler: ResolutionPolicy.Methods.ProximityHandler) {
         this.threshold = threshold
@@ -0,0 +1,102 @@
+package com.ably.tracking.publisher
+
+import com.ably.tracking.test.common.createLocation
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+
+class TrajectorySimplifierTest {
+    // About 1.1 meters of latitude
+    private val step = 0.00001
+
+    @Test
+    fun `should remove locations lying on a straight line`() {
+        // given
+        val start = createLocation(51.0, 0.0)
+        val locations = (1..9).map { createLocation(51.0 + it * step, 0.0) }
+        val end = createLocation(51.0 + 10 * step, 0.0)
+
+        // when
+        val simplifiedLocations = simplifyTrajectory(locations, start, end, 1.0)
+
+        // then
+        assertThat(simplifiedLocations).isEmpty()
+    }
+
+    @Test
+    fun `should keep locations that deviate from the trail more than the tolerance`() {
+        // given
+        val start = createLocation(51.0, 0.0)
+        val corner = createLocation(51.0 + 10 * step, 0.0)
+        val locations = (1..9).map { createLocation(51.0 + it * step, 0.0) } + corner +
+            (1..9).map { createLocation(51.0 + 10 * step, it * step) }
+        val end = createLocation(51.0 + 10 * step, 10 * step)
+
+        // when
+        val simplifiedLocations = simplifyTrajectory(locations, start, end, 1.0)
+
+        // then
+        assertThat(simplifiedLocations).containsExactly(corner)
+    }
+
+    @Test
+    fun `should keep locations that deviate from the trail less than the tolerance when it's smaller`() {
+        // given
+        val start = createLocation(51.0, 0.0)
+        // About 2.2 meters east of the line between the start and the end
+        val deviatedLocation = createLocation(51.0 + 5 * step, 0.000032)
+        val end = createLocation(51.0 + 10 * step, 0.0)
+
+        // when
+        val simplifiedWithLargeTolerance = simplifyTrajectory(listOf(deviatedLocation), start, end, 3.0)
+        val simplifiedWithSmallTolerance = simplifyTrajectory(listOf(deviatedLocation), start, end, 1.0)
+
+        // then
+        assertThat(simplifiedWithLargeTolerance).isEmpty()
+        assertThat(simplifiedWithSmallTolerance).containsExactly(deviatedLocation)
+    }
+
+    @Test
+    fun `should use the first location as the start of the trail when there is no start location`() {
+        // given
+        val locations = (0..9).map { createLocation(51.0 + it * step, 0.0) }
+        val end = createLocation(51.0 + 10 * step, 0.0)
+
+        // when
+        val simplifiedLocations = simplifyTrajectory(locations, null, end, 1.0)
+
+        // then
+        assertThat(simplifiedLocations).containsExactly(locations.first())
+    }
+
+    @Test
+    fun `should keep the order of the locations`() {
+        // given
+        val start = createLocation(51.0, 0.0)
+        val locations = listOf(
+            createLocation(51.0 + 10 * step, 0.0),
+            createLocation(51.0 + 10 * step, 10 * step),
+            createLocation(51.0, 10 * step),
+        )
+        val end = createLocation(51.0, 20 * step)
+
+        // when
+        val simplifiedLocations = simplifyTrajectory(locations, start, end, 1.0)
+
+        // then
+        assertThat(simplifiedLocations).containsExactlyElementsIn(locations).inOrder()
+    }
+
+    @Test
+    fun `should not simplify locations when the tolerance is not greater than zero`() {
+        // given
+        val start = createLocation(51.0, 0.0)
+        val locations = (1..9).map { createLocation(51.0 + it * step, 0.0) }
+        val end = createLocation(51.0 + 10 * step, 0.0)
+
+        // when
+        val simplifiedLocations = simplifyTrajectory(locations, start, end, 0.0)
+
+        // then
+        assertThat(simplifiedLocations).isEqualTo(locations)
+    }
+}
@@ -0,0 +1,193 @@
+package com.ably.tracking.publisher
+
+import com.google.common.truth.Truth.assertThat
+import com.mapbox.navigation.core.history.MapboxHistoryRecorder
+import com.mapbox.navigation.core.history.SaveHistoryCallback
+import io.mockk.every
+import io.mockk.just
+import io.mockk.mockk
+import io.mockk.runs
+import io.mockk.verify
+import org.junit.Test
+
+class TripHistoryRecorderTest {
+    private val historyRecorder = mockk<MapboxHistoryRecorder> {
+        every { startRecording() } just runs
+        every { stopRecording(any()) } answers {
+            recordedSegmentsCount++
+            firstArg<SaveHistoryCallback>().onSaved("segment$recordedSegmentsCount")
+        }
+    }
+    private var recordedSegmentsCount = 0
+    private var currentTime = 0L
+    private val timeProvider = object : TimeProvider() {
+        override fun getCurrentTime(): Long = currentTime
+    }
+    private val deletedFiles = mutableListOf<String>()
+
+    @Test
+    fun `should start recording only once when started multiple times`() {
+        // given
+        val recorder = createRecorder(TripHistoryRecording())
+
+        // when
+        recorder.start()
+        recorder.start()
+
+        // then
+        verify(exactly = 1) { historyRecorder.startRecording() }
+    }
+
+    @Test
+    fun `should not use segments when the recording is not bounded`() {
+        // given
+        val recorder = createRecorder(TripHistoryRecording())
+
+        // when
+        val segmentDuration = recorder.segmentDuration
+
+        // then
+        assertThat(segmentDuration).isNull()
+    }
+
+    @Test
+    fun `should use segments when the recording is bounded`() {
+        // given
+        val recorder = createRecorder(TripHistoryRecording(maximumDuration = 1000L, segmentDuration = 100L))
+
+        // when
+        val segmentDuration = recorder.segmentDuration
+
+        // then
+        assertThat(segmentDuration).isEqualTo(100L)
+    }
+
+    @Test
+    fun `should return the recorded file when stopped`() {
+        // given
+        val recorder = createRecorder(TripHistoryRecording())
+        recorder.start()
+        var historyFilepaths: List<String>? = null
+
+        // when
+        recorder.stop { historyFilepaths = it }
+
+        // then
+        assertThat(historyFilepaths).containsExactly("segment1")
+    }
+
+    @Test
+    fun `should return no files when stopped without being started`() {
+        // given
+        val recorder = createRecorder(TripHistoryRecording())
+        var historyFilepaths: List<String>? = null
+
+        // when
+        recorder.stop { historyFilepaths = it }
+
+        // then
+        assertThat(historyFilepaths).isEmpty()
+        verify(exactly = 0) { historyRecorder.stopRecording(any()) }
+    }
+
+    @Test
+    fun `should return all segments from the oldest when the limits are not exceeded`() {
+        // given
+        val recorder = createRecorder(TripHistoryRecording(maximumDuration = 1000L, maximumSize = 1000L))
+        recorder.start()
+        var historyFilepaths: List<String>? = null
+
+        // when
+        recorder.startNextSegment()
+        recorder.startNextSegment()
+        recorder.stop { historyFilepaths = it }
+
+        // then
+        assertThat(historyFilepaths).containsExactly("segment1", "segment2", "segment3").inOrder()
+        assertThat(deletedFiles).isEmpty()
+    }
+
+    @Test
+    fun `should remove the oldest segments when the maximum size is exceeded`() {
+        // given
+        val recorder = createRecorder(TripHistoryRecording(maximumSize = 250L), fileSize = 100L)
+        recorder.start()
+        var historyFilepaths: List<String>? = null
+
+        // when
+        recorder.startNextSegment()
+        recorder.startNextSegment()
+        recorder.startNextSegment()
+        recorder.stop { historyFilepaths = it }
+
+        // then
+        assertThat(historyFilepaths).containsExactly("segment3", "segment4").inOrder()
+        assertThat(deletedFiles).containsExactly("segment1", "segment2").inOrder()
+    }
+
+    @Test
+    fun `should keep the newest segment even if it exceeds the maximum size`() {
+        // given
+        val recorder = createRecorder(TripHistoryRecording(maximumSize = 50L), fileSize = 100L)
+        recorder.start()
+        var historyFilepaths: List<String>? = null
+
+        // when
+        recorder.startNextSegment()
+        recorder.stop { historyFilepaths = it }
+
+        // then
+        assertThat(historyFilepaths).containsExactly("segment2")
+    }
+
+    @Test
+    fun `should remove the segments that ended before the maximum duration`() {
+        // given
+        val recorder = createRecorder(TripHistoryRecording(maximumDuration = 150L))
+        recorder.start()
+        var historyFilepaths: List<String>? = null
+
+        // when
+        currentTime = 100L
+        recorder.startNextSegment()
+        currentTime = 200L
+        recorder.startNextSegment()
+        currentTime = 300L
+        recorder.stop { historyFilepaths = it }
+
+        // then
+        assertThat(historyFilepaths).containsExactly("segment2", "segment3").inOrder()
+        assertThat(deletedFiles).containsExactly("segment1")
+    }
+
+    @Test
+    fun `should return the files only after all segments are saved`() {
+        // given
+        val saveCallbacks = mutableListOf<SaveHistoryCallback>()
+        every { historyRecorder.stopRecording(capture(saveCallbacks)) } just runs
+        val recorder = createRecorder(TripHistoryRecording(maximumSize = 1000L))
+        recorder.start()
+        currentTime = 100L
+        recorder.startNextSegment()
+        var historyFilepaths: List<String>? = null
+
+        // when
+        recorder.stop { historyFilepaths = it }
+        saveCallbacks[1].onSaved("segment2")
+        val filepathsBeforeAllSegmentsAreSaved = historyFilepaths
+        saveCallbacks[0].onSaved("segment1")
+
+        // then
+        assertThat(filepathsBeforeAllSegmentsAreSaved).isNull()
+        assertThat(historyFilepaths).containsExactly("segment1", "segment2").inOrder()
+    }
+
+    private fun createRecorder(recording: TripHistoryRecording, fileSize: Long = 1L) =
+        TripHistoryRecorder(
+            historyRecorder,
+            recording,
+            timeProvider,
+            getFileSize = { fileSize },
+            deleteFile = { deletedFiles.add(it) },
+        )
+}
@@ -0,0 +1,167 @@
+package com.ably.tracking.publisher.debug
+
+import com.ably.tracking.Location
+import com.ably.tracking.common.message.GeoJsonTypes
+import com.ably.tracking.publisher.GeoJsonGeometry
+import com.ably.tracking.publisher.GeoJsonMessage
+import com.ably.tracking.publisher.GeoJsonProperties
+import com.ably.tracking.publisher.LocationHistoryReader
+import com.ably.tracking.publisher.LocationHistoryWriter
+import com.ably.tracking.publisher.LocationReplayControl
+import com.ably.tracking.publisher.TimeProvider
+import com.google.common.truth.Truth.assertThat
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.test.TestScope
+import kotlinx.coroutines.test.currentTime
+import kotlinx.coroutines.test.runTest
+import org.junit.Assert
+import org.junit.Test
+
+@OptIn(ExperimentalCoroutinesApi::class)
+class LocationHistoryReplayerTest {
+
+    @Test
+    fun `should replay all locations with the recorded time gaps`() = runTest {
+        // given
+        val replayer = createReplayer(listOf(0.0, 1.0, 3.0), LocationReplayControl(1.0))
+        val replayedLocations = mutableListOf<Location>()
+
+        // when
+        replayer.replay { replayedLocations.add(it) }
+
+        // then
+        assertThat(replayedLocations.map { it.latitude }).containsExactly(0.0, 1.0, 2.0).inOrder()
+        assertThat(replayedLocations.map { it.time }).containsExactly(0L, 1000L, 3000L).inOrder()
+    }
+
+    @Test
+    fun `should divide the time gaps by the speed multiplier`() = runTest {
+        // given
+        val replayer = createReplayer(listOf(0.0, 1.0, 3.0), LocationReplayControl(10.0))
+        val replayedLocations = mutableListOf<Location>()
+
+        // when
+        replayer.replay { replayedLocations.add(it) }
+
+        // then
+        assertThat(replayedLocations.map { it.time }).containsExactly(0L, 100L, 300L).inOrder()
+    }
+
+    @Test
+    fun `should use the changed speed multiplier for the following locations`() = runTest {
+        // given
+        val control = LocationReplayControl(1.0)
+        val replayer = createReplayer(listOf(0.0, 1.0, 2.0), control)
+        val replayedLocations = mutableListOf<Location>()
+
+        // when
+        replayer.replay {
+            replayedLocations.add(it)
+            control.speedMultiplier = 100.0
+        }
+
+        // then
+        assertThat(replayedLocations.map { it.time }).containsExactly(0L, 10L, 20L).inOrder()
+    }
+
+    @Test
+    fun `should skip locations before the seek offset when seeking forwards`() = runTest {
+        // given
+        val control = LocationReplayControl(1.0)
+        val replayer = createReplayer(listOf(10.0, 11.0, 12.0, 13.0), control)
+        val replayedLocations = mutableListOf<Location>()
+        control.seekTo(2000L)
+
+        // when
+        replayer.replay { replayedLocations.add(it) }
+
+        // then
+        assertThat(replayedLocations.map { it.latitude }).containsExactly(2.0, 3.0).inOrder()
+        assertThat(replayedLocations.map { it.time }).containsExactly(0L, 1000L).inOrder()
+    }
+
+    @Test
+    fun `should replay locations from the seek offset when seeking backwards`() = runTest {
+        // given
+        val control = LocationReplayControl(1.0)
+        val replayer = createReplayer(listOf(0.0, 1.0, 2.0, 3.0), control)
+        val replayedLocations = mutableListOf<Location>()
+        var hasSought = false
+
+        // when
+        replayer.replay {
+            replayedLocations.add(it)
+            if (it.latitude == 2.0 && !hasSought) {
+                hasSought = true
+                control.seekTo(1000L)
+            }
+        }
+
+        // then
+        assertThat(replayedLocations.map { it.latitude }).containsExactly(0.0, 1.0, 2.0, 1.0, 2.0, 3.0).inOrder()
+    }
+
+    @Test
+    fun `should not replay anything when the history is empty`() = runTest {
+        // given
+        val replayer = createReplayer(emptyList(), LocationReplayControl(1.0))
+        val replayedLocations = mutableListOf<Location>()
+
+        // when
+        replayer.replay { replayedLocations.add(it) }
+
+        // then
+        assertThat(replayedLocations).isEmpty()
+    }
+
+    @Test
+    fun `should throw an exception when the speed multiplier is too low`() {
+        // given
+        val control = LocationReplayControl(1.0)
+
+        // when
+        try {
+            control.speedMultiplier = 0.5
+            Assert.fail("Expected exception was not thrown")
+        } catch (exception: IllegalArgumentException) {
+            // then
+        }
+    }
+
+    @Test
+    fun `should throw an exception when the speed multiplier is too high`() {
+        // given
+
+        // when
+        try {
+            LocationReplayControl(101.0)
+            Assert.fail("Expected exception was not thrown")
+        } catch (exception: IllegalArgumentException) {
+            // then
+        }
+    }
+
+    /**
+     * Creates a replayer for events recorded at [eventTimesInSeconds]. The latitude of each event is its index.
+     */
+    private fun TestScope.createReplayer(eventTimesInSeconds: List<Double>, control: LocationReplayControl): LocationHistoryReplayer {
+        val outputStream = ByteArrayOutputStream()
+        LocationHistoryWriter(outputStream).use { writer ->
+            eventTimesInSeconds.forEachIndexed { index, time -> writer.write(createEvent(index, time)) }
+        }
+        val history = outputStream.toByteArray()
+        val timeProvider = object : TimeProvider() {
+            override fun getCurrentTime(): Long = currentTime
+        }
+        return LocationHistoryReplayer({ LocationHistoryReader(ByteArrayInputStream(history)) }, control, timeProvider)
+    }
+
+    private fun createEvent(index: Int, timeInSeconds: Double) =
+        GeoJsonMessage(
+            GeoJsonTypes.FEATURE,
+            GeoJsonGeometry(GeoJsonTypes.POINT, listOf(0.0, index.toDouble(), 0.0)),
+            GeoJsonProperties(1f, 0f, 0f, timeInSeconds)
+        )
+}
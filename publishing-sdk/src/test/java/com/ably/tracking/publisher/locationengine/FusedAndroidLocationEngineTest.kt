@@ -0,0 +1,155 @@
+package com.ably.tracking.publisher.locationengine
+
+import android.content.Context
+import android.location.Location
+import android.location.LocationListener
+import android.location.LocationManager
+import com.ably.tracking.Accuracy
+import com.ably.tracking.Resolution
+import com.ably.tracking.publisher.LocationBatching
+import com.google.common.truth.Truth.assertThat
+import com.mapbox.android.core.location.LocationEngineCallback
+import com.mapbox.android.core.location.LocationEngineRequest
+import com.mapbox.android.core.location.LocationEngineResult
+import io.mockk.CapturingSlot
+import io.mockk.every
+import io.mockk.just
+import io.mockk.mockk
+import io.mockk.runs
+import io.mockk.slot
+import io.mockk.verify
+import org.junit.Test
+
+class FusedAndroidLocationEngineTest {
+    private val locationManager = mockk<LocationManager> {
+        every { requestLocationUpdates(any<String>(), any<Long>(), any<Float>(), any<LocationListener>(), any()) } just runs
+        every { removeUpdates(any<LocationListener>()) } just runs
+    }
+    private val context = mockk<Context> {
+        every { getSystemService(Context.LOCATION_SERVICE) } returns locationManager
+    }
+    private val callback = mockk<LocationEngineCallback<LocationEngineResult>>(relaxed = true)
+    private val locationBatching = LocationBatching(minimumDesiredInterval = 60_000L, maximumBatchSize = 5)
+    private val engine = FusedAndroidLocationEngine(context, null, locationBatching = locationBatching)
+
+    @Test
+    fun `should deliver only the latest location of a batch to the callback`() {
+        // given
+        val listenerSlot = captureLocationListener()
+        engine.requestLocationUpdates(createRequest(), callback, null)
+        val batch = mutableListOf(createAndroidLocation(1L), createAndroidLocation(2L), createAndroidLocation(3L))
+        val resultSlot = slot<LocationEngineResult>()
+        every { callback.onSuccess(capture(resultSlot)) } just runs
+
+        // when
+        listenerSlot.captured.onLocationChanged(batch)
+
+        // then
+        verify(exactly = 1) { callback.onSuccess(any()) }
+        assertThat(resultSlot.captured.lastLocation).isEqualTo(batch[2])
+    }
+
+    @Test
+    fun `should deliver the locations that precede the latest location of a batch to the batch listener`() {
+        // given
+        val listenerSlot = captureLocationListener()
+        var precedingLocations: List<Location>? = null
+        engine.precedingBatchLocationsListener = { precedingLocations = it }
+        engine.requestLocationUpdates(createRequest(), callback, null)
+        val batch = mutableListOf(createAndroidLocation(1L), createAndroidLocation(2L), createAndroidLocation(3L))
+
+        // when
+        listenerSlot.captured.onLocationChanged(batch)
+
+        // then
+        assertThat(precedingLocations).containsExactly(batch[0], batch[1]).inOrder()
+    }
+
+    @Test
+    fun `should not call the batch listener for a single location`() {
+        // given
+        val listenerSlot = captureLocationListener()
+        var wasBatchListenerCalled = false
+        engine.precedingBatchLocationsListener = { wasBatchListenerCalled = true }
+        engine.requestLocationUpdates(createRequest(), callback, null)
+
+        // when
+        listenerSlot.captured.onLocationChanged(mutableListOf(createAndroidLocation(1L)))
+
+        // then
+        assertThat(wasBatchListenerCalled).isFalse()
+        verify(exactly = 1) { callback.onSuccess(any()) }
+    }
+
+    @Test
+    fun `should request location updates with the new resolution when resolution changes`() {
+        // given
+        val listenerSlot = captureLocationListener()
+        engine.requestLocationUpdates(createRequest(), callback, null)
+
+        // when
+        engine.changeResolution(Resolution(Accuracy.MINIMUM, 120_000L, 50.0))
+
+        // then
+        verify(exactly = 1) {
+            locationManager.removeUpdates(listenerSlot.captured)
+            locationManager.requestLocationUpdates(LocationManager.PASSIVE_PROVIDER, 120_000L, 50.0f, listenerSlot.captured, null)
+        }
+    }
+
+    @Test
+    fun `should set the max wait time when the resolution desired interval is long enough for batching`() {
+        // given
+        val resolution = Resolution(Accuracy.BALANCED, 60_000L, 50.0)
+
+        // when
+        val request = resolution.toLocationEngineRequest(locationBatching)
+
+        // then
+        assertThat(request.maxWaitTime).isEqualTo(300_000L)
+    }
+
+    @Test
+    fun `should not set the max wait time when the resolution desired interval is too short for batching`() {
+        // given
+        val resolution = Resolution(Accuracy.BALANCED, 59_999L, 50.0)
+
+        // when
+        val request = resolution.toLocationEngineRequest(locationBatching)
+
+        // then
+        assertThat(request.maxWaitTime).isEqualTo(0L)
+    }
+
+    @Test
+    fun `should not set the max wait time when batching is disabled`() {
+        // given
+        val resolution = Resolution(Accuracy.BALANCED, 60_000L, 50.0)
+
+        // when
+        val request = resolution.toLocationEngineRequest(null)
+
+        // then
+        assertThat(request.maxWaitTime).isEqualTo(0L)
+    }
+
+    private fun captureLocationListener(): CapturingSlot<LocationListener> {
+        val listenerSlot = slot<LocationListener>()
+        every {
+            locationManager.requestLocationUpdates(any<String>(), any<Long>(), any<Float>(), capture(listenerSlot), any())
+        } just runs
+        return listenerSlot
+    }
+
+    private fun createRequest(): LocationEngineRequest =
+        LocationEngineRequest.Builder(1000L)
+            .setPriority(LocationEngineRequest.PRIORITY_NO_POWER)
+            .build()
+
+    private fun createAndroidLocation(time: Long): Location =
+        mockk(relaxed = true) {
+            every { this@mockk.time } returns time
+            every { accuracy } returns 1.0f
+            every { provider } returns LocationManager.PASSIVE_PROVIDER
+        }
+}
@@ -1,6 +1,7 @@
 package com.ably.tracking.publisher.workerqueue.workers
 
 import com.ably.tracking.common.TimeProvider
+import com.ably.tracking.publisher.Destination
 import com.ably.tracking.publisher.workerqueue.WorkerSpecification
 import com.google.common.truth.Truth.assertThat
 import io.mockk.every
@@ -10,7 +11,9 @@ import org.junit.Test
 class DestinationSetWorkerTest {
     private val timeProvider: TimeProvider = mockk()
     private val routeDurationInMilliseconds = 500L
+    private val destination = Destination(1.0, 2.0)
     private val worker = DestinationSetWorker(
+        destination = destination,
         routeDurationInMilliseconds = routeDurationInMilliseconds,
         timeProvider = timeProvider
     )
@@ -21,6 +24,7 @@ class DestinationSetWorkerTest {
     fun `should calculate the eta by adding route duration to the current time`() {
         // given
         val initialProperties = createPublisherProperties()
+        initialProperties.currentDestination = destination
         timeProvider.mockCurrentTime(1000L)
 
         // when
@@ -37,6 +41,26 @@ class DestinationSetWorkerTest {
         assertThat(postedWorks).isEmpty()
     }
 
+    @Test
+    fun `should not update the eta if the destination was changed or removed since the route was requested`() {
+        // given
+        val initialProperties = createPublisherProperties()
+        initialProperties.currentDestination = Destination(3.0, 4.0)
+        timeProvider.mockCurrentTime(1000L)
+
+        // when
+        val updatedProperties = worker.doWork(
+            initialProperties,
+            asyncWorks.appendWork(),
+            postedWorks.appendSpecification()
+        )
+
+        // then
+        assertThat(updatedProperties.estimatedArrivalTimeInMilliseconds).isNull()
+        assertThat(asyncWorks).isEmpty()
+        assertThat(postedWorks).isEmpty()
+    }
+
     private fun TimeProvider.mockCurrentTime(currentTimeInMilliseconds: Long) {
         every { getCurrentTimeInMilliseconds() } returns currentTimeInMilliseconds
     }
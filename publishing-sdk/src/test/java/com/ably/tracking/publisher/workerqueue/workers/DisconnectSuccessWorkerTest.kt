@@ -9,6 +9,7 @@ import com.ably.tracking.TrackableState
 import com.ably.tracking.common.Ably
 import com.ably.tracking.common.ConnectionState
 import com.ably.tracking.common.ConnectionStateChange
+import com.ably.tracking.publisher.EnhancedLocationUpdateEvent
 import com.ably.tracking.publisher.PublisherInteractor
 import com.ably.tracking.publisher.PublisherProperties
 import com.ably.tracking.publisher.Trackable
@@ -381,8 +382,10 @@ class DisconnectSuccessWorkerTest {
         // given
         val initialProperties = createPublisherPropertiesWithMultipleTrackables()
         initialProperties.enhancedLocationsPublishingState.markMessageAsPending(trackable.id)
-        val locationUpdateEvent =
-            EnhancedLocationUpdate(anyLocation(), emptyList(), emptyList(), LocationUpdateType.ACTUAL)
+        val locationUpdateEvent = EnhancedLocationUpdateEvent(
+            EnhancedLocationUpdate(anyLocation(), emptyList(), emptyList(), LocationUpdateType.ACTUAL),
+            null
+        )
         initialProperties.enhancedLocationsPublishingState.addToWaiting(trackable.id, locationUpdateEvent)
         initialProperties.enhancedLocationsPublishingState.maxOutRetryCount(trackable.id)
 
@@ -22,9 +22,10 @@ class EnhancedLocationChangedWorkerTest {
     private val intermediateLocations = listOf(anyLocation(), anyLocation())
     private val type = LocationUpdateType.ACTUAL
     private val publisherInteractor: PublisherInteractor = mockk {
-        every { processEnhancedLocationUpdate(any(), any(), any()) } just runs
+        every { processEnhancedLocationUpdate(any(), any(), any(), any()) } just runs
         every { updateLocations(any()) } just runs
         every { checkThreshold(any(), any(), any()) } just runs
+        every { checkGeofences(any(), any()) } just runs
     }
 
     private val worker = EnhancedLocationChangedWorker(location, intermediateLocations, type, publisherInteractor, null)
@@ -53,8 +54,8 @@ class EnhancedLocationChangedWorkerTest {
         assertThat(postedWorks).isEmpty()
 
         verify(exactly = 1) {
-            publisherInteractor.processEnhancedLocationUpdate(any(), initialProperties, firstTrackable.id)
-            publisherInteractor.processEnhancedLocationUpdate(any(), initialProperties, secondTrackable.id)
+            publisherInteractor.processEnhancedLocationUpdate(any(), initialProperties, firstTrackable.id, any())
+            publisherInteractor.processEnhancedLocationUpdate(any(), initialProperties, secondTrackable.id, any())
         }
     }
 
@@ -101,6 +102,24 @@ class EnhancedLocationChangedWorkerTest {
         }
     }
 
+    @Test
+    fun `should check geofences`() {
+        // given
+        val initialProperties = createPublisherProperties()
+
+        // when
+        worker.doWork(
+            initialProperties,
+            asyncWorks.appendWork(),
+            postedWorks.appendSpecification()
+        )
+
+        // then
+        verify(exactly = 1) {
+            publisherInteractor.checkGeofences(location, initialProperties)
+        }
+    }
+
     private fun mockUpdateLocationsAndCaptureLocationUpdate(): CapturingSlot<EnhancedLocationUpdate> {
         val locationUpdateSlot = slot<EnhancedLocationUpdate>()
         every { publisherInteractor.updateLocations(capture(locationUpdateSlot)) } just runs
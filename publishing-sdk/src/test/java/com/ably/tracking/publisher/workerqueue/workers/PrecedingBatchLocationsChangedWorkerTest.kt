@@ -0,0 +1,78 @@
+package com.ably.tracking.publisher.workerqueue.workers
+
+import com.ably.tracking.publisher.PublisherInteractor
+import com.ably.tracking.publisher.Trackable
+import com.ably.tracking.publisher.workerqueue.WorkerSpecification
+import com.ably.tracking.test.common.createLocation
+import com.google.common.truth.Truth.assertThat
+import io.mockk.every
+import io.mockk.just
+import io.mockk.mockk
+import io.mockk.runs
+import io.mockk.verify
+import org.junit.Test
+
+class PrecedingBatchLocationsChangedWorkerTest {
+    private val publisherInteractor: PublisherInteractor = mockk {
+        every { saveEnhancedLocationForFurtherSending(any(), any(), any()) } just runs
+        every { saveRawLocationForFurtherSending(any(), any(), any()) } just runs
+    }
+    private val firstLocation = createLocation(timestamp = 1L)
+    private val secondLocation = createLocation(timestamp = 2L)
+
+    private val worker = PrecedingBatchLocationsChangedWorker(listOf(firstLocation, secondLocation), publisherInteractor, null)
+
+    private val asyncWorks = mutableListOf<suspend () -> Unit>()
+    private val postedWorks = mutableListOf<WorkerSpecification>()
+
+    @Test
+    fun `should save all locations as skipped enhanced locations for all trackables`() {
+        // given
+        val initialProperties = createPublisherProperties(areRawLocationsEnabled = false)
+        val firstTrackable = Trackable("first-trackable")
+        initialProperties.trackables.add(firstTrackable)
+        val secondTrackable = Trackable("second-trackable")
+        initialProperties.trackables.add(secondTrackable)
+
+        // when
+        val updatedProperties = worker.doWork(
+            initialProperties,
+            asyncWorks.appendWork(),
+            postedWorks.appendSpecification()
+        )
+
+        // then
+        assertThat(asyncWorks).isEmpty()
+        assertThat(postedWorks).isEmpty()
+        verify(exactly = 1) {
+            publisherInteractor.saveEnhancedLocationForFurtherSending(updatedProperties, firstTrackable.id, firstLocation)
+            publisherInteractor.saveEnhancedLocationForFurtherSending(updatedProperties, firstTrackable.id, secondLocation)
+            publisherInteractor.saveEnhancedLocationForFurtherSending(updatedProperties, secondTrackable.id, firstLocation)
+            publisherInteractor.saveEnhancedLocationForFurtherSending(updatedProperties, secondTrackable.id, secondLocation)
+        }
+        verify(exactly = 0) {
+            publisherInteractor.saveRawLocationForFurtherSending(any(), any(), any())
+        }
+    }
+
+    @Test
+    fun `should also save all locations as skipped raw locations if raw locations sending is enabled`() {
+        // given
+        val initialProperties = createPublisherProperties(areRawLocationsEnabled = true)
+        val trackable = Trackable("first-trackable")
+        initialProperties.trackables.add(trackable)
+
+        // when
+        val updatedProperties = worker.doWork(
+            initialProperties,
+            asyncWorks.appendWork(),
+            postedWorks.appendSpecification()
+        )
+
+        // then
+        verify(exactly = 1) {
+            publisherInteractor.saveRawLocationForFurtherSending(updatedProperties, trackable.id, firstLocation)
+            publisherInteractor.saveRawLocationForFurtherSending(updatedProperties, trackable.id, secondLocation)
+        }
+    }
+}
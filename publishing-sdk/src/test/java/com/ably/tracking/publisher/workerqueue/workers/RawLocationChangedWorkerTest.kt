@@ -1,6 +1,8 @@
 package com.ably.tracking.publisher.workerqueue.workers
 
 import com.ably.tracking.Location
+import com.ably.tracking.publisher.Destination
+import com.ably.tracking.publisher.Mapbox
 import com.ably.tracking.publisher.PublisherInteractor
 import com.ably.tracking.publisher.PublisherProperties
 import com.ably.tracking.publisher.Trackable
@@ -19,9 +21,10 @@ import org.junit.Test
 @ExperimentalCoroutinesApi
 class RawLocationChangedWorkerTest {
     private val publisherInteractor: PublisherInteractor = mockk()
+    private val mapbox: Mapbox = mockk(relaxed = true)
     private val location: Location = createLocation()
 
-    private val worker = RawLocationChangedWorker(location, publisherInteractor, null)
+    private val worker = RawLocationChangedWorker(location, publisherInteractor, mapbox, null)
 
     private val asyncWorks = mutableListOf<suspend () -> Unit>()
     private val postedWorks = mutableListOf<WorkerSpecification>()
@@ -98,6 +101,31 @@ class RawLocationChangedWorkerTest {
         }
     }
 
+    @Test
+    fun `should not process any raw location update if location updates are combined`() {
+        // given
+        val initialProperties = createPublisherProperties(areRawLocationsEnabled = true, areLocationUpdatesCombined = true)
+
+        val trackable = Trackable("trackable")
+        initialProperties.trackables.add(trackable)
+
+        // when
+        val updatedProperties = worker.doWork(
+            initialProperties,
+            asyncWorks.appendWork(),
+            postedWorks.appendSpecification()
+        )
+
+        // then
+        assertThat(asyncWorks).isEmpty()
+        assertThat(postedWorks).isEmpty()
+        assertThat(updatedProperties.lastPublisherLocation).isEqualTo(location)
+
+        verify(exactly = 0) {
+            publisherInteractor.processRawLocationUpdate(any(), any(), any())
+        }
+    }
+
     @Test
     fun `should call the raw location changed commands if they are present`() {
         // given
@@ -151,5 +179,38 @@ class RawLocationChangedWorkerTest {
         assertThat(updatedProperties.rawLocationChangedCommands).isEmpty()
     }
 
+    @Test
+    fun `should check the route corridor with the location if there is a destination`() {
+        // given
+        val initialProperties = createPublisherProperties()
+        initialProperties.currentDestination = Destination(1.0, 2.0)
+
+        // when
+        worker.doWork(
+            initialProperties,
+            asyncWorks.appendWork(),
+            postedWorks.appendSpecification()
+        )
+
+        // then
+        verify(exactly = 1) { mapbox.checkRouteCorridor(location) }
+    }
+
+    @Test
+    fun `should not check the route corridor if there is no destination`() {
+        // given
+        val initialProperties = createPublisherProperties()
+
+        // when
+        worker.doWork(
+            initialProperties,
+            asyncWorks.appendWork(),
+            postedWorks.appendSpecification()
+        )
+
+        // then
+        verify(exactly = 0) { mapbox.checkRouteCorridor(any()) }
+    }
+
     private fun anyRawLocationChangedCommandMock(): (PublisherProperties) -> Unit = mockk(relaxed = true)
 }
@@ -16,13 +16,14 @@ import org.junit.Test
 class SendEnhancedLocationFailureWorkerTest {
     private val locationUpdate =
         EnhancedLocationUpdate(anyLocation(), emptyList(), emptyList(), LocationUpdateType.ACTUAL)
+    private val rawLocation = anyLocation()
     private val trackableId = "test-trackable"
     private val publisherInteractor: PublisherInteractor = mockk {
         every { saveEnhancedLocationForFurtherSending(any(), any(), any()) } just runs
-        every { retrySendingEnhancedLocation(any(), any(), any()) } just runs
+        every { retrySendingEnhancedLocation(any(), any(), any(), any()) } just runs
         every { processNextWaitingEnhancedLocationUpdate(any(), any()) } just runs
     }
-    private val worker = SendEnhancedLocationFailureWorker(locationUpdate, trackableId, null, publisherInteractor, null)
+    private val worker = SendEnhancedLocationFailureWorker(locationUpdate, trackableId, null, rawLocation, publisherInteractor, null)
 
     private val asyncWorks = mutableListOf<suspend () -> Unit>()
     private val postedWorks = mutableListOf<WorkerSpecification>()
@@ -46,7 +47,7 @@ class SendEnhancedLocationFailureWorkerTest {
         assertThat(postedWorks).isEmpty()
 
         verify(exactly = 1) {
-            publisherInteractor.retrySendingEnhancedLocation(initialProperties, trackableId, locationUpdate)
+            publisherInteractor.retrySendingEnhancedLocation(initialProperties, trackableId, locationUpdate, rawLocation)
         }
     }
 
@@ -68,7 +69,7 @@ class SendEnhancedLocationFailureWorkerTest {
         assertThat(postedWorks).isEmpty()
 
         verify(exactly = 0) {
-            publisherInteractor.retrySendingEnhancedLocation(updatedProperties, trackableId, locationUpdate)
+            publisherInteractor.retrySendingEnhancedLocation(updatedProperties, trackableId, locationUpdate, rawLocation)
         }
     }
 
@@ -18,7 +18,7 @@ class SendEnhancedLocationSuccessWorkerTest {
         every { processNextWaitingEnhancedLocationUpdate(any(), any()) } just runs
     }
     private val location = anyLocation()
-    private val worker = SendEnhancedLocationSuccessWorker(location, trackableId, publisherInteractor, null)
+    private val worker = SendEnhancedLocationSuccessWorker(location, trackableId, false, publisherInteractor, null)
 
     private val asyncWorks = mutableListOf<suspend () -> Unit>()
     private val postedWorks = mutableListOf<WorkerSpecification>()
@@ -84,6 +84,49 @@ class SendEnhancedLocationSuccessWorkerTest {
             .isEmpty()
     }
 
+    @Test
+    fun `should keep the sent locations trail when the trail was omitted from the sent location update`() {
+        // given
+        val initialProperties = createPublisherProperties()
+        initialProperties.sentEnhancedLocationsTrail.addAll(trackableId, listOf(anyLocation()))
+        val worker = SendEnhancedLocationSuccessWorker(location, trackableId, true, publisherInteractor, null)
+
+        // when
+        val updatedProperties = worker.doWork(
+            initialProperties,
+            asyncWorks.appendWork(),
+            postedWorks.appendSpecification()
+        )
+
+        // then
+        assertThat(asyncWorks).isEmpty()
+        assertThat(postedWorks).isEmpty()
+
+        assertThat(updatedProperties.sentEnhancedLocationsTrail.toList(trackableId))
+            .hasSize(1)
+    }
+
+    @Test
+    fun `should clear the sent locations trail when the trail was included in the sent location update`() {
+        // given
+        val initialProperties = createPublisherProperties()
+        initialProperties.sentEnhancedLocationsTrail.addAll(trackableId, listOf(anyLocation()))
+
+        // when
+        val updatedProperties = worker.doWork(
+            initialProperties,
+            asyncWorks.appendWork(),
+            postedWorks.appendSpecification()
+        )
+
+        // then
+        assertThat(asyncWorks).isEmpty()
+        assertThat(postedWorks).isEmpty()
+
+        assertThat(updatedProperties.sentEnhancedLocationsTrail.toList(trackableId))
+            .isEmpty()
+    }
+
     @Test
     fun `should update the trackable state`() {
         // given
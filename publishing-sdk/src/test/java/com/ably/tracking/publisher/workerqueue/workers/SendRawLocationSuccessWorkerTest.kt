@@ -20,7 +20,7 @@ class SendRawLocationSuccessWorkerTest {
         every { processNextWaitingRawLocationUpdate(any(), any()) } just runs
     }
 
-    private val worker = SendRawLocationSuccessWorker(location, trackableId, publisherInteractor, null)
+    private val worker = SendRawLocationSuccessWorker(location, trackableId, false, publisherInteractor, null)
 
     private val asyncWorks = mutableListOf<suspend () -> Unit>()
     private val postedWorks = mutableListOf<WorkerSpecification>()
@@ -88,6 +88,49 @@ class SendRawLocationSuccessWorkerTest {
             .isEmpty()
     }
 
+    @Test
+    fun `should keep the sent locations trail when the trail was omitted from the sent location update`() {
+        // given
+        val initialProperties = createPublisherProperties()
+        initialProperties.sentRawLocationsTrail.addAll(trackableId, listOf(anyLocation()))
+        val worker = SendRawLocationSuccessWorker(location, trackableId, true, publisherInteractor, null)
+
+        // when
+        val updatedProperties = worker.doWork(
+            initialProperties,
+            asyncWorks.appendWork(),
+            postedWorks.appendSpecification()
+        )
+
+        // then
+        assertThat(asyncWorks).isEmpty()
+        assertThat(postedWorks).isEmpty()
+
+        assertThat(updatedProperties.sentRawLocationsTrail.toList(trackableId))
+            .hasSize(1)
+    }
+
+    @Test
+    fun `should clear the sent locations trail when the trail was included in the sent location update`() {
+        // given
+        val initialProperties = createPublisherProperties()
+        initialProperties.sentRawLocationsTrail.addAll(trackableId, listOf(anyLocation()))
+
+        // when
+        val updatedProperties = worker.doWork(
+            initialProperties,
+            asyncWorks.appendWork(),
+            postedWorks.appendSpecification()
+        )
+
+        // then
+        assertThat(asyncWorks).isEmpty()
+        assertThat(postedWorks).isEmpty()
+
+        assertThat(updatedProperties.sentRawLocationsTrail.toList(trackableId))
+            .isEmpty()
+    }
+
     @Test
     fun `should process the next waiting location update if it is available`() {
         // given
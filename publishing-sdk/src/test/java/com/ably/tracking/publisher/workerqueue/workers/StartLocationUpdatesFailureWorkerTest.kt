@@ -0,0 +1,57 @@
+package com.ably.tracking.publisher.workerqueue.workers
+
+import com.ably.tracking.ErrorInformation
+import com.ably.tracking.publisher.Trackable
+import com.ably.tracking.publisher.workerqueue.WorkerSpecification
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+
+class StartLocationUpdatesFailureWorkerTest {
+    private val worker = StartLocationUpdatesFailureWorker(
+        exception = IllegalStateException("MapboxNavigation creation failed")
+    )
+
+    private val asyncWorks = mutableListOf<suspend () -> Unit>()
+    private val postedWorks = mutableListOf<WorkerSpecification>()
+
+    @Test
+    fun `should fail all trackables when starting the location updates failed`() {
+        // given
+        val trackables = listOf(Trackable("first"), Trackable("second"))
+        val initialProperties = createPublisherProperties()
+        initialProperties.trackables.addAll(trackables)
+
+        // when
+        worker.doWork(
+            initialProperties,
+            asyncWorks.appendWork(),
+            postedWorks.appendSpecification()
+        )
+
+        // then
+        val errorInformation = ErrorInformation("Starting the location updates failed: MapboxNavigation creation failed")
+        assertThat(asyncWorks).isEmpty()
+        assertThat(postedWorks).containsExactly(
+            WorkerSpecification.FailTrackable(trackables[0], errorInformation),
+            WorkerSpecification.FailTrackable(trackables[1], errorInformation),
+        )
+    }
+
+    @Test
+    fun `should mark the publisher as not tracking when starting the location updates failed`() {
+        // given
+        val initialProperties = createPublisherProperties()
+        initialProperties.isTracking = true
+
+        // when
+        val updatedProperties = worker.doWork(
+            initialProperties,
+            asyncWorks.appendWork(),
+            postedWorks.appendSpecification()
+        )
+
+        // then
+        assertThat(updatedProperties.isTracking).isFalse()
+        assertThat(postedWorks).isEmpty()
+    }
+}
@@ -36,14 +36,16 @@ internal fun createPublisherProperties(
     isLocationEngineResolutionConstant: Boolean = false,
     areRawLocationsEnabled: Boolean? = null,
     onActiveTrackableUpdated: (Trackable?) -> Unit = {},
-    onRoutingProfileUpdated: (RoutingProfile) -> Unit = {}
+    onRoutingProfileUpdated: (RoutingProfile) -> Unit = {},
+    areLocationUpdatesCombined: Boolean = false,
 ): PublisherProperties = PublisherProperties(
     routingProfile,
     locationEngineResolution,
     isLocationEngineResolutionConstant,
     areRawLocationsEnabled,
     onActiveTrackableUpdated,
-    onRoutingProfileUpdated
+    onRoutingProfileUpdated,
+    areLocationUpdatesCombined,
 )
 
 internal fun PublisherProperties.insertResolutions(resolutionSet: Set<Resolution>): PublisherProperties {
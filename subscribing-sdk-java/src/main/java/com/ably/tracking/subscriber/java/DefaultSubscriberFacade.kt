@@ -1,24 +1,32 @@
 package com.ably.tracking.subscriber.java
 
+import com.ably.tracking.Location
 import com.ably.tracking.Resolution
+import com.ably.tracking.UpdateListener
 import com.ably.tracking.annotations.Experimental
 import com.ably.tracking.java.LocationUpdateIntervalListener
 import com.ably.tracking.java.LocationUpdateListener
+import com.ably.tracking.java.LocationUpdatesListener
 import com.ably.tracking.java.ResolutionListener
 import com.ably.tracking.java.TrackableStateListener
+import com.ably.tracking.java.UpdateBatcher
 import com.ably.tracking.subscriber.Subscriber
 import java.util.concurrent.CompletableFuture
+import java.util.concurrent.Executor
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.asCoroutineDispatcher
+import kotlinx.coroutines.asExecutor
 import kotlinx.coroutines.flow.launchIn
 import kotlinx.coroutines.flow.onEach
 import kotlinx.coroutines.future.future
 
 internal class DefaultSubscriberFacade(
-    private val subscriber: Subscriber
+    private val subscriber: Subscriber,
+    private val listenerExecutor: Executor = Dispatchers.Main.asExecutor(),
 ) : SubscriberFacade, Subscriber by subscriber {
-    private val scope = CoroutineScope(Dispatchers.Main + SupervisorJob())
+    private val scope = CoroutineScope(listenerExecutor.asCoroutineDispatcher() + SupervisorJob())
 
     @Suppress("DEPRECATION")
     @Deprecated("Use sendResolutionPreferenceAsync instead")
@@ -29,16 +37,24 @@ internal class DefaultSubscriberFacade(
     override fun sendResolutionPreferenceAsync(resolution: Resolution?) =
         subscriber.sendResolutionPreference(resolution)
 
+    @OptIn(Experimental::class)
     override fun addLocationListener(listener: LocationUpdateListener) {
-        subscriber.locations
-            .onEach { listener.onLocationUpdate(it) }
-            .launchIn(scope)
+        subscriber.addLocationUpdateListener(UpdateListener { listener.onLocationUpdate(it) }, listenerExecutor, replayLatest = true)
     }
 
+    @OptIn(Experimental::class)
     override fun addRawLocationListener(listener: LocationUpdateListener) {
-        subscriber.rawLocations
-            .onEach { listener.onLocationUpdate(it) }
-            .launchIn(scope)
+        subscriber.addRawLocationUpdateListener(UpdateListener { listener.onLocationUpdate(it) }, listenerExecutor, replayLatest = true)
+    }
+
+    @OptIn(Experimental::class)
+    override fun addBatchedLocationListener(listener: LocationUpdatesListener, frameIntervalInMilliseconds: Long) {
+        subscriber.addLocationUpdateListener(UpdateBatcher(frameIntervalInMilliseconds, scope, listener::onLocationUpdates))
+    }
+
+    @OptIn(Experimental::class)
+    override fun addBatchedRawLocationListener(listener: LocationUpdatesListener, frameIntervalInMilliseconds: Long) {
+        subscriber.addRawLocationUpdateListener(UpdateBatcher(frameIntervalInMilliseconds, scope, listener::onLocationUpdates))
     }
 
     override fun addListener(listener: TrackableStateListener) {
@@ -78,6 +94,10 @@ internal class DefaultSubscriberFacade(
             .launchIn(scope)
     }
 
+    @Experimental
+    override fun getStoredLocationsAsync(fromTimeInMilliseconds: Long, toTimeInMilliseconds: Long): CompletableFuture<List<Location>> =
+        scope.future { subscriber.getStoredLocations(fromTimeInMilliseconds, toTimeInMilliseconds) }
+
     override fun stopAsync(): CompletableFuture<Void> {
         return scope.future { subscriber.stop() }.thenRun { }
     }
@@ -1,13 +1,16 @@
 package com.ably.tracking.subscriber.java
 
+import com.ably.tracking.Location
 import com.ably.tracking.Resolution
 import com.ably.tracking.annotations.Experimental
 import com.ably.tracking.java.LocationUpdateIntervalListener
 import com.ably.tracking.java.LocationUpdateListener
+import com.ably.tracking.java.LocationUpdatesListener
 import com.ably.tracking.java.ResolutionListener
 import com.ably.tracking.java.TrackableStateListener
 import com.ably.tracking.subscriber.Subscriber
 import java.util.concurrent.CompletableFuture
+import java.util.concurrent.Executor
 
 /**
  * Methods provided for those using the [Subscriber] from Java code (Java 1.8 or higher).
@@ -49,6 +52,7 @@ interface SubscriberFacade : Subscriber {
 
     /**
      * Adds a handler to be notified when an enhanced location update is available.
+     * The handler is also notified of the latest enhanced location update, if there is one, when it's added.
      *
      * @param listener The listening function to be notified.
      */
@@ -56,11 +60,32 @@ interface SubscriberFacade : Subscriber {
 
     /**
      * Adds a handler to be notified when a raw location update is available.
+     * The handler is also notified of the latest raw location update, if there is one, when it's added.
      *
      * @param listener The listening function to be notified.
      */
     fun addRawLocationListener(listener: LocationUpdateListener)
 
+    /**
+     * Adds a handler to be notified with the enhanced location updates received within each frame interval, in
+     * a single notification per frame. Use it instead of [addLocationListener] when many updates are received, so that
+     * they don't flood the thread the listeners are notified on.
+     *
+     * @param listener The listening function to be notified.
+     * @param frameIntervalInMilliseconds The time to accumulate the location updates for, before notifying the [listener].
+     */
+    fun addBatchedLocationListener(listener: LocationUpdatesListener, frameIntervalInMilliseconds: Long)
+
+    /**
+     * Adds a handler to be notified with the raw location updates received within each frame interval, in a single
+     * notification per frame. Use it instead of [addRawLocationListener] when many updates are received, so that they
+     * don't flood the thread the listeners are notified on.
+     *
+     * @param listener The listening function to be notified.
+     * @param frameIntervalInMilliseconds The time to accumulate the location updates for, before notifying the [listener].
+     */
+    fun addBatchedRawLocationListener(listener: LocationUpdatesListener, frameIntervalInMilliseconds: Long)
+
     /**
      * Adds a handler to be notified when the online state of the trackable changes.
      *
@@ -102,6 +127,18 @@ interface SubscriberFacade : Subscriber {
      */
     fun addNextLocationUpdateIntervalListener(listener: LocationUpdateIntervalListener)
 
+    /**
+     * EXPERIMENTAL API
+     *
+     * Returns the received enhanced locations kept in the on-device store, see [Subscriber.getStoredLocations].
+     *
+     * @param fromTimeInMilliseconds The time of the oldest location to return, inclusive.
+     * @param toTimeInMilliseconds The time of the newest location to return, inclusive.
+     * @return A [CompletableFuture] with the stored locations in the time range ordered by their time.
+     */
+    @Experimental
+    fun getStoredLocationsAsync(fromTimeInMilliseconds: Long, toTimeInMilliseconds: Long): CompletableFuture<List<Location>>
+
     /**
      * Stops this subscriber from listening to published locations. Once a subscriber has been stopped, it cannot be
      * restarted.
@@ -124,6 +161,15 @@ interface SubscriberFacade : Subscriber {
             }
         }
 
+        /**
+         * **OPTIONAL** Sets the executor that notifies the listeners of the created [SubscriberFacade].
+         * The listeners are notified on the main thread by default.
+         *
+         * @param executor The executor that invokes the listeners.
+         * @return A new instance of the builder with this property changed.
+         */
+        fun listenerExecutor(executor: Executor): Builder
+
         /**
          * Creates a [SubscriberFacade] and starts listening for location updates.
          *
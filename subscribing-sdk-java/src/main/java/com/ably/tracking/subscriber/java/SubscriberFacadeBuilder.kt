@@ -4,15 +4,21 @@ import com.ably.tracking.subscriber.Subscriber
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.asExecutor
 import kotlinx.coroutines.future.future
 import java.util.concurrent.CompletableFuture
+import java.util.concurrent.Executor
 
-class SubscriberFacadeBuilder(
-    private val builder: Subscriber.Builder
+class SubscriberFacadeBuilder @JvmOverloads constructor(
+    private val builder: Subscriber.Builder,
+    private val listenerExecutor: Executor = Dispatchers.Main.asExecutor(),
 ) : SubscriberFacade.Builder, Subscriber.Builder by builder {
     private val scope = CoroutineScope(Dispatchers.Main + SupervisorJob())
 
+    override fun listenerExecutor(executor: Executor): SubscriberFacade.Builder =
+        SubscriberFacadeBuilder(builder, executor)
+
     override fun startAsync(): CompletableFuture<SubscriberFacade> {
-        return scope.future { DefaultSubscriberFacade(builder.start()) }
+        return scope.future { DefaultSubscriberFacade(builder.start(), listenerExecutor) }
     }
 }
@@ -0,0 +1,233 @@
+package com.ably.tracking.subscriber
+
+import com.ably.tracking.FlowPolicy
+import com.ably.tracking.LocationUpdate
+import com.ably.tracking.LocationUpdatePayload
+import com.ably.tracking.Resolution
+import com.ably.tracking.common.Ably
+import com.ably.tracking.common.ConnectionStateChange
+import com.ably.tracking.common.PolicySharedFlow
+import com.ably.tracking.common.logging.createLoggingTag
+import com.ably.tracking.common.logging.w
+import com.ably.tracking.common.workerqueue.Properties
+import com.ably.tracking.common.workerqueue.WorkerQueue
+import com.ably.tracking.logging.LogHandler
+import com.ably.tracking.subscriber.workerqueue.MultiWorkerFactory
+import com.ably.tracking.subscriber.workerqueue.MultiWorkerSpecification
+import com.ably.tracking.subscriber.workerqueue.WorkerFactory
+import com.ably.tracking.subscriber.workerqueue.WorkerSpecification
+import java.io.IOException
+import java.util.concurrent.atomic.AtomicBoolean
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.flow.SharedFlow
+import kotlinx.coroutines.withContext
+
+/**
+ * This interface exposes methods for [DefaultMultiSubscriber].
+ */
+internal interface CoreMultiSubscriber {
+    fun enqueue(workerSpecification: MultiWorkerSpecification)
+
+    /**
+     * Returns the core of the trackable, adding the trackable if it's not subscribed yet.
+     * An added trackable has to be started with [WorkerSpecification.StartConnection].
+     *
+     * @return The core of the trackable and whether the trackable has been added.
+     */
+    fun getOrAddTrackable(trackableId: String, initialResolution: Resolution?): Pair<CoreSubscriber, Boolean>
+    fun getTrackable(trackableId: String): CoreSubscriber?
+
+    /**
+     * Emits the last location from the location store of the trackable, if the store is enabled.
+     * It should be called before an added trackable is started, so that the restored location precedes the received ones.
+     */
+    suspend fun restoreStoredLocation(trackableId: String)
+    val trackableIds: Set<String>
+    val locations: SharedFlow<TrackableLocationUpdate>
+    val locationsOverflowCount: Long
+}
+
+/**
+ * This interface exposes methods for workers created by [MultiWorkerFactory].
+ */
+internal interface MultiSubscriberInteractor {
+    fun notifyAllAssetsAreOffline()
+}
+
+internal fun createCoreMultiSubscriber(
+    ably: Ably,
+    logHandler: LogHandler?,
+    locationPayload: LocationUpdatePayload = LocationUpdatePayload.FULL,
+    flowPolicy: FlowPolicy = FlowPolicy.SUSPEND,
+    locationReorderingWindowInMilliseconds: Long? = null,
+    locationStoreConfiguration: LocationStoreConfiguration? = null,
+): CoreMultiSubscriber {
+    return DefaultCoreMultiSubscriber(
+        ably,
+        logHandler,
+        locationPayload,
+        flowPolicy,
+        locationReorderingWindowInMilliseconds,
+        locationStoreConfiguration,
+    )
+}
+
+private class DefaultCoreMultiSubscriber(
+    private val ably: Ably,
+    private val logHandler: LogHandler?,
+    private val locationPayload: LocationUpdatePayload,
+    private val flowPolicy: FlowPolicy,
+    private val locationReorderingWindowInMilliseconds: Long?,
+    private val locationStoreConfiguration: LocationStoreConfiguration?,
+) : CoreMultiSubscriber, MultiSubscriberInteractor {
+    private val TAG = createLoggingTag(this)
+    private val scope = CoroutineScope(singleThreadDispatcher + SupervisorJob())
+    private val workerQueue: WorkerQueue<MultiSubscriberProperties, MultiWorkerSpecification>
+    private val trackables: MutableMap<String, MultiplexedTrackableCoreSubscriber> = HashMap()
+    private val _locations = PolicySharedFlow<TrackableLocationUpdate>(flowPolicy, scope)
+
+    override val trackableIds: Set<String>
+        get() = synchronized(trackables) { trackables.keys.toSet() }
+
+    override val locations: SharedFlow<TrackableLocationUpdate>
+        get() = _locations.sharedFlow
+
+    override val locationsOverflowCount: Long
+        get() = _locations.overflowCount
+
+    init {
+        workerQueue = WorkerQueue(
+            properties = MultiSubscriberProperties(),
+            scope = scope,
+            workerFactory = MultiWorkerFactory(this, ably),
+            copyProperties = { copy() },
+            getStoppedException = { SubscriberStoppedException() },
+            logHandler = logHandler,
+        )
+
+        // A single listener for all the trackables, as they share the connection
+        ably.subscribeForAblyStateChange { enqueue(MultiWorkerSpecification.UpdateConnectionState(it)) }
+    }
+
+    override fun enqueue(workerSpecification: MultiWorkerSpecification) {
+        workerQueue.enqueue(workerSpecification)
+    }
+
+    override fun getOrAddTrackable(trackableId: String, initialResolution: Resolution?): Pair<CoreSubscriber, Boolean> {
+        synchronized(trackables) {
+            trackables[trackableId]?.let { return it to false }
+            // Each instance of the trackable holds its own reference to the store, which is released when it's removed
+            val locationStore = locationStoreConfiguration?.let { LocationStore.acquire(it, trackableId) }
+            val eventFlows = createEventFlows(
+                scope,
+                flowPolicy,
+                logHandler,
+                locationReorderingWindowInMilliseconds,
+                locationStore,
+            )
+            val trackable = MultiplexedTrackableCoreSubscriber(ably, trackableId, eventFlows, this, locationStore)
+            trackables[trackableId] = trackable
+            enqueue(
+                MultiWorkerSpecification.AddTrackable(
+                    trackableId,
+                    SubscriberProperties(initialResolution, eventFlows, locationPayload)
+                )
+            )
+            trackable.start(scope)
+            return trackable to true
+        }
+    }
+
+    override fun getTrackable(trackableId: String): CoreSubscriber? =
+        synchronized(trackables) { trackables[trackableId] }
+
+    override suspend fun restoreStoredLocation(trackableId: String) {
+        val trackable = synchronized(trackables) { trackables[trackableId] } ?: return
+        val locationStore = trackable.locationStore ?: return
+        try {
+            withContext(Dispatchers.IO) { locationStore.getLastLocation() }
+                ?.let { trackable.restoreLocation(LocationUpdate(it, emptyList())) }
+        } catch (exception: IOException) {
+            logHandler?.w("$TAG Failed to restore the last stored location of trackable $trackableId", exception)
+        }
+    }
+
+    fun emitLocation(trackableId: String, locationUpdate: LocationUpdate) {
+        _locations.emit(TrackableLocationUpdate(trackableId, locationUpdate))
+    }
+
+    fun removeTrackable(trackableId: String, trackable: MultiplexedTrackableCoreSubscriber) {
+        synchronized(trackables) {
+            if (trackables[trackableId] === trackable) {
+                trackables.remove(trackableId)
+            }
+        }
+    }
+
+    override fun notifyAllAssetsAreOffline() {
+        synchronized(trackables) { trackables.values.toList() }.forEach { it.notifyAssetIsOffline() }
+    }
+}
+
+/**
+ * The core of a trackable of a [MultiSubscriber]. Its work is executed by the queue of the [multiSubscriber],
+ * so the trackable needs no coroutines or connection of its own apart from the one demanding the raw locations.
+ */
+private class MultiplexedTrackableCoreSubscriber(
+    ably: Ably,
+    trackableId: String,
+    eventFlows: SubscriberProperties.EventFlows,
+    private val multiSubscriber: DefaultCoreMultiSubscriber,
+    val locationStore: LocationStore?,
+) : TrackableCoreSubscriber(ably, trackableId, eventFlows) {
+    private val workerFactory = WorkerFactory(this, ably, trackableId, isConnectionShared = true)
+    private var rawLocationsDemandJob: Job? = null
+    private val isLocationStoreReleased = AtomicBoolean(false)
+
+    fun start(scope: CoroutineScope) {
+        rawLocationsDemandJob = launchRawLocationsDemand(scope)
+    }
+
+    override fun enqueue(workerSpecification: WorkerSpecification) {
+        multiSubscriber.enqueue(MultiWorkerSpecification.TrackableWork(trackableId, workerSpecification, workerFactory))
+    }
+
+    override fun onEnhancedLocationUpdate(locationUpdate: LocationUpdate) {
+        super.onEnhancedLocationUpdate(locationUpdate)
+        multiSubscriber.emitLocation(trackableId, locationUpdate)
+    }
+
+    override fun notifyAssetIsOffline() {
+        super.notifyAssetIsOffline()
+        rawLocationsDemandJob?.cancel()
+        multiSubscriber.removeTrackable(trackableId, this)
+        if (locationStore != null && isLocationStoreReleased.compareAndSet(false, true)) {
+            LocationStore.release(locationStore)
+        }
+    }
+}
+
+/**
+ * The properties of the queue shared by all the trackables of a [MultiSubscriber].
+ * The [copy] is shallow so that its cost doesn't grow with the number of [trackables].
+ */
+internal data class MultiSubscriberProperties(
+    val trackables: MutableMap<String, SubscriberProperties> = HashMap(),
+    var lastConnectionStateChange: ConnectionStateChange? = null,
+    override var isStopped: Boolean = false,
+    val stoppingTrackables: MutableMap<String, StoppingTrackable> = HashMap(),
+) : Properties
+
+/**
+ * A stopped trackable whose channel is being disconnected. The work of the same trackable added again waits in the
+ * [delayedWork] until the disconnection completes, so that the disconnection doesn't release the channel it uses.
+ *
+ * @param workerFactory The factory of the stopped trackable, which tells its remaining work apart from the work
+ * of the trackable added again.
+ */
+internal class StoppingTrackable(val workerFactory: WorkerFactory) {
+    val delayedWork: MutableList<MultiWorkerSpecification> = mutableListOf()
+}
@@ -1,30 +1,47 @@
 package com.ably.tracking.subscriber
 
+import com.ably.tracking.FlowPolicy
+import com.ably.tracking.ListenerRegistration
 import com.ably.tracking.LocationUpdate
+import com.ably.tracking.LocationUpdatePayload
 import com.ably.tracking.Resolution
 import com.ably.tracking.TrackableState
+import com.ably.tracking.UpdateListener
+import com.ably.tracking.UpdateListeners
 import com.ably.tracking.common.Ably
 import com.ably.tracking.common.ClientTypes
 import com.ably.tracking.common.ConnectionState
 import com.ably.tracking.common.ConnectionStateChange
+import com.ably.tracking.common.PolicySharedFlow
 import com.ably.tracking.common.PresenceAction
 import com.ably.tracking.common.PresenceData
 import com.ably.tracking.common.PresenceMessage
 import com.ably.tracking.common.createSingleThreadDispatcher
+import com.ably.tracking.common.logging.createLoggingTag
+import com.ably.tracking.common.logging.w
 import com.ably.tracking.common.workerqueue.Properties
 import com.ably.tracking.common.workerqueue.WorkerQueue
 import com.ably.tracking.logging.LogHandler
 import com.ably.tracking.subscriber.workerqueue.WorkerFactory
 import com.ably.tracking.subscriber.workerqueue.WorkerSpecification
 import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
 import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.MutableSharedFlow
 import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.SharedFlow
 import kotlinx.coroutines.flow.StateFlow
 import kotlinx.coroutines.flow.asSharedFlow
 import kotlinx.coroutines.flow.asStateFlow
+import kotlinx.coroutines.flow.combine
+import kotlinx.coroutines.flow.distinctUntilChanged
+import kotlinx.coroutines.flow.map
 import kotlinx.coroutines.launch
+import java.io.IOException
+import java.util.concurrent.Executor
 
 /**
  * This interface exposes methods for [DefaultSubscriber].
@@ -33,6 +50,8 @@ internal interface CoreSubscriber {
     fun enqueue(workerSpecification: WorkerSpecification)
     val enhancedLocations: SharedFlow<LocationUpdate>
     val rawLocations: SharedFlow<LocationUpdate>
+    val enhancedLocationsOverflowCount: Long
+    val rawLocationsOverflowCount: Long
     val trackableStates: StateFlow<TrackableState>
     @Deprecated(
         "The publisherPresenceStateChanges SharedFlow provides more granular information on publisher presence. The Boolean version may be removed in a later version of AAT",
@@ -42,6 +61,10 @@ internal interface CoreSubscriber {
     val publisherPresenceStateChanges: StateFlow<PublisherPresenceStateChange>
     val resolutions: SharedFlow<Resolution>
     val nextLocationUpdateIntervals: SharedFlow<Long>
+    fun addEnhancedLocationListener(listener: UpdateListener<LocationUpdate>, executor: Executor?, replayLatest: Boolean): ListenerRegistration
+    fun addRawLocationListener(listener: UpdateListener<LocationUpdate>, executor: Executor?, replayLatest: Boolean): ListenerRegistration
+    fun getLocationReorderingStats(): LocationReorderingStats?
+    fun restoreLocation(locationUpdate: LocationUpdate)
 }
 
 /**
@@ -49,6 +72,7 @@ internal interface CoreSubscriber {
  */
 internal interface SubscriberInteractor {
     fun subscribeForRawEvents(presenceData: PresenceData)
+    fun unsubscribeFromRawEvents()
     fun subscribeForEnhancedEvents(presenceData: PresenceData)
     fun subscribeForChannelState()
     fun notifyAssetIsOffline()
@@ -59,32 +83,65 @@ internal fun createCoreSubscriber(
     initialResolution: Resolution? = null,
     trackableId: String,
     logHandler: LogHandler?,
+    locationPayload: LocationUpdatePayload = LocationUpdatePayload.FULL,
+    flowPolicy: FlowPolicy = FlowPolicy.SUSPEND,
+    locationReorderingWindowInMilliseconds: Long? = null,
+    locationStore: LocationStore? = null,
 ): CoreSubscriber {
-    return DefaultCoreSubscriber(ably, initialResolution, trackableId, logHandler)
+    return DefaultCoreSubscriber(
+        ably,
+        initialResolution,
+        trackableId,
+        logHandler,
+        locationPayload,
+        flowPolicy,
+        locationReorderingWindowInMilliseconds,
+        locationStore,
+    )
 }
 
 /**
- * This is a private static single thread dispatcher that will be used for all the [Subscriber] instances.
+ * This is a static single thread dispatcher that will be used for all the [Subscriber] and [MultiSubscriber] instances.
  */
-private val singleThreadDispatcher = createSingleThreadDispatcher()
-
-private class DefaultCoreSubscriber(
-    private val ably: Ably,
-    initialResolution: Resolution?,
-    private val trackableId: String,
-    logHandler: LogHandler?,
-) :
-    CoreSubscriber, SubscriberInteractor {
-    private val workerQueue: WorkerQueue<SubscriberProperties, WorkerSpecification>
-
-    private val eventFlows: SubscriberProperties.EventFlows
+internal val singleThreadDispatcher = createSingleThreadDispatcher()
+
+internal fun createEventFlows(
+    scope: CoroutineScope,
+    flowPolicy: FlowPolicy = FlowPolicy.SUSPEND,
+    logHandler: LogHandler? = null,
+    locationReorderingWindowInMilliseconds: Long? = null,
+    locationStore: LocationStore? = null,
+): SubscriberProperties.EventFlows =
+    SubscriberProperties.EventFlows(
+        scope,
+        DefaultPublisherPresence(DefaultPublisherPresenceMessageProcessor(), scope),
+        flowPolicy,
+        logHandler,
+        locationReorderingWindowInMilliseconds,
+        locationStore,
+    )
 
+/**
+ * The part of the core of a subscriber that is specific to a single trackable. It is shared by the [DefaultCoreSubscriber],
+ * which owns the Ably connection and the worker queue, and the trackables of a [MultiSubscriber], which share them.
+ */
+internal abstract class TrackableCoreSubscriber(
+    protected val ably: Ably,
+    protected val trackableId: String,
+    protected val eventFlows: SubscriberProperties.EventFlows,
+) : CoreSubscriber, SubscriberInteractor {
     override val enhancedLocations: SharedFlow<LocationUpdate>
         get() = eventFlows.enhancedLocations
 
     override val rawLocations: SharedFlow<LocationUpdate>
         get() = eventFlows.rawLocations
 
+    override val enhancedLocationsOverflowCount: Long
+        get() = eventFlows.enhancedLocationsOverflowCount
+
+    override val rawLocationsOverflowCount: Long
+        get() = eventFlows.rawLocationsOverflowCount
+
     override val trackableStates: StateFlow<TrackableState>
         get() = eventFlows.trackableStates
 
@@ -104,26 +161,40 @@ private class DefaultCoreSubscriber(
     override val nextLocationUpdateIntervals: SharedFlow<Long>
         get() = eventFlows.nextLocationUpdateIntervals
 
-    init {
-        val workerFactory = WorkerFactory(this, ably, trackableId)
-        val scope = CoroutineScope(singleThreadDispatcher + SupervisorJob())
-        eventFlows = SubscriberProperties.EventFlows(scope, DefaultPublisherPresence(DefaultPublisherPresenceMessageProcessor(), scope))
-        val properties = SubscriberProperties(initialResolution, eventFlows)
-        workerQueue = WorkerQueue(
-            properties = properties,
-            scope = scope,
-            workerFactory = workerFactory,
-            copyProperties = { copy() },
-            getStoppedException = { SubscriberStoppedException() },
-            logHandler = logHandler,
-        )
-
-        ably.subscribeForAblyStateChange { enqueue(WorkerSpecification.UpdateConnectionState(it)) }
+    override fun addEnhancedLocationListener(
+        listener: UpdateListener<LocationUpdate>,
+        executor: Executor?,
+        replayLatest: Boolean,
+    ): ListenerRegistration =
+        eventFlows.addEnhancedLocationListener(listener, executor, replayLatest)
+
+    override fun addRawLocationListener(
+        listener: UpdateListener<LocationUpdate>,
+        executor: Executor?,
+        replayLatest: Boolean,
+    ): ListenerRegistration =
+        eventFlows.addRawLocationListener(listener, executor, replayLatest)
+
+    override fun getLocationReorderingStats(): LocationReorderingStats? =
+        eventFlows.getLocationReorderingStats()
+
+    override fun restoreLocation(locationUpdate: LocationUpdate) {
+        eventFlows.restoreEnhanced(locationUpdate)
     }
 
-    override fun enqueue(workerSpecification: WorkerSpecification) {
-        workerQueue.enqueue(workerSpecification)
-    }
+    /**
+     * Starts demanding the raw locations whenever the [rawLocations] are collected or listened to.
+     * It has to be called once the worker queue is ready to [enqueue] work.
+     *
+     * @return The job that collects the number of the [rawLocations] collectors and listeners.
+     */
+    protected fun launchRawLocationsDemand(scope: CoroutineScope): Job =
+        scope.launch {
+            eventFlows.rawLocationsConsumersCount
+                .map { it > 0 }
+                .distinctUntilChanged()
+                .collect { enqueue(WorkerSpecification.ChangeRawLocationsDemand(it)) }
+        }
 
     override fun subscribeForChannelState() {
         ably.subscribeForChannelStateChange(trackableId) {
@@ -133,16 +204,24 @@ private class DefaultCoreSubscriber(
 
     override fun subscribeForEnhancedEvents(presenceData: PresenceData) {
         ably.subscribeForEnhancedEvents(trackableId, presenceData) {
-            eventFlows.emitEnhanced(it)
+            onEnhancedLocationUpdate(it)
         }
     }
 
+    protected open fun onEnhancedLocationUpdate(locationUpdate: LocationUpdate) {
+        eventFlows.emitEnhanced(locationUpdate)
+    }
+
     override fun subscribeForRawEvents(presenceData: PresenceData) {
         ably.subscribeForRawEvents(trackableId, presenceData) {
             eventFlows.emitRaw(it)
         }
     }
 
+    override fun unsubscribeFromRawEvents() {
+        ably.unsubscribeFromRawEvents(trackableId)
+    }
+
     /**
      * Called when the connection is stopped as part of subscriber shutdown.
      */
@@ -156,14 +235,61 @@ private class DefaultCoreSubscriber(
     }
 }
 
+private class DefaultCoreSubscriber(
+    ably: Ably,
+    initialResolution: Resolution?,
+    trackableId: String,
+    logHandler: LogHandler?,
+    locationPayload: LocationUpdatePayload,
+    flowPolicy: FlowPolicy,
+    locationReorderingWindowInMilliseconds: Long?,
+    locationStore: LocationStore?,
+    scope: CoroutineScope = CoroutineScope(singleThreadDispatcher + SupervisorJob()),
+) : TrackableCoreSubscriber(
+    ably,
+    trackableId,
+    createEventFlows(scope, flowPolicy, logHandler, locationReorderingWindowInMilliseconds, locationStore),
+) {
+    private val workerQueue: WorkerQueue<SubscriberProperties, WorkerSpecification>
+
+    init {
+        val workerFactory = WorkerFactory(this, ably, trackableId)
+        val properties = SubscriberProperties(initialResolution, eventFlows, locationPayload)
+        workerQueue = WorkerQueue(
+            properties = properties,
+            scope = scope,
+            workerFactory = workerFactory,
+            copyProperties = { copy() },
+            getStoppedException = { SubscriberStoppedException() },
+            logHandler = logHandler,
+        )
+
+        ably.subscribeForAblyStateChange { enqueue(WorkerSpecification.UpdateConnectionState(it)) }
+        launchRawLocationsDemand(scope)
+    }
+
+    override fun enqueue(workerSpecification: WorkerSpecification) {
+        workerQueue.enqueue(workerSpecification)
+    }
+}
+
 internal data class SubscriberProperties private constructor(
     var presenceData: PresenceData,
     private val updatingResolutions: MutableMap<String, MutableList<Resolution?>>,
     private val eventFlows: EventFlows,
 
     override var isStopped: Boolean = false,
+    var isSubscribedToChannel: Boolean = false,
+    /**
+     * Whether the raw locations demand has changed before the channel was subscribed to, so the presence data has to be
+     * updated once it is.
+     */
+    var isRawLocationsDemandChangedBeforeSubscribing: Boolean = false,
+    /**
+     * The timestamp of the newest presence message processed, from which the presence history is caught up on.
+     */
+    var lastPresenceMessageTimestamp: Long? = null,
 
-    private var presentPublisherMemberKeys: MutableSet<String> = HashSet(),
     private var lastEmittedValueOfIsPublisherVisible: Boolean? = null,
     private var lastEmittedValueOfPublisherPresenceState: PublisherPresenceState? = null,
     private var lastEmittedTrackableState: TrackableState = TrackableState.Offline(),
@@ -177,7 +303,19 @@ internal data class SubscriberProperties private constructor(
     internal constructor(
         initialResolution: Resolution?,
         eventFlows: EventFlows,
-    ) : this(PresenceData(ClientTypes.SUBSCRIBER, initialResolution), mutableMapOf(), eventFlows)
+        locationPayload: LocationUpdatePayload = LocationUpdatePayload.FULL,
+    ) : this(
+        PresenceData(
+            ClientTypes.SUBSCRIBER,
+            initialResolution,
+            // The raw locations are subscribed to only when they are consumed, see [EventFlows.rawLocationsConsumersCount]
+            rawLocations = false,
+            // The full payload is the default so it is not advertised, which keeps the presence data unchanged for older publishers
+            locationPayload = locationPayload.takeIf { it != LocationUpdatePayload.FULL }
+        ),
+        mutableMapOf(),
+        eventFlows
+    )
 
     fun addUpdatingResolution(trackableId: String, resolution: Resolution?) {
         val updatingList = updatingResolutions[trackableId] ?: mutableListOf()
@@ -230,6 +368,7 @@ internal data class SubscriberProperties private constructor(
         if (stateChange.state == ConnectionState.OFFLINE && !eventFlows.lastPublisherPresenceIsUnknown()) {
             eventFlows.emitPublisherPresenceUnknown()
         } else {
+            presenceHistory?.let { updateLastPresenceMessageTimestamp(it) }
             eventFlows.emitPublisherPresenceStateChange((presenceHistory ?: mutableListOf()) + cachedRealtimePresenceMessages)
             cachedRealtimePresenceMessages.clear()
         }
@@ -247,6 +386,7 @@ internal data class SubscriberProperties private constructor(
             So, if the channel is in an offline state (aka, we're still fetching the presence history before reporting the
             channel as online again), cache and received messages.
          */
+        updateLastPresenceMessageTimestamp(presenceMessages)
         if (eventFlows.lastPublisherPresenceIsUnknown()) {
             cachedRealtimePresenceMessages += presenceMessages
         } else {
@@ -255,25 +395,29 @@ internal data class SubscriberProperties private constructor(
 
         for (presenceMessage in presenceMessages) {
             // We are only interested in presence updates from publishers.
-            if (presenceMessage.data.type == ClientTypes.PUBLISHER) {
-
-                if (presenceMessage.action == PresenceAction.LEAVE_OR_ABSENT) {
-                    // LEAVE or ABSENT
-                    presentPublisherMemberKeys.remove(presenceMessage.memberKey)
-                } else {
-                    // PRESENT, ENTER or UDPATE
-                    presentPublisherMemberKeys.add(presenceMessage.memberKey)
-                    presenceMessage.data.resolution?.let { publisherResolution ->
-                        pendingPublisherResolutions.add(publisherResolution)
-                    }
+            // The present publishers themselves are tracked by the publisher presence store.
+            if (presenceMessage.data.type == ClientTypes.PUBLISHER && presenceMessage.action != PresenceAction.LEAVE_OR_ABSENT) {
+                // PRESENT, ENTER or UDPATE
+                presenceMessage.data.resolution?.let { publisherResolution ->
+                    pendingPublisherResolutions.add(publisherResolution)
                 }
             }
         }
         emitStateEventsIfRequired()
     }
 
+    fun getPresentPublisherMemberKeys(): Set<String> = eventFlows.getPresentPublisherMemberKeys()
+
+    private fun updateLastPresenceMessageTimestamp(presenceMessages: List<PresenceMessage>) {
+        presenceMessages.forEach { presenceMessage ->
+            if (lastPresenceMessageTimestamp.let { it == null || presenceMessage.timestamp > it }) {
+                lastPresenceMessageTimestamp = presenceMessage.timestamp
+            }
+        }
+    }
+
     fun emitStateEventsIfRequired() {
-        val isAPublisherPresent = (presentPublisherMemberKeys.isNotEmpty())
+        val isAPublisherPresent = eventFlows.hasPresentPublishers()
 
         val trackableState = when (lastConnectionStateChange.state) {
             ConnectionState.ONLINE -> {
@@ -292,7 +436,7 @@ internal data class SubscriberProperties private constructor(
             eventFlows.emit(trackableState)
         }
 
-        // It is possible for presentPublisherMemberKeys to not be empty, even when we have no connectivity from our side,
+        // It is possible for a publisher to be present, even when we have no connectivity from our side,
         // because we've had presence entry events without subsequent leave events.
         // Therefore, from the perspective of a user consuming events from publisherPresenceStateFlow, what matters
         // is what we're computing for isPublisherVisible (not the simple isAPublisherPresent).
@@ -307,21 +451,104 @@ internal data class SubscriberProperties private constructor(
 
     internal class EventFlows(
         private val scope: CoroutineScope,
-        private val publisherPresenceMonitor: PublisherPresence
+        private val publisherPresenceMonitor: PublisherPresence,
+        flowPolicy: FlowPolicy = FlowPolicy.SUSPEND,
+        private val logHandler: LogHandler? = null,
+        locationReorderingWindowInMilliseconds: Long? = null,
+        private val locationStore: LocationStore? = null,
     ) {
-        private val _enhancedLocations: MutableSharedFlow<LocationUpdate> = MutableSharedFlow(replay = 1)
-        private val _rawLocations: MutableSharedFlow<LocationUpdate> = MutableSharedFlow(replay = 1)
+        private val TAG = createLoggingTag(this)
+        private val _enhancedLocations = PolicySharedFlow<LocationUpdate>(flowPolicy, scope)
+        private val enhancedLocationsReorderingBuffer = locationReorderingWindowInMilliseconds?.let {
+            LocationReorderingBuffer(it, scope, ::emitEnhancedInOrder)
+        }
+        private val _rawLocations = PolicySharedFlow<LocationUpdate>(flowPolicy, scope)
+        private val rawLocationListenersCount = MutableStateFlow(0)
+        private val enhancedLocationListeners = UpdateListeners<LocationUpdate>(::onListenerError)
+        private val rawLocationListeners =
+            UpdateListeners<LocationUpdate>(::onListenerError) { rawLocationListenersCount.value = it }
         private val _trackableStates: MutableStateFlow<TrackableState> = MutableStateFlow(TrackableState.Offline())
+
+        /**
+         * The enhanced locations waiting to be appended to the [locationStore]. They are appended in order by a single
+         * coroutine on the IO dispatcher, so that the thread that emits the locations never waits for the disk.
+         */
+        private val locationsToStore: Channel<LocationUpdate>? = locationStore?.let { store ->
+            Channel<LocationUpdate>(Channel.UNLIMITED).also { channel ->
+                scope.launch(Dispatchers.IO) {
+                    for (locationUpdate in channel) {
+                        storeLocation(store, locationUpdate)
+                    }
+                }
+            }
+        }
         private val _publisherPresence: MutableStateFlow<Boolean> = MutableStateFlow(false)
         private val _resolutions: MutableSharedFlow<Resolution> = MutableSharedFlow(replay = 1)
         private val _nextLocationUpdateIntervals: MutableSharedFlow<Long> = MutableSharedFlow(replay = 1)
 
         fun emitEnhanced(locationUpdate: LocationUpdate) {
-            scope.launch { _enhancedLocations.emit(locationUpdate) }
+            if (enhancedLocationsReorderingBuffer != null) {
+                enhancedLocationsReorderingBuffer.add(locationUpdate)
+            } else {
+                emitEnhancedInOrder(locationUpdate)
+            }
+        }
+
+        private fun emitEnhancedInOrder(locationUpdate: LocationUpdate) {
+            _enhancedLocations.emit(locationUpdate)
+            enhancedLocationListeners.dispatch(locationUpdate)
+            locationsToStore?.trySend(locationUpdate)
+        }
+
+        /**
+         * Emits the [locationUpdate] restored from the [locationStore] to the collectors of the [enhancedLocations]
+         * and to the enhanced location listeners, without storing it again.
+         */
+        fun restoreEnhanced(locationUpdate: LocationUpdate) {
+            _enhancedLocations.emit(locationUpdate)
+            enhancedLocationListeners.dispatch(locationUpdate)
         }
 
+        private fun storeLocation(locationStore: LocationStore, locationUpdate: LocationUpdate) {
+            try {
+                locationStore.append(locationUpdate)
+            } catch (exception: IOException) {
+                logHandler?.w("$TAG Failed to store a location update", exception)
+            }
+        }
+
+        fun getLocationReorderingStats(): LocationReorderingStats? =
+            enhancedLocationsReorderingBuffer?.getStats()
+
         fun emitRaw(locationUpdate: LocationUpdate) {
-            scope.launch { _rawLocations.emit(locationUpdate) }
+            _rawLocations.emit(locationUpdate)
+            rawLocationListeners.dispatch(locationUpdate)
+        }
+
+        /**
+         * Adds a listener of the enhanced locations. Without a reordering window, the listeners are invoked on the
+         * thread of the Ably client that received the location update, and otherwise on the thread of the [scope].
+         */
+        fun addEnhancedLocationListener(
+            listener: UpdateListener<LocationUpdate>,
+            executor: Executor?,
+            replayLatest: Boolean,
+        ): ListenerRegistration =
+            enhancedLocationListeners.add(listener, executor, replayLatest)
+
+        /**
+         * Adds a listener of the raw locations, which is invoked on the thread of the Ably client that received
+         * the location update.
+         */
+        fun addRawLocationListener(
+            listener: UpdateListener<LocationUpdate>,
+            executor: Executor?,
+            replayLatest: Boolean,
+        ): ListenerRegistration =
+            rawLocationListeners.add(listener, executor, replayLatest)
+
+        private fun onListenerError(exception: Exception) {
+            logHandler?.w("$TAG A location listener has thrown an exception", exception)
         }
 
         fun emitPublisherPresence(isPublisherPresent: Boolean) {
@@ -342,6 +569,10 @@ internal data class SubscriberProperties private constructor(
 
         fun lastPublisherPresenceIsUnknown(): Boolean = publisherPresenceMonitor.lastStateIsUnknown()
 
+        fun hasPresentPublishers(): Boolean = publisherPresenceMonitor.hasPresentPublishers()
+
+        fun getPresentPublisherMemberKeys(): Set<String> = publisherPresenceMonitor.getPresentPublisherMemberKeys()
+
         fun emit(resolutions: Array<Resolution>) {
             if (resolutions.isNotEmpty()) {
                 scope.launch {
@@ -354,10 +585,25 @@ internal data class SubscriberProperties private constructor(
         }
 
         val enhancedLocations: SharedFlow<LocationUpdate>
-            get() = _enhancedLocations.asSharedFlow()
+            get() = _enhancedLocations.sharedFlow
 
         val rawLocations: SharedFlow<LocationUpdate>
-            get() = _rawLocations.asSharedFlow()
+            get() = _rawLocations.sharedFlow
+
+        val enhancedLocationsOverflowCount: Long
+            get() = _enhancedLocations.overflowCount
+
+        val rawLocationsOverflowCount: Long
+            get() = _rawLocations.overflowCount
+
+        /**
+         * The number of collectors of the [rawLocations] and of the raw location listeners, used to decode the raw location
+         * updates only while they are consumed.
+         */
+        val rawLocationsConsumersCount: Flow<Int>
+            get() = combine(_rawLocations.subscriptionCount, rawLocationListenersCount) { subscriptionCount, listenersCount ->
+                subscriptionCount + listenersCount
+            }
 
         val trackableStates: StateFlow<TrackableState>
             get() = _trackableStates.asStateFlow()
@@ -0,0 +1,91 @@
+package com.ably.tracking.subscriber
+
+import com.ably.tracking.FlowPolicy
+import com.ably.tracking.LocationUpdatePayload
+import com.ably.tracking.Resolution
+import com.ably.tracking.annotations.Experimental
+import com.ably.tracking.common.Ably
+import com.ably.tracking.common.logging.createLoggingTag
+import com.ably.tracking.common.logging.v
+import com.ably.tracking.common.logging.w
+import com.ably.tracking.common.wrapInResultCallback
+import com.ably.tracking.logging.LogHandler
+import com.ably.tracking.subscriber.workerqueue.MultiWorkerSpecification
+import com.ably.tracking.subscriber.workerqueue.WorkerSpecification
+import kotlin.coroutines.suspendCoroutine
+import kotlinx.coroutines.flow.SharedFlow
+
+internal class DefaultMultiSubscriber(
+    ably: Ably,
+    private val resolution: Resolution?,
+    private val logHandler: LogHandler?,
+    locationPayload: LocationUpdatePayload = LocationUpdatePayload.FULL,
+    flowPolicy: FlowPolicy = FlowPolicy.SUSPEND,
+    locationReorderingWindowInMilliseconds: Long? = null,
+    locationStoreConfiguration: LocationStoreConfiguration? = null,
+) : MultiSubscriber {
+    private val core: CoreMultiSubscriber
+    private val TAG = createLoggingTag(this)
+
+    override val trackingIds: Set<String>
+        get() = core.trackableIds
+
+    override val locations: SharedFlow<TrackableLocationUpdate>
+        get() = core.locations
+
+    @Experimental
+    override fun getLocationsOverflowCount(): Long =
+        core.locationsOverflowCount
+
+    init {
+        core = createCoreMultiSubscriber(
+            ably,
+            logHandler,
+            locationPayload,
+            flowPolicy,
+            locationReorderingWindowInMilliseconds,
+            locationStoreConfiguration,
+        )
+        logHandler?.v("$TAG Created a multi subscriber instance")
+    }
+
+    override suspend fun subscribe(trackingId: String): Subscriber {
+        logHandler?.v("$TAG Multi subscriber subscribe operation started for trackable $trackingId")
+        val (trackableCore, isAdded) = core.getOrAddTrackable(trackingId, resolution)
+        return DefaultSubscriber(trackableCore, logHandler).apply {
+            if (isAdded) {
+                core.restoreStoredLocation(trackingId)
+                start()
+            }
+        }
+    }
+
+    override suspend fun unsubscribe(trackingId: String) {
+        logHandler?.v("$TAG Multi subscriber unsubscribe operation started for trackable $trackingId")
+        val trackableCore = core.getTrackable(trackingId) ?: return
+        suspendCoroutine<Unit> { continuation ->
+            trackableCore.enqueue(
+                WorkerSpecification.StopConnection(
+                    continuation.wrapInResultCallback(
+                        onSuccess = { logHandler?.v("$TAG Multi subscriber unsubscribe operation succeeded") },
+                        onError = { logHandler?.w("$TAG Multi subscriber unsubscribe operation failed", it) },
+                    )
+                )
+            )
+        }
+    }
+
+    override suspend fun stop() {
+        logHandler?.v("$TAG Multi subscriber stop operation started")
+        suspendCoroutine<Unit> { continuation ->
+            core.enqueue(
+                MultiWorkerSpecification.StopConnection(
+                    continuation.wrapInResultCallback(
+                        onSuccess = { logHandler?.v("$TAG Multi subscriber stop operation succeeded") },
+                        onError = { logHandler?.w("$TAG Multi subscriber stop operation failed", it) },
+                    )
+                )
+            )
+        }
+    }
+}
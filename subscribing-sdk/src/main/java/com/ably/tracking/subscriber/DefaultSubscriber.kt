@@ -1,8 +1,13 @@
 package com.ably.tracking.subscriber
 
+import com.ably.tracking.FlowPolicy
+import com.ably.tracking.ListenerRegistration
+import com.ably.tracking.Location
 import com.ably.tracking.LocationUpdate
+import com.ably.tracking.LocationUpdatePayload
 import com.ably.tracking.Resolution
 import com.ably.tracking.TrackableState
+import com.ably.tracking.UpdateListener
 import com.ably.tracking.annotations.Experimental
 import com.ably.tracking.common.Ably
 import com.ably.tracking.common.logging.createLoggingTag
@@ -11,18 +16,46 @@ import com.ably.tracking.common.logging.w
 import com.ably.tracking.common.wrapInResultCallback
 import com.ably.tracking.logging.LogHandler
 import com.ably.tracking.subscriber.workerqueue.WorkerSpecification
+import java.io.IOException
+import java.util.concurrent.Executor
+import java.util.concurrent.atomic.AtomicBoolean
 import kotlin.coroutines.suspendCoroutine
+import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.flow.SharedFlow
 import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.withContext
 
 internal class DefaultSubscriber(
-    ably: Ably,
-    resolution: Resolution?,
-    trackableId: String,
+    private val core: CoreSubscriber,
     private val logHandler: LogHandler?,
+    private val locationStore: LocationStore? = null,
 ) : Subscriber {
-    private val core: CoreSubscriber
     private val TAG = createLoggingTag(this)
+    private val isLocationStoreReleased = AtomicBoolean(false)
+
+    constructor(
+        ably: Ably,
+        resolution: Resolution?,
+        trackableId: String,
+        logHandler: LogHandler?,
+        locationPayload: LocationUpdatePayload = LocationUpdatePayload.FULL,
+        flowPolicy: FlowPolicy = FlowPolicy.SUSPEND,
+        locationReorderingWindowInMilliseconds: Long? = null,
+        locationStore: LocationStore? = null,
+    ) : this(
+        createCoreSubscriber(
+            ably,
+            resolution,
+            trackableId,
+            logHandler,
+            locationPayload,
+            flowPolicy,
+            locationReorderingWindowInMilliseconds,
+            locationStore,
+        ),
+        logHandler,
+        locationStore,
+    )
 
     override val locations: SharedFlow<LocationUpdate>
         get() = core.enhancedLocations
@@ -52,25 +85,76 @@ internal class DefaultSubscriber(
     override val nextLocationUpdateIntervals: SharedFlow<Long>
         get() = core.nextLocationUpdateIntervals
 
+    @Experimental
+    override fun addLocationUpdateListener(
+        listener: UpdateListener<LocationUpdate>,
+        executor: Executor?,
+        replayLatest: Boolean,
+    ): ListenerRegistration =
+        core.addEnhancedLocationListener(listener, executor, replayLatest)
+
+    @Experimental
+    override fun addRawLocationUpdateListener(
+        listener: UpdateListener<LocationUpdate>,
+        executor: Executor?,
+        replayLatest: Boolean,
+    ): ListenerRegistration =
+        core.addRawLocationListener(listener, executor, replayLatest)
+
+    @Experimental
+    override fun getLocationsOverflowCount(): Long =
+        core.enhancedLocationsOverflowCount
+
+    @Experimental
+    override fun getRawLocationsOverflowCount(): Long =
+        core.rawLocationsOverflowCount
+
+    @Experimental
+    override fun getLocationReorderingStats(): LocationReorderingStats? =
+        core.getLocationReorderingStats()
+
+    @Experimental
+    override suspend fun getStoredLocations(fromTimeInMilliseconds: Long, toTimeInMilliseconds: Long): List<Location> =
+        locationStore?.let { withContext(Dispatchers.IO) { it.getLocations(fromTimeInMilliseconds, toTimeInMilliseconds) } }
+            ?: emptyList()
+
     init {
-        core = createCoreSubscriber(ably, resolution, trackableId, logHandler)
         logHandler?.v("$TAG Created a subscriber instance")
     }
 
     /**
      * This method must be run before running any other method from [DefaultSubscriber].
+     * If it fails, the subscriber can't be used nor stopped, so it releases the [locationStore] itself.
      */
     suspend fun start() {
         logHandler?.v("$TAG Subscriber start operation started")
-        suspendCoroutine<Unit> { continuation ->
-            core.enqueue(
-                WorkerSpecification.StartConnection(
-                    continuation.wrapInResultCallback(
-                        onSuccess = { logHandler?.v("$TAG Subscriber start operation succeeded") },
-                        onError = { logHandler?.w("$TAG Subscriber start operation failed", it) },
+        try {
+            locationStore?.let { restoreStoredLocation(it) }
+            suspendCoroutine<Unit> { continuation ->
+                core.enqueue(
+                    WorkerSpecification.StartConnection(
+                        continuation.wrapInResultCallback(
+                            onSuccess = { logHandler?.v("$TAG Subscriber start operation succeeded") },
+                            onError = { logHandler?.w("$TAG Subscriber start operation failed", it) },
+                        )
                     )
                 )
-            )
+            }
+        } catch (exception: Exception) {
+            releaseLocationStore()
+            throw exception
+        }
+    }
+
+    /**
+     * Emits the last stored location, so that the [locations] collectors get it before the publisher sends a new one.
+     */
+    private suspend fun restoreStoredLocation(locationStore: LocationStore) {
+        try {
+            withContext(Dispatchers.IO) { locationStore.getLastLocation() }
+                ?.let { core.restoreLocation(LocationUpdate(it, emptyList())) }
+        } catch (exception: IOException) {
+            logHandler?.w("$TAG Failed to restore the last stored location", exception)
         }
     }
 
@@ -97,16 +181,29 @@ internal class DefaultSubscriber(
 
     override suspend fun stop() {
         logHandler?.v("$TAG Subscriber stop operation started")
-        // send stop request over channel and wait for the result
-        suspendCoroutine<Unit> { continuation ->
-            core.enqueue(
-                WorkerSpecification.StopConnection(
-                    continuation.wrapInResultCallback(
-                        onSuccess = { logHandler?.v("$TAG Subscriber stop operation succeeded") },
-                        onError = { logHandler?.w("$TAG Subscriber stop operation failed", it) },
+        try {
+            // send stop request over channel and wait for the result
+            suspendCoroutine<Unit> { continuation ->
+                core.enqueue(
+                    WorkerSpecification.StopConnection(
+                        continuation.wrapInResultCallback(
+                            onSuccess = { logHandler?.v("$TAG Subscriber stop operation succeeded") },
+                            onError = { logHandler?.w("$TAG Subscriber stop operation failed", it) },
+                        )
                     )
                 )
-            )
+            }
+        } finally {
+            releaseLocationStore()
+        }
+    }
+
+    /**
+     * Releases the [locationStore] once, even if both a failed [start] and [stop] try to release it.
+     */
+    private fun releaseLocationStore() {
+        if (locationStore != null && isLocationStoreReleased.compareAndSet(false, true)) {
+            LocationStore.release(locationStore)
         }
     }
 }
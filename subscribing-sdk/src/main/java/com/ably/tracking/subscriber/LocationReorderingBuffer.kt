@@ -0,0 +1,145 @@
+package com.ably.tracking.subscriber
+
+import com.ably.tracking.LocationUpdate
+import java.util.TreeMap
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.launch
+
+/**
+ * Puts the location updates in the order of their location times before they are emitted, so that the emitted location
+ * times always increase even if the updates are received out of order or more than once, for example after the channel
+ * reconnects and rewinds, or after the publisher retries sending an update.
+ *
+ * Each update is held back for up to the [windowInMilliseconds] after it's received, so that the older updates received
+ * within that time are emitted before it. When that time passes, the update is emitted together with all the pending
+ * updates that are older than it, even if they were received later, so an update is never held back longer than
+ * the window of an update received before it. The updates with a location time that was already received, or that is
+ * older than an emitted update, are dropped. The updates are emitted by a single coroutine launched in the [scope].
+ *
+ * @param emit Called with the updates in the order of their location times.
+ * @param getCurrentTimeInMilliseconds The clock that the updates are held back with.
+ */
+internal class LocationReorderingBuffer(
+    private val windowInMilliseconds: Long,
+    private val scope: CoroutineScope,
+    private val emit: (LocationUpdate) -> Unit,
+    private val getCurrentTimeInMilliseconds: () -> Long = System::currentTimeMillis,
+) {
+    private val pendingUpdates = TreeMap<Long, PendingUpdate>()
+
+    /**
+     * The [pendingUpdates] in the order they were received, which is the order their windows end in.
+     * The updates released before their window ends are removed from it lazily.
+     */
+    private val pendingUpdatesInArrivalOrder = ArrayDeque<PendingUpdate>()
+    private var isReleasingPendingUpdates = false
+    private var lastReleasedLocationTime = Long.MIN_VALUE
+    private var reorderedCount = 0L
+    private var duplicateCount = 0L
+    private var lateCount = 0L
+    private var releasedCount = 0L
+    private var totalAddedLatencyInMilliseconds = 0L
+    private var maxAddedLatencyInMilliseconds = 0L
+
+    init {
+        require(windowInMilliseconds > 0) { "The reordering window must be positive, was $windowInMilliseconds" }
+    }
+
+    fun add(locationUpdate: LocationUpdate) {
+        val locationTime = locationUpdate.location.time
+        synchronized(pendingUpdates) {
+            when {
+                locationTime == lastReleasedLocationTime || pendingUpdates.containsKey(locationTime) -> {
+                    duplicateCount++
+                    return
+                }
+                locationTime < lastReleasedLocationTime -> {
+                    lateCount++
+                    return
+                }
+            }
+            if (pendingUpdates.isNotEmpty() && locationTime < pendingUpdates.lastKey()) {
+                reorderedCount++
+            }
+            val pendingUpdate = PendingUpdate(locationUpdate, getCurrentTimeInMilliseconds())
+            pendingUpdates[locationTime] = pendingUpdate
+            pendingUpdatesInArrivalOrder.addLast(pendingUpdate)
+            if (isReleasingPendingUpdates) {
+                return
+            }
+            isReleasingPendingUpdates = true
+        }
+        scope.launch { releasePendingUpdates() }
+    }
+
+    fun getStats(): LocationReorderingStats =
+        synchronized(pendingUpdates) {
+            LocationReorderingStats(
+                reorderedCount = reorderedCount,
+                duplicateCount = duplicateCount,
+                lateCount = lateCount,
+                averageAddedLatencyInMilliseconds = if (releasedCount > 0) totalAddedLatencyInMilliseconds / releasedCount else 0,
+                maxAddedLatencyInMilliseconds = maxAddedLatencyInMilliseconds,
+            )
+        }
+
+    private suspend fun releasePendingUpdates() {
+        while (true) {
+            val releasedUpdates = mutableListOf<LocationUpdate>()
+            val nextReleaseTime = synchronized(pendingUpdates) {
+                val now = getCurrentTimeInMilliseconds()
+                while (true) {
+                    val earliestReceivedUpdate = getEarliestReceivedPendingUpdate() ?: break
+                    if (earliestReceivedUpdate.receivedAt + windowInMilliseconds > now) {
+                        break
+                    }
+                    // The updates older than the one whose window has ended can't be reordered any more
+                    val releasedLocationTime = earliestReceivedUpdate.locationUpdate.location.time
+                    while (pendingUpdates.isNotEmpty() && pendingUpdates.firstKey() <= releasedLocationTime) {
+                        val oldestUpdate = pendingUpdates.pollFirstEntry()!!.value
+                        oldestUpdate.isReleased = true
+                        lastReleasedLocationTime = oldestUpdate.locationUpdate.location.time
+                        recordAddedLatency(now - oldestUpdate.receivedAt)
+                        releasedUpdates.add(oldestUpdate.locationUpdate)
+                    }
+                }
+                getEarliestReceivedPendingUpdate()?.let { it.receivedAt + windowInMilliseconds }
+            }
+            releasedUpdates.forEach(emit)
+            if (nextReleaseTime != null) {
+                delay(nextReleaseTime - getCurrentTimeInMilliseconds())
+            } else {
+                // The flag is cleared only after emitting, so that a newly added update cannot be emitted before them
+                synchronized(pendingUpdates) {
+                    if (pendingUpdates.isEmpty()) {
+                        isReleasingPendingUpdates = false
+                        return
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The pending update that was received first, whose window ends first.
+     */
+    private fun getEarliestReceivedPendingUpdate(): PendingUpdate? {
+        while (pendingUpdatesInArrivalOrder.firstOrNull()?.isReleased == true) {
+            pendingUpdatesInArrivalOrder.removeFirst()
+        }
+        return pendingUpdatesInArrivalOrder.firstOrNull()
+    }
+
+    private fun recordAddedLatency(addedLatencyInMilliseconds: Long) {
+        releasedCount++
+        totalAddedLatencyInMilliseconds += addedLatencyInMilliseconds
+        if (addedLatencyInMilliseconds > maxAddedLatencyInMilliseconds) {
+            maxAddedLatencyInMilliseconds = addedLatencyInMilliseconds
+        }
+    }
+
+    private class PendingUpdate(val locationUpdate: LocationUpdate, val receivedAt: Long) {
+        var isReleased = false
+    }
+}
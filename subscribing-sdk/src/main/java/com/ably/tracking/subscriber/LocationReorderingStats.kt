@@ -0,0 +1,20 @@
+package com.ably.tracking.subscriber
+
+/**
+ * The statistics of the reordering of the location updates of a [Subscriber], enabled with
+ * [Subscriber.Builder.locationReorderingWindow].
+ *
+ * @param reorderedCount The number of location updates that were received before an older one, and were put in order.
+ * @param duplicateCount The number of location updates with the same location time as a previous one, which were dropped.
+ * @param lateCount The number of location updates that were received after a newer one had already been emitted, which
+ * were dropped to keep the location updates in order.
+ * @param averageAddedLatencyInMilliseconds The average time the emitted location updates were held back for.
+ * @param maxAddedLatencyInMilliseconds The longest time an emitted location update was held back for.
+ */
+data class LocationReorderingStats(
+    val reorderedCount: Long,
+    val duplicateCount: Long,
+    val lateCount: Long,
+    val averageAddedLatencyInMilliseconds: Long,
+    val maxAddedLatencyInMilliseconds: Long,
+)
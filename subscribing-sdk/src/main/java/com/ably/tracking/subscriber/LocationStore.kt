@@ -0,0 +1,267 @@
+package com.ably.tracking.subscriber
+
+import com.ably.tracking.Location
+import com.ably.tracking.LocationUpdate
+import java.io.File
+import java.io.IOException
+import java.io.RandomAccessFile
+import java.net.URLEncoder
+import java.nio.MappedByteBuffer
+import java.nio.channels.FileChannel
+
+/**
+ * The configuration of the on-device store of the received locations, see [Subscriber.Builder.locationStore].
+ */
+internal data class LocationStoreConfiguration(
+    val directory: File,
+    val timeToLiveInMilliseconds: Long,
+)
+
+/**
+ * An on-device, append-only store of the received locations of a single trackable, kept in the [directory].
+ *
+ * The locations are stored in fixed size segment files, which are memory-mapped, so that appending a location is a write
+ * to memory and reading the locations doesn't copy the files. Only the locations that are newer than the last stored
+ * one are appended, so the locations in the store are ordered by their time and the time range queries use a binary
+ * search. The segments whose newest location is older than the [timeToLiveInMilliseconds] are deleted whenever
+ * the store is opened or a new segment is created.
+ *
+ * The store is opened by its first use, so it doesn't do any I/O when it's created. Use [acquire] and [release]
+ * to make sure there's only one store of a trackable directory in the process.
+ *
+ * @param segmentCapacity The number of locations in a segment file.
+ * @param getCurrentTimeInMilliseconds The clock that the expired segments are found with.
+ */
+internal class LocationStore(
+    private val directory: File,
+    private val timeToLiveInMilliseconds: Long,
+    private val segmentCapacity: Int = DEFAULT_SEGMENT_CAPACITY,
+    private val getCurrentTimeInMilliseconds: () -> Long = System::currentTimeMillis,
+) {
+    private val segments: MutableList<Segment> = ArrayList()
+    private var isOpen = false
+    private var isClosed = false
+    private var lastLocationTime = Long.MIN_VALUE
+
+    /**
+     * Appends the skipped locations and the location of the [locationUpdate] that are newer than the last stored location.
+     */
+    @Synchronized
+    @Throws(IOException::class)
+    fun append(locationUpdate: LocationUpdate) {
+        if (!ensureOpen()) {
+            return
+        }
+        locationUpdate.skippedLocations.sortedBy { it.time }.forEach { appendLocation(it) }
+        appendLocation(locationUpdate.location)
+    }
+
+    /**
+     * @return The newest stored location, or null if there are no stored locations.
+     */
+    @Synchronized
+    @Throws(IOException::class)
+    fun getLastLocation(): Location? {
+        if (!ensureOpen()) {
+            return null
+        }
+        val lastSegment = segments.lastOrNull() ?: return null
+        return lastSegment.locationAt(lastSegment.count - 1)
+    }
+
+    /**
+     * @return The stored locations with times from the [fromTimeInMilliseconds] to the [toTimeInMilliseconds], both
+     * inclusive, ordered by their time.
+     */
+    @Synchronized
+    @Throws(IOException::class)
+    fun getLocations(fromTimeInMilliseconds: Long, toTimeInMilliseconds: Long): List<Location> {
+        if (!ensureOpen()) {
+            return emptyList()
+        }
+        val locations = mutableListOf<Location>()
+        for (segment in segments) {
+            if (segment.lastTime < fromTimeInMilliseconds) {
+                continue
+            }
+            if (segment.firstTime > toTimeInMilliseconds) {
+                break
+            }
+            var index = segment.indexOfFirstTimeNotBefore(fromTimeInMilliseconds)
+            while (index < segment.count && segment.timeAt(index) <= toTimeInMilliseconds) {
+                locations.add(segment.locationAt(index))
+                index++
+            }
+        }
+        return locations
+    }
+
+    /**
+     * Closes the store. The closed store doesn't append nor return any locations.
+     */
+    @Synchronized
+    fun close() {
+        isClosed = true
+        segments.clear()
+    }
+
+    /**
+     * @return Whether the store can be used, which is until it's closed.
+     */
+    private fun ensureOpen(): Boolean {
+        if (isClosed) {
+            return false
+        }
+        if (!isOpen) {
+            open()
+            isOpen = true
+        }
+        return true
+    }
+
+    private fun open() {
+        if (!directory.isDirectory && !directory.mkdirs()) {
+            throw IOException("Could not create the location store directory $directory")
+        }
+        directory.listFiles { file -> file.name.endsWith(SEGMENT_FILE_EXTENSION) }
+            ?.sortedBy { it.name }
+            ?.forEach { file ->
+                val segment = Segment(file, mapSegmentFile(file))
+                if (segment.count > 0) {
+                    segments.add(segment)
+                } else {
+                    // A segment is empty only if the process was killed right after creating it
+                    file.delete()
+                }
+            }
+        deleteExpiredSegments()
+        lastLocationTime = segments.lastOrNull()?.lastTime ?: Long.MIN_VALUE
+    }
+
+    private fun appendLocation(location: Location) {
+        if (location.time <= lastLocationTime) {
+            return
+        }
+        val segment = segments.lastOrNull()?.takeIf { it.count < segmentCapacity } ?: createSegment(location.time)
+        segment.append(location)
+        lastLocationTime = location.time
+    }
+
+    private fun createSegment(firstLocationTime: Long): Segment {
+        deleteExpiredSegments()
+        // The file names are padded so that they are ordered by the time of their first location
+        val file = File(directory, firstLocationTime.toString().padStart(20, '0') + SEGMENT_FILE_EXTENSION)
+        return Segment(file, mapSegmentFile(file)).also { segments.add(it) }
+    }
+
+    private fun deleteExpiredSegments() {
+        val expiryTime = getCurrentTimeInMilliseconds() - timeToLiveInMilliseconds
+        while (segments.isNotEmpty() && segments.first().lastTime < expiryTime) {
+            segments.removeAt(0).file.delete()
+        }
+    }
+
+    private fun mapSegmentFile(file: File): MappedByteBuffer =
+        RandomAccessFile(file, "rw").use {
+            it.channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + segmentCapacity.toLong() * RECORD_SIZE)
+        }
+
+    /**
+     * A segment file, which starts with the number of its locations, followed by the fixed size location records.
+     */
+    private class Segment(val file: File, private val buffer: MappedByteBuffer) {
+        val count: Int
+            get() = buffer.getInt(0)
+
+        val firstTime: Long
+            get() = timeAt(0)
+
+        val lastTime: Long
+            get() = timeAt(count - 1)
+
+        fun timeAt(index: Int): Long = buffer.getLong(offsetOf(index))
+
+        fun locationAt(index: Int): Location {
+            val offset = offsetOf(index)
+            return Location(
+                time = buffer.getLong(offset),
+                latitude = buffer.getDouble(offset + 8),
+                longitude = buffer.getDouble(offset + 16),
+                altitude = buffer.getDouble(offset + 24),
+                accuracy = buffer.getFloat(offset + 32),
+                bearing = buffer.getFloat(offset + 36),
+                speed = buffer.getFloat(offset + 40),
+            )
+        }
+
+        fun append(location: Location) {
+            val index = count
+            val offset = offsetOf(index)
+            buffer.putLong(offset, location.time)
+            buffer.putDouble(offset + 8, location.latitude)
+            buffer.putDouble(offset + 16, location.longitude)
+            buffer.putDouble(offset + 24, location.altitude)
+            buffer.putFloat(offset + 32, location.accuracy)
+            buffer.putFloat(offset + 36, location.bearing)
+            buffer.putFloat(offset + 40, location.speed)
+            // The count is written last, so a partially written record is never read
+            buffer.putInt(0, index + 1)
+        }
+
+        fun indexOfFirstTimeNotBefore(time: Long): Int {
+            var low = 0
+            var high = count
+            while (low < high) {
+                val middle = (low + high) ushr 1
+                if (timeAt(middle) < time) {
+                    low = middle + 1
+                } else {
+                    high = middle
+                }
+            }
+            return low
+        }
+
+        private fun offsetOf(index: Int): Int = HEADER_SIZE + index * RECORD_SIZE
+    }
+
+    companion object {
+        private const val DEFAULT_SEGMENT_CAPACITY = 1024
+        private const val SEGMENT_FILE_EXTENSION = ".segment"
+        private const val HEADER_SIZE = 8
+        private const val RECORD_SIZE = 44
+
+        private val openStores: MutableMap<String, Pair<LocationStore, Int>> = HashMap()
+
+        /**
+         * Returns the store of the [trackableId] in the [configuration] directory, which is shared by all the users of
+         * that directory in the process. Each call has to be followed by a call to [release].
+         */
+        fun acquire(configuration: LocationStoreConfiguration, trackableId: String): LocationStore {
+            val directory = File(configuration.directory, URLEncoder.encode(trackableId, "UTF-8"))
+            val key = directory.absolutePath
+            synchronized(openStores) {
+                val (store, usersCount) = openStores[key]
+                    ?: (LocationStore(directory, configuration.timeToLiveInMilliseconds) to 0)
+                openStores[key] = store to usersCount + 1
+                return store
+            }
+        }
+
+        /**
+         * Releases the [store] returned by [acquire], and closes it if it has no other users.
+         */
+        fun release(store: LocationStore) {
+            val key = store.directory.absolutePath
+            synchronized(openStores) {
+                val (openStore, usersCount) = openStores[key] ?: return
+                if (usersCount > 1) {
+                    openStores[key] = openStore to usersCount - 1
+                } else {
+                    openStores.remove(key)
+                    openStore.close()
+                }
+            }
+        }
+    }
+}
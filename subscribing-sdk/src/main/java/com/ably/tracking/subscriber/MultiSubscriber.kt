@@ -0,0 +1,179 @@
+package com.ably.tracking.subscriber
+
+import com.ably.tracking.BuilderConfigurationIncompleteException
+import com.ably.tracking.FlowPolicy
+import com.ably.tracking.LocationUpdatePayload
+import com.ably.tracking.Resolution
+import com.ably.tracking.annotations.Experimental
+import com.ably.tracking.connection.ConnectionConfiguration
+import com.ably.tracking.logging.LogHandler
+import java.io.File
+import kotlinx.coroutines.flow.SharedFlow
+
+/**
+ * EXPERIMENTAL API
+ * Represents a subscriber of many trackables. All the trackables share a single Ably connection, so it is suited
+ * to tracking a large number of assets, for example a whole fleet.
+ */
+interface MultiSubscriber {
+    companion object {
+        /**
+         * Returns the default state of the multi subscriber [Builder], which is incapable of starting of [MultiSubscriber]
+         * instances until it has been configured fully.
+         */
+        @JvmStatic
+        fun multiSubscribers(): Builder {
+            return MultiSubscriberBuilder()
+        }
+    }
+
+    /**
+     * Starts listening for location updates of the asset. If the asset is already subscribed to, then the existing
+     * subscriber of the asset is returned.
+     *
+     * @param trackingId The unique tracking identifier for the asset.
+     * @return The subscriber of the asset, which provides the asset's flows. Stopping it unsubscribes from the asset.
+     */
+    @JvmSynthetic
+    suspend fun subscribe(trackingId: String): Subscriber
+
+    /**
+     * Stops listening for location updates of the asset. Does nothing if the asset is not subscribed to.
+     *
+     * @param trackingId The unique tracking identifier for the asset.
+     */
+    @JvmSynthetic
+    suspend fun unsubscribe(trackingId: String)
+
+    /**
+     * The unique tracking identifiers of the subscribed assets.
+     */
+    val trackingIds: Set<String>
+
+    /**
+     * The shared flow emitting enhanced location values of all the subscribed assets when they become available.
+     */
+    val locations: SharedFlow<TrackableLocationUpdate>
+        @JvmSynthetic get
+
+    /**
+     * EXPERIMENTAL API
+     *
+     * Returns how many updates of the [locations] flow didn't fit into the buffer set with [Builder.flowPolicy], so
+     * they were either dropped or had to wait for the slowest collector.
+     * The location flows of the subscribed assets report their own counts, see [Subscriber.getLocationsOverflowCount].
+     *
+     * @return The number of the overflowed location updates since the multi subscriber was started.
+     */
+    @Experimental
+    fun getLocationsOverflowCount(): Long
+
+    /**
+     * Stops listening for location updates of all the assets and closes the Ably connection.
+     * Once a multi subscriber has been stopped, it cannot be restarted.
+     */
+    @JvmSynthetic
+    suspend fun stop()
+
+    /**
+     * The methods implemented by builders capable of starting [MultiSubscriber] instances.
+     *
+     * All methods except [start] return a new [Builder] instance, being a copy of this instance but with the
+     * relevant property mutated.
+     *
+     * The starting point is always the default builder state, returned by the static [multiSubscribers] method.
+     */
+    interface Builder {
+        /**
+         * **REQUIRED** Sets the Ably connection configuration.
+         *
+         * @param configuration The configuration to be used for Ably connection.
+         * @return A new instance of the builder with this property changed.
+         */
+        fun connection(configuration: ConnectionConfiguration): Builder
+
+        /**
+         * **OPTIONAL** Sets the preferred resolution of updates of every subscribed asset, to be requested from
+         * the remote publishers.
+         *
+         * @param resolution An indication of how often to this subscriber would like the publishers to sample locations,
+         * at what level of positional accuracy, and how often to send them back.
+         * @return A new instance of the builder with this property changed.
+         */
+        fun resolution(resolution: Resolution): Builder
+
+        /**
+         * **OPTIONAL** Sets the parts of location updates that this subscriber consumes, advertised to the remote publishers.
+         * If not set then the default value is [LocationUpdatePayload.FULL].
+         *
+         * @param payload The parts of location updates consumed by this subscriber.
+         * @return A new instance of the builder with this property changed.
+         */
+        fun locationPayload(payload: LocationUpdatePayload): Builder
+
+        /**
+         * EXPERIMENTAL API
+         * **OPTIONAL** Sets the log handler.
+         *
+         * @param logHandler The class that will handle log messages.
+         * @return A new instance of the builder with this property changed.
+         */
+        fun logHandler(logHandler: LogHandler): Builder
+
+        /**
+         * EXPERIMENTAL API
+         * **OPTIONAL** Enables sharing the Ably connection with the other publishers and subscribers of this process
+         * that enable it and are created with an equal [ConnectionConfiguration]. The shared connection is closed
+         * when the last of them stops. The instances sharing a connection should not use the same trackables.
+         * By default this is disabled.
+         *
+         * @param enabled Whether the Ably connection is shared.
+         * @return A new instance of the builder with this property changed.
+         */
+        fun sharedConnection(enabled: Boolean): Builder
+
+        /**
+         * EXPERIMENTAL API
+         * **OPTIONAL** Sets what happens to the updates of the [MultiSubscriber.locations] flow and of the location flows
+         * of every subscribed asset when their collectors are slower than the updates.
+         * By default every update is kept until the collectors catch up with it, see [FlowPolicy.SUSPEND].
+         *
+         * @param policy The policy of the flows.
+         * @return A new instance of the builder with this property changed.
+         */
+        fun flowPolicy(policy: FlowPolicy): Builder
+
+        /**
+         * EXPERIMENTAL API
+         * **OPTIONAL** Enables putting the enhanced location updates of every subscribed asset in order before they are
+         * emitted, see [Subscriber.Builder.locationReorderingWindow].
+         * By default the location updates are emitted in the order they are received, without holding them back.
+         *
+         * @param windowInMilliseconds The longest time an update is held back for. It must be positive.
+         * @return A new instance of the builder with this property changed.
+         */
+        fun locationReorderingWindow(windowInMilliseconds: Long): Builder
+
+        /**
+         * EXPERIMENTAL API
+         * **OPTIONAL** Enables an on-device store of the received enhanced locations of every subscribed asset,
+         * see [Subscriber.Builder.locationStore]. When an asset is subscribed to, its last stored location is emitted
+         * by the locations of its [Subscriber].
+         * By default the received locations are not stored.
+         *
+         * @param directory The directory of the store, for example a subdirectory of the application's files directory.
+         * @param timeToLiveInMilliseconds How long the locations are kept for. It must be positive.
+         * @return A new instance of the builder with this property changed.
+         */
+        fun locationStore(directory: File, timeToLiveInMilliseconds: Long): Builder
+
+        /**
+         * Creates a [MultiSubscriber]. The Ably connection is started when the first asset is subscribed to.
+         *
+         * @return A new multi subscriber instance.
+         * @throws BuilderConfigurationIncompleteException If all required params aren't set
+         */
+        @JvmSynthetic
+        suspend fun start(): MultiSubscriber
+    }
+}
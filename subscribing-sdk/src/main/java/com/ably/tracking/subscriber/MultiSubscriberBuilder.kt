@@ -0,0 +1,80 @@
+package com.ably.tracking.subscriber
+
+import com.ably.tracking.BuilderConfigurationIncompleteException
+import com.ably.tracking.FlowPolicy
+import com.ably.tracking.LocationUpdatePayload
+import com.ably.tracking.Resolution
+import com.ably.tracking.common.DefaultAbly
+import com.ably.tracking.common.createAblySdkFactory
+import com.ably.tracking.common.logging.createLoggingTag
+import com.ably.tracking.common.logging.v
+import com.ably.tracking.connection.ConnectionConfiguration
+import com.ably.tracking.logging.LogHandler
+import java.io.File
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
+
+internal data class MultiSubscriberBuilder(
+    val connectionConfiguration: ConnectionConfiguration? = null,
+    val resolution: Resolution? = null,
+    val logHandler: LogHandler? = null,
+    val locationPayload: LocationUpdatePayload = LocationUpdatePayload.FULL,
+    val isConnectionShared: Boolean = false,
+    val flowPolicy: FlowPolicy = FlowPolicy.SUSPEND,
+    val locationReorderingWindowInMilliseconds: Long? = null,
+    val locationStoreConfiguration: LocationStoreConfiguration? = null,
+) : MultiSubscriber.Builder {
+    private val TAG = createLoggingTag(this)
+
+    override fun connection(configuration: ConnectionConfiguration): MultiSubscriber.Builder =
+        this.copy(connectionConfiguration = configuration)
+
+    override fun resolution(resolution: Resolution): MultiSubscriber.Builder =
+        this.copy(resolution = resolution)
+
+    override fun locationPayload(payload: LocationUpdatePayload): MultiSubscriber.Builder =
+        this.copy(locationPayload = payload)
+
+    override fun logHandler(logHandler: LogHandler): MultiSubscriber.Builder =
+        this.copy(logHandler = logHandler)
+
+    override fun sharedConnection(enabled: Boolean): MultiSubscriber.Builder =
+        this.copy(isConnectionShared = enabled)
+
+    override fun flowPolicy(policy: FlowPolicy): MultiSubscriber.Builder =
+        this.copy(flowPolicy = policy)
+
+    override fun locationReorderingWindow(windowInMilliseconds: Long): MultiSubscriber.Builder {
+        require(windowInMilliseconds > 0) { "The reordering window must be positive, was $windowInMilliseconds" }
+        return this.copy(locationReorderingWindowInMilliseconds = windowInMilliseconds)
+    }
+
+    override fun locationStore(directory: File, timeToLiveInMilliseconds: Long): MultiSubscriber.Builder {
+        require(timeToLiveInMilliseconds > 0) { "The time to live must be positive, was $timeToLiveInMilliseconds" }
+        return this.copy(locationStoreConfiguration = LocationStoreConfiguration(directory, timeToLiveInMilliseconds))
+    }
+
+    override suspend fun start(): MultiSubscriber {
+        if (connectionConfiguration == null) {
+            logHandler?.v("$TAG Creating a multi subscriber instance failed due to missing required fields")
+            throw BuilderConfigurationIncompleteException()
+        }
+        logHandler?.v("$TAG Creating a multi subscriber instance")
+        val coroutineScope = CoroutineScope(Dispatchers.IO + SupervisorJob())
+        return DefaultMultiSubscriber(
+            DefaultAbly(
+                createAblySdkFactory(connectionConfiguration, isConnectionShared),
+                connectionConfiguration,
+                logHandler,
+                coroutineScope
+            ),
+            resolution,
+            logHandler,
+            locationPayload,
+            flowPolicy,
+            locationReorderingWindowInMilliseconds,
+            locationStoreConfiguration,
+        )
+    }
+}
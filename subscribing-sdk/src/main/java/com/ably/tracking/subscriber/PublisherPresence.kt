@@ -23,6 +23,11 @@ interface PublisherPresence {
      */
     fun hasPresentPublishers(): Boolean
 
+    /**
+     * Returns the member keys of the publishers that are known to be present.
+     */
+    fun getPresentPublisherMemberKeys(): Set<String>
+
     /**
      * The connection state has entered the offline state, so state must be adjusted accordingly.
      */
@@ -52,7 +57,7 @@ class DefaultPublisherPresence(
         listOf()
     )
 
-    private val publisherMap: MutableMap<String, KnownPublisher> = mutableMapOf()
+    private val publisherStore = PublisherPresenceStore()
 
     private val _stateChanges: MutableStateFlow<PublisherPresenceStateChange> = MutableStateFlow(lastEmittedStateChange)
 
@@ -72,36 +77,36 @@ class DefaultPublisherPresence(
 
         // Check if there's any message that we haven't seen before, update publisher map with new messages
         val newMessages = presenceMessageProcessor.processPresenceMessagesAndGetChanges(messages)
-        if (newMessages.isNotEmpty()) {
-            newMessages.forEach {
-                publisherMap[it.memberKey] = KnownPublisher(
+        newMessages.forEach {
+            publisherStore.update(
+                KnownPublisher(
                     memberKey = it.memberKey,
                     clientId = it.clientId,
                     connectionId = it.connectionId,
                     state = getLastKnownState(it),
                     lastSeen = it.timestamp
                 )
-            }
+            )
         }
 
         /**
          * Unless we're changing overall state or the publishers underlying have changed,
          * then there's nothing to do.
          */
-        if (!lastStateIsUnknown() && !publishersHaveChangedSinceLastEmission()) {
+        if (!lastStateIsUnknown() && !publisherStore.hasChanged) {
             return
         }
 
         // Update present publishers to "seen now" and emit event
         val now = Date().time
-        updatePresentPublishersLastSeenTo(now)
+        publisherStore.updatePresentPublishersLastSeenTo(now)
 
         emitStateChange(
             PublisherPresenceStateChange(
                 if (hasPresentPublishers()) PublisherPresenceState.PRESENT else PublisherPresenceState.ABSENT,
                 null,
                 now,
-                publisherMapAsList()
+                publisherStore.takeSnapshot()
             )
         )
     }
@@ -119,7 +124,7 @@ class DefaultPublisherPresence(
         }
 
         val now = Date().time
-        updatePresentPublishersLastSeenTo(now)
+        publisherStore.updatePresentPublishersLastSeenTo(now)
 
         emitStateChange(
             PublisherPresenceStateChange(
@@ -132,52 +137,26 @@ class DefaultPublisherPresence(
                     cause = null
                 ),
                 now,
-                publisherMapAsList()
+                publisherStore.takeSnapshot()
             )
         )
     }
 
-    override fun hasPresentPublishers(): Boolean = publisherMap.any { it.value.state == LastKnownPublisherState.PRESENT }
+    override fun hasPresentPublishers(): Boolean = publisherStore.presentPublishersCount > 0
 
-    override fun lastStateIsUnknown(): Boolean = lastEmittedStateChange.state == PublisherPresenceState.UNKNOWN
-
-    /**
-     * Checks if publishers have changed since the last event.
-     *
-     * Returns true if a new publisher has come along, or if one of the publishers
-     * states has changed.
-     */
-    private fun publishersHaveChangedSinceLastEmission(): Boolean {
-        if (publisherMap.size != lastEmittedStateChange.publishers.size) {
-            return true
-        }
+    override fun getPresentPublisherMemberKeys(): Set<String> = publisherStore.presentPublisherMemberKeys
 
-        return lastEmittedStateChange.publishers.firstOrNull {
-            it.state != publisherMap[it.memberKey]!!.state
-        } != null
-    }
+    override fun lastStateIsUnknown(): Boolean = lastEmittedStateChange.state == PublisherPresenceState.UNKNOWN
 
     private fun getLastKnownState(message: PresenceMessage) = when (message.action) {
         PresenceAction.LEAVE_OR_ABSENT -> LastKnownPublisherState.ABSENT
         else -> LastKnownPublisherState.PRESENT
     }
 
-    private fun publisherMapAsList(): List<KnownPublisher> = publisherMap.values.toList()
-
     private fun emitStateChange(stateChange: PublisherPresenceStateChange) {
         lastEmittedStateChange = stateChange
         scope.launch {
             _stateChanges.emit(stateChange)
         }
     }
-
-    private fun updatePresentPublishersLastSeenTo(timestamp: Long) {
-        publisherMap.forEach {
-            it.value.apply {
-                if (this.state == LastKnownPublisherState.PRESENT) {
-                    this.lastSeen = timestamp
-                }
-            }
-        }
-    }
 }
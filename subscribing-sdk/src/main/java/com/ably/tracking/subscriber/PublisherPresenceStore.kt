@@ -0,0 +1,137 @@
+package com.ably.tracking.subscriber
+
+/**
+ * Stores the last known states of the publishers of a trackable.
+ *
+ * It keeps the counts of the present and absent publishers, and an immutable snapshot of all the known publishers that
+ * is updated in place of rebuilding it. The snapshot is a tree of fixed size chunks, so that an update only copies
+ * the chunk it changes and the few nodes on the path to it, and the snapshots share all the other chunks. This keeps
+ * the updates cheap for the trackables that see many publishers over time, such as shared vehicles or swapped devices.
+ * The stored publishers are never mutated, as they are shared with the snapshots already emitted.
+ */
+internal class PublisherPresenceStore {
+    private val publisherIndexes: MutableMap<String, Int> = HashMap()
+    private val presentPublishers: MutableMap<String, KnownPublisher> = LinkedHashMap()
+    private var snapshot = PublisherSnapshot.EMPTY
+    private var hasChangedSinceLastSnapshot = false
+
+    val presentPublishersCount: Int
+        get() = presentPublishers.size
+
+    val absentPublishersCount: Int
+        get() = snapshot.size - presentPublishers.size
+
+    val presentPublisherMemberKeys: Set<String>
+        get() = presentPublishers.keys.toSet()
+
+    /**
+     * Whether a publisher was added or changed its state since the last [takeSnapshot].
+     */
+    val hasChanged: Boolean
+        get() = hasChangedSinceLastSnapshot
+
+    /**
+     * Adds the [publisher], or replaces the publisher with the same member key.
+     */
+    fun update(publisher: KnownPublisher) {
+        val index = publisherIndexes[publisher.memberKey]
+        if (index == null) {
+            publisherIndexes[publisher.memberKey] = snapshot.size
+            snapshot = snapshot.appending(publisher)
+            hasChangedSinceLastSnapshot = true
+        } else {
+            if (snapshot[index].state != publisher.state) {
+                hasChangedSinceLastSnapshot = true
+            }
+            snapshot = snapshot.replacing(index, publisher)
+        }
+
+        if (publisher.state == LastKnownPublisherState.PRESENT) {
+            presentPublishers[publisher.memberKey] = publisher
+        } else {
+            presentPublishers.remove(publisher.memberKey)
+        }
+    }
+
+    /**
+     * Updates the last seen time of the present publishers, without visiting the absent ones.
+     * The publishers are replaced with updated copies, so the snapshots already taken don't change.
+     */
+    fun updatePresentPublishersLastSeenTo(timestamp: Long) {
+        presentPublishers.entries.forEach { entry ->
+            val publisher = entry.value.copy(lastSeen = timestamp)
+            entry.setValue(publisher)
+            snapshot = snapshot.replacing(publisherIndexes.getValue(publisher.memberKey), publisher)
+        }
+    }
+
+    /**
+     * Returns the immutable snapshot of all the known publishers, in the order they became known.
+     */
+    fun takeSnapshot(): List<KnownPublisher> {
+        hasChangedSinceLastSnapshot = false
+        return snapshot
+    }
+
+    /**
+     * An immutable list of publishers, which shares the unchanged nodes with the snapshot it was created from.
+     *
+     * The publishers are kept in the leaf chunks of a tree whose nodes have [CHUNK_SIZE] children, and the [shift] is
+     * the number of index bits consumed below the [root].
+     */
+    private class PublisherSnapshot(
+        private val root: Array<Any?>,
+        private val shift: Int,
+        override val size: Int
+    ) : AbstractList<KnownPublisher>() {
+        @Suppress("UNCHECKED_CAST")
+        override fun get(index: Int): KnownPublisher {
+            if (index < 0 || index >= size) {
+                throw IndexOutOfBoundsException("Index: $index, size: $size")
+            }
+            var node = root
+            var level = shift
+            while (level > 0) {
+                node = node[(index ushr level) and INDEX_MASK] as Array<Any?>
+                level -= BITS_PER_LEVEL
+            }
+            return node[index and INDEX_MASK] as KnownPublisher
+        }
+
+        fun replacing(index: Int, publisher: KnownPublisher): PublisherSnapshot =
+            PublisherSnapshot(settingIn(root, shift, index, publisher), shift, size)
+
+        fun appending(publisher: KnownPublisher): PublisherSnapshot =
+            if (size == 1 shl (shift + BITS_PER_LEVEL)) {
+                // The tree is full, so it grows by one level
+                val newRoot = arrayOfNulls<Any?>(CHUNK_SIZE).also { it[0] = root }
+                val newShift = shift + BITS_PER_LEVEL
+                PublisherSnapshot(settingIn(newRoot, newShift, size, publisher), newShift, size + 1)
+            } else {
+                PublisherSnapshot(settingIn(root, shift, size, publisher), shift, size + 1)
+            }
+
+        /**
+         * @return A copy of the [node] with the [publisher] at the [index], which copies only the nodes on the path to it.
+         */
+        @Suppress("UNCHECKED_CAST")
+        private fun settingIn(node: Array<Any?>?, level: Int, index: Int, publisher: KnownPublisher): Array<Any?> {
+            val copy = node?.copyOf() ?: arrayOfNulls(CHUNK_SIZE)
+            if (level == 0) {
+                copy[index and INDEX_MASK] = publisher
+            } else {
+                val childIndex = (index ushr level) and INDEX_MASK
+                copy[childIndex] = settingIn(copy[childIndex] as Array<Any?>?, level - BITS_PER_LEVEL, index, publisher)
+            }
+            return copy
+        }
+
+        companion object {
+            private const val BITS_PER_LEVEL = 5
+            private const val CHUNK_SIZE = 1 shl BITS_PER_LEVEL
+            private const val INDEX_MASK = CHUNK_SIZE - 1
+
+            val EMPTY = PublisherSnapshot(arrayOfNulls(CHUNK_SIZE), 0, 0)
+        }
+    }
+}
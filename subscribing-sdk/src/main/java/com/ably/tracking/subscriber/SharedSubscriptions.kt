@@ -0,0 +1,289 @@
+package com.ably.tracking.subscriber
+
+import com.ably.tracking.Accuracy
+import com.ably.tracking.FlowPolicy
+import com.ably.tracking.ListenerRegistration
+import com.ably.tracking.Location
+import com.ably.tracking.LocationUpdate
+import com.ably.tracking.LocationUpdatePayload
+import com.ably.tracking.Resolution
+import com.ably.tracking.TrackableState
+import com.ably.tracking.UpdateListener
+import com.ably.tracking.annotations.Experimental
+import com.ably.tracking.connection.ConnectionConfiguration
+import java.util.IdentityHashMap
+import java.util.concurrent.Executor
+import kotlin.math.min
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.flow.SharedFlow
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+
+/**
+ * The process-wide registry of the subscriptions shared by the subscribers of the same trackable.
+ */
+internal val sharedSubscriptions = SharedSubscriptions()
+
+/**
+ * A registry of subscriptions that lets many subscribers of the same trackable share a single underlying [Subscriber],
+ * and with it the channel attachment, the presence and the decoding of every message.
+ * Each of the subscribers keeps its own resolution preference, and the preferences are aggregated into the single
+ * preference that is sent to the publisher. The underlying subscriber is stopped when the last subscriber is stopped,
+ * and the trackable is subscribed to again only once it has been stopped, so that the stopping doesn't release
+ * the channel used by the new subscription.
+ */
+internal class SharedSubscriptions {
+    private val mutex = Mutex()
+    private val subscriptions: MutableMap<Key, Subscription> = HashMap()
+
+    data class Key(
+        val connectionConfiguration: ConnectionConfiguration,
+        val trackableId: String,
+        val locationPayload: LocationUpdatePayload,
+        val flowPolicy: FlowPolicy = FlowPolicy.SUSPEND,
+        val locationReorderingWindowInMilliseconds: Long? = null,
+        val locationStoreConfiguration: LocationStoreConfiguration? = null,
+    )
+
+    /**
+     * Returns a new subscriber of the [key] trackable, sharing the subscription with the other subscribers of it.
+     *
+     * @param resolution The resolution preference of the returned subscriber.
+     * @param createSubscriber Creates the underlying subscriber if the trackable is not subscribed to yet.
+     * The created subscriber is started by this method. If the trackable's previous subscription is being stopped,
+     * this method waits until it's stopped.
+     */
+    suspend fun subscribe(key: Key, resolution: Resolution?, createSubscriber: () -> DefaultSubscriber): Subscriber {
+        while (true) {
+            val stoppingSubscription = mutex.withLock {
+                val subscription = subscriptions[key]
+                if (subscription?.isStopping != true) {
+                    return addSubscriber(key, subscription, resolution, createSubscriber)
+                }
+                subscription
+            }
+            stoppingSubscription.stopped.await()
+        }
+    }
+
+    private suspend fun addSubscriber(
+        key: Key,
+        existingSubscription: Subscription?,
+        resolution: Resolution?,
+        createSubscriber: () -> DefaultSubscriber,
+    ): Subscriber {
+        val subscription = existingSubscription
+            ?: Subscription(key, createSubscriber().apply { start() }, resolution).also { subscriptions[key] = it }
+        return SharedSubscriber(subscription).also { subscription.updateResolution(it, resolution) }
+    }
+
+    private suspend fun unsubscribe(subscription: Subscription, subscriber: SharedSubscriber) {
+        val isLastSubscriber = mutex.withLock {
+            subscription.remove(subscriber).also { isLast -> subscription.isStopping = isLast }
+        }
+        if (!isLastSubscriber) {
+            return
+        }
+        // The underlying subscriber is stopped outside the lock, as stopping it can take a while,
+        // and the subscription is kept as stopping until then so that new subscribers wait for it
+        try {
+            subscription.subscriber.stop()
+        } finally {
+            mutex.withLock {
+                if (subscriptions[subscription.key] === subscription) {
+                    subscriptions.remove(subscription.key)
+                }
+            }
+            subscription.stopped.complete(Unit)
+        }
+    }
+
+    /**
+     * @param sentResolution The resolution preference the [subscriber] was started with.
+     */
+    private class Subscription(val key: Key, val subscriber: Subscriber, private var sentResolution: Resolution?) {
+        private val resolutions: MutableMap<SharedSubscriber, Resolution?> = IdentityHashMap()
+
+        /**
+         * Whether the last subscriber has been removed and the [subscriber] is being stopped. It's guarded by the mutex.
+         */
+        var isStopping = false
+
+        /**
+         * Completed once the [subscriber] has been stopped.
+         */
+        val stopped = CompletableDeferred<Unit>()
+
+        /**
+         * @return Whether the removed subscriber was the last subscriber of this subscription.
+         */
+        fun remove(sharedSubscriber: SharedSubscriber): Boolean {
+            val isLastSubscriber = synchronized(resolutions) {
+                resolutions.remove(sharedSubscriber)
+                resolutions.isEmpty()
+            }
+            if (!isLastSubscriber) {
+                sendAggregatedResolutionIfChanged()
+            }
+            return isLastSubscriber
+        }
+
+        fun updateResolution(sharedSubscriber: SharedSubscriber, resolution: Resolution?) {
+            val (aggregatedResolution, isChanged) = updateResolutionForSending(sharedSubscriber, resolution)
+            if (isChanged) {
+                subscriber.sendResolutionPreference(aggregatedResolution)
+            }
+        }
+
+        /**
+         * @return The aggregated resolution and whether it has changed since it was last sent.
+         */
+        fun updateResolutionForSending(sharedSubscriber: SharedSubscriber, resolution: Resolution?): Pair<Resolution?, Boolean> =
+            synchronized(resolutions) {
+                resolutions[sharedSubscriber] = resolution
+                takeAggregatedResolution()
+            }
+
+        private fun sendAggregatedResolutionIfChanged() {
+            val (aggregatedResolution, isChanged) = synchronized(resolutions) { takeAggregatedResolution() }
+            if (isChanged) {
+                subscriber.sendResolutionPreference(aggregatedResolution)
+            }
+        }
+
+        private fun takeAggregatedResolution(): Pair<Resolution?, Boolean> {
+            val aggregatedResolution = aggregateResolutions(resolutions.values.filterNotNull())
+            val isChanged = aggregatedResolution != sentResolution
+            sentResolution = aggregatedResolution
+            return aggregatedResolution to isChanged
+        }
+    }
+
+    /**
+     * A subscriber of a shared subscription. Stopping it only stops the underlying subscriber if it's the last one,
+     * but it always removes the listeners added through it.
+     */
+    private inner class SharedSubscriber(private val subscription: Subscription) : Subscriber {
+        private var isStopped = false
+        private val listenerRegistrations: MutableList<ListenerRegistration> = ArrayList()
+
+        override val locations: SharedFlow<LocationUpdate>
+            get() = subscription.subscriber.locations
+
+        override val rawLocations: SharedFlow<LocationUpdate>
+            get() = subscription.subscriber.rawLocations
+
+        override val trackableStates: StateFlow<TrackableState>
+            get() = subscription.subscriber.trackableStates
+
+        @Suppress("DEPRECATION")
+        @Deprecated(
+            "The publisherPresenceStateChanges SharedFlow provides more granular information on publisher presence. The Boolean version may be removed in a later version of AAT",
+            replaceWith = ReplaceWith("publisherPresenceStateChanges")
+        )
+        @Experimental
+        override val publisherPresence: StateFlow<Boolean>
+            get() = subscription.subscriber.publisherPresence
+
+        @Experimental
+        override val publisherPresenceStateChanges: StateFlow<PublisherPresenceStateChange>
+            get() = subscription.subscriber.publisherPresenceStateChanges
+
+        override val resolutions: SharedFlow<Resolution>
+            get() = subscription.subscriber.resolutions
+
+        override val nextLocationUpdateIntervals: SharedFlow<Long>
+            get() = subscription.subscriber.nextLocationUpdateIntervals
+
+        @Experimental
+        override fun addLocationUpdateListener(
+            listener: UpdateListener<LocationUpdate>,
+            executor: Executor?,
+            replayLatest: Boolean,
+        ): ListenerRegistration =
+            trackRegistration(subscription.subscriber.addLocationUpdateListener(listener, executor, replayLatest))
+
+        @Experimental
+        override fun addRawLocationUpdateListener(
+            listener: UpdateListener<LocationUpdate>,
+            executor: Executor?,
+            replayLatest: Boolean,
+        ): ListenerRegistration =
+            trackRegistration(subscription.subscriber.addRawLocationUpdateListener(listener, executor, replayLatest))
+
+        @Experimental
+        override fun getLocationsOverflowCount(): Long =
+            subscription.subscriber.getLocationsOverflowCount()
+
+        @Experimental
+        override fun getRawLocationsOverflowCount(): Long =
+            subscription.subscriber.getRawLocationsOverflowCount()
+
+        @Experimental
+        override fun getLocationReorderingStats(): LocationReorderingStats? =
+            subscription.subscriber.getLocationReorderingStats()
+
+        @Experimental
+        override suspend fun getStoredLocations(fromTimeInMilliseconds: Long, toTimeInMilliseconds: Long): List<Location> =
+            subscription.subscriber.getStoredLocations(fromTimeInMilliseconds, toTimeInMilliseconds)
+
+        private fun trackRegistration(registration: ListenerRegistration): ListenerRegistration {
+            synchronized(listenerRegistrations) { listenerRegistrations.add(registration) }
+            return ListenerRegistration {
+                synchronized(listenerRegistrations) { listenerRegistrations.remove(registration) }
+                registration.remove()
+            }
+        }
+
+        @Suppress("DEPRECATION")
+        @Deprecated("Use sendResolutionPreference instead")
+        override suspend fun resolutionPreference(resolution: Resolution?) {
+            val (aggregatedResolution, isChanged) = subscription.updateResolutionForSending(this, resolution)
+            if (isChanged) {
+                subscription.subscriber.resolutionPreference(aggregatedResolution)
+            }
+        }
+
+        override fun sendResolutionPreference(resolution: Resolution?) {
+            subscription.updateResolution(this, resolution)
+        }
+
+        override suspend fun stop() {
+            // The stopped flag is guarded by the same lock as the registrations, so concurrent stops unsubscribe once
+            val isStopping = synchronized(listenerRegistrations) {
+                if (isStopped) {
+                    false
+                } else {
+                    isStopped = true
+                    listenerRegistrations.forEach { it.remove() }
+                    listenerRegistrations.clear()
+                    true
+                }
+            }
+            if (isStopping) {
+                unsubscribe(subscription, this)
+            }
+        }
+    }
+}
+
+/**
+ * Aggregates the resolution preferences of many subscribers into a single one that satisfies all of them.
+ *
+ * @return The aggregated resolution, or null if there are no preferences.
+ */
+internal fun aggregateResolutions(resolutions: Collection<Resolution>): Resolution? {
+    if (resolutions.isEmpty()) {
+        return null
+    }
+    var accuracy = Accuracy.MINIMUM
+    var desiredInterval = Long.MAX_VALUE
+    var minimumDisplacement = Double.MAX_VALUE
+    resolutions.forEach {
+        accuracy = if (it.accuracy.level > accuracy.level) it.accuracy else accuracy
+        desiredInterval = min(desiredInterval, it.desiredInterval)
+        minimumDisplacement = min(minimumDisplacement, it.minimumDisplacement)
+    }
+    return Resolution(accuracy, desiredInterval, minimumDisplacement)
+}
@@ -2,12 +2,20 @@ package com.ably.tracking.subscriber
 
 import com.ably.tracking.BuilderConfigurationIncompleteException
 import com.ably.tracking.ConnectionException
+import com.ably.tracking.FlowPolicy
+import com.ably.tracking.ListenerRegistration
+import com.ably.tracking.Location
 import com.ably.tracking.LocationUpdate
+import com.ably.tracking.LocationUpdatePayload
 import com.ably.tracking.Resolution
 import com.ably.tracking.TrackableState
+import com.ably.tracking.UpdateListener
 import com.ably.tracking.annotations.Experimental
 import com.ably.tracking.connection.ConnectionConfiguration
 import com.ably.tracking.logging.LogHandler
+import java.io.File
+import java.io.IOException
+import java.util.concurrent.Executor
 import kotlinx.coroutines.flow.SharedFlow
 import kotlinx.coroutines.flow.StateFlow
 
@@ -68,6 +76,8 @@ interface Subscriber {
     /**
      * The shared flow emitting raw location values when they become available.
      * Raw locations are disabled by default. You need to enable them in the Publishing SDK.
+     * Raw locations are received only while this flow is collected, and the publisher is told to stop publishing them
+     * when none of the subscribers of the trackable collects them.
      */
     val rawLocations: SharedFlow<LocationUpdate>
         @JvmSynthetic get
@@ -105,6 +115,97 @@ interface Subscriber {
     val nextLocationUpdateIntervals: SharedFlow<Long>
         @JvmSynthetic get
 
+    /**
+     * EXPERIMENTAL API
+     *
+     * Adds a listener of the enhanced location updates, which is invoked directly by the SDK without collecting the
+     * [locations] flow. Unlike a collector of that flow, the listener only receives the latest location update
+     * when it's added if the [replayLatest] is enabled.
+     *
+     * @param listener The listener of the enhanced location updates.
+     * @param executor The executor that invokes the [listener]. If it's null, the [listener] is invoked synchronously on
+     * the thread that delivers the update inside the SDK, which can be the thread of the Ably client that received it,
+     * so it must return quickly and must not block.
+     * @param replayLatest Whether the [listener] should receive the latest location update, if there is one, when it's added.
+     * @return The registration that removes the [listener].
+     */
+    @Experimental
+    fun addLocationUpdateListener(
+        listener: UpdateListener<LocationUpdate>,
+        executor: Executor? = null,
+        replayLatest: Boolean = false,
+    ): ListenerRegistration
+
+    /**
+     * EXPERIMENTAL API
+     *
+     * Adds a listener of the raw location updates, which is invoked directly by the SDK without collecting the
+     * [rawLocations] flow. The raw locations are received while either that flow is collected or a listener is added.
+     * The listener only receives the latest raw location update when it's added if the [replayLatest] is enabled.
+     *
+     * @param listener The listener of the raw location updates.
+     * @param executor The executor that invokes the [listener]. If it's null, the [listener] is invoked synchronously on
+     * the thread of the Ably client that received the update, so it must return quickly and must not block.
+     * @param replayLatest Whether the [listener] should receive the latest raw location update, if there is one, when
+     * it's added.
+     * @return The registration that removes the [listener].
+     */
+    @Experimental
+    fun addRawLocationUpdateListener(
+        listener: UpdateListener<LocationUpdate>,
+        executor: Executor? = null,
+        replayLatest: Boolean = false,
+    ): ListenerRegistration
+
+    /**
+     * EXPERIMENTAL API
+     *
+     * Returns how many updates of the [locations] flow didn't fit into the buffer set with [Builder.flowPolicy], so
+     * they were either dropped or had to wait for the slowest collector.
+     *
+     * @return The number of the overflowed enhanced location updates since the subscriber was started.
+     */
+    @Experimental
+    fun getLocationsOverflowCount(): Long
+
+    /**
+     * EXPERIMENTAL API
+     *
+     * Returns how many updates of the [rawLocations] flow didn't fit into the buffer set with [Builder.flowPolicy], so
+     * they were either dropped or had to wait for the slowest collector.
+     *
+     * @return The number of the overflowed raw location updates since the subscriber was started.
+     */
+    @Experimental
+    fun getRawLocationsOverflowCount(): Long
+
+    /**
+     * EXPERIMENTAL API
+     *
+     * Returns the statistics of the reordering of the enhanced location updates, which show how often the updates were
+     * received out of order or more than once, and how long they were held back to put them in order.
+     *
+     * @return The statistics, or null if the reordering is not enabled with [Builder.locationReorderingWindow].
+     */
+    @Experimental
+    fun getLocationReorderingStats(): LocationReorderingStats?
+
+    /**
+     * EXPERIMENTAL API
+     *
+     * Returns the received enhanced locations kept in the on-device store, for example to draw the trail of the
+     * trackable without the network. The locations are kept for the time to live set with [Builder.locationStore].
+     *
+     * @param fromTimeInMilliseconds The time of the oldest location to return, inclusive.
+     * @param toTimeInMilliseconds The time of the newest location to return, inclusive.
+     * @return The stored locations in the time range ordered by their time, or an empty list if the store is not enabled.
+     *
+     * @throws IOException If the store cannot be read.
+     */
+    @Experimental
+    @JvmSynthetic
+    suspend fun getStoredLocations(fromTimeInMilliseconds: Long, toTimeInMilliseconds: Long): List<Location>
+
     /**
      * Stops this subscriber from listening to published locations. Once a subscriber has been stopped, it cannot be
      * restarted.
@@ -146,6 +247,18 @@ interface Subscriber {
          */
         fun trackingId(trackingId: String): Builder
 
+        /**
+         * **OPTIONAL** Sets the parts of location updates that this subscriber consumes, advertised to the remote publisher.
+         * When no subscriber of a trackable needs the [skipped][LocationUpdate.skippedLocations] and
+         * [intermediate][com.ably.tracking.EnhancedLocationUpdate.intermediateLocations] locations, the publisher omits them
+         * from the location updates it sends, which makes the messages smaller.
+         * If not set then the default value is [LocationUpdatePayload.FULL].
+         *
+         * @param payload The parts of location updates consumed by this subscriber.
+         * @return A new instance of the builder with this property changed.
+         */
+        fun locationPayload(payload: LocationUpdatePayload): Builder
+
         /**
          * EXPERIMENTAL API
          * **OPTIONAL** Sets the log handler.
@@ -155,6 +268,59 @@ interface Subscriber {
          */
         fun logHandler(logHandler: LogHandler): Builder
 
+        /**
+         * EXPERIMENTAL API
+         * **OPTIONAL** Enables sharing the Ably connection with the other publishers and subscribers of this process
+         * that enable it and are created with an equal [ConnectionConfiguration]. The shared connection is closed
+         * when the last of them stops. Subscribers of the same trackable that share the connection also share
+         * a single subscription of the trackable, and their resolution preferences are aggregated into the one
+         * that is sent to the publisher.
+         * By default this is disabled.
+         *
+         * @param enabled Whether the Ably connection is shared.
+         * @return A new instance of the builder with this property changed.
+         */
+        fun sharedConnection(enabled: Boolean): Builder
+
+        /**
+         * EXPERIMENTAL API
+         * **OPTIONAL** Sets what happens to the updates of the [Subscriber.locations] and [Subscriber.rawLocations] flows
+         * when their collectors are slower than the updates. The updates never hold up the subscriber, and with a dropping
+         * policy a slow collector cannot make the updates pile up either.
+         * By default every update is kept until the collectors catch up with it, see [FlowPolicy.SUSPEND].
+         *
+         * @param policy The policy of the flows.
+         * @return A new instance of the builder with this property changed.
+         */
+        fun flowPolicy(policy: FlowPolicy): Builder
+
+        /**
+         * EXPERIMENTAL API
+         * **OPTIONAL** Enables putting the enhanced location updates in order before they are emitted, so that the
+         * location times of the [Subscriber.locations] always increase. Each update is held back for up to the window,
+         * so that the older updates received within that time are emitted before it, and the updates that are received
+         * more than once or too late to be put in order are dropped. See [Subscriber.getLocationReorderingStats].
+         * By default the location updates are emitted in the order they are received, without holding them back.
+         *
+         * @param windowInMilliseconds The longest time an update is held back for. It must be positive.
+         * @return A new instance of the builder with this property changed.
+         */
+        fun locationReorderingWindow(windowInMilliseconds: Long): Builder
+
+        /**
+         * EXPERIMENTAL API
+         * **OPTIONAL** Enables an on-device store of the received enhanced locations, kept in a subdirectory of the
+         * [directory] for each trackable. When the subscriber starts, the last stored location is emitted by the
+         * [Subscriber.locations], so it's shown before the publisher sends a new one. The stored locations can be read
+         * with [Subscriber.getStoredLocations].
+         * By default the received locations are not stored.
+         *
+         * @param directory The directory of the store, for example a subdirectory of the application's files directory.
+         * @param timeToLiveInMilliseconds How long the locations are kept for. It must be positive.
+         * @return A new instance of the builder with this property changed.
+         */
+        fun locationStore(directory: File, timeToLiveInMilliseconds: Long): Builder
+
         /**
          * Creates a [Subscriber] and starts listening for location updates.
          *
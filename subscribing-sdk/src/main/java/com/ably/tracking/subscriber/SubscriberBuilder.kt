@@ -1,13 +1,16 @@
 package com.ably.tracking.subscriber
 
 import com.ably.tracking.BuilderConfigurationIncompleteException
+import com.ably.tracking.FlowPolicy
+import com.ably.tracking.LocationUpdatePayload
 import com.ably.tracking.Resolution
 import com.ably.tracking.common.DefaultAbly
-import com.ably.tracking.common.DefaultAblySdkFactory
+import com.ably.tracking.common.createAblySdkFactory
 import com.ably.tracking.common.logging.createLoggingTag
 import com.ably.tracking.common.logging.v
 import com.ably.tracking.connection.ConnectionConfiguration
 import com.ably.tracking.logging.LogHandler
+import java.io.File
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.SupervisorJob
@@ -17,6 +20,11 @@ internal data class SubscriberBuilder(
     val resolution: Resolution? = null,
     val logHandler: LogHandler? = null,
     val trackingId: String? = null,
+    val locationPayload: LocationUpdatePayload = LocationUpdatePayload.FULL,
+    val isConnectionShared: Boolean = false,
+    val flowPolicy: FlowPolicy = FlowPolicy.SUSPEND,
+    val locationReorderingWindowInMilliseconds: Long? = null,
+    val locationStoreConfiguration: LocationStoreConfiguration? = null,
 ) : Subscriber.Builder {
     private val TAG = createLoggingTag(this)
 
@@ -29,32 +37,77 @@ internal data class SubscriberBuilder(
     override fun trackingId(trackingId: String): Subscriber.Builder =
         this.copy(trackingId = trackingId)
 
+    override fun locationPayload(payload: LocationUpdatePayload): Subscriber.Builder =
+        this.copy(locationPayload = payload)
+
     override fun logHandler(logHandler: LogHandler): Subscriber.Builder =
         this.copy(logHandler = logHandler)
 
+    override fun sharedConnection(enabled: Boolean): Subscriber.Builder =
+        this.copy(isConnectionShared = enabled)
+
+    override fun flowPolicy(policy: FlowPolicy): Subscriber.Builder =
+        this.copy(flowPolicy = policy)
+
+    override fun locationReorderingWindow(windowInMilliseconds: Long): Subscriber.Builder {
+        require(windowInMilliseconds > 0) { "The reordering window must be positive, was $windowInMilliseconds" }
+        return this.copy(locationReorderingWindowInMilliseconds = windowInMilliseconds)
+    }
+
+    override fun locationStore(directory: File, timeToLiveInMilliseconds: Long): Subscriber.Builder {
+        require(timeToLiveInMilliseconds > 0) { "The time to live must be positive, was $timeToLiveInMilliseconds" }
+        return this.copy(locationStoreConfiguration = LocationStoreConfiguration(directory, timeToLiveInMilliseconds))
+    }
+
     override suspend fun start(): Subscriber {
         if (isMissingRequiredFields()) {
             logHandler?.v("$TAG Creating a subscriber instance failed due to missing required fields")
             throw BuilderConfigurationIncompleteException()
         }
         logHandler?.v("$TAG Creating a subscriber instance")
-        val coroutineScope = CoroutineScope(Dispatchers.IO + SupervisorJob())
         // All below fields are required and above code checks if they are nulls, so using !! should be safe from NPE
-        return DefaultSubscriber(
-            DefaultAbly(
-                DefaultAblySdkFactory(),
+        if (isConnectionShared) {
+            val key = SharedSubscriptions.Key(
                 connectionConfiguration!!,
-                logHandler,
-                coroutineScope
-            ),
-            resolution,
-            trackingId!!,
-            logHandler,
-        ).apply {
+                trackingId!!,
+                locationPayload,
+                flowPolicy,
+                locationReorderingWindowInMilliseconds,
+                locationStoreConfiguration,
+            )
+            return sharedSubscriptions.subscribe(key, resolution) { createSubscriber() }
+        }
+        return createSubscriber().apply {
             start()
         }
     }
 
+    private fun createSubscriber(): DefaultSubscriber {
+        val coroutineScope = CoroutineScope(Dispatchers.IO + SupervisorJob())
+        val locationStore = locationStoreConfiguration?.let { LocationStore.acquire(it, trackingId!!) }
+        try {
+            return DefaultSubscriber(
+                DefaultAbly(
+                    createAblySdkFactory(connectionConfiguration!!, isConnectionShared),
+                    connectionConfiguration,
+                    logHandler,
+                    coroutineScope
+                ),
+                resolution,
+                trackingId!!,
+                logHandler,
+                locationPayload,
+                flowPolicy,
+                locationReorderingWindowInMilliseconds,
+                locationStore,
+            )
+        } catch (exception: Exception) {
+            // The subscriber releases the store when it's stopped or fails to start, but it wasn't created
+            locationStore?.let { LocationStore.release(it) }
+            throw exception
+        }
+    }
+
     private fun isMissingRequiredFields() =
         connectionConfiguration == null ||
             trackingId == null
@@ -0,0 +1,14 @@
+package com.ably.tracking.subscriber
+
+import com.ably.tracking.LocationUpdate
+
+/**
+ * A location update of one of the trackables of a [MultiSubscriber].
+ *
+ * @param trackingId The unique tracking identifier of the asset whose location was updated.
+ * @param locationUpdate The location update of the asset.
+ */
+data class TrackableLocationUpdate(
+    val trackingId: String,
+    val locationUpdate: LocationUpdate,
+)
@@ -0,0 +1,86 @@
+package com.ably.tracking.subscriber.workerqueue
+
+import com.ably.tracking.common.Ably
+import com.ably.tracking.common.ConnectionStateChange
+import com.ably.tracking.common.ResultCallbackFunction
+import com.ably.tracking.common.workerqueue.Worker
+import com.ably.tracking.subscriber.MultiSubscriberInteractor
+import com.ably.tracking.subscriber.MultiSubscriberProperties
+import com.ably.tracking.subscriber.SubscriberProperties
+import com.ably.tracking.subscriber.workerqueue.workers.AddTrackableWorker
+import com.ably.tracking.subscriber.workerqueue.workers.StopSharedConnectionWorker
+import com.ably.tracking.subscriber.workerqueue.workers.TrackableStoppedWorker
+import com.ably.tracking.subscriber.workerqueue.workers.TrackableWorker
+import com.ably.tracking.subscriber.workerqueue.workers.UpdateTrackablesConnectionStateWorker
+import com.ably.tracking.common.workerqueue.WorkerFactory as QueueWorkerFactory
+
+/**
+ * Factory that creates the [Worker]s of the queue shared by all the trackables of a multi-trackable subscriber.
+ * The work of a single trackable is created by the trackable's own [WorkerFactory] and wrapped in a [TrackableWorker].
+ */
+internal class MultiWorkerFactory(
+    private val multiSubscriberInteractor: MultiSubscriberInteractor,
+    private val ably: Ably
+) : QueueWorkerFactory<MultiSubscriberProperties, MultiWorkerSpecification> {
+    /**
+     * Creates an appropriate [Worker] from the passed [MultiWorkerSpecification].
+     *
+     * @param workerSpecification The parameters that indicate which [Worker] implementation should be created.
+     * @return New [Worker] instance.
+     */
+    override fun createWorker(workerSpecification: MultiWorkerSpecification): Worker<MultiSubscriberProperties, MultiWorkerSpecification> =
+        when (workerSpecification) {
+            is MultiWorkerSpecification.AddTrackable -> AddTrackableWorker(
+                workerSpecification.trackableId,
+                workerSpecification.properties
+            )
+            is MultiWorkerSpecification.TrackableWork -> TrackableWorker(
+                workerSpecification.trackableId,
+                workerSpecification.specification,
+                workerSpecification.workerFactory.createWorker(workerSpecification.specification),
+                workerSpecification.workerFactory
+            )
+            is MultiWorkerSpecification.TrackableStopped -> TrackableStoppedWorker(
+                workerSpecification.trackableId
+            )
+            is MultiWorkerSpecification.UpdateConnectionState -> UpdateTrackablesConnectionStateWorker(
+                workerSpecification.connectionStateChange
+            )
+            is MultiWorkerSpecification.StopConnection -> StopSharedConnectionWorker(
+                ably,
+                multiSubscriberInteractor,
+                workerSpecification.callbackFunction
+            )
+        }
+}
+
+internal sealed class MultiWorkerSpecification {
+    data class AddTrackable(
+        val trackableId: String,
+        val properties: SubscriberProperties
+    ) : MultiWorkerSpecification()
+
+    /**
+     * The work of a single trackable, created by the trackable's [workerFactory].
+     */
+    data class TrackableWork(
+        val trackableId: String,
+        val specification: WorkerSpecification,
+        val workerFactory: WorkerFactory
+    ) : MultiWorkerSpecification()
+
+    /**
+     * The channel of a stopped trackable has been disconnected.
+     */
+    data class TrackableStopped(
+        val trackableId: String
+    ) : MultiWorkerSpecification()
+
+    data class UpdateConnectionState(
+        val connectionStateChange: ConnectionStateChange
+    ) : MultiWorkerSpecification()
+
+    data class StopConnection(
+        val callbackFunction: ResultCallbackFunction<Unit>
+    ) : MultiWorkerSpecification()
+}
@@ -9,6 +9,7 @@ import com.ably.tracking.common.workerqueue.Worker
 import com.ably.tracking.common.workerqueue.WorkerFactory
 import com.ably.tracking.subscriber.SubscriberProperties
 import com.ably.tracking.subscriber.SubscriberInteractor
+import com.ably.tracking.subscriber.workerqueue.workers.ChangeRawLocationsDemandWorker
 import com.ably.tracking.subscriber.workerqueue.workers.ChangeResolutionSuccessWorker
 import com.ably.tracking.subscriber.workerqueue.workers.ChangeResolutionWorker
 import com.ably.tracking.subscriber.workerqueue.workers.DeprecatedChangeResolutionWorker
@@ -18,6 +19,7 @@ import com.ably.tracking.subscriber.workerqueue.workers.EnterPresenceWorker
 import com.ably.tracking.subscriber.workerqueue.workers.ProcessInitialPresenceMessagesWorker
 import com.ably.tracking.subscriber.workerqueue.workers.StartConnectionWorker
 import com.ably.tracking.subscriber.workerqueue.workers.StopConnectionWorker
+import com.ably.tracking.subscriber.workerqueue.workers.StopTrackableWorker
 import com.ably.tracking.subscriber.workerqueue.workers.SubscribeForPresenceMessagesWorker
 import com.ably.tracking.subscriber.workerqueue.workers.SubscribeToChannelWorker
 import com.ably.tracking.subscriber.workerqueue.workers.UpdateChannelConnectionStateWorker
@@ -26,11 +28,15 @@ import com.ably.tracking.subscriber.workerqueue.workers.UpdatePublisherPresenceW
 
 /**
  * Factory that creates the [Worker]s. It also serves as a simple DI for workers dependencies.
+ *
+ * @param isConnectionShared Whether the Ably connection is shared with other trackables, in which case stopping
+ * the trackable leaves the connection open.
  */
 internal class WorkerFactory(
     private val subscriberInteractor: SubscriberInteractor,
     private val ably: Ably,
-    private val trackableId: String
+    private val trackableId: String,
+    private val isConnectionShared: Boolean = false,
 ) : WorkerFactory<SubscriberProperties, WorkerSpecification> {
     /**
      * Creates an appropriate [Worker] from the passed [WorkerSpecification].
@@ -86,16 +92,30 @@ internal class WorkerFactory(
                 trackableId,
                 workerSpecification.resolution
             )
-            is WorkerSpecification.Disconnect -> DisconnectWorker(
+            is WorkerSpecification.ChangeRawLocationsDemand -> ChangeRawLocationsDemandWorker(
                 ably,
-                workerSpecification.trackableId,
-                workerSpecification.callbackFunction
+                trackableId,
+                subscriberInteractor,
+                workerSpecification.isDemanded,
+                workerSpecification.isPresenceUpdateOnly
             )
-            is WorkerSpecification.StopConnection -> StopConnectionWorker(
+            is WorkerSpecification.Disconnect -> DisconnectWorker(
                 ably,
-                subscriberInteractor,
+                workerSpecification.trackableId,
                 workerSpecification.callbackFunction
             )
+            is WorkerSpecification.StopConnection ->
+                if (isConnectionShared) StopTrackableWorker(
+                    ably,
+                    trackableId,
+                    subscriberInteractor,
+                    workerSpecification.callbackFunction
+                )
+                else StopConnectionWorker(
+                    ably,
+                    subscriberInteractor,
+                    workerSpecification.callbackFunction
+                )
             is WorkerSpecification.ProcessInitialPresenceMessages -> ProcessInitialPresenceMessagesWorker(
                 workerSpecification.presenceMessages
             )
@@ -134,6 +154,11 @@ internal sealed class WorkerSpecification {
         val resolution: Resolution?
     ) : WorkerSpecification()
 
+    data class ChangeRawLocationsDemand(
+        val isDemanded: Boolean,
+        val isPresenceUpdateOnly: Boolean = false
+    ) : WorkerSpecification()
+
     data class StartConnection(
         val callbackFunction: ResultCallbackFunction<Unit>
     ) : WorkerSpecification()
@@ -0,0 +1,29 @@
+package com.ably.tracking.subscriber.workerqueue.workers
+
+import com.ably.tracking.common.workerqueue.DefaultWorker
+import com.ably.tracking.subscriber.MultiSubscriberProperties
+import com.ably.tracking.subscriber.SubscriberProperties
+import com.ably.tracking.subscriber.workerqueue.MultiWorkerSpecification
+
+internal class AddTrackableWorker(
+    private val trackableId: String,
+    private val trackableProperties: SubscriberProperties
+) : DefaultWorker<MultiSubscriberProperties, MultiWorkerSpecification>() {
+    override fun doWork(
+        properties: MultiSubscriberProperties,
+        doAsyncWork: (suspend () -> Unit) -> Unit,
+        postWork: (MultiWorkerSpecification) -> Unit
+    ): MultiSubscriberProperties {
+        properties.stoppingTrackables[trackableId]?.let { stoppingTrackable ->
+            // The trackable is added again once the channel of its previous instance is disconnected
+            stoppingTrackable.delayedWork.add(MultiWorkerSpecification.AddTrackable(trackableId, trackableProperties))
+            return properties
+        }
+        // The connection state is not received again by the trackables added after it has changed
+        properties.lastConnectionStateChange?.let {
+            trackableProperties.updateForConnectionStateChangeAndThenEmitStateEventsIfRequired(it)
+        }
+        properties.trackables[trackableId] = trackableProperties
+        return properties
+    }
+}
@@ -0,0 +1,68 @@
+package com.ably.tracking.subscriber.workerqueue.workers
+
+import com.ably.tracking.common.Ably
+import com.ably.tracking.common.PresenceData
+import com.ably.tracking.common.isFatalAblyFailure
+import com.ably.tracking.common.workerqueue.DefaultWorker
+import com.ably.tracking.subscriber.SubscriberInteractor
+import com.ably.tracking.subscriber.SubscriberProperties
+import com.ably.tracking.subscriber.workerqueue.WorkerSpecification
+
+/**
+ * Subscribes to or unsubscribes from the raw location updates when the raw locations start or stop being collected,
+ * and lets the publisher know about it through the presence data so it can stop publishing raw locations nobody wants.
+ *
+ * @param isPresenceUpdateOnly Whether only the presence data should be updated, for example when a previous update has failed.
+ */
+internal class ChangeRawLocationsDemandWorker(
+    private val ably: Ably,
+    private val trackableId: String,
+    private val subscriberInteractor: SubscriberInteractor,
+    private val isDemanded: Boolean,
+    private val isPresenceUpdateOnly: Boolean
+) : DefaultWorker<SubscriberProperties, WorkerSpecification>() {
+    override fun doWork(
+        properties: SubscriberProperties,
+        doAsyncWork: (suspend () -> Unit) -> Unit,
+        postWork: (WorkerSpecification) -> Unit
+    ): SubscriberProperties {
+        val isChanged = properties.presenceData.rawLocations != isDemanded
+        if (isPresenceUpdateOnly == isChanged) {
+            // Either nothing has changed or the presence update is outdated because the demand has changed since
+            return properties
+        }
+
+        if (isChanged) {
+            properties.presenceData = properties.presenceData.copy(rawLocations = isDemanded)
+            if (properties.isSubscribedToChannel) {
+                if (isDemanded) {
+                    subscriberInteractor.subscribeForRawEvents(properties.presenceData)
+                } else {
+                    subscriberInteractor.unsubscribeFromRawEvents()
+                }
+            } else {
+                // The presence may have been entered with the previous demand, so it's checked once subscribed
+                properties.isRawLocationsDemandChangedBeforeSubscribing = true
+            }
+        }
+
+        // Before subscribing to the channel the presence is entered with the current presence data
+        if (properties.isSubscribedToChannel) {
+            updatePresenceAsync(doAsyncWork, properties.presenceData, postWork)
+        }
+        return properties
+    }
+
+    private fun updatePresenceAsync(
+        doAsyncWork: (suspend () -> Unit) -> Unit,
+        presenceData: PresenceData,
+        postWork: (WorkerSpecification) -> Unit
+    ) {
+        doAsyncWork {
+            val result = ably.waitForChannelAndUpdatePresenceData(trackableId, presenceData)
+            if (result.isFailure && !result.isFatalAblyFailure()) {
+                postWork(WorkerSpecification.ChangeRawLocationsDemand(isDemanded, isPresenceUpdateOnly = true))
+            }
+        }
+    }
+}
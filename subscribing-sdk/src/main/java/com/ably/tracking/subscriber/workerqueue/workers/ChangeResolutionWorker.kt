@@ -2,12 +2,10 @@ package com.ably.tracking.subscriber.workerqueue.workers
 
 import com.ably.tracking.Resolution
 import com.ably.tracking.common.Ably
-import com.ably.tracking.common.PresenceData
 import com.ably.tracking.common.isFatalAblyFailure
 import com.ably.tracking.subscriber.SubscriberProperties
 import com.ably.tracking.common.workerqueue.DefaultWorker
 import com.ably.tracking.subscriber.workerqueue.WorkerSpecification
-import kotlinx.coroutines.delay
 
 internal class ChangeResolutionWorker(
     private val ably: Ably,
@@ -40,7 +38,7 @@ internal class ChangeResolutionWorker(
         postWork: (WorkerSpecification) -> Unit
     ) {
         doAsyncWork {
-            val result = waitAndUpdatePresence(properties.presenceData)
+            val result = ably.waitForChannelAndUpdatePresenceData(trackableId, properties.presenceData)
             if (result.isFailure && !result.isFatalAblyFailure()) {
                 postWork(WorkerSpecification.ChangeResolution(resolution))
             } else {
@@ -48,15 +46,4 @@ internal class ChangeResolutionWorker(
             }
         }
     }
-
-    private suspend fun waitAndUpdatePresence(presenceData: PresenceData): Result<Unit> {
-        val waitResult = ably.waitForChannelToAttach(trackableId)
-        return if (waitResult.isSuccess) {
-            // TODO remove this delay once ably-java issue is fixed https://github.com/ably/ably-java/issues/930
-            delay(100)
-            ably.updatePresenceData(trackableId, presenceData)
-        } else {
-            waitResult
-        }
-    }
 }
@@ -1,8 +1,10 @@
 package com.ably.tracking.subscriber.workerqueue.workers
 
 import com.ably.tracking.common.Ably
+import com.ably.tracking.common.ClientTypes
 import com.ably.tracking.common.ConnectionState
 import com.ably.tracking.common.ConnectionStateChange
+import com.ably.tracking.common.PresenceMessage
 import com.ably.tracking.common.workerqueue.DefaultWorker
 import com.ably.tracking.subscriber.SubscriberProperties
 import com.ably.tracking.subscriber.workerqueue.WorkerSpecification
@@ -23,7 +25,11 @@ internal class FetchHistoryForChannelConnectionStateChangeWorker(
         postWork: (WorkerSpecification) -> Unit
     ): SubscriberProperties {
         if (channelConnectionStateChange.state == ConnectionState.ONLINE) {
-            getPresenceHistory(doAsyncWork, postWork)
+            val start = maxOf(
+                System.currentTimeMillis() - PRESENCE_HISTORY_DURATION,
+                properties.lastPresenceMessageTimestamp ?: 0L
+            )
+            getPresenceHistory(start, properties.getPresentPublisherMemberKeys(), doAsyncWork, postWork)
         } else {
             postWork(
                 WorkerSpecification.UpdateChannelConnectionState(
@@ -35,16 +41,33 @@ internal class FetchHistoryForChannelConnectionStateChangeWorker(
         return properties
     }
 
+    /**
+     * Catches up on the presence history since the [start] time. As only the newest message of each publisher
+     * matters, just those are kept, and the history stops being fetched once the newest message of each of the
+     * [presentPublisherMemberKeys] is known, as the publishers that are present now are announced by the channel anyway.
+     */
     private fun getPresenceHistory(
+        start: Long,
+        presentPublisherMemberKeys: Set<String>,
         doAsyncWork: (suspend () -> Unit) -> Unit,
         postWork: (WorkerSpecification) -> Unit
     ) = doAsyncWork {
-        val presenceHistoryResult =
-            ably.getRecentPresenceHistory(trackableId, PRESENCE_HISTORY_DURATION)
+        val newestPublisherMessages = LinkedHashMap<String, PresenceMessage>()
+        val presenceHistoryResult = ably.getPresenceHistory(trackableId, start) { presenceMessages ->
+            presenceMessages.forEach { presenceMessage ->
+                if (presenceMessage.data.type == ClientTypes.PUBLISHER) {
+                    val newestMessage = newestPublisherMessages[presenceMessage.memberKey]
+                    if (newestMessage == null || presenceMessage.isNewerThan(newestMessage)) {
+                        newestPublisherMessages[presenceMessage.memberKey] = presenceMessage
+                    }
+                }
+            }
+            presentPublisherMemberKeys.isEmpty() || !newestPublisherMessages.keys.containsAll(presentPublisherMemberKeys)
+        }
         postWork(
             WorkerSpecification.UpdateChannelConnectionState(
                 channelConnectionStateChange,
-                presenceHistoryResult.getOrNull()
+                presenceHistoryResult.map { newestPublisherMessages.values.toList() }.getOrNull()
             )
         )
     }
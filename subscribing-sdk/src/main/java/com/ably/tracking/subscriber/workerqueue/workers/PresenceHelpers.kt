@@ -0,0 +1,21 @@
+package com.ably.tracking.subscriber.workerqueue.workers
+
+import com.ably.tracking.common.Ably
+import com.ably.tracking.common.PresenceData
+import kotlinx.coroutines.delay
+
+/**
+ * Waits for the channel of the [trackableId] to attach and then updates the presence data on it.
+ *
+ * @return The result of waiting for the channel if it fails, otherwise the result of updating the presence data.
+ */
+internal suspend fun Ably.waitForChannelAndUpdatePresenceData(trackableId: String, presenceData: PresenceData): Result<Unit> {
+    val waitResult = waitForChannelToAttach(trackableId)
+    return if (waitResult.isSuccess) {
+        // TODO remove this delay once ably-java issue is fixed https://github.com/ably/ably-java/issues/930
+        delay(100)
+        updatePresenceData(trackableId, presenceData)
+    } else {
+        waitResult
+    }
+}
@@ -0,0 +1,41 @@
+package com.ably.tracking.subscriber.workerqueue.workers
+
+import com.ably.tracking.common.Ably
+import com.ably.tracking.common.ClientTypes
+import com.ably.tracking.common.PresenceData
+import com.ably.tracking.common.ResultCallbackFunction
+import com.ably.tracking.common.workerqueue.CallbackWorker
+import com.ably.tracking.subscriber.MultiSubscriberInteractor
+import com.ably.tracking.subscriber.MultiSubscriberProperties
+import com.ably.tracking.subscriber.workerqueue.MultiWorkerSpecification
+import kotlinx.coroutines.runBlocking
+
+internal class StopSharedConnectionWorker(
+    private val ably: Ably,
+    private val multiSubscriberInteractor: MultiSubscriberInteractor,
+    callbackFunction: ResultCallbackFunction<Unit>
+) : CallbackWorker<MultiSubscriberProperties, MultiWorkerSpecification>(callbackFunction) {
+    override fun doWork(
+        properties: MultiSubscriberProperties,
+        doAsyncWork: (suspend () -> Unit) -> Unit,
+        postWork: (MultiWorkerSpecification) -> Unit
+    ): MultiSubscriberProperties {
+        // We're using [runBlocking] on purpose as we want to block the whole subscriber when it's stopping.
+        runBlocking {
+            ably.close(PresenceData(ClientTypes.SUBSCRIBER))
+            properties.trackables.values.forEach { it.isStopped = true }
+            properties.trackables.clear()
+            properties.isStopped = true
+            // The delayed work is handled as the work of the stopped queue
+            properties.stoppingTrackables.values.forEach { it.delayedWork.forEach(postWork) }
+            properties.stoppingTrackables.clear()
+            multiSubscriberInteractor.notifyAllAssetsAreOffline()
+            callbackFunction(Result.success(Unit))
+        }
+        return properties
+    }
+
+    override fun doWhenStopped(exception: Exception) {
+        callbackFunction(Result.success(Unit))
+    }
+}
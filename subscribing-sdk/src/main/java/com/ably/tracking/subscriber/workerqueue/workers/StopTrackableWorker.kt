@@ -0,0 +1,39 @@
+package com.ably.tracking.subscriber.workerqueue.workers
+
+import com.ably.tracking.common.Ably
+import com.ably.tracking.common.ResultCallbackFunction
+import com.ably.tracking.common.workerqueue.CallbackWorker
+import com.ably.tracking.subscriber.SubscriberInteractor
+import com.ably.tracking.subscriber.SubscriberProperties
+import com.ably.tracking.subscriber.workerqueue.WorkerSpecification
+
+/**
+ * Stops a trackable that shares the Ably connection with other trackables. Only the trackable's channel is left,
+ * so that the connection and the other trackables are not affected.
+ */
+internal class StopTrackableWorker(
+    private val ably: Ably,
+    private val trackableId: String,
+    private val subscriberInteractor: SubscriberInteractor,
+    callbackFunction: ResultCallbackFunction<Unit>
+) : CallbackWorker<SubscriberProperties, WorkerSpecification>(callbackFunction) {
+    override fun doWork(
+        properties: SubscriberProperties,
+        doAsyncWork: (suspend () -> Unit) -> Unit,
+        postWork: (WorkerSpecification) -> Unit
+    ): SubscriberProperties {
+        // Unlike when stopping the whole connection, the queue is shared with other trackables so it is not blocked
+        properties.isStopped = true
+        subscriberInteractor.notifyAssetIsOffline()
+        val presenceData = properties.presenceData
+        doAsyncWork {
+            ably.disconnect(trackableId, presenceData)
+            callbackFunction(Result.success(Unit))
+        }
+        return properties
+    }
+
+    override fun doWhenStopped(exception: Exception) {
+        callbackFunction(Result.success(Unit))
+    }
+}
@@ -15,7 +15,18 @@ internal class SubscribeToChannelWorker(
     ): SubscriberProperties {
         subscriberInteractor.subscribeForChannelState()
         subscriberInteractor.subscribeForEnhancedEvents(properties.presenceData)
-        subscriberInteractor.subscribeForRawEvents(properties.presenceData)
+        properties.isSubscribedToChannel = true
+        val areRawLocationsDemanded = properties.presenceData.rawLocations == true
+        if (areRawLocationsDemanded) {
+            subscriberInteractor.subscribeForRawEvents(properties.presenceData)
+        }
+        // The presence could have been entered before the raw locations demand has changed
+        if (areRawLocationsDemanded || properties.isRawLocationsDemandChangedBeforeSubscribing) {
+            properties.isRawLocationsDemandChangedBeforeSubscribing = false
+            postWork(
+                WorkerSpecification.ChangeRawLocationsDemand(areRawLocationsDemanded, isPresenceUpdateOnly = true)
+            )
+        }
         return properties
     }
 }
@@ -0,0 +1,21 @@
+package com.ably.tracking.subscriber.workerqueue.workers
+
+import com.ably.tracking.common.workerqueue.DefaultWorker
+import com.ably.tracking.subscriber.MultiSubscriberProperties
+import com.ably.tracking.subscriber.workerqueue.MultiWorkerSpecification
+
+/**
+ * Posts the work of a trackable that was added again while the channel of its previous instance was being disconnected.
+ */
+internal class TrackableStoppedWorker(
+    private val trackableId: String
+) : DefaultWorker<MultiSubscriberProperties, MultiWorkerSpecification>() {
+    override fun doWork(
+        properties: MultiSubscriberProperties,
+        doAsyncWork: (suspend () -> Unit) -> Unit,
+        postWork: (MultiWorkerSpecification) -> Unit
+    ): MultiSubscriberProperties {
+        properties.stoppingTrackables.remove(trackableId)?.delayedWork?.forEach(postWork)
+        return properties
+    }
+}
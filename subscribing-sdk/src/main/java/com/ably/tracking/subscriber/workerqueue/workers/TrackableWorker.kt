@@ -0,0 +1,79 @@
+package com.ably.tracking.subscriber.workerqueue.workers
+
+import com.ably.tracking.common.workerqueue.Worker
+import com.ably.tracking.subscriber.MultiSubscriberProperties
+import com.ably.tracking.subscriber.SubscriberProperties
+import com.ably.tracking.subscriber.StoppingTrackable
+import com.ably.tracking.subscriber.SubscriberStoppedException
+import com.ably.tracking.subscriber.workerqueue.MultiWorkerSpecification
+import com.ably.tracking.subscriber.workerqueue.WorkerFactory
+import com.ably.tracking.subscriber.workerqueue.WorkerSpecification
+
+/**
+ * Executes the [worker] of a single trackable with the trackable's properties, so that the work of many trackables
+ * can share one queue. The work of a trackable that isn't added or is already stopped is treated like the work
+ * of a stopped queue, apart from the work of a trackable added again while its previous channel is being disconnected,
+ * which is delayed until the disconnection completes, see [StoppingTrackable].
+ */
+internal class TrackableWorker(
+    private val trackableId: String,
+    private val specification: WorkerSpecification,
+    private val worker: Worker<SubscriberProperties, WorkerSpecification>,
+    private val workerFactory: WorkerFactory
+) : Worker<MultiSubscriberProperties, MultiWorkerSpecification> {
+    override fun doWork(
+        properties: MultiSubscriberProperties,
+        doAsyncWork: (suspend () -> Unit) -> Unit,
+        postWork: (MultiWorkerSpecification) -> Unit
+    ): MultiSubscriberProperties {
+        val trackableProperties = properties.trackables[trackableId]
+        if (trackableProperties == null || trackableProperties.isStopped) {
+            val stoppingTrackable = properties.stoppingTrackables[trackableId]
+            if (trackableProperties == null && stoppingTrackable != null && stoppingTrackable.workerFactory !== workerFactory) {
+                stoppingTrackable.delayedWork.add(
+                    MultiWorkerSpecification.TrackableWork(trackableId, specification, workerFactory)
+                )
+            } else {
+                worker.doWhenStopped(SubscriberStoppedException())
+            }
+            return properties
+        }
+
+        val trackableAsyncWorks = mutableListOf<suspend () -> Unit>()
+        val updatedTrackableProperties =
+            worker.doWork(trackableProperties.copy(), { trackableAsyncWorks.add(it) }, wrapPostWork(postWork))
+        if (updatedTrackableProperties.isStopped) {
+            properties.trackables.remove(trackableId)
+            if (trackableAsyncWorks.isNotEmpty()) {
+                // The async work of a stopped trackable disconnects its channel, which the same trackable can't use meanwhile
+                properties.stoppingTrackables[trackableId] = StoppingTrackable(workerFactory)
+                doAsyncWork {
+                    try {
+                        trackableAsyncWorks.forEach { it() }
+                    } finally {
+                        postWork(MultiWorkerSpecification.TrackableStopped(trackableId))
+                    }
+                }
+            }
+        } else {
+            properties.trackables[trackableId] = updatedTrackableProperties
+            trackableAsyncWorks.forEach { doAsyncWork(it) }
+        }
+        return properties
+    }
+
+    override fun doWhenStopped(exception: Exception) {
+        worker.doWhenStopped(exception)
+    }
+
+    override fun onUnexpectedError(exception: Exception, postWork: (MultiWorkerSpecification) -> Unit) {
+        worker.onUnexpectedError(exception, wrapPostWork(postWork))
+    }
+
+    override fun onUnexpectedAsyncError(exception: Exception, postWork: (MultiWorkerSpecification) -> Unit) {
+        worker.onUnexpectedAsyncError(exception, wrapPostWork(postWork))
+    }
+
+    private fun wrapPostWork(postWork: (MultiWorkerSpecification) -> Unit): (WorkerSpecification) -> Unit =
+        { postWork(MultiWorkerSpecification.TrackableWork(trackableId, it, workerFactory)) }
+}
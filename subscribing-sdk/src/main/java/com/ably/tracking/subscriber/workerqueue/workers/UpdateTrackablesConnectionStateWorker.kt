@@ -0,0 +1,22 @@
+package com.ably.tracking.subscriber.workerqueue.workers
+
+import com.ably.tracking.common.ConnectionStateChange
+import com.ably.tracking.common.workerqueue.DefaultWorker
+import com.ably.tracking.subscriber.MultiSubscriberProperties
+import com.ably.tracking.subscriber.workerqueue.MultiWorkerSpecification
+
+internal class UpdateTrackablesConnectionStateWorker(
+    private val connectionStateChange: ConnectionStateChange,
+) : DefaultWorker<MultiSubscriberProperties, MultiWorkerSpecification>() {
+    override fun doWork(
+        properties: MultiSubscriberProperties,
+        doAsyncWork: (suspend () -> Unit) -> Unit,
+        postWork: (MultiWorkerSpecification) -> Unit
+    ): MultiSubscriberProperties {
+        properties.lastConnectionStateChange = connectionStateChange
+        properties.trackables.values.forEach {
+            it.updateForConnectionStateChangeAndThenEmitStateEventsIfRequired(connectionStateChange)
+        }
+        return properties
+    }
+}
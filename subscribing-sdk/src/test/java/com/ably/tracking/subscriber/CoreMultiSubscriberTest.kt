@@ -0,0 +1,103 @@
+package com.ably.tracking.subscriber
+
+import com.ably.tracking.LocationUpdate
+import com.ably.tracking.common.Ably
+import com.ably.tracking.subscriber.workerqueue.WorkerSpecification
+import com.ably.tracking.test.common.createLocation
+import com.ably.tracking.test.common.mockConnectSuccess
+import com.ably.tracking.test.common.mockStartConnectionSuccess
+import com.google.common.truth.Truth.assertThat
+import io.mockk.coEvery
+import io.mockk.coVerify
+import io.mockk.mockk
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.runBlocking
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+
+class CoreMultiSubscriberTest {
+    @get:Rule
+    val temporaryFolder = TemporaryFolder()
+
+    private val trackableId = "test-trackable-id"
+    private val ably: Ably = mockk(relaxed = true)
+    private val coreMultiSubscriber = createCoreMultiSubscriber(ably, null)
+
+    @Test
+    fun `should add a trackable only once`() {
+        // given
+        val (addedTrackable, isAdded) = coreMultiSubscriber.getOrAddTrackable(trackableId, null)
+
+        // when
+        val (trackable, isAddedAgain) = coreMultiSubscriber.getOrAddTrackable(trackableId, null)
+
+        // then
+        assertThat(isAdded).isTrue()
+        assertThat(isAddedAgain).isFalse()
+        assertThat(trackable).isSameInstanceAs(addedTrackable)
+        assertThat(coreMultiSubscriber.getTrackable(trackableId)).isSameInstanceAs(addedTrackable)
+        assertThat(coreMultiSubscriber.trackableIds).containsExactly(trackableId)
+    }
+
+    @Test
+    fun `should return no trackable if it has not been added`() {
+        // given
+
+        // when
+        val trackable = coreMultiSubscriber.getTrackable(trackableId)
+
+        // then
+        assertThat(trackable).isNull()
+        assertThat(coreMultiSubscriber.trackableIds).isEmpty()
+    }
+
+    @Test
+    fun `should connect a trackable added again only after the channel of its stopped instance is disconnected`() = runBlocking {
+        // given
+        val disconnection = CompletableDeferred<Unit>()
+        coEvery { ably.disconnect(trackableId, any()) } coAnswers { disconnection.await() }
+        ably.mockStartConnectionSuccess()
+        ably.mockConnectSuccess(trackableId)
+        val (stoppedTrackable, _) = coreMultiSubscriber.getOrAddTrackable(trackableId, null)
+        stoppedTrackable.enqueue(WorkerSpecification.StopConnection {})
+        coVerify(timeout = 5000) { ably.disconnect(trackableId, any()) }
+
+        // when
+        val (addedAgainTrackable, isAddedAgain) = coreMultiSubscriber.getOrAddTrackable(trackableId, null)
+        addedAgainTrackable.enqueue(WorkerSpecification.StartConnection {})
+        delay(500)
+
+        // then
+        assertThat(isAddedAgain).isTrue()
+        coVerify(exactly = 0) { ably.connect(trackableId, any(), any(), any()) }
+
+        // when
+        disconnection.complete(Unit)
+
+        // then
+        coVerify(timeout = 5000) { ably.connect(trackableId, any(), any(), any()) }
+    }
+
+    @Test
+    fun `should emit the last stored location of an added trackable when the location store is enabled`() = runBlocking {
+        // given
+        val locationStoreConfiguration = LocationStoreConfiguration(temporaryFolder.root, 60_000L)
+        val storedLocation = createLocation(lat = 1.0, lng = 2.0, timestamp = System.currentTimeMillis())
+        LocationStore.acquire(locationStoreConfiguration, trackableId).let { store ->
+            store.append(LocationUpdate(storedLocation, emptyList()))
+            LocationStore.release(store)
+        }
+        val coreMultiSubscriber =
+            createCoreMultiSubscriber(ably, null, locationStoreConfiguration = locationStoreConfiguration)
+        val (trackable, _) = coreMultiSubscriber.getOrAddTrackable(trackableId, null)
+
+        // when
+        coreMultiSubscriber.restoreStoredLocation(trackableId)
+
+        // then
+        assertThat(trackable.enhancedLocations.first().location).isEqualTo(storedLocation)
+    }
+}
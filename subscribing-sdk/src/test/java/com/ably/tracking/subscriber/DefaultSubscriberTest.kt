@@ -1,17 +1,37 @@
 package com.ably.tracking.subscriber
 
+import com.ably.tracking.ConnectionException
+import com.ably.tracking.ErrorInformation
+import com.ably.tracking.FlowOverflowStrategy
+import com.ably.tracking.FlowPolicy
+import com.ably.tracking.LocationUpdate
+import com.ably.tracking.annotations.Experimental
 import com.ably.tracking.common.Ably
+import com.ably.tracking.subscriber.workerqueue.WorkerSpecification
+import com.ably.tracking.test.common.createLocation
 import com.ably.tracking.test.common.mockCreateConnectionSuccess
 import com.ably.tracking.test.common.mockGetCurrentPresenceSuccess
 import com.ably.tracking.test.common.mockSubscribeToPresenceError
+import com.google.common.truth.Truth.assertThat
+import io.mockk.every
 import io.mockk.mockk
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.cancel
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.test.UnconfinedTestDispatcher
 import kotlinx.coroutines.test.runTest
+import org.junit.Rule
 import org.junit.Test
+import org.junit.rules.TemporaryFolder
 import java.util.UUID
 
 @OptIn(ExperimentalCoroutinesApi::class)
 class DefaultSubscriberTest {
+    @get:Rule
+    val temporaryFolder = TemporaryFolder()
+
     private val ably = mockk<Ably>(relaxed = true)
     private val trackableId = UUID.randomUUID().toString()
     private val subscriber = DefaultSubscriber(ably, null, trackableId, null)
@@ -43,4 +63,56 @@ class DefaultSubscriberTest {
 
             // then
         }
+
+    @Test
+    fun `should release the location store when starting the subscriber fails`() =
+        runTest {
+            // given
+            val locationStoreConfiguration = LocationStoreConfiguration(temporaryFolder.root, 1_000)
+            val locationStore = LocationStore.acquire(locationStoreConfiguration, trackableId)
+            val core = mockk<CoreSubscriber>(relaxed = true) {
+                every { enqueue(any<WorkerSpecification.StartConnection>()) } answers {
+                    firstArg<WorkerSpecification.StartConnection>().callbackFunction(
+                        Result.failure(ConnectionException(ErrorInformation("Test")))
+                    )
+                }
+            }
+            val failingSubscriber = DefaultSubscriber(core, null, locationStore)
+
+            // when
+            val result = runCatching { failingSubscriber.start() }
+
+            // then
+            assertThat(result.isFailure).isTrue()
+            val nextLocationStore = LocationStore.acquire(locationStoreConfiguration, trackableId)
+            assertThat(nextLocationStore).isNotSameInstanceAs(locationStore)
+            LocationStore.release(nextLocationStore)
+        }
+
+    @OptIn(Experimental::class)
+    @Test
+    fun `should count the location updates that overflowed the buffer of a slow collector`() =
+        runTest {
+            // given
+            val core = createCoreSubscriber(
+                ably,
+                null,
+                trackableId,
+                null,
+                flowPolicy = FlowPolicy(0, FlowOverflowStrategy.DROP_LATEST),
+            )
+            val droppingSubscriber = DefaultSubscriber(core, null)
+            val collectorScope = CoroutineScope(UnconfinedTestDispatcher(testScheduler))
+            val collectorReleased = CompletableDeferred<Unit>()
+            collectorScope.launch { droppingSubscriber.locations.collect { collectorReleased.await() } }
+
+            // when
+            (1L..4L).forEach { core.restoreLocation(LocationUpdate(createLocation(timestamp = it), emptyList())) }
+
+            // then
+            assertThat(droppingSubscriber.getLocationsOverflowCount()).isEqualTo(2)
+            assertThat(droppingSubscriber.getRawLocationsOverflowCount()).isEqualTo(0)
+            collectorReleased.complete(Unit)
+            collectorScope.cancel()
+        }
 }
@@ -0,0 +1,121 @@
+package com.ably.tracking.subscriber
+
+import com.ably.tracking.LocationUpdate
+import com.ably.tracking.test.common.createLocation
+import com.google.common.truth.Truth.assertThat
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.test.StandardTestDispatcher
+import kotlinx.coroutines.test.TestScope
+import kotlinx.coroutines.test.advanceTimeBy
+import kotlinx.coroutines.test.advanceUntilIdle
+import kotlinx.coroutines.test.runCurrent
+import kotlinx.coroutines.test.runTest
+import org.junit.Test
+
+@OptIn(ExperimentalCoroutinesApi::class)
+class LocationReorderingBufferTest {
+    private val emittedLocationTimes = mutableListOf<Long>()
+
+    @Test
+    fun `should emit the updates received within the window in the order of their location times`() = runTest {
+        // given
+        val buffer = createBuffer()
+
+        // when
+        listOf(2L, 1L, 3L).forEach { buffer.add(createLocationUpdate(it)) }
+        advanceUntilIdle()
+
+        // then
+        assertThat(emittedLocationTimes).containsExactly(1L, 2L, 3L).inOrder()
+        assertThat(buffer.getStats().reorderedCount).isEqualTo(1)
+    }
+
+    @Test
+    fun `should hold an update back for the window before emitting it`() = runTest {
+        // given
+        val buffer = createBuffer()
+
+        // when
+        buffer.add(createLocationUpdate(1))
+        advanceTimeBy(WINDOW_IN_MILLISECONDS - 1)
+        runCurrent()
+
+        // then
+        assertThat(emittedLocationTimes).isEmpty()
+
+        // when
+        advanceTimeBy(1)
+        runCurrent()
+
+        // then
+        assertThat(emittedLocationTimes).containsExactly(1L)
+        assertThat(buffer.getStats().maxAddedLatencyInMilliseconds).isEqualTo(WINDOW_IN_MILLISECONDS)
+    }
+
+    @Test
+    fun `should emit an update when its window ends even if an older update was received later`() = runTest {
+        // given
+        val buffer = createBuffer()
+        buffer.add(createLocationUpdate(2))
+        advanceTimeBy(WINDOW_IN_MILLISECONDS - 10)
+        runCurrent()
+
+        // when
+        buffer.add(createLocationUpdate(1))
+        advanceTimeBy(10)
+        runCurrent()
+
+        // then
+        assertThat(emittedLocationTimes).containsExactly(1L, 2L).inOrder()
+        assertThat(buffer.getStats().maxAddedLatencyInMilliseconds).isEqualTo(WINDOW_IN_MILLISECONDS)
+    }
+
+    @Test
+    fun `should drop the duplicated updates`() = runTest {
+        // given
+        val buffer = createBuffer()
+
+        // when
+        buffer.add(createLocationUpdate(1))
+        buffer.add(createLocationUpdate(1))
+        advanceUntilIdle()
+        buffer.add(createLocationUpdate(1))
+        advanceUntilIdle()
+
+        // then
+        assertThat(emittedLocationTimes).containsExactly(1L)
+        assertThat(buffer.getStats().duplicateCount).isEqualTo(2)
+    }
+
+    @Test
+    fun `should drop the updates older than an emitted update`() = runTest {
+        // given
+        val buffer = createBuffer()
+        buffer.add(createLocationUpdate(2))
+        advanceUntilIdle()
+
+        // when
+        buffer.add(createLocationUpdate(1))
+        buffer.add(createLocationUpdate(3))
+        advanceUntilIdle()
+
+        // then
+        assertThat(emittedLocationTimes).containsExactly(2L, 3L).inOrder()
+        assertThat(buffer.getStats().lateCount).isEqualTo(1)
+    }
+
+    private fun TestScope.createBuffer() =
+        LocationReorderingBuffer(
+            WINDOW_IN_MILLISECONDS,
+            CoroutineScope(StandardTestDispatcher(testScheduler)),
+            { emittedLocationTimes.add(it.location.time) },
+            { testScheduler.currentTime },
+        )
+
+    private fun createLocationUpdate(time: Long) = LocationUpdate(createLocation(timestamp = time), emptyList())
+
+    companion object {
+        private const val WINDOW_IN_MILLISECONDS = 100L
+    }
+}
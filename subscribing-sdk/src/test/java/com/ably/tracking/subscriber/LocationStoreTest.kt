@@ -0,0 +1,85 @@
+package com.ably.tracking.subscriber
+
+import com.ably.tracking.LocationUpdate
+import com.ably.tracking.test.common.createLocation
+import com.google.common.truth.Truth.assertThat
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+
+class LocationStoreTest {
+    @get:Rule
+    val temporaryFolder = TemporaryFolder()
+
+    private var currentTime = 0L
+
+    @Test
+    fun `should return the stored locations within the time range`() {
+        // given
+        val store = createStore()
+        (1L..10L).forEach { store.append(createLocationUpdate(it)) }
+
+        // when
+        val locations = store.getLocations(3, 7)
+
+        // then
+        assertThat(locations.map { it.time }).containsExactly(3L, 4L, 5L, 6L, 7L).inOrder()
+    }
+
+    @Test
+    fun `should restore the last location after the store is reopened`() {
+        // given
+        val store = createStore()
+        (1L..5L).forEach { store.append(createLocationUpdate(it)) }
+        store.close()
+
+        // when
+        val lastLocation = createStore().getLastLocation()
+
+        // then
+        assertThat(lastLocation).isEqualTo(createLocation(lat = 5.0, lng = 5.0, timestamp = 5))
+    }
+
+    @Test
+    fun `should only store the locations newer than the last stored one`() {
+        // given
+        val store = createStore()
+
+        // when
+        store.append(createLocationUpdate(2))
+        store.append(createLocationUpdate(1))
+        store.append(createLocationUpdate(2))
+        store.append(LocationUpdate(createLocation(timestamp = 4), listOf(createLocation(timestamp = 3))))
+
+        // then
+        assertThat(store.getLocations(Long.MIN_VALUE, Long.MAX_VALUE).map { it.time }).containsExactly(2L, 3L, 4L).inOrder()
+    }
+
+    @Test
+    fun `should delete the segments whose locations have expired`() {
+        // given
+        val store = createStore()
+        (1L..10L).forEach { store.append(createLocationUpdate(it)) }
+        store.close()
+
+        // when
+        currentTime = 8 + TIME_TO_LIVE_IN_MILLISECONDS + 1
+        val reopenedStore = createStore()
+
+        // then
+        val remainingLocationTimes = reopenedStore.getLocations(Long.MIN_VALUE, Long.MAX_VALUE).map { it.time }
+        assertThat(remainingLocationTimes).containsExactly(9L, 10L).inOrder()
+        assertThat(temporaryFolder.root.listFiles()).hasLength(1)
+    }
+
+    private fun createStore() =
+        LocationStore(temporaryFolder.root, TIME_TO_LIVE_IN_MILLISECONDS, SEGMENT_CAPACITY) { currentTime }
+
+    private fun createLocationUpdate(time: Long) =
+        LocationUpdate(createLocation(lat = time.toDouble(), lng = time.toDouble(), timestamp = time), emptyList())
+
+    companion object {
+        private const val TIME_TO_LIVE_IN_MILLISECONDS = 100L
+        private const val SEGMENT_CAPACITY = 4
+    }
+}
@@ -0,0 +1,97 @@
+package com.ably.tracking.subscriber
+
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+
+class PublisherPresenceStoreTest {
+    private val store = PublisherPresenceStore()
+
+    @Test
+    fun `should count the present and absent publishers`() {
+        // given
+
+        // when
+        store.update(createPublisher("first", LastKnownPublisherState.PRESENT))
+        store.update(createPublisher("second", LastKnownPublisherState.PRESENT))
+        store.update(createPublisher("first", LastKnownPublisherState.ABSENT))
+
+        // then
+        assertThat(store.presentPublishersCount).isEqualTo(1)
+        assertThat(store.absentPublishersCount).isEqualTo(1)
+        assertThat(store.presentPublisherMemberKeys).containsExactly("second")
+    }
+
+    @Test
+    fun `should not change the previous snapshots when a publisher is updated`() {
+        // given
+        val presentPublisher = createPublisher("first", LastKnownPublisherState.PRESENT)
+        val absentPublisher = createPublisher("first", LastKnownPublisherState.ABSENT)
+        store.update(presentPublisher)
+        val previousSnapshot = store.takeSnapshot()
+
+        // when
+        store.update(absentPublisher)
+        val snapshot = store.takeSnapshot()
+
+        // then
+        assertThat(previousSnapshot).containsExactly(presentPublisher)
+        assertThat(snapshot).containsExactly(absentPublisher)
+    }
+
+    @Test
+    fun `should not change the previous snapshots when the last seen time of the present publishers is updated`() {
+        // given
+        val presentPublisher = createPublisher("first", LastKnownPublisherState.PRESENT, lastSeen = 1)
+        store.update(presentPublisher)
+        val previousSnapshot = store.takeSnapshot()
+
+        // when
+        store.updatePresentPublishersLastSeenTo(2)
+        val snapshot = store.takeSnapshot()
+
+        // then
+        assertThat(previousSnapshot.single().lastSeen).isEqualTo(1)
+        assertThat(presentPublisher.lastSeen).isEqualTo(1)
+        assertThat(snapshot.single().lastSeen).isEqualTo(2)
+    }
+
+    @Test
+    fun `should keep the publishers in the order they became known`() {
+        // given
+        val memberKeys = (0 until 2_000).map { "member-$it" }
+
+        // when
+        memberKeys.forEach { store.update(createPublisher(it, LastKnownPublisherState.PRESENT)) }
+        store.update(createPublisher("member-50", LastKnownPublisherState.ABSENT))
+        store.update(createPublisher("member-1500", LastKnownPublisherState.ABSENT))
+
+        // then
+        val snapshot = store.takeSnapshot()
+        assertThat(snapshot.map { it.memberKey }).containsExactlyElementsIn(memberKeys).inOrder()
+        assertThat(snapshot[50].state).isEqualTo(LastKnownPublisherState.ABSENT)
+        assertThat(snapshot[1500].state).isEqualTo(LastKnownPublisherState.ABSENT)
+        assertThat(store.absentPublishersCount).isEqualTo(2)
+    }
+
+    @Test
+    fun `should only report a change when a publisher is added or changes its state`() {
+        // given
+        store.update(createPublisher("first", LastKnownPublisherState.PRESENT))
+        store.takeSnapshot()
+
+        // when
+        store.update(createPublisher("first", LastKnownPublisherState.PRESENT, lastSeen = 2))
+
+        // then
+        assertThat(store.hasChanged).isFalse()
+
+        // when
+        store.update(createPublisher("first", LastKnownPublisherState.ABSENT))
+
+        // then
+        assertThat(store.hasChanged).isTrue()
+    }
+
+    private fun createPublisher(memberKey: String, state: LastKnownPublisherState, lastSeen: Long = 1) =
+        KnownPublisher(memberKey, "clientId", "connectionId", state, lastSeen)
+}
@@ -0,0 +1,173 @@
+package com.ably.tracking.subscriber
+
+import com.ably.tracking.Accuracy
+import com.ably.tracking.LocationUpdatePayload
+import com.ably.tracking.Resolution
+import com.ably.tracking.connection.Authentication
+import com.ably.tracking.connection.ConnectionConfiguration
+import com.google.common.truth.Truth.assertThat
+import io.mockk.coEvery
+import io.mockk.coVerify
+import io.mockk.mockk
+import io.mockk.verify
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.test.runCurrent
+import kotlinx.coroutines.test.runTest
+import org.junit.Test
+
+@OptIn(ExperimentalCoroutinesApi::class)
+class SharedSubscriptionsTest {
+    private val sharedSubscriptions = SharedSubscriptions()
+    private val key = SharedSubscriptions.Key(
+        ConnectionConfiguration(Authentication.basic("client-id", "api-key")),
+        "trackable-id",
+        LocationUpdatePayload.FULL
+    )
+    private val lowResolution = Resolution(Accuracy.LOW, 10_000, 100.0)
+    private val highResolution = Resolution(Accuracy.HIGH, 1_000, 1.0)
+    private val underlyingSubscriber = mockk<DefaultSubscriber>(relaxed = true)
+    private var createdSubscribersCount = 0
+
+    @Test
+    fun `should share the underlying subscriber between the subscribers of the same trackable`() = runTest {
+        // given
+
+        // when
+        subscribe(lowResolution)
+        subscribe(lowResolution)
+
+        // then
+        assertThat(createdSubscribersCount).isEqualTo(1)
+        coVerify(exactly = 1) { underlyingSubscriber.start() }
+    }
+
+    @Test
+    fun `should share the underlying subscriber between the subscribers of independently created equal keys`() = runTest {
+        // given
+        val firstKey = SharedSubscriptions.Key(
+            ConnectionConfiguration(Authentication.basic("client-id", "api-key")),
+            "trackable-id",
+            LocationUpdatePayload.FULL
+        )
+        val secondKey = SharedSubscriptions.Key(
+            ConnectionConfiguration(Authentication.basic("client-id", "api-key")),
+            "trackable-id",
+            LocationUpdatePayload.FULL
+        )
+
+        // when
+        subscribe(lowResolution, firstKey)
+        subscribe(lowResolution, secondKey)
+
+        // then
+        assertThat(createdSubscribersCount).isEqualTo(1)
+    }
+
+    @Test
+    fun `should stop the underlying subscriber once when a subscriber is stopped twice`() = runTest {
+        // given
+        val subscriber = subscribe(lowResolution)
+
+        // when
+        subscriber.stop()
+        subscriber.stop()
+
+        // then
+        coVerify(exactly = 1) { underlyingSubscriber.stop() }
+    }
+
+    @Test
+    fun `should send the aggregated resolution preference when a subscriber needs a higher resolution`() = runTest {
+        // given
+        subscribe(lowResolution)
+
+        // when
+        subscribe(highResolution)
+
+        // then
+        verify(exactly = 1) { underlyingSubscriber.sendResolutionPreference(highResolution) }
+    }
+
+    @Test
+    fun `should not send the resolution preference when the aggregated resolution has not changed`() = runTest {
+        // given
+        subscribe(highResolution)
+        val subscriber = subscribe(null)
+
+        // when
+        subscriber.sendResolutionPreference(lowResolution)
+
+        // then
+        verify(exactly = 0) { underlyingSubscriber.sendResolutionPreference(any()) }
+    }
+
+    @Test
+    fun `should only stop the underlying subscriber when the last subscriber is stopped`() = runTest {
+        // given
+        val firstSubscriber = subscribe(lowResolution)
+        val secondSubscriber = subscribe(highResolution)
+
+        // when
+        secondSubscriber.stop()
+
+        // then
+        coVerify(exactly = 0) { underlyingSubscriber.stop() }
+        verify { underlyingSubscriber.sendResolutionPreference(lowResolution) }
+
+        // when
+        firstSubscriber.stop()
+
+        // then
+        coVerify(exactly = 1) { underlyingSubscriber.stop() }
+    }
+
+    @Test
+    fun `should subscribe to the trackable again only after its stopping subscriber has been stopped`() = runTest {
+        // given
+        val stopping = CompletableDeferred<Unit>()
+        coEvery { underlyingSubscriber.stop() } coAnswers { stopping.await() }
+        val stoppedSubscriber = subscribe(lowResolution)
+        launch { stoppedSubscriber.stop() }
+        runCurrent()
+
+        // when
+        var subscriber: Subscriber? = null
+        launch { subscriber = subscribe(lowResolution) }
+        runCurrent()
+
+        // then
+        assertThat(subscriber).isNull()
+        assertThat(createdSubscribersCount).isEqualTo(1)
+
+        // when
+        stopping.complete(Unit)
+        runCurrent()
+
+        // then
+        assertThat(subscriber).isNotNull()
+        assertThat(createdSubscribersCount).isEqualTo(2)
+    }
+
+    @Test
+    fun `should aggregate the resolutions into one that satisfies all of them`() {
+        // given
+        val resolutions = listOf(
+            Resolution(Accuracy.LOW, 1_000, 100.0),
+            Resolution(Accuracy.HIGH, 10_000, 10.0),
+        )
+
+        // when
+        val aggregatedResolution = aggregateResolutions(resolutions)
+
+        // then
+        assertThat(aggregatedResolution).isEqualTo(Resolution(Accuracy.HIGH, 1_000, 10.0))
+    }
+
+    private suspend fun subscribe(resolution: Resolution?, key: SharedSubscriptions.Key = this.key): Subscriber =
+        sharedSubscriptions.subscribe(key, resolution) {
+            createdSubscribersCount++
+            underlyingSubscriber
+        }
+}
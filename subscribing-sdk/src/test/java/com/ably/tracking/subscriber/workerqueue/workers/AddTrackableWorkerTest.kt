@@ -0,0 +1,64 @@
+package com.ably.tracking.subscriber.workerqueue.workers
+
+import com.ably.tracking.common.ConnectionState
+import com.ably.tracking.common.ConnectionStateChange
+import com.ably.tracking.subscriber.MultiSubscriberProperties
+import com.ably.tracking.subscriber.StoppingTrackable
+import com.ably.tracking.subscriber.SubscriberProperties
+import com.ably.tracking.subscriber.workerqueue.MultiWorkerSpecification
+import com.google.common.truth.Truth.assertThat
+import io.mockk.mockk
+import io.mockk.verify
+import org.junit.Test
+
+internal class AddTrackableWorkerTest {
+
+    private val trackableId = "123123"
+    private val trackableProperties: SubscriberProperties = mockk(relaxed = true)
+    private val addTrackableWorker = AddTrackableWorker(trackableId, trackableProperties)
+
+    private val asyncWorks = mutableListOf<suspend () -> Unit>()
+    private val postedWorks = mutableListOf<MultiWorkerSpecification>()
+
+    @Test
+    fun `should add the trackable properties`() {
+        // given
+        val initialProperties = MultiSubscriberProperties()
+
+        // when
+        val updatedProperties = addTrackableWorker.doWork(initialProperties, asyncWorks.appendWork(), postedWorks::add)
+
+        // then
+        assertThat(updatedProperties.trackables[trackableId]).isSameInstanceAs(trackableProperties)
+        verify(exactly = 0) { trackableProperties.updateForConnectionStateChangeAndThenEmitStateEventsIfRequired(any()) }
+    }
+
+    @Test
+    fun `should update the added trackable with the last connection state change`() {
+        // given
+        val connectionStateChange = ConnectionStateChange(ConnectionState.ONLINE, null)
+        val initialProperties = MultiSubscriberProperties(lastConnectionStateChange = connectionStateChange)
+
+        // when
+        addTrackableWorker.doWork(initialProperties, asyncWorks.appendWork(), postedWorks::add)
+
+        // then
+        verify { trackableProperties.updateForConnectionStateChangeAndThenEmitStateEventsIfRequired(connectionStateChange) }
+    }
+
+    @Test
+    fun `should delay adding the trackable while its previous instance is stopping`() {
+        // given
+        val initialProperties = MultiSubscriberProperties()
+        initialProperties.stoppingTrackables[trackableId] = StoppingTrackable(mockk())
+
+        // when
+        val updatedProperties = addTrackableWorker.doWork(initialProperties, asyncWorks.appendWork(), postedWorks::add)
+
+        // then
+        assertThat(updatedProperties.trackables).doesNotContainKey(trackableId)
+        assertThat(updatedProperties.stoppingTrackables[trackableId]?.delayedWork).containsExactly(
+            MultiWorkerSpecification.AddTrackable(trackableId, trackableProperties)
+        )
+    }
+}
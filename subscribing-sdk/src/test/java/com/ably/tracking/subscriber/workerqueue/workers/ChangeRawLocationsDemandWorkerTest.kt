@@ -0,0 +1,166 @@
+package com.ably.tracking.subscriber.workerqueue.workers
+
+import com.ably.tracking.common.Ably
+import com.ably.tracking.subscriber.SubscriberInteractor
+import com.ably.tracking.subscriber.workerqueue.WorkerSpecification
+import com.ably.tracking.test.common.mockUpdatePresenceDataFailure
+import com.ably.tracking.test.common.mockUpdatePresenceDataSuccess
+import com.ably.tracking.test.common.mockWaitForChannelToAttachSuccess
+import com.google.common.truth.Truth.assertThat
+import io.mockk.coVerify
+import io.mockk.every
+import io.mockk.just
+import io.mockk.mockk
+import io.mockk.runs
+import io.mockk.verify
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.test.runTest
+import org.junit.Test
+
+@OptIn(ExperimentalCoroutinesApi::class)
+class ChangeRawLocationsDemandWorkerTest {
+
+    private val ably: Ably = mockk()
+    private val trackableId = "testtrackable"
+    private val subscriberInteractor: SubscriberInteractor = mockk {
+        every { subscribeForRawEvents(any()) } just runs
+        every { unsubscribeFromRawEvents() } just runs
+    }
+
+    private val initialProperties = createSubscriberProperties()
+    private val asyncWorks = mutableListOf<suspend () -> Unit>()
+    private val postedWorks = mutableListOf<WorkerSpecification>()
+
+    @Test
+    fun `should subscribe for raw events and update presence data when raw locations become demanded`() = runTest {
+        // given
+        initialProperties.isSubscribedToChannel = true
+        ably.mockWaitForChannelToAttachSuccess(trackableId)
+        ably.mockUpdatePresenceDataSuccess(trackableId)
+        val worker = createWorker(isDemanded = true)
+
+        // when
+        val updatedProperties = worker.doWork(
+            initialProperties,
+            asyncWorks.appendWork(),
+            postedWorks.appendSpecification()
+        )
+        asyncWorks.executeAll()
+
+        // then
+        assertThat(updatedProperties.presenceData.rawLocations).isTrue()
+        verify(exactly = 1) {
+            subscriberInteractor.subscribeForRawEvents(updatedProperties.presenceData)
+        }
+        coVerify(exactly = 1) {
+            ably.updatePresenceData(trackableId, updatedProperties.presenceData)
+        }
+        assertThat(postedWorks).isEmpty()
+    }
+
+    @Test
+    fun `should unsubscribe from raw events when raw locations are no longer demanded`() = runTest {
+        // given
+        initialProperties.isSubscribedToChannel = true
+        initialProperties.presenceData = initialProperties.presenceData.copy(rawLocations = true)
+        ably.mockWaitForChannelToAttachSuccess(trackableId)
+        ably.mockUpdatePresenceDataSuccess(trackableId)
+        val worker = createWorker(isDemanded = false)
+
+        // when
+        val updatedProperties = worker.doWork(
+            initialProperties,
+            asyncWorks.appendWork(),
+            postedWorks.appendSpecification()
+        )
+        asyncWorks.executeAll()
+
+        // then
+        assertThat(updatedProperties.presenceData.rawLocations).isFalse()
+        verify(exactly = 1) {
+            subscriberInteractor.unsubscribeFromRawEvents()
+        }
+    }
+
+    @Test
+    fun `should only change the presence data before the channel is subscribed to`() = runTest {
+        // given
+        val worker = createWorker(isDemanded = true)
+
+        // when
+        val updatedProperties = worker.doWork(
+            initialProperties,
+            asyncWorks.appendWork(),
+            postedWorks.appendSpecification()
+        )
+
+        // then
+        assertThat(updatedProperties.presenceData.rawLocations).isTrue()
+        assertThat(updatedProperties.isRawLocationsDemandChangedBeforeSubscribing).isTrue()
+        assertThat(asyncWorks).isEmpty()
+        verify(exactly = 0) {
+            subscriberInteractor.subscribeForRawEvents(any())
+        }
+    }
+
+    @Test
+    fun `should do nothing when the demand has not changed`() = runTest {
+        // given
+        initialProperties.isSubscribedToChannel = true
+        val worker = createWorker(isDemanded = false)
+
+        // when
+        worker.doWork(
+            initialProperties,
+            asyncWorks.appendWork(),
+            postedWorks.appendSpecification()
+        )
+
+        // then
+        assertThat(asyncWorks).isEmpty()
+        assertThat(postedWorks).isEmpty()
+    }
+
+    @Test
+    fun `should retry updating presence data when it fails`() = runTest {
+        // given
+        initialProperties.isSubscribedToChannel = true
+        ably.mockWaitForChannelToAttachSuccess(trackableId)
+        ably.mockUpdatePresenceDataFailure(trackableId)
+        val worker = createWorker(isDemanded = true)
+
+        // when
+        worker.doWork(
+            initialProperties,
+            asyncWorks.appendWork(),
+            postedWorks.appendSpecification()
+        )
+        asyncWorks.executeAll()
+
+        // then
+        assertThat(postedWorks).containsExactly(
+            WorkerSpecification.ChangeRawLocationsDemand(isDemanded = true, isPresenceUpdateOnly = true)
+        )
+    }
+
+    @Test
+    fun `should skip an outdated presence data update`() = runTest {
+        // given
+        initialProperties.isSubscribedToChannel = true
+        val worker = createWorker(isDemanded = true, isPresenceUpdateOnly = true)
+
+        // when
+        val updatedProperties = worker.doWork(
+            initialProperties,
+            asyncWorks.appendWork(),
+            postedWorks.appendSpecification()
+        )
+
+        // then
+        assertThat(updatedProperties.presenceData.rawLocations).isFalse()
+        assertThat(asyncWorks).isEmpty()
+    }
+
+    private fun createWorker(isDemanded: Boolean, isPresenceUpdateOnly: Boolean = false) =
+        ChangeRawLocationsDemandWorker(ably, trackableId, subscriberInteractor, isDemanded, isPresenceUpdateOnly)
+}
@@ -11,6 +11,7 @@ import com.ably.tracking.subscriber.SubscriberProperties
 import com.ably.tracking.subscriber.workerqueue.WorkerSpecification
 import com.google.common.truth.Truth.assertThat
 import io.mockk.coEvery
+import io.mockk.coVerify
 import io.mockk.every
 import io.mockk.mockk
 import kotlinx.coroutines.ExperimentalCoroutinesApi
@@ -63,6 +64,8 @@ internal class FetchHistoryForChannelConnectionStateChangeWorkerTest {
             // given
             every { channelConnectionStateChange.state } returns ConnectionState.ONLINE
 
+            mockSubscriberProperties()
+
             val presenceHistory = listOf(
                 PresenceMessage(
                     PresenceAction.UPDATE,
@@ -74,9 +77,7 @@ internal class FetchHistoryForChannelConnectionStateChangeWorkerTest {
                     ""
                 )
             )
-            coEvery { ably.getRecentPresenceHistory(trackableId, any()) } returns Result.success(
-                presenceHistory
-            )
+            mockPresenceHistoryPages(listOf(presenceHistory))
 
             // when
             fetchHistoryForChannelConnectionStateChangeWorker.doWork(
@@ -100,7 +101,8 @@ internal class FetchHistoryForChannelConnectionStateChangeWorkerTest {
         runTest {
             // given
             every { channelConnectionStateChange.state } returns ConnectionState.ONLINE
-            coEvery { ably.getRecentPresenceHistory(trackableId, any()) } returns Result.failure(
+            mockSubscriberProperties()
+            coEvery { ably.getPresenceHistory(trackableId, any(), any()) } returns Result.failure(
                 RuntimeException()
             )
 
@@ -120,4 +122,110 @@ internal class FetchHistoryForChannelConnectionStateChangeWorkerTest {
             )
             assertThat(postedWork.presenceHistory).isNull()
         }
+
+    @Test
+    fun `when new state is ONLINE should fetch the presence history since the last processed presence message`() =
+        runTest {
+            // given
+            every { channelConnectionStateChange.state } returns ConnectionState.ONLINE
+            val lastPresenceMessageTimestamp = System.currentTimeMillis() - 1000
+            mockSubscriberProperties(lastPresenceMessageTimestamp = lastPresenceMessageTimestamp)
+            mockPresenceHistoryPages(emptyList())
+
+            // when
+            fetchHistoryForChannelConnectionStateChangeWorker.doWork(
+                subscriberProperties,
+                asyncWorks.appendWork(),
+                postedWorks.appendSpecification()
+            )
+
+            asyncWorks.executeAll()
+
+            // then
+            coVerify { ably.getPresenceHistory(trackableId, lastPresenceMessageTimestamp, any()) }
+        }
+
+    @Test
+    fun `when new state is ONLINE should post only the newest presence message of each publisher`() =
+        runTest {
+            // given
+            every { channelConnectionStateChange.state } returns ConnectionState.ONLINE
+            mockSubscriberProperties()
+            val newestMessage = createPublisherPresenceMessage(PresenceAction.LEAVE_OR_ABSENT, timestamp = 2, index = 2)
+            val olderMessage = createPublisherPresenceMessage(PresenceAction.PRESENT_OR_ENTER, timestamp = 1, index = 1)
+            mockPresenceHistoryPages(listOf(listOf(newestMessage), listOf(olderMessage)))
+
+            // when
+            fetchHistoryForChannelConnectionStateChangeWorker.doWork(
+                subscriberProperties,
+                asyncWorks.appendWork(),
+                postedWorks.appendSpecification()
+            )
+
+            asyncWorks.executeAll()
+
+            // then
+            val postedWork = postedWorks[0] as WorkerSpecification.UpdateChannelConnectionState
+            assertThat(postedWork.presenceHistory).containsExactly(newestMessage)
+        }
+
+    @Test
+    fun `when new state is ONLINE should stop fetching the presence history once the present publishers are resolved`() =
+        runTest {
+            // given
+            every { channelConnectionStateChange.state } returns ConnectionState.ONLINE
+            mockSubscriberProperties(presentPublisherMemberKeys = setOf("memberKey"))
+            val newestMessage = createPublisherPresenceMessage(PresenceAction.LEAVE_OR_ABSENT, timestamp = 2, index = 2)
+            val olderMessage = createPublisherPresenceMessage(PresenceAction.PRESENT_OR_ENTER, timestamp = 1, index = 1)
+            val fetchedPagesCount = mockPresenceHistoryPages(listOf(listOf(newestMessage), listOf(olderMessage)))
+
+            // when
+            fetchHistoryForChannelConnectionStateChangeWorker.doWork(
+                subscriberProperties,
+                asyncWorks.appendWork(),
+                postedWorks.appendSpecification()
+            )
+
+            asyncWorks.executeAll()
+
+            // then
+            assertThat(fetchedPagesCount()).isEqualTo(1)
+        }
+
+    private fun mockSubscriberProperties(
+        lastPresenceMessageTimestamp: Long? = null,
+        presentPublisherMemberKeys: Set<String> = emptySet()
+    ) {
+        every { subscriberProperties.lastPresenceMessageTimestamp } returns lastPresenceMessageTimestamp
+        every { subscriberProperties.getPresentPublisherMemberKeys() } returns presentPublisherMemberKeys
+    }
+
+    /**
+     * @return A function returning the number of the pages passed to the page callback.
+     */
+    private fun mockPresenceHistoryPages(pages: List<List<PresenceMessage>>): () -> Int {
+        var fetchedPagesCount = 0
+        coEvery { ably.getPresenceHistory(trackableId, any(), any()) } answers {
+            val onPage = thirdArg<(List<PresenceMessage>) -> Boolean>()
+            for (page in pages) {
+                fetchedPagesCount++
+                if (!onPage(page)) {
+                    break
+                }
+            }
+            Result.success(Unit)
+        }
+        return { fetchedPagesCount }
+    }
+
+    private fun createPublisherPresenceMessage(action: PresenceAction, timestamp: Long, index: Int) =
+        PresenceMessage(
+            action,
+            PresenceData(ClientTypes.PUBLISHER),
+            timestamp,
+            "memberKey",
+            "clientId",
+            "connectionId",
+            "connectionId:1:$index"
+        )
 }
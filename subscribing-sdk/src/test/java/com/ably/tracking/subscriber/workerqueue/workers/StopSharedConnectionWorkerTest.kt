@@ -0,0 +1,83 @@
+package com.ably.tracking.subscriber.workerqueue.workers
+
+import com.ably.tracking.common.Ably
+import com.ably.tracking.common.ResultCallbackFunction
+import com.ably.tracking.subscriber.MultiSubscriberInteractor
+import com.ably.tracking.subscriber.MultiSubscriberProperties
+import com.ably.tracking.subscriber.StoppingTrackable
+import com.ably.tracking.subscriber.SubscriberStoppedException
+import com.ably.tracking.subscriber.workerqueue.MultiWorkerSpecification
+import com.ably.tracking.subscriber.workerqueue.WorkerSpecification
+import com.ably.tracking.test.common.mockCloseSuccess
+import com.google.common.truth.Truth.assertThat
+import io.mockk.coVerify
+import io.mockk.every
+import io.mockk.just
+import io.mockk.mockk
+import io.mockk.runs
+import io.mockk.verify
+import org.junit.Test
+
+internal class StopSharedConnectionWorkerTest {
+
+    private val ably: Ably = mockk()
+    private val multiSubscriberInteractor: MultiSubscriberInteractor = mockk {
+        every { notifyAllAssetsAreOffline() } just runs
+    }
+    private val callbackFunction: ResultCallbackFunction<Unit> = mockk(relaxed = true)
+    private val stopSharedConnectionWorker =
+        StopSharedConnectionWorker(ably, multiSubscriberInteractor, callbackFunction)
+
+    private val asyncWorks = mutableListOf<suspend () -> Unit>()
+    private val postedWorks = mutableListOf<MultiWorkerSpecification>()
+
+    @Test
+    fun `should close the connection, stop all the trackables and notify callback with success`() {
+        // given
+        val trackableProperties = createSubscriberProperties()
+        val initialProperties = MultiSubscriberProperties(mutableMapOf("123123" to trackableProperties))
+        ably.mockCloseSuccess()
+
+        // when
+        val updatedProperties =
+            stopSharedConnectionWorker.doWork(initialProperties, asyncWorks.appendWork(), postedWorks::add)
+
+        // then
+        coVerify { ably.close(any()) }
+        assertThat(updatedProperties.isStopped).isTrue()
+        assertThat(trackableProperties.isStopped).isTrue()
+        assertThat(updatedProperties.trackables).isEmpty()
+        verify { multiSubscriberInteractor.notifyAllAssetsAreOffline() }
+        verify { callbackFunction.invoke(match { it.isSuccess }) }
+    }
+
+    @Test
+    fun `should post the delayed work of the stopping trackables so it's handled as stopped`() {
+        // given
+        val initialProperties = MultiSubscriberProperties()
+        val stoppingTrackable = StoppingTrackable(mockk())
+        val delayedWork = MultiWorkerSpecification.TrackableWork("123123", WorkerSpecification.SubscribeToChannel, mockk())
+        stoppingTrackable.delayedWork.add(delayedWork)
+        initialProperties.stoppingTrackables["123123"] = stoppingTrackable
+        ably.mockCloseSuccess()
+
+        // when
+        val updatedProperties =
+            stopSharedConnectionWorker.doWork(initialProperties, asyncWorks.appendWork(), postedWorks::add)
+
+        // then
+        assertThat(postedWorks).containsExactly(delayedWork)
+        assertThat(updatedProperties.stoppingTrackables).isEmpty()
+    }
+
+    @Test
+    fun `should call the callback function with a success if the subscriber is already stopped`() {
+        // given
+
+        // when
+        stopSharedConnectionWorker.doWhenStopped(SubscriberStoppedException())
+
+        // then
+        verify { callbackFunction.invoke(match { it.isSuccess }) }
+    }
+}
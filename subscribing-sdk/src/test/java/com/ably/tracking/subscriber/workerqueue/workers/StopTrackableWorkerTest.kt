@@ -0,0 +1,74 @@
+package com.ably.tracking.subscriber.workerqueue.workers
+
+import com.ably.tracking.common.Ably
+import com.ably.tracking.common.ResultCallbackFunction
+import com.ably.tracking.subscriber.SubscriberInteractor
+import com.ably.tracking.subscriber.SubscriberStoppedException
+import com.ably.tracking.subscriber.workerqueue.WorkerSpecification
+import com.ably.tracking.test.common.mockDisconnect
+import io.mockk.coVerify
+import io.mockk.every
+import io.mockk.just
+import io.mockk.mockk
+import io.mockk.runs
+import io.mockk.verify
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.test.runTest
+import org.junit.Assert
+import org.junit.Test
+
+@ExperimentalCoroutinesApi
+internal class StopTrackableWorkerTest {
+
+    private val trackableId = "123123"
+    private val ably: Ably = mockk()
+    private val subscriberInteractor: SubscriberInteractor = mockk {
+        every { notifyAssetIsOffline() } just runs
+    }
+    private val callbackFunction: ResultCallbackFunction<Unit> = mockk(relaxed = true)
+    private val stopTrackableWorker = StopTrackableWorker(ably, trackableId, subscriberInteractor, callbackFunction)
+
+    private val asyncWorks = mutableListOf<suspend () -> Unit>()
+    private val postedWorks = mutableListOf<WorkerSpecification>()
+
+    @Test
+    fun `should stop the trackable and notify that the asset is offline`() = runTest {
+        // given
+        val initialProperties = createSubscriberProperties()
+
+        // when
+        val updatedProperties =
+            stopTrackableWorker.doWork(initialProperties, asyncWorks.appendWork(), postedWorks.appendSpecification())
+
+        // then
+        Assert.assertTrue(updatedProperties.isStopped)
+        verify { subscriberInteractor.notifyAssetIsOffline() }
+    }
+
+    @Test
+    fun `should disconnect from the channel without closing the connection and notify callback with success`() = runTest {
+        // given
+        val initialProperties = createSubscriberProperties()
+        ably.mockDisconnect(trackableId)
+
+        // when
+        stopTrackableWorker.doWork(initialProperties, asyncWorks.appendWork(), postedWorks.appendSpecification())
+        asyncWorks.executeAll()
+
+        // then
+        coVerify { ably.disconnect(trackableId, initialProperties.presenceData) }
+        coVerify(exactly = 0) { ably.close(any()) }
+        verify { callbackFunction.invoke(match { it.isSuccess }) }
+    }
+
+    @Test
+    fun `should call the callback function with a success if trackable is already stopped`() = runTest {
+        // given
+
+        // when
+        stopTrackableWorker.doWhenStopped(SubscriberStoppedException())
+
+        // then
+        verify { callbackFunction.invoke(match { it.isSuccess }) }
+    }
+}
@@ -5,6 +5,7 @@ import com.ably.tracking.Resolution
 import com.ably.tracking.subscriber.SubscriberInteractor
 import com.ably.tracking.subscriber.SubscriberProperties
 import com.ably.tracking.subscriber.workerqueue.WorkerSpecification
+import com.google.common.truth.Truth.assertThat
 import io.mockk.every
 import io.mockk.just
 import io.mockk.mockk
@@ -35,7 +36,7 @@ internal class SubscribeToChannelWorkerTest {
             SubscriberProperties(Resolution(Accuracy.BALANCED, 100, 100.0), mockk())
 
         // when
-        subscribeToChannelWorker.doWork(
+        val updatedProperties = subscribeToChannelWorker.doWork(
             initialProperties,
             asyncWorks.appendWork(),
             postedWorks.appendSpecification()
@@ -45,7 +46,71 @@ internal class SubscribeToChannelWorkerTest {
         verify {
             subscriberInteractor.subscribeForChannelState()
             subscriberInteractor.subscribeForEnhancedEvents(initialProperties.presenceData)
+        }
+        assertThat(updatedProperties.isSubscribedToChannel).isTrue()
+    }
+
+    @Test
+    fun `should not subscribe for raw events if raw locations are not demanded`() = runTest {
+        // given
+        val initialProperties = createSubscriberProperties()
+
+        // when
+        subscribeToChannelWorker.doWork(
+            initialProperties,
+            asyncWorks.appendWork(),
+            postedWorks.appendSpecification()
+        )
+
+        // then
+        verify(exactly = 0) {
+            subscriberInteractor.subscribeForRawEvents(any())
+        }
+        assertThat(postedWorks).isEmpty()
+    }
+
+    @Test
+    fun `should subscribe for raw events and update presence if raw locations are demanded`() = runTest {
+        // given
+        val initialProperties = createSubscriberProperties()
+        initialProperties.presenceData = initialProperties.presenceData.copy(rawLocations = true)
+
+        // when
+        subscribeToChannelWorker.doWork(
+            initialProperties,
+            asyncWorks.appendWork(),
+            postedWorks.appendSpecification()
+        )
+
+        // then
+        verify(exactly = 1) {
             subscriberInteractor.subscribeForRawEvents(initialProperties.presenceData)
         }
+        assertThat(postedWorks).containsExactly(
+            WorkerSpecification.ChangeRawLocationsDemand(isDemanded = true, isPresenceUpdateOnly = true)
+        )
+    }
+
+    @Test
+    fun `should update presence if raw locations demand has changed before subscribing`() = runTest {
+        // given
+        val initialProperties = createSubscriberProperties()
+        initialProperties.isRawLocationsDemandChangedBeforeSubscribing = true
+
+        // when
+        val updatedProperties = subscribeToChannelWorker.doWork(
+            initialProperties,
+            asyncWorks.appendWork(),
+            postedWorks.appendSpecification()
+        )
+
+        // then
+        verify(exactly = 0) {
+            subscriberInteractor.subscribeForRawEvents(any())
+        }
+        assertThat(postedWorks).containsExactly(
+            WorkerSpecification.ChangeRawLocationsDemand(isDemanded = false, isPresenceUpdateOnly = true)
+        )
+        assertThat(updatedProperties.isRawLocationsDemandChangedBeforeSubscribing).isFalse()
     }
 }
@@ -0,0 +1,147 @@
+package com.ably.tracking.subscriber.workerqueue.workers
+
+import com.ably.tracking.common.workerqueue.Worker
+import com.ably.tracking.subscriber.MultiSubscriberProperties
+import com.ably.tracking.subscriber.StoppingTrackable
+import com.ably.tracking.subscriber.SubscriberProperties
+import com.ably.tracking.subscriber.SubscriberStoppedException
+import com.ably.tracking.subscriber.workerqueue.MultiWorkerSpecification
+import com.ably.tracking.subscriber.workerqueue.WorkerFactory
+import com.ably.tracking.subscriber.workerqueue.WorkerSpecification
+import com.google.common.truth.Truth.assertThat
+import io.mockk.every
+import io.mockk.mockk
+import io.mockk.verify
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.test.runTest
+import org.junit.Test
+
+@OptIn(ExperimentalCoroutinesApi::class)
+internal class TrackableWorkerTest {
+
+    private val trackableId = "123123"
+    private val worker: Worker<SubscriberProperties, WorkerSpecification> = mockk(relaxed = true)
+    private val workerFactory: WorkerFactory = mockk()
+    private val specification = WorkerSpecification.SubscribeToChannel
+    private val trackableWorker = TrackableWorker(trackableId, specification, worker, workerFactory)
+
+    private val asyncWorks = mutableListOf<suspend () -> Unit>()
+    private val postedWorks = mutableListOf<MultiWorkerSpecification>()
+
+    @Test
+    fun `should do the work of the trackable with the trackable properties`() {
+        // given
+        val trackableProperties = createSubscriberProperties()
+        val updatedTrackableProperties = createSubscriberProperties()
+        val initialProperties = MultiSubscriberProperties(mutableMapOf(trackableId to trackableProperties))
+        every { worker.doWork(trackableProperties, any(), any()) } returns updatedTrackableProperties
+
+        // when
+        val updatedProperties = trackableWorker.doWork(initialProperties, asyncWorks.appendWork(), postedWorks::add)
+
+        // then
+        assertThat(updatedProperties.trackables[trackableId]).isSameInstanceAs(updatedTrackableProperties)
+    }
+
+    @Test
+    fun `should post the work of the trackable as the trackable work`() {
+        // given
+        val initialProperties = MultiSubscriberProperties(mutableMapOf(trackableId to createSubscriberProperties()))
+        every { worker.doWork(any(), any(), any()) } answers {
+            thirdArg<(WorkerSpecification) -> Unit>().invoke(WorkerSpecification.SubscribeToChannel)
+            firstArg()
+        }
+
+        // when
+        trackableWorker.doWork(initialProperties, asyncWorks.appendWork(), postedWorks::add)
+
+        // then
+        assertThat(postedWorks).containsExactly(
+            MultiWorkerSpecification.TrackableWork(trackableId, WorkerSpecification.SubscribeToChannel, workerFactory)
+        )
+    }
+
+    @Test
+    fun `should remove the trackable when its work stops it`() {
+        // given
+        val initialProperties = MultiSubscriberProperties(mutableMapOf(trackableId to createSubscriberProperties()))
+        every { worker.doWork(any(), any(), any()) } answers {
+            firstArg<SubscriberProperties>().apply { isStopped = true }
+        }
+
+        // when
+        val updatedProperties = trackableWorker.doWork(initialProperties, asyncWorks.appendWork(), postedWorks::add)
+
+        // then
+        assertThat(updatedProperties.trackables).doesNotContainKey(trackableId)
+    }
+
+    @Test
+    fun `should treat the work of a trackable that is not added as stopped`() {
+        // given
+        val initialProperties = MultiSubscriberProperties()
+
+        // when
+        trackableWorker.doWork(initialProperties, asyncWorks.appendWork(), postedWorks::add)
+
+        // then
+        verify(exactly = 0) { worker.doWork(any(), any(), any()) }
+        verify { worker.doWhenStopped(any<SubscriberStoppedException>()) }
+    }
+
+    @Test
+    fun `should mark the trackable as stopping until the async work of its stopping completes`() = runTest {
+        // given
+        val initialProperties = MultiSubscriberProperties(mutableMapOf(trackableId to createSubscriberProperties()))
+        every { worker.doWork(any(), any(), any()) } answers {
+            secondArg<(suspend () -> Unit) -> Unit>().invoke {}
+            firstArg<SubscriberProperties>().apply { isStopped = true }
+        }
+
+        // when
+        val updatedProperties = trackableWorker.doWork(initialProperties, asyncWorks.appendWork(), postedWorks::add)
+
+        // then
+        assertThat(updatedProperties.stoppingTrackables).containsKey(trackableId)
+        assertThat(postedWorks).isEmpty()
+
+        // when
+        asyncWorks.executeAll()
+
+        // then
+        assertThat(postedWorks).containsExactly(MultiWorkerSpecification.TrackableStopped(trackableId))
+    }
+
+    @Test
+    fun `should delay the work of a trackable added again while it is stopping`() {
+        // given
+        val initialProperties = MultiSubscriberProperties()
+        initialProperties.stoppingTrackables[trackableId] = StoppingTrackable(mockk())
+
+        // when
+        val updatedProperties = trackableWorker.doWork(initialProperties, asyncWorks.appendWork(), postedWorks::add)
+
+        // then
+        verify(exactly = 0) {
+            worker.doWork(any(), any(), any())
+            worker.doWhenStopped(any())
+        }
+        assertThat(updatedProperties.stoppingTrackables[trackableId]?.delayedWork).containsExactly(
+            MultiWorkerSpecification.TrackableWork(trackableId, specification, workerFactory)
+        )
+    }
+
+    @Test
+    fun `should treat the remaining work of a stopping trackable as stopped`() {
+        // given
+        val initialProperties = MultiSubscriberProperties()
+        initialProperties.stoppingTrackables[trackableId] = StoppingTrackable(workerFactory)
+
+        // when
+        val updatedProperties = trackableWorker.doWork(initialProperties, asyncWorks.appendWork(), postedWorks::add)
+
+        // then
+        verify { worker.doWhenStopped(any<SubscriberStoppedException>()) }
+        assertThat(updatedProperties.stoppingTrackables[trackableId]?.delayedWork).isEmpty()
+    }
+}
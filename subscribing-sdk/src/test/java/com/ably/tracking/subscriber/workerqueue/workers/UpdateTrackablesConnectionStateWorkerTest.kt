@@ -0,0 +1,52 @@
+package com.ably.tracking.subscriber.workerqueue.workers
+
+import com.ably.tracking.common.ConnectionState
+import com.ably.tracking.common.ConnectionStateChange
+import com.ably.tracking.subscriber.MultiSubscriberProperties
+import com.ably.tracking.subscriber.SubscriberProperties
+import com.ably.tracking.subscriber.workerqueue.MultiWorkerSpecification
+import com.google.common.truth.Truth.assertThat
+import io.mockk.mockk
+import io.mockk.verify
+import org.junit.Test
+
+internal class UpdateTrackablesConnectionStateWorkerTest {
+
+    private val connectionStateChange = ConnectionStateChange(ConnectionState.ONLINE, null)
+    private val updateTrackablesConnectionStateWorker = UpdateTrackablesConnectionStateWorker(connectionStateChange)
+
+    private val asyncWorks = mutableListOf<suspend () -> Unit>()
+    private val postedWorks = mutableListOf<MultiWorkerSpecification>()
+
+    @Test
+    fun `should update all the trackables with the connection state change`() {
+        // given
+        val firstTrackableProperties: SubscriberProperties = mockk(relaxed = true)
+        val secondTrackableProperties: SubscriberProperties = mockk(relaxed = true)
+        val initialProperties = MultiSubscriberProperties(
+            mutableMapOf("first" to firstTrackableProperties, "second" to secondTrackableProperties)
+        )
+
+        // when
+        updateTrackablesConnectionStateWorker.doWork(initialProperties, asyncWorks.appendWork(), postedWorks::add)
+
+        // then
+        verify {
+            firstTrackableProperties.updateForConnectionStateChangeAndThenEmitStateEventsIfRequired(connectionStateChange)
+            secondTrackableProperties.updateForConnectionStateChangeAndThenEmitStateEventsIfRequired(connectionStateChange)
+        }
+    }
+
+    @Test
+    fun `should remember the connection state change for the trackables added later`() {
+        // given
+        val initialProperties = MultiSubscriberProperties()
+
+        // when
+        val updatedProperties =
+            updateTrackablesConnectionStateWorker.doWork(initialProperties, asyncWorks.appendWork(), postedWorks::add)
+
+        // then
+        assertThat(updatedProperties.lastConnectionStateChange).isEqualTo(connectionStateChange)
+    }
+}